@@ -0,0 +1,83 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.benchmark.dataStructures;
+
+import jetbrains.exodus.core.dataStructures.hash.LongHashSet;
+import jetbrains.exodus.core.dataStructures.hash.LongSet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings({"MismatchedQueryAndUpdateOfCollection", "UnusedDeclaration"})
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JMHLongHashSetBenchmark {
+
+    private static final int SET_SIZE = 100000;
+    private static final long KEY_STEP = 0x10001L;
+
+    final LongSet set = createSet();
+    long existingKey = 0;
+    long missingKey = SET_SIZE * KEY_STEP;
+
+    @Setup
+    public void prepare() {
+        for (int i = 0; i < SET_SIZE; ++i) {
+            set.add(i * KEY_STEP);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void changeIndex() {
+        existingKey += KEY_STEP;
+        if (existingKey == SET_SIZE * KEY_STEP) {
+            existingKey = 0;
+        }
+        missingKey += KEY_STEP;
+    }
+
+    @Benchmark
+    @Warmup(iterations = 4, time = 1)
+    @Measurement(iterations = 6, batchSize = 10000)
+    @Fork(5)
+    public boolean longSetContains() {
+        return set.contains(existingKey);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 4, time = 1)
+    @Measurement(iterations = 6, batchSize = 10000)
+    @Fork(5)
+    public boolean longSetContainsMissingKey() {
+        return set.contains(missingKey);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 4, time = 1)
+    @Measurement(iterations = 6)
+    @Fork(5)
+    public LongSet longSetBuild() {
+        final LongSet result = createSet();
+        for (int i = 0; i < SET_SIZE; ++i) {
+            result.add(i * KEY_STEP);
+        }
+        return result;
+    }
+
+    protected LongSet createSet() {
+        return new LongHashSet();
+    }
+}
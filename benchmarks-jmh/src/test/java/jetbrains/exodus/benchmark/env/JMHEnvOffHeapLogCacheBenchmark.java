@@ -0,0 +1,155 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.benchmark.env;
+
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.bindings.StringBinding;
+import jetbrains.exodus.env.*;
+import org.jetbrains.annotations.NotNull;
+import org.junit.rules.TemporaryFolder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures random reads from a store which doesn't fit the (small) on-heap log cache, with and without off-heap
+ * log cache large enough to hold the whole log. With off-heap cache, a page missing in the on-heap cache is copied
+ * from off-heap memory instead of being read from the file.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JMHEnvOffHeapLogCacheBenchmark {
+
+    private static final int KEYS_COUNT = 1000000;
+    private static final long ON_HEAP_CACHE_MEMORY_USAGE = 4L * 1024 * 1024;
+    private static final long OFF_HEAP_CACHE_MEMORY_USAGE = 256L * 1024 * 1024;
+    private static final String STORE_NAME = "OffHeapLogCacheBenchmarkStore";
+
+    private static final ByteIterable[] randomKeys;
+
+    static {
+        final DecimalFormat FORMAT = (DecimalFormat) NumberFormat.getIntegerInstance();
+        FORMAT.applyPattern("00000000");
+        randomKeys = new ByteIterable[KEYS_COUNT];
+        for (int i = 0; i < KEYS_COUNT; i++) {
+            randomKeys[i] = StringBinding.stringToEntry(FORMAT.format(i));
+        }
+        Collections.shuffle(Arrays.asList(randomKeys));
+    }
+
+    @State(Scope.Benchmark)
+    public static class OnHeapCache extends EnvState {
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            open(0);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class OffHeapCache extends EnvState {
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            open(OFF_HEAP_CACHE_MEMORY_USAGE);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 6)
+    @Fork(4)
+    public int randomReadOnHeapCache(@NotNull final OnHeapCache state) {
+        return state.randomRead();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 6)
+    @Fork(4)
+    public int randomReadOffHeapCache(@NotNull final OffHeapCache state) {
+        return state.randomRead();
+    }
+
+    abstract static class EnvState {
+
+        private TemporaryFolder temporaryFolder;
+        private Environment env;
+        private Store store;
+
+        void open(final long offHeapMemoryUsage) throws IOException {
+            temporaryFolder = new TemporaryFolder();
+            temporaryFolder.create();
+            final EnvironmentConfig ec = new EnvironmentConfig();
+            ec.setLogCacheShared(false);
+            ec.setMemoryUsage(ON_HEAP_CACHE_MEMORY_USAGE);
+            ec.setLogCacheOffHeapMemoryUsage(offHeapMemoryUsage);
+            env = Environments.newInstance(temporaryFolder.newFolder("data"), ec);
+            store = env.computeInTransaction(new TransactionalComputable<Store>() {
+                @Override
+                public Store compute(@NotNull final Transaction txn) {
+                    return env.openStore(STORE_NAME, StoreConfig.WITHOUT_DUPLICATES, txn);
+                }
+            });
+            env.executeInTransaction(new TransactionalExecutable() {
+                @Override
+                public void execute(@NotNull final Transaction txn) {
+                    for (final ByteIterable key : randomKeys) {
+                        store.add(txn, key, key);
+                    }
+                }
+            });
+            // off-heap cache is filled on reading pages, so the first iterations are expected to be warm-up ones
+        }
+
+        void close() {
+            env.close();
+            temporaryFolder.delete();
+        }
+
+        int randomRead() {
+            return env.computeInReadonlyTransaction(new TransactionalComputable<Integer>() {
+                @Override
+                public Integer compute(@NotNull final Transaction txn) {
+                    int result = 0;
+                    final Cursor c = store.openCursor(txn);
+                    for (final ByteIterable key : randomKeys) {
+                        c.getSearchKey(key);
+                        result += c.getValue().getLength();
+                    }
+                    c.close();
+                    return result;
+                }
+            });
+        }
+    }
+}
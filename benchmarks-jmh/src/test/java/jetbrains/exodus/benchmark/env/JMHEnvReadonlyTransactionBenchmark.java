@@ -0,0 +1,88 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.benchmark.env;
+
+import jetbrains.exodus.env.Environment;
+import jetbrains.exodus.env.Environments;
+import jetbrains.exodus.env.Transaction;
+import org.junit.rules.TemporaryFolder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures throughput of beginning and aborting read-only transactions by several threads in parallel.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JMHEnvReadonlyTransactionBenchmark {
+
+    private TemporaryFolder temporaryFolder;
+    private Environment env;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        temporaryFolder = new TemporaryFolder();
+        temporaryFolder.create();
+        env = Environments.newInstance(temporaryFolder.newFolder("data"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        env.close();
+        temporaryFolder.delete();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Warmup(iterations = 4, time = 1)
+    @Measurement(iterations = 6, time = 1)
+    @Fork(2)
+    @Threads(1)
+    public long beginAbort1Thread() {
+        return beginAbort();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Warmup(iterations = 4, time = 1)
+    @Measurement(iterations = 6, time = 1)
+    @Fork(2)
+    @Threads(4)
+    public long beginAbort4Threads() {
+        return beginAbort();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Warmup(iterations = 4, time = 1)
+    @Measurement(iterations = 6, time = 1)
+    @Fork(2)
+    @Threads(16)
+    public long beginAbort16Threads() {
+        return beginAbort();
+    }
+
+    private long beginAbort() {
+        final Transaction txn = env.beginReadonlyTransaction();
+        try {
+            return txn.getHighAddress();
+        } finally {
+            txn.abort();
+        }
+    }
+}
@@ -19,6 +19,7 @@ import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.core.dataStructures.ConcurrentObjectCache;
 import jetbrains.exodus.core.dataStructures.ObjectCacheBase;
 import jetbrains.exodus.core.dataStructures.Priority;
+import jetbrains.exodus.core.dataStructures.TinyLfuObjectCache;
 import jetbrains.exodus.core.execution.Job;
 import jetbrains.exodus.entitystore.iterate.EntityIterableBase;
 import org.jetbrains.annotations.NotNull;
@@ -47,8 +48,8 @@ public final class EntityIterableCacheImpl implements EntityIterableCache {
         config = store.getConfig();
         cacheAdapter = new EntityIterableCacheAdapter(config);
         final int cacheSize = config.getEntityIterableCacheSize();
-        deferredIterablesCache = new ConcurrentObjectCache<>(cacheSize);
-        iterableCountsCache = new ConcurrentObjectCache<>(cacheSize * 2);
+        deferredIterablesCache = createCache(cacheSize, config.getEntityIterableCacheFrequencySketch());
+        iterableCountsCache = createCache(cacheSize * 2, config.getEntityIterableCacheFrequencySketch());
         processor = new EntityStoreSharedAsyncProcessor(config.getEntityIterableCacheThreadCount());
         processor.start();
     }
@@ -225,6 +226,10 @@ public final class EntityIterableCacheImpl implements EntityIterableCache {
         }
     }
 
+    private static <K, V> ObjectCacheBase<K, V> createCache(final int cacheSize, final boolean frequencySketch) {
+        return frequencySketch ? new TinyLfuObjectCache<K, V>(cacheSize) : new ConcurrentObjectCache<K, V>(cacheSize);
+    }
+
     private final class CachingCancellingPolicy implements QueryCancellingPolicy {
 
         private final long startTime;
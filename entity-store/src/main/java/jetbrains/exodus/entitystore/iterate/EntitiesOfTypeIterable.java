@@ -65,6 +65,26 @@ public class EntitiesOfTypeIterable extends EntityIterableBase {
         return true;
     }
 
+    @Override
+    public int indexOf(@NotNull final Entity entity) {
+        if (!hasPositionalAccess()) {
+            return super.indexOf(entity);
+        }
+        final EntityId entityId = entity.getId();
+        if (entityId.getTypeId() != entityTypeId) {
+            return -1;
+        }
+        final Cursor index = getStore().getEntitiesIndexCursor(getTransaction(), entityTypeId);
+        try {
+            if (index.getSearchKey(LongBinding.longToCompressedEntry(entityId.getLocalId())) == null) {
+                return -1;
+            }
+            return (int) index.getPosition();
+        } finally {
+            index.close();
+        }
+    }
+
     @Override
     @NotNull
     protected EntityIterableHandle getHandleImpl() {
@@ -81,10 +101,18 @@ public class EntitiesOfTypeIterable extends EntityIterableBase {
         return new EntitiesOfTypeIterableWrapper(txn, getStore(), this);
     }
 
+    /**
+     * If subtree sizes are saved in the trees, the index cursor is positioned in logarithmic time.
+     */
+    private boolean hasPositionalAccess() {
+        return getStore().getEnvironment().getEnvironmentConfig().isTreeSubtreeSizes();
+    }
+
     private final class EntitiesOfTypeIterator extends EntityIteratorBase {
 
         private boolean hasNext;
         private boolean hasNextValid;
+        private boolean started;
 
         private EntitiesOfTypeIterator(@NotNull final EntitiesOfTypeIterable iterable,
                                        @NotNull final Cursor index) {
@@ -97,10 +125,37 @@ public class EntitiesOfTypeIterable extends EntityIterableBase {
             if (!hasNextValid) {
                 hasNext = getCursor().getNext();
                 hasNextValid = true;
+                started = true;
             }
             return hasNext;
         }
 
+        @Override
+        protected void skipImpl(final int number) {
+            if (number <= 0 || !hasPositionalAccess()) {
+                super.skipImpl(number);
+                return;
+            }
+            final Cursor index = getCursor();
+            final long position;
+            if (!started) {
+                // the cursor is before the first entity
+                position = number;
+            } else if (hasNextValid) {
+                if (!hasNext) {
+                    return;
+                }
+                // the cursor is at the next entity
+                position = index.getPosition() + number;
+            } else {
+                // the cursor is at the entity returned last
+                position = index.getPosition() + number + 1;
+            }
+            hasNext = index.getAtPosition(position);
+            hasNextValid = true;
+            started = true;
+        }
+
         @Override
         public int getCurrentVersion() {
             return IntegerBinding.compressedEntryToInt(getCursor().getValue());
@@ -109,9 +109,7 @@ public abstract class EntityIteratorBase implements EntityIterator {
         }
         checkDisposed();
         try {
-            while (number-- > 0 && hasNextImpl()) {
-                nextIdImpl();
-            }
+            skipImpl(number);
             return hasNextImpl();
         } catch (ExodusException e) {
             disposeIfShouldBe();
@@ -119,6 +117,16 @@ public abstract class EntityIteratorBase implements EntityIterator {
         }
     }
 
+    /**
+     * Skips specified number of entities one by one. Iterators which can position their cursors
+     * faster override this method.
+     */
+    protected void skipImpl(int number) {
+        while (number-- > 0 && hasNextImpl()) {
+            nextIdImpl();
+        }
+    }
+
     @Override
     @Nullable
     public EntityId nextId() {
@@ -16,8 +16,8 @@
 package jetbrains.exodus.entitystore.util;
 
 import jetbrains.exodus.core.dataStructures.hash.IntHashMap;
-import jetbrains.exodus.core.dataStructures.hash.LongHashSet;
 import jetbrains.exodus.core.dataStructures.hash.LongIterator;
+import jetbrains.exodus.core.dataStructures.hash.LongOpenHashSet;
 import jetbrains.exodus.core.dataStructures.hash.LongSet;
 import jetbrains.exodus.entitystore.EntityId;
 import jetbrains.exodus.entitystore.PersistentEntityId;
@@ -60,7 +60,7 @@ public class EntityIdSet implements Iterable<EntityId> {
             localIds = set.get(typeId);
         }
         if (localIds == null) {
-            localIds = new LongHashSet(100);
+            localIds = new LongOpenHashSet(100);
             set.put(typeId, localIds);
             if (set.size() > 1) {
                 singleTypeLocalIds = null;
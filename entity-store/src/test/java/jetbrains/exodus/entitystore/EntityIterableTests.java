@@ -19,7 +19,9 @@ import jetbrains.exodus.entitystore.iterate.EntityIterableBase;
 import jetbrains.exodus.entitystore.iterate.EntityIteratorBase;
 import org.junit.Assert;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 @SuppressWarnings({"HardCodedStringLiteral", "AutoBoxing", "ConstantConditions", "JUnitTestClassNamingConvention",
         "StringContatenationInLoop", "UnusedDeclaration", "WhileLoopReplaceableByForEach", "LoopStatementThatDoesntLoop"})
@@ -216,6 +218,30 @@ public class EntityIterableTests extends EntityStoreTestBase {
         Assert.assertFalse(txn.getAll("Comment").intersect(txn.getAll("Issue")).iterator().skip(0));
     }
 
+    public void testSkipAndIndexOfWithSubtreeSizes() {
+        getEntityStore().getEnvironment().getEnvironmentConfig().setTreeSubtreeSizes(true);
+        final StoreTransaction txn = getStoreTransaction();
+        final List<Entity> issues = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            issues.add(txn.newEntity("Issue"));
+        }
+        txn.flush();
+        final EntityIterator it = txn.getAll("Issue").iterator();
+        Assert.assertTrue(it.skip(10));
+        Assert.assertEquals(issues.get(10), it.next());
+        Assert.assertTrue(it.skip(100));
+        Assert.assertEquals(issues.get(111), it.next());
+        Assert.assertTrue(it.hasNext());
+        Assert.assertTrue(it.skip(500));
+        Assert.assertEquals(issues.get(612), it.next());
+        Assert.assertFalse(it.skip(387));
+        Assert.assertEquals(900, (int) txn.getAll("Issue").skip(100).size());
+        for (final int i : new int[]{0, 1, 500, 999}) {
+            Assert.assertEquals(i, txn.getAll("Issue").indexOf(issues.get(i)));
+        }
+        Assert.assertEquals(-1, txn.getAll("Issue").indexOf(txn.newEntity("Comment")));
+    }
+
     public void testSkipIterable() {
         Assert.assertTrue(EntityIterableBase.EMPTY == EntityIterableBase.EMPTY.skip(0));
         Assert.assertTrue(EntityIterableBase.EMPTY == EntityIterableBase.EMPTY.skip(1));
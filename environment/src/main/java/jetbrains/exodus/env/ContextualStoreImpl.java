@@ -16,10 +16,14 @@
 package jetbrains.exodus.env;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.tree.TreeMetaInfo;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
+import java.util.Iterator;
+
 public class ContextualStoreImpl extends StoreImpl implements ContextualStore {
 
     @NotNull
@@ -41,6 +45,11 @@ public class ContextualStoreImpl extends StoreImpl implements ContextualStore {
         return get(environment.getAndCheckCurrentTransaction(), key);
     }
 
+    @NotNull
+    public ByteIterable[] getAll(@NotNull final ByteIterable[] keys) {
+        return getAll(environment.getAndCheckCurrentTransaction(), keys);
+    }
+
     public boolean exists(@NotNull final ByteIterable key, @NotNull final ByteIterable data) {
         return exists(environment.getAndCheckCurrentTransaction(), key, data);
     }
@@ -53,6 +62,10 @@ public class ContextualStoreImpl extends StoreImpl implements ContextualStore {
         putRight(environment.getAndCheckCurrentTransaction(), key, value);
     }
 
+    public int putAll(@NotNull final Collection<Pair<ByteIterable, ByteIterable>> pairs) {
+        return putAll(environment.getAndCheckCurrentTransaction(), pairs);
+    }
+
     public boolean add(@NotNull final ByteIterable key, @NotNull final ByteIterable value) {
         return add(environment.getAndCheckCurrentTransaction(), key, value);
     }
@@ -61,10 +74,22 @@ public class ContextualStoreImpl extends StoreImpl implements ContextualStore {
         return delete(environment.getAndCheckCurrentTransaction(), key);
     }
 
+    public long deleteRange(@NotNull final ByteIterable from, @NotNull final ByteIterable to) {
+        return deleteRange(environment.getAndCheckCurrentTransaction(), from, to);
+    }
+
+    public void bulkLoad(@NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs) {
+        bulkLoad(environment.getAndCheckCurrentTransaction(), pairs);
+    }
+
     public long count() {
         return count(environment.getAndCheckCurrentTransaction());
     }
 
+    public long countRange(@NotNull final ByteIterable from, @NotNull final ByteIterable to) {
+        return countRange(environment.getAndCheckCurrentTransaction(), from, to);
+    }
+
     public Cursor openCursor() {
         return openCursor(environment.getAndCheckCurrentTransaction());
     }
@@ -32,6 +32,7 @@ final class CursorImpl implements Cursor {
     @NotNull
     private final TransactionImpl txn;
     private ITreeCursor treeCursor;
+    private boolean flyweight;
     private volatile boolean isClosed;
 
     CursorImpl(@NotNull final StoreImpl store, @NotNull final TransactionImpl txn) {
@@ -97,6 +98,19 @@ final class CursorImpl implements Cursor {
         return treeCursor.getValue();
     }
 
+    @Override
+    public void setFlyweight(final boolean flyweight) {
+        this.flyweight = flyweight;
+        if (treeCursor != null) {
+            treeCursor.setFlyweight(flyweight);
+        }
+    }
+
+    @Override
+    public boolean isFlyweight() {
+        return flyweight;
+    }
+
     @Override
     public ByteIterable getSearchKey(@NotNull final ByteIterable key) {
         checkTreeCursor();
@@ -125,6 +139,20 @@ final class CursorImpl implements Cursor {
         return treeCursor.getSearchBothRange(key, value);
     }
 
+    @Override
+    public boolean getAtPosition(final long position) {
+        checkTreeCursor();
+        setTreeNodesCache();
+        return treeCursor.getAtPosition(position);
+    }
+
+    @Override
+    public long getPosition() {
+        checkTreeCursor();
+        setTreeNodesCache();
+        return treeCursor.getPosition();
+    }
+
     @Override
     public int count() {
         checkTreeCursor();
@@ -146,12 +174,14 @@ final class CursorImpl implements Cursor {
     public boolean deleteCurrent() {
         if (treeCursor == null) {
             treeCursor = txn.getMutableTree(store).openCursor();
+            treeCursor.setFlyweight(flyweight);
         } else {
             if (!treeCursor.isMutable()) {
                 final ByteIterable key = treeCursor.getKey();
                 final ByteIterable value = treeCursor.getValue();
                 final ITreeCursor newCursor = txn.getMutableTree(store).openCursor();
                 if (newCursor.getSearchBoth(key, value)) {
+                    newCursor.setFlyweight(flyweight);
                     treeCursor = newCursor; // navigated to same pair, ready to delete
                 } else {
                     throw new ConcurrentModificationException(CANT_DELETE_MODIFIED_MSG);
@@ -164,6 +194,7 @@ final class CursorImpl implements Cursor {
     private void checkTreeCursor() {
         if (treeCursor == null) {
             treeCursor = txn.getTree(store).openCursor();
+            treeCursor.setFlyweight(flyweight);
         }
     }
 
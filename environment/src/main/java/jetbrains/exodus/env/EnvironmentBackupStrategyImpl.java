@@ -16,6 +16,8 @@
 package jetbrains.exodus.env;
 
 import jetbrains.exodus.BackupStrategy;
+import jetbrains.exodus.io.CompressedFileDataReader;
+import jetbrains.exodus.log.Log;
 import jetbrains.exodus.log.LogUtil;
 import jetbrains.exodus.util.IOUtil;
 import org.jetbrains.annotations.NotNull;
@@ -36,7 +38,9 @@ class EnvironmentBackupStrategyImpl extends BackupStrategy {
     @Override
     public void beforeBackup() {
         environment.suspendGC();
-        environment.getLog().flush(true);
+        final Log log = environment.getLog();
+        log.suspendCompression();
+        log.flush(true);
     }
 
     @Override
@@ -60,7 +64,9 @@ class EnvironmentBackupStrategyImpl extends BackupStrategy {
                             final File file = files[i++];
                             if (file.isFile()) {
                                 final long fileSize = file.length();
-                                if (fileSize != 0 && file.getName().endsWith(LogUtil.LOG_FILE_EXTENSION)) {
+                                final String name = file.getName();
+                                if (fileSize != 0 && (name.endsWith(LogUtil.LOG_FILE_EXTENSION) ||
+                                        name.endsWith(CompressedFileDataReader.COMPRESSED_FILE_EXTENSION))) {
                                     next = new FileDescriptor(file, "", fileSize);
                                     return true;
                                 }
@@ -90,6 +96,7 @@ class EnvironmentBackupStrategyImpl extends BackupStrategy {
 
     @Override
     public void afterBackup() {
+        environment.getLog().resumeCompression();
         environment.resumeGC();
     }
 }
@@ -23,9 +23,11 @@ import jetbrains.exodus.core.dataStructures.LongObjectCacheBase;
 import jetbrains.exodus.core.dataStructures.ObjectCacheBase;
 import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.gc.GarbageCollector;
+import jetbrains.exodus.io.CompressedFileDataReader;
 import jetbrains.exodus.log.Log;
 import jetbrains.exodus.log.LogUtil;
 import jetbrains.exodus.log.Loggable;
+import jetbrains.exodus.tree.SharedTreeNodesCache;
 import jetbrains.exodus.tree.TreeMetaInfo;
 import jetbrains.exodus.tree.btree.BTree;
 import jetbrains.exodus.tree.btree.BTreeBalancePolicy;
@@ -52,6 +54,8 @@ public class EnvironmentImpl implements Environment {
 
     private static final String ENVIRONMENT_PROPERTIES_FILE = "exodus.properties";
 
+    private static volatile SharedTreeNodesCache sharedTreeNodesCache = null;
+
     @NotNull
     private final Log log;
     @NotNull
@@ -61,10 +65,14 @@ public class EnvironmentImpl implements Environment {
     private final AtomicInteger structureId;
     private final TransactionSet txns;
     private final LinkedList<RunnableWithTxnRoot> txnSafeTasks;
+    // is read without lock on finishing transactions
+    private volatile boolean hasTxnSafeTasks;
     @Nullable
     private StoreGetCache storeGetCache;
     @Nullable
     private SoftReference<LongObjectCacheBase> treeNodesCache;
+    @Nullable
+    private LongObjectCacheBase<Object> sharedTreeNodesCachePartition;
     private final EnvironmentSettingsListener envSettingsListener;
     private final GarbageCollector gc;
     private final Object commitLock = new Object();
@@ -79,6 +87,7 @@ public class EnvironmentImpl implements Environment {
      * it will remain inoperative forever.
      */
     private volatile Throwable throwableOnCommit;
+    private long lastCheckpointTime; // guarded by commitLock
 
     private Throwable throwableOnClose;
 
@@ -151,6 +160,8 @@ public class EnvironmentImpl implements Environment {
         final TransactionImpl txn = (TransactionImpl) transaction;
         final TreeMetaInfo metaInfo = getCurrentMetaInfo(name, txn);
         if (metaInfo == null && !creationRequired) {
+            // absence of the store is read from the meta tree, so its concurrent creation is a conflict
+            txn.setMetaTreeRead();
             return null;
         }
         return openStoreImpl(name, config, txn, metaInfo);
@@ -246,6 +257,7 @@ public class EnvironmentImpl implements Environment {
         } else {
             synchronized (txnSafeTasks) {
                 txnSafeTasks.addLast(new RunnableWithTxnRoot(task, newestTxnRoot));
+                hasTxnSafeTasks = true;
             }
         }
     }
@@ -260,6 +272,7 @@ public class EnvironmentImpl implements Environment {
                     log.clear();
                     runAllTransactionSafeTasks();
                     txnSafeTasks.clear();
+                    hasTxnSafeTasks = false;
                     throwableOnCommit = null;
                     final Pair<MetaTree, Integer> meta = MetaTree.create(this);
                     metaTree = meta.getFirst();
@@ -281,8 +294,10 @@ public class EnvironmentImpl implements Environment {
         // it is safe to invoke gc.finish() several times
         gc.finish();
         final double logCacheHitRate;
+        final double offHeapLogCacheHitRate;
         final double storeGetCacheHitRate;
         final double treeNodesCacheHitRate;
+        final String sharedTreeNodesCacheStats;
         synchronized (commitLock) {
             if (!isOpen()) {
                 throw new IllegalStateException("Already closed, see cause for previous close stack trace", throwableOnClose);
@@ -291,16 +306,27 @@ public class EnvironmentImpl implements Environment {
             try {
                 if (!ec.getEnvIsReadonly()) {
                     gc.saveUtilizationProfile();
+                    log.saveCheckpoint(metaTree.root);
                 }
                 ec.removeChangedSettingsListener(envSettingsListener);
                 logCacheHitRate = log.getCacheHitRate();
+                offHeapLogCacheHitRate = log.getOffHeapCacheHitRate();
                 log.close();
             } finally {
                 log.release();
             }
             storeGetCacheHitRate = storeGetCache == null ? 0 : storeGetCache.hitRate();
-            final LongObjectCacheBase treeNodesCache = this.treeNodesCache == null ? null : this.treeNodesCache.get();
+            LongObjectCacheBase treeNodesCache = sharedTreeNodesCachePartition;
+            if (treeNodesCache == null) {
+                treeNodesCache = this.treeNodesCache == null ? null : this.treeNodesCache.get();
+            }
             treeNodesCacheHitRate = treeNodesCache == null ? 0 : treeNodesCache.hitRate();
+            // shared cache stats are read before the partition is released
+            final SharedTreeNodesCache sharedTreeNodesCache = EnvironmentImpl.sharedTreeNodesCache;
+            sharedTreeNodesCacheStats = sharedTreeNodesCachePartition == null || sharedTreeNodesCache == null ? null :
+                    ObjectCacheBase.formatHitRate(sharedTreeNodesCache.hitRate()) + ", memory usage: " +
+                            sharedTreeNodesCache.getMemoryUsage() + " of " + sharedTreeNodesCache.getMaxMemoryUsage() + " bytes";
+            releaseSharedTreeNodesCachePartition();
             throwableOnClose = new Throwable();
             throwableOnCommit = EnvironmentClosedException.INSTANCE;
         }
@@ -308,7 +334,13 @@ public class EnvironmentImpl implements Environment {
         if (logger.isInfoEnabled()) {
             logger.info("Store get cache hit rate: " + ObjectCacheBase.formatHitRate(storeGetCacheHitRate));
             logger.info("Tree nodes cache hit rate: " + ObjectCacheBase.formatHitRate(treeNodesCacheHitRate));
+            if (sharedTreeNodesCacheStats != null) {
+                logger.info("Shared tree nodes cache hit rate: " + sharedTreeNodesCacheStats);
+            }
             logger.info("Exodus log cache hit rate: " + ObjectCacheBase.formatHitRate(logCacheHitRate));
+            if (ec.getLogCacheOffHeapMemoryUsage() != 0) {
+                logger.info("Exodus off-heap log cache hit rate: " + ObjectCacheBase.formatHitRate(offHeapLogCacheHitRate));
+            }
         }
     }
 
@@ -339,7 +371,9 @@ public class EnvironmentImpl implements Environment {
 
     @Override
     public long getDiskUsage() {
-        return IOUtil.getDirectorySize(new File(getLocation()), LogUtil.LOG_FILE_EXTENSION, false);
+        final File location = new File(getLocation());
+        return IOUtil.getDirectorySize(location, LogUtil.LOG_FILE_EXTENSION, false) +
+                IOUtil.getDirectorySize(location, CompressedFileDataReader.COMPRESSED_FILE_EXTENSION, false);
     }
 
     @Override
@@ -349,7 +383,9 @@ public class EnvironmentImpl implements Environment {
     }
 
     public boolean storeExists(@NotNull final String storeName, @NotNull final Transaction transaction) {
-        return getCurrentMetaInfo(storeName, (TransactionImpl) transaction) != null;
+        final TransactionImpl txn = (TransactionImpl) transaction;
+        txn.setMetaTreeRead();
+        return getCurrentMetaInfo(storeName, txn) != null;
     }
 
     @NotNull
@@ -375,7 +411,7 @@ public class EnvironmentImpl implements Environment {
     public BTreeBalancePolicy getBTreeBalancePolicy() {
         // we don't care of possible race condition here
         if (balancePolicy == null) {
-            balancePolicy = new BTreeBalancePolicy(ec.getTreeMaxPageSize());
+            balancePolicy = new BTreeBalancePolicy(ec.getTreeMaxPageSize(), ec.getTreeKeyPrefixLength(), ec.isTreeSubtreeSizes());
         }
         return balancePolicy;
     }
@@ -436,24 +472,34 @@ public class EnvironmentImpl implements Environment {
         if (!forceCommit && txn.isIdempotent()) {
             return true;
         }
+        final long started = System.nanoTime();
+        // encode modified trees as far as possible before entering the critical section
+        txn.prepareCommit();
         final Iterable<Loggable>[] expiredLoggables;
+        final long committedHighAddress;
         synchronized (commitLock) {
             if (ec.getEnvIsReadonly()) {
                 throw new ReadonlyTransactionException();
             }
             checkIsOperative();
-            if (!txn.checkVersion(metaTree.root)) {
-                // meta lock not needed 'cause write can only occur in another commit lock
+            // meta lock not needed 'cause write can only occur in another commit lock
+            final MetaTree base;
+            if (txn.checkVersion(metaTree.root)) {
+                base = txn.getMetaTree();
+            } else if (ec.getEnvTxnRebase() && txn.canRebase(metaTree)) {
+                base = metaTree;
+            } else {
                 return false;
             }
             final long highAddress = log.getHighAddress();
             try {
                 final MetaTree[] tree = new MetaTree[1];
-                expiredLoggables = txn.doCommit(tree);
+                expiredLoggables = txn.doCommit(base, tree);
                 synchronized (metaLock) {
                     txn.setMetaTree(metaTree = tree[0]);
                     txn.executeCommitHook();
                 }
+                committedHighAddress = log.getHighAddress();
             } catch (Throwable t) { // pokémon exception handling to decrease try/catch block overhead
                 logger.error("Failed to flush transaction", t);
                 try {
@@ -465,11 +511,33 @@ public class EnvironmentImpl implements Environment {
                 }
                 throw ExodusException.toExodusException(t, "Failed to flush transaction");
             }
+            checkpointIfNecessary();
         }
+        // with group commit, the log is synced outside of commit lock once for all concurrent committers
+        log.syncTo(committedHighAddress);
         gc.fetchExpiredLoggables(new ExpiredLoggableIterable(expiredLoggables));
+        gc.commitFinished(System.nanoTime() - started);
         return true;
     }
 
+    /**
+     * Saves log checkpoint if checkpoint period is over since previous one. Should be called under commit lock.
+     */
+    private void checkpointIfNecessary() {
+        final long checkpointPeriod = ec.getLogCheckpointPeriod();
+        if (checkpointPeriod > 0) {
+            final long currentTime = System.currentTimeMillis();
+            if (currentTime > lastCheckpointTime + checkpointPeriod) {
+                lastCheckpointTime = currentTime;
+                try {
+                    log.saveCheckpoint(metaTree.root);
+                } catch (ExodusException e) {
+                    logger.error("Failed to save log checkpoint", e);
+                }
+            }
+        }
+    }
+
     MetaTree getMetaTree(@Nullable final Runnable beginHook) {
         synchronized (metaLock) {
             if (beginHook != null) {
@@ -511,6 +579,7 @@ public class EnvironmentImpl implements Environment {
         final StoreImpl result;
         if (metaInfo == null) {
             if (ec.getEnvIsReadonly() && ec.getEnvReadonlyEmptyStores()) {
+                txn.setMetaTreeRead();
                 return createTemporaryEmptyStore(name);
             }
             final int structureId = allocateStructureId();
@@ -553,13 +622,17 @@ public class EnvironmentImpl implements Environment {
     }
 
     void runTransactionSafeTasks() {
-        if (throwableOnCommit == null) {
+        if (throwableOnCommit == null && hasTxnSafeTasks) {
             List<Runnable> tasksToRun = null;
-            final long oldestTxnRoot = getOldestTxnRootAddress();
             synchronized (txnSafeTasks) {
+                // the oldest transaction is looked for only if there are tasks to run
+                long oldestTxnRoot = Long.MIN_VALUE;
                 while (true) {
                     if (!txnSafeTasks.isEmpty()) {
                         final RunnableWithTxnRoot r = txnSafeTasks.getFirst();
+                        if (oldestTxnRoot == Long.MIN_VALUE) {
+                            oldestTxnRoot = getOldestTxnRootAddress();
+                        }
                         if (r.txnRoot < oldestTxnRoot) {
                             txnSafeTasks.removeFirst();
                             if (tasksToRun == null) {
@@ -571,6 +644,7 @@ public class EnvironmentImpl implements Environment {
                     }
                     break;
                 }
+                hasTxnSafeTasks = !txnSafeTasks.isEmpty();
             }
             if (tasksToRun != null) {
                 for (final Runnable task : tasksToRun) {
@@ -597,6 +671,10 @@ public class EnvironmentImpl implements Environment {
 
     @Nullable
     LongObjectCacheBase getTreeNodesCache() {
+        final LongObjectCacheBase<Object> partition = sharedTreeNodesCachePartition;
+        if (partition != null) {
+            return partition;
+        }
         final SoftReference<LongObjectCacheBase> cacheRef = treeNodesCache;
         if (cacheRef != null) {
             final LongObjectCacheBase cache = cacheRef.get();
@@ -722,10 +800,16 @@ public class EnvironmentImpl implements Environment {
 
     private void invalidateStoreGetCache() {
         final int storeGetCacheSize = ec.getEnvStoreGetCacheSize();
-        storeGetCache = storeGetCacheSize == 0 ? null : new StoreGetCache(storeGetCacheSize);
+        storeGetCache = storeGetCacheSize == 0 ? null :
+                new StoreGetCache(storeGetCacheSize, ec.isEnvStoreGetCacheFrequencySketch());
     }
 
     private LongObjectCacheBase invalidateTreeNodesCache() {
+        releaseSharedTreeNodesCachePartition();
+        if (ec.isTreeNodesCacheShared()) {
+            treeNodesCache = null;
+            return sharedTreeNodesCachePartition = getSharedTreeNodesCache(ec.getTreeNodesCacheMemoryUsage()).newCache();
+        }
         final int treeNodesCacheSize = ec.getTreeNodesCacheSize();
         final LongObjectCacheBase result = treeNodesCacheSize == 0 ? null :
                 new ConcurrentLongObjectCache(treeNodesCacheSize, 2);
@@ -733,6 +817,25 @@ public class EnvironmentImpl implements Environment {
         return result;
     }
 
+    private void releaseSharedTreeNodesCachePartition() {
+        final LongObjectCacheBase<Object> partition = sharedTreeNodesCachePartition;
+        if (partition != null) {
+            sharedTreeNodesCachePartition = null;
+            partition.clear();
+        }
+    }
+
+    private static SharedTreeNodesCache getSharedTreeNodesCache(final long memoryUsage) {
+        if (sharedTreeNodesCache == null) {
+            synchronized (EnvironmentImpl.class) {
+                if (sharedTreeNodesCache == null) {
+                    sharedTreeNodesCache = new SharedTreeNodesCache(memoryUsage);
+                }
+            }
+        }
+        return sharedTreeNodesCache;
+    }
+
     private static void applyEnvironmentSettings(@NotNull final String location,
                                                  @NotNull final EnvironmentConfig ec) {
         final File propsFile = new File(location, ENVIRONMENT_PROPERTIES_FILE);
@@ -756,9 +859,11 @@ public class EnvironmentImpl implements Environment {
 
         @Override
         public void settingChanged(@NotNull final String settingName) {
-            if (settingName.equals(EnvironmentConfig.ENV_STOREGET_CACHE_SIZE)) {
+            if (settingName.equals(EnvironmentConfig.ENV_STOREGET_CACHE_SIZE) ||
+                    settingName.equals(EnvironmentConfig.ENV_STOREGET_CACHE_FREQUENCY_SKETCH)) {
                 invalidateStoreGetCache();
-            } else if (settingName.equals(EnvironmentConfig.TREE_NODES_CACHE_SIZE)) {
+            } else if (settingName.equals(EnvironmentConfig.TREE_NODES_CACHE_SIZE) ||
+                    settingName.equals(EnvironmentConfig.TREE_NODES_CACHE_SHARED)) {
                 invalidateTreeNodesCache();
             } else if (settingName.equals(EnvironmentConfig.LOG_SYNC_PERIOD)) {
                 log.getConfig().setSyncPeriod(ec.getLogSyncPeriod());
@@ -100,12 +100,22 @@ public final class Environments {
         config.setLockTimeout(ec.getLogLockTimeout());
         config.setCachePageSize(ec.getLogCachePageSize());
         config.setCacheOpenFilesCount(ec.getLogCacheOpenFilesCount());
+        config.setMappedFiles(ec.isLogMappedFiles());
         config.setDurableWrite(ec.getLogDurableWrite());
+        config.setGroupCommit(ec.isLogGroupCommit());
+        config.setWriteBehind(ec.isLogWriteBehind());
         config.setSharedCache(ec.isLogCacheShared());
         config.setNonBlockingCache(ec.isLogCacheNonBlocking());
+        config.setStripedCache(ec.isLogCacheStriped());
+        config.setFrequencySketchCache(ec.isLogCacheFrequencySketch());
+        config.setCacheOffHeapMemoryUsage(ec.getLogCacheOffHeapMemoryUsage());
+        config.setCacheReadAhead(ec.getLogCacheReadAhead());
         config.setCleanDirectoryExpected(ec.isLogCleanDirectoryExpected());
         config.setClearInvalidLog(ec.isLogClearInvalid());
         config.setSyncPeriod(ec.getLogSyncPeriod());
+        config.setCheckpoint(ec.isLogCheckpoint());
+        config.setPageChecksums(ec.isLogPageChecksums());
+        config.setCompression(ec.isLogCompression());
         final Long maxMemory = ec.getMemoryUsage();
         if (maxMemory != null) {
             config.setMemoryUsage(maxMemory);
@@ -50,7 +50,10 @@ final class MetaTree {
 
     static Pair<MetaTree, Integer> create(@NotNull final EnvironmentImpl env) {
         final Log log = env.getLog();
-        DatabaseRoot dbRoot = (DatabaseRoot) log.getLastLoggableOfType(DatabaseRoot.DATABASE_ROOT_TYPE);
+        DatabaseRoot dbRoot = getCheckpointDatabaseRoot(log);
+        if (dbRoot == null) {
+            dbRoot = (DatabaseRoot) log.getLastLoggableOfType(DatabaseRoot.DATABASE_ROOT_TYPE);
+        }
         while (dbRoot != null) {
             final long root = dbRoot.getAddress();
             if (dbRoot.isValid()) {
@@ -81,6 +84,26 @@ final class MetaTree {
         return new Pair<>(new MetaTree(resultTree, root, log.getHighAddress()), EnvironmentImpl.META_TREE_ID);
     }
 
+    /**
+     * @return database root saved in log checkpoint if it is the last loggable in the log, otherwise null.
+     */
+    @Nullable
+    private static DatabaseRoot getCheckpointDatabaseRoot(@NotNull final Log log) {
+        final long root = log.getCheckpointRootAddress();
+        if (root == Loggable.NULL_ADDRESS) {
+            return null;
+        }
+        try {
+            final RandomAccessLoggable loggable = log.read(root);
+            if (loggable.getType() == DatabaseRoot.DATABASE_ROOT_TYPE && root + loggable.length() == log.getHighAddress()) {
+                return (DatabaseRoot) loggable;
+            }
+        } catch (ExodusException ignore) {
+            // checkpoint is not valid, database root should be searched for
+        }
+        return null;
+    }
+
     LongIterator addressIterator() {
         return tree.addressIterator();
     }
@@ -111,8 +134,15 @@ final class MetaTree {
 
     static void saveTree(@NotNull final ITreeMutable out,
                          @NotNull final ITreeMutable treeMutable) {
-        final long treeRootAddress = treeMutable.save();
-        final int structureId = treeMutable.getStructureId();
+        saveTree(out, treeMutable.getStructureId(), treeMutable.save());
+    }
+
+    static void saveTree(@NotNull final ITreeMutable out,
+                         @NotNull final ITreeBulkLoader loader) {
+        saveTree(out, loader.getStructureId(), loader.save());
+    }
+
+    private static void saveTree(@NotNull final ITreeMutable out, final int structureId, final long treeRootAddress) {
         out.put(LongBinding.longToCompressedEntry(structureId),
                 CompressedUnsignedLongByteIterable.getIterable(treeRootAddress));
     }
@@ -17,7 +17,9 @@ package jetbrains.exodus.env;
 
 import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.ObjectCacheBase;
 import jetbrains.exodus.core.dataStructures.SoftConcurrentObjectCache;
+import jetbrains.exodus.core.dataStructures.TinyLfuObjectCache;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -27,10 +29,12 @@ import org.jetbrains.annotations.Nullable;
  */
 class StoreGetCache {
 
-    private final SoftConcurrentObjectCache<KeyEntry, ArrayByteIterable> cache;
+    private final ObjectCacheBase<KeyEntry, ArrayByteIterable> cache;
 
-    StoreGetCache(final int cacheSize) {
-        cache = new SoftConcurrentObjectCache<>(cacheSize);
+    StoreGetCache(final int cacheSize, final boolean frequencySketch) {
+        cache = frequencySketch ?
+                new TinyLfuObjectCache<KeyEntry, ArrayByteIterable>(cacheSize) :
+                new SoftConcurrentObjectCache<KeyEntry, ArrayByteIterable>(cacheSize);
     }
 
     @Nullable
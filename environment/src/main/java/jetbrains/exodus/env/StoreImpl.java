@@ -17,22 +17,27 @@ package jetbrains.exodus.env;
 
 import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.log.Log;
 import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.log.RandomAccessLoggable;
 import jetbrains.exodus.tree.IExpirationChecker;
 import jetbrains.exodus.tree.ITree;
+import jetbrains.exodus.tree.ITreeBulkLoader;
+import jetbrains.exodus.tree.ITreeMutable;
 import jetbrains.exodus.tree.TreeMetaInfo;
 import jetbrains.exodus.tree.btree.BTree;
 import jetbrains.exodus.tree.btree.BTreeBalancePolicy;
+import jetbrains.exodus.tree.btree.BTreeBulkLoader;
 import jetbrains.exodus.tree.btree.BTreeEmpty;
 import jetbrains.exodus.tree.patricia.PatriciaTree;
+import jetbrains.exodus.tree.patricia.PatriciaTreeBulkLoader;
 import jetbrains.exodus.tree.patricia.PatriciaTreeEmpty;
 import jetbrains.exodus.tree.patricia.PatriciaTreeWithDuplicates;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Iterator;
+import java.util.*;
 
 @SuppressWarnings({"ClassNameSameAsAncestorName"})
 public class StoreImpl implements Store {
@@ -79,6 +84,46 @@ public class StoreImpl implements Store {
         return tree.get(key);
     }
 
+    @NotNull
+    @Override
+    public ByteIterable[] getAll(@NotNull final Transaction txn, @NotNull final ByteIterable[] keys) {
+        final ITree tree = ((TransactionImpl) txn).getTree(this);
+        if (tree.getRootAddress() != Loggable.NULL_ADDRESS) {
+            tree.setTreeNodesCache(environment.getTreeNodesCache());
+        }
+        final int count = keys.length;
+        final ByteIterable[] result = new ByteIterable[count];
+        int i = 1;
+        while (i < count && keys[i - 1].compareTo(keys[i]) <= 0) {
+            ++i;
+        }
+        if (i >= count) {
+            tree.getAll(keys, result);
+            return result;
+        }
+        // look up keys in sorted order, then put values in the order of keys
+        final Integer[] order = new Integer[count];
+        for (i = 0; i < count; ++i) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                return keys[i1].compareTo(keys[i2]);
+            }
+        });
+        final ByteIterable[] sortedKeys = new ByteIterable[count];
+        for (i = 0; i < count; ++i) {
+            sortedKeys[i] = keys[order[i]];
+        }
+        final ByteIterable[] sortedValues = new ByteIterable[count];
+        tree.getAll(sortedKeys, sortedValues);
+        for (i = 0; i < count; ++i) {
+            result[order[i]] = sortedValues[i];
+        }
+        return result;
+    }
+
     @Override
     public boolean exists(@NotNull final Transaction txn,
                           @NotNull final ByteIterable key,
@@ -100,6 +145,26 @@ public class StoreImpl implements Store {
         ((TransactionImpl) txn).getMutableTree(this).putRight(key, value);
     }
 
+    @Override
+    public int putAll(@NotNull final Transaction txn, @NotNull final Collection<Pair<ByteIterable, ByteIterable>> pairs) {
+        final ITreeMutable tree = ((TransactionImpl) txn).getMutableTree(this);
+        final List<Pair<ByteIterable, ByteIterable>> sortedPairs = new ArrayList<>(pairs);
+        // sorting is stable, so pairs with equal keys are put in their order in the batch
+        Collections.sort(sortedPairs, new Comparator<Pair<ByteIterable, ByteIterable>>() {
+            @Override
+            public int compare(Pair<ByteIterable, ByteIterable> p1, Pair<ByteIterable, ByteIterable> p2) {
+                return p1.getFirst().compareTo(p2.getFirst());
+            }
+        });
+        int result = 0;
+        for (final Pair<ByteIterable, ByteIterable> pair : sortedPairs) {
+            if (tree.put(pair.getFirst(), pair.getSecond())) {
+                ++result;
+            }
+        }
+        return result;
+    }
+
     @Override
     public boolean add(@NotNull final Transaction txn,
                        @NotNull final ByteIterable key,
@@ -112,6 +177,20 @@ public class StoreImpl implements Store {
         return ((TransactionImpl) txn).getTree(this).getSize();
     }
 
+    @Override
+    public long countRange(@NotNull final Transaction txn, @NotNull final ByteIterable from, @NotNull final ByteIterable to) {
+        final ITree tree = ((TransactionImpl) txn).getTree(this);
+        if (tree.getRootAddress() != Loggable.NULL_ADDRESS) {
+            tree.setTreeNodesCache(environment.getTreeNodesCache());
+        }
+        return tree.countRange(from, to);
+    }
+
+    @Override
+    public void bulkLoad(@NotNull final Transaction txn, @NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs) {
+        ((TransactionImpl) txn).bulkLoad(this, createBulkLoader(pairs));
+    }
+
     @Override
     public Cursor openCursor(@NotNull final Transaction txn) {
         return new CursorImpl(this, (TransactionImpl) txn);
@@ -123,6 +202,11 @@ public class StoreImpl implements Store {
         return ((TransactionImpl) txn).getMutableTree(this).delete(key);
     }
 
+    @Override
+    public long deleteRange(@NotNull final Transaction txn, @NotNull final ByteIterable from, @NotNull final ByteIterable to) {
+        return ((TransactionImpl) txn).getMutableTree(this).deleteRange(from, to);
+    }
+
     @Override
     @NotNull
     public String getName() {
@@ -165,6 +249,24 @@ public class StoreImpl implements Store {
         }
     }
 
+    /**
+     * Creates mutable tree of the store in the transaction so that loggables can be reclaimed to it in a thread
+     * other than the thread of the transaction. Reclaiming should be completed by {@linkplain #endReclaim}.
+     *
+     * @return mutable tree or null if the transaction already has it or if there is nothing to reclaim.
+     */
+    @Nullable
+    public ITreeMutable beginReclaim(@NotNull final Transaction txn) {
+        final TransactionImpl jt = (TransactionImpl) txn;
+        return jt.hasTreeMutable(this) ? null : jt.getMutableTree(this);
+    }
+
+    public void endReclaim(@NotNull final Transaction txn, final boolean wasReclaim) {
+        if (!wasReclaim) {
+            ((TransactionImpl) txn).removeTreeMutable(this);
+        }
+    }
+
     public ITree openImmutableTree(@NotNull final MetaTree metaTree) {
         final int structureId = getStructureId();
         final long upToDateRootAddress = metaTree.getRootAddress(structureId);
@@ -189,6 +291,15 @@ public class StoreImpl implements Store {
         return result;
     }
 
+    ITreeBulkLoader createBulkLoader(@NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs) {
+        final int structureId = getStructureId();
+        final boolean hasDuplicates = metaInfo.hasDuplicates();
+        final Log log = environment.getLog();
+        return metaInfo.isKeyPrefixing() ?
+                new PatriciaTreeBulkLoader(log, structureId, hasDuplicates, pairs) :
+                new BTreeBulkLoader(log, environment.getBTreeBalancePolicy(), hasDuplicates, structureId, pairs);
+    }
+
     int getStructureId() {
         return metaInfo.getStructureId();
     }
@@ -16,13 +16,16 @@
 package jetbrains.exodus.env;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.log.RandomAccessLoggable;
 import jetbrains.exodus.tree.IExpirationChecker;
 import jetbrains.exodus.tree.ITreeCursor;
+import jetbrains.exodus.tree.ITreeMutable;
 import jetbrains.exodus.tree.TreeMetaInfo;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
 import java.util.Iterator;
 
 class TemporaryEmptyStore extends StoreImpl {
@@ -47,6 +50,12 @@ class TemporaryEmptyStore extends StoreImpl {
         return null;
     }
 
+    @NotNull
+    @Override
+    public ByteIterable[] getAll(@NotNull final Transaction txn, @NotNull final ByteIterable[] keys) {
+        return new ByteIterable[keys.length];
+    }
+
     @Override
     public boolean exists(@NotNull final Transaction txn,
                           @NotNull final ByteIterable key,
@@ -68,6 +77,12 @@ class TemporaryEmptyStore extends StoreImpl {
         throwCantModify();
     }
 
+    @Override
+    public int putAll(@NotNull final Transaction txn, @NotNull final Collection<Pair<ByteIterable, ByteIterable>> pairs) {
+        throwCantModify();
+        return 0;
+    }
+
     @Override
     public boolean add(@NotNull final Transaction txn,
                        @NotNull final ByteIterable key,
@@ -80,11 +95,27 @@ class TemporaryEmptyStore extends StoreImpl {
         return throwCantModify();
     }
 
+    @Override
+    public long deleteRange(@NotNull final Transaction txn, @NotNull final ByteIterable from, @NotNull final ByteIterable to) {
+        throwCantModify();
+        return 0;
+    }
+
+    @Override
+    public void bulkLoad(@NotNull final Transaction txn, @NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs) {
+        throwCantModify();
+    }
+
     @Override
     public long count(@NotNull final Transaction txn) {
         return 0;
     }
 
+    @Override
+    public long countRange(@NotNull final Transaction txn, @NotNull final ByteIterable from, @NotNull final ByteIterable to) {
+        return 0;
+    }
+
     @Override
     public Cursor openCursor(@NotNull final Transaction txn) {
         return ITreeCursor.EMPTY_CURSOR;
@@ -98,6 +129,12 @@ class TemporaryEmptyStore extends StoreImpl {
         // nothing to reclaim
     }
 
+    @Nullable
+    @Override
+    public ITreeMutable beginReclaim(@NotNull final Transaction txn) {
+        return null;
+    }
+
     private boolean throwCantModify() {
         if (getEnvironment().getEnvironmentConfig().getEnvIsReadonly()) {
             throw new ReadonlyTransactionException();
@@ -22,6 +22,7 @@ import jetbrains.exodus.core.dataStructures.hash.IntHashMap;
 import jetbrains.exodus.core.dataStructures.hash.LongHashMap;
 import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.tree.ITree;
+import jetbrains.exodus.tree.ITreeBulkLoader;
 import jetbrains.exodus.tree.ITreeMutable;
 import jetbrains.exodus.tree.TreeMetaInfo;
 import org.jetbrains.annotations.NotNull;
@@ -41,10 +42,19 @@ public class TransactionImpl implements Transaction {
     private final IntHashMap<ITree> immutableTrees;
     @NotNull
     private final Map<Integer, ITreeMutable> mutableTrees;
+    /**
+     * Bulk loaders of stores with expired loggables of the trees replaced by them.
+     */
+    @NotNull
+    private final Map<Integer, Pair<ITreeBulkLoader, Collection<Loggable>>> bulkLoaders;
     @NotNull
     private final LongHashMap<Pair<String, ITree>> removedStores;
     @NotNull
     private final Map<String, TreeMetaInfo> createdStores;
+    /**
+     * Is set if the transaction has read the list of stores, so it can't be rebased.
+     */
+    private boolean metaTreeRead;
     @Nullable
     private Runnable beginHook;
     @Nullable
@@ -59,6 +69,7 @@ public class TransactionImpl implements Transaction {
         this.creatingThread = creatingThread;
         immutableTrees = new IntHashMap<>();
         mutableTrees = new TreeMap<>();
+        bulkLoaders = new TreeMap<>();
         removedStores = new LongHashMap<>();
         createdStores = new HashMapDecorator<>();
         this.beginHook = new Runnable() {
@@ -87,6 +98,7 @@ public class TransactionImpl implements Transaction {
         creatingThread = origin.creatingThread;
         immutableTrees = new IntHashMap<>();
         mutableTrees = new TreeMap<>();
+        bulkLoaders = new TreeMap<>();
         removedStores = new LongHashMap<>();
         createdStores = new HashMapDecorator<>();
         trace = env.transactionTimeout() > 0 ? new Throwable() : null;
@@ -95,7 +107,7 @@ public class TransactionImpl implements Transaction {
     }
 
     public boolean isIdempotent() {
-        return mutableTrees.isEmpty() && removedStores.isEmpty() && createdStores.isEmpty();
+        return mutableTrees.isEmpty() && bulkLoaders.isEmpty() && removedStores.isEmpty() && createdStores.isEmpty();
     }
 
     @Override
@@ -169,6 +181,7 @@ public class TransactionImpl implements Transaction {
 
     @NotNull
     public StoreImpl openStoreByStructureId(final int structureId) {
+        metaTreeRead = true;
         final String storeName = metaTree.getStoreNameByStructureId(structureId, env);
         return storeName == null ?
                 new TemporaryEmptyStore(env) :
@@ -179,17 +192,33 @@ public class TransactionImpl implements Transaction {
     public ITree getTree(@NotNull final StoreImpl store) {
         final ITreeMutable result = mutableTrees.get(store.getStructureId());
         if (result == null) {
+            checkNotBulkLoaded(store);
             return getImmutableTree(store);
         }
         return result;
     }
 
+    /**
+     * Replaces the tree of the store which should be empty in the transaction with the tree written by specified
+     * bulk loader on commit.
+     */
+    void bulkLoad(@NotNull final StoreImpl store, @NotNull final ITreeBulkLoader loader) {
+        final ITreeMutable tree = getMutableTree(store);
+        if (tree.getSize() != 0) {
+            throw new ExodusException("Can't bulk load store '" + store.getName() + "' which is not empty");
+        }
+        final int structureId = store.getStructureId();
+        mutableTrees.remove(structureId);
+        bulkLoaders.put(structureId, new Pair<>(loader, tree.getExpiredLoggables()));
+    }
+
     void storeRemoved(@NotNull final StoreImpl store) {
         final int structureId = store.getStructureId();
         final ITree tree = store.openImmutableTree(metaTree);
         removedStores.put(structureId, new Pair<>(store.getName(), tree));
         immutableTrees.remove(structureId);
         mutableTrees.remove(structureId);
+        bulkLoaders.remove(structureId);
     }
 
     void storeCreated(@NotNull final StoreImpl store) {
@@ -205,6 +234,10 @@ public class TransactionImpl implements Transaction {
         return createdStores.get(name);
     }
 
+    void setMetaTreeRead() {
+        metaTreeRead = true;
+    }
+
     boolean isStoreNew(@NotNull final String name) {
         return createdStores.containsKey(name);
     }
@@ -213,14 +246,61 @@ public class TransactionImpl implements Transaction {
         return metaTree.root == root;
     }
 
-    Iterable<Loggable>[] doCommit(@NotNull final MetaTree[] out) {
+    /**
+     * Checks whether the transaction can be committed on top of specified meta tree which is newer than the
+     * transaction's snapshot. That is possible if trees of all stores read or modified by the transaction are the
+     * same in both meta trees, and stores created by the transaction were not created concurrently.
+     */
+    boolean canRebase(@NotNull final MetaTree newer) {
+        if (metaTreeRead) {
+            return false;
+        }
+        for (final String name : createdStores.keySet()) {
+            if (newer.getMetaInfo(name, env) != null) {
+                return false;
+            }
+        }
+        // mutable trees and bulk loaded ones are created from the immutable ones
+        for (final int structureId : immutableTrees.keySet()) {
+            if (metaTree.getRootAddress(structureId) != newer.getRootAddress(structureId)) {
+                return false;
+            }
+        }
+        for (final long structureId : removedStores.keySet()) {
+            if (metaTree.getRootAddress((int) structureId) != newer.getRootAddress((int) structureId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Prepares trees modified by the transaction for saving. Doesn't write to the log, so it is called before
+     * the commit lock is acquired to make the critical section of {@link #doCommit(MetaTree, MetaTree[])} shorter.
+     */
+    void prepareCommit() {
+        for (final ITreeMutable tree : mutableTrees.values()) {
+            tree.prepareSave();
+        }
+        // bulk loaders aren't prepared: their pairs are streamed straight to the log, and a page can be encoded only
+        // when addresses of its children are known, so the whole load is written in the critical section of commit
+    }
+
+    /**
+     * Saves trees modified by the transaction and the meta tree.
+     *
+     * @param base meta tree to modify, either the transaction's one or a newer one the transaction is rebased on.
+     * @param out  array of single element to return saved meta tree.
+     * @return expired loggables.
+     */
+    Iterable<Loggable>[] doCommit(@NotNull final MetaTree base, @NotNull final MetaTree[] out) {
         final Set<Map.Entry<Integer, ITreeMutable>> entries = mutableTrees.entrySet();
         final Set<Map.Entry<Long, Pair<String, ITree>>> removedEntries = removedStores.entrySet();
-        final int size = entries.size() + removedEntries.size();
+        final int size = entries.size() + bulkLoaders.size() + removedEntries.size();
         //noinspection unchecked
         final Iterable<Loggable>[] expiredLoggables = new Iterable[size + 1];
         int i = 0;
-        final ITreeMutable metaTreeMutable = metaTree.tree.getMutableCopy();
+        final ITreeMutable metaTreeMutable = base.tree.getMutableCopy();
         for (final Map.Entry<Long, Pair<String, ITree>> entry : removedEntries) {
             final Pair<String, ITree> value = entry.getValue();
             MetaTree.removeStore(metaTreeMutable, value.getFirst(), entry.getKey());
@@ -237,8 +317,14 @@ public class TransactionImpl implements Transaction {
             expiredLoggables[i++] = treeMutable.getExpiredLoggables();
             MetaTree.saveTree(metaTreeMutable, treeMutable);
         }
+        for (final Pair<ITreeBulkLoader, Collection<Loggable>> loader : bulkLoaders.values()) {
+            expiredLoggables[i++] = loader.getSecond();
+            MetaTree.saveTree(metaTreeMutable, loader.getFirst());
+        }
         immutableTrees.clear();
         mutableTrees.clear();
+        bulkLoaders.clear();
+        metaTreeRead = false;
         expiredLoggables[i] = last = metaTreeMutable.getExpiredLoggables();
         out[0] = MetaTree.saveMetaTree(metaTreeMutable, env, last);
         return expiredLoggables;
@@ -262,6 +348,7 @@ public class TransactionImpl implements Transaction {
         final int structureId = store.getStructureId();
         ITreeMutable result = mutableTrees.get(structureId);
         if (result == null) {
+            checkNotBulkLoaded(store);
             result = getImmutableTree(store).getMutableCopy();
             mutableTrees.put(structureId, result);
         }
@@ -295,6 +382,7 @@ public class TransactionImpl implements Transaction {
     }
 
     List<String> getAllStoreNames() {
+        metaTreeRead = true;
         // TODO: optimize
         List<String> result = metaTree.getAllStoreNames();
         if (createdStores.isEmpty()) return result;
@@ -325,9 +413,17 @@ public class TransactionImpl implements Transaction {
         return result;
     }
 
+    private void checkNotBulkLoaded(@NotNull final StoreImpl store) {
+        if (bulkLoaders.containsKey(store.getStructureId())) {
+            throw new ExodusException("Store '" + store.getName() + "' is bulk loaded and can't be accessed till commit");
+        }
+    }
+
     private void doRevert() {
+        metaTreeRead = false;
         immutableTrees.clear();
         mutableTrees.clear();
+        bulkLoaders.clear();
         removedStores.clear();
         createdStores.clear();
     }
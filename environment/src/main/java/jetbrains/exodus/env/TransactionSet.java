@@ -15,145 +15,199 @@
  */
 package jetbrains.exodus.env;
 
-import jetbrains.exodus.core.dataStructures.persistent.PersistentHashSet;
+import jetbrains.exodus.core.dataStructures.hash.HashSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.List;
 
+/**
+ * Set of active transactions split into segments selected by identity hash codes of transactions. Adding or
+ * removing a transaction locks a single segment, so concurrent beginning and finishing of short transactions
+ * don't contend on a shared structure. Each segment keeps track of its oldest and newest transactions, so
+ * the oldest and newest transactions in the whole set are found by looking through segments.
+ */
 final class TransactionSet implements Iterable<TransactionImpl> {
 
-    private final AtomicReference<MinMaxAwareTransactionSet> txns;
+    private static final int SEGMENTS_PER_PROCESSOR = 4;
+
+    private final Segment[] segments;
+    private final int segmentsMask;
 
     TransactionSet() {
-        txns = new AtomicReference<>(new MinMaxAwareTransactionSet());
+        int segmentsCount = 1;
+        final int maxSegmentsCount = Math.min(1 << 10,
+                Runtime.getRuntime().availableProcessors() * SEGMENTS_PER_PROCESSOR);
+        while (segmentsCount < maxSegmentsCount) {
+            segmentsCount <<= 1;
+        }
+        segments = new Segment[segmentsCount];
+        for (int i = 0; i < segmentsCount; ++i) {
+            segments[i] = new Segment();
+        }
+        segmentsMask = segmentsCount - 1;
     }
 
+    /**
+     * @return iterator over the snapshot of the set.
+     */
     @Override
     public Iterator<TransactionImpl> iterator() {
-        return getCurrent().iterator();
+        final List<TransactionImpl> result = new ArrayList<>();
+        for (final Segment segment : segments) {
+            segment.copyTo(result);
+        }
+        return result.iterator();
     }
 
     void add(@NotNull final TransactionImpl txn) {
-        final long root = txn.getRoot();
-        for (; ; ) {
-            final MinMaxAwareTransactionSet prevSet = txns.get();
-            final PersistentHashSet<TransactionImpl> newSet = prevSet.set.getClone();
-            final PersistentHashSet.MutablePersistentHashSet<TransactionImpl> mutableSet = newSet.beginWrite();
-            final TransactionImpl prevMin = prevSet.min;
-            final TransactionImpl newMin;
-            if (mutableSet.contains(txn)) {
-                newMin = prevMin == txn ? null : prevMin;
-            } else {
-                mutableSet.add(txn);
-                mutableSet.endWrite();
-                newMin = prevMin != null && prevMin.getRoot() > root ? txn : prevMin;
-            }
-            final TransactionImpl prevMax = prevSet.max;
-            final TransactionImpl newMax = prevMax != null && prevMax.getRoot() < root ? txn : prevMax;
-            if (this.txns.compareAndSet(prevSet, new MinMaxAwareTransactionSet(newSet, newMin, newMax))) {
-                break;
-            }
-        }
+        getSegment(txn).add(txn);
     }
 
     boolean contains(@NotNull final TransactionImpl txn) {
-        return getCurrent().contains(txn);
+        return getSegment(txn).contains(txn);
     }
 
     void remove(@NotNull final TransactionImpl txn) {
-        for (; ; ) {
-            final MinMaxAwareTransactionSet prevSet = txns.get();
-            final PersistentHashSet<TransactionImpl> newSet = prevSet.set.getClone();
-            final PersistentHashSet.MutablePersistentHashSet<TransactionImpl> mutableSet = newSet.beginWrite();
-            if (!mutableSet.remove(txn)) {
-                break;
-            }
-            mutableSet.endWrite();
-            // update min & max
-            final TransactionImpl prevMin = prevSet.min;
-            final TransactionImpl newMin = prevMin == txn ? null : prevMin;
-            final TransactionImpl prevMax = prevSet.max;
-            final TransactionImpl newMax = prevMax == txn ? null : prevMax;
-            if (this.txns.compareAndSet(prevSet, new MinMaxAwareTransactionSet(newSet, newMin, newMax))) {
-                break;
-            }
-        }
+        getSegment(txn).remove(txn);
     }
 
     boolean isEmpty() {
-        return getCurrent().isEmpty();
+        for (final Segment segment : segments) {
+            if (segment.size() > 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     int size() {
-        return getCurrent().size();
+        int result = 0;
+        for (final Segment segment : segments) {
+            result += segment.size();
+        }
+        return result;
     }
 
     @Nullable
     TransactionImpl getOldestTransaction() {
-        return txns.get().getMin();
+        TransactionImpl result = null;
+        for (final Segment segment : segments) {
+            final TransactionImpl min = segment.getMin();
+            if (min != null && (result == null || min.getRoot() < result.getRoot())) {
+                result = min;
+            }
+        }
+        return result;
     }
 
     @Nullable
     TransactionImpl getNewestTransaction() {
-        return txns.get().getMax();
+        TransactionImpl result = null;
+        for (final Segment segment : segments) {
+            final TransactionImpl max = segment.getMax();
+            if (max != null && (result == null || max.getRoot() > result.getRoot())) {
+                result = max;
+            }
+        }
+        return result;
     }
 
-    private PersistentHashSet.ImmutablePersistentHashSet<TransactionImpl> getCurrent() {
-        return txns.get().set.getCurrent();
+    private Segment getSegment(@NotNull final TransactionImpl txn) {
+        int h = System.identityHashCode(txn);
+        h ^= h >>> 16;
+        return segments[h & segmentsMask];
     }
 
-    private static class MinMaxAwareTransactionSet {
+    private static class Segment {
 
         @NotNull
-        private final PersistentHashSet<TransactionImpl> set;
+        private final HashSet<TransactionImpl> set;
         @Nullable
         private TransactionImpl min;
         @Nullable
         private TransactionImpl max;
+        // is read without lock by size() and isEmpty()
+        private volatile int size;
+
+        private Segment() {
+            set = new HashSet<>();
+        }
+
+        private synchronized void add(@NotNull final TransactionImpl txn) {
+            final long root = txn.getRoot();
+            if (set.contains(txn)) {
+                // root of the transaction can be changed by revert()
+                if (min == txn) {
+                    min = null;
+                }
+                if (max == txn) {
+                    max = null;
+                }
+            } else {
+                set.add(txn);
+                size = set.size();
+                if (min != null && min.getRoot() > root) {
+                    min = txn;
+                }
+            }
+            if (max != null && max.getRoot() < root) {
+                max = txn;
+            }
+        }
+
+        private synchronized boolean contains(@NotNull final TransactionImpl txn) {
+            return set.contains(txn);
+        }
+
+        private synchronized void remove(@NotNull final TransactionImpl txn) {
+            if (set.remove(txn)) {
+                size = set.size();
+                if (min == txn) {
+                    min = null;
+                }
+                if (max == txn) {
+                    max = null;
+                }
+            }
+        }
 
-        private MinMaxAwareTransactionSet(@NotNull final PersistentHashSet<TransactionImpl> set,
-                                          @Nullable final TransactionImpl min, @Nullable final TransactionImpl max) {
-            this.set = set;
-            this.min = min;
-            this.max = max;
+        private int size() {
+            return size;
         }
 
-        private MinMaxAwareTransactionSet() {
-            this(new PersistentHashSet<TransactionImpl>(), null, null);
+        private synchronized void copyTo(@NotNull final List<TransactionImpl> list) {
+            list.addAll(set);
         }
 
         @Nullable
-        private TransactionImpl getMin() {
+        private synchronized TransactionImpl getMin() {
             if (min == null) {
-                TransactionImpl min = null;
-                long minRoot = Long.MIN_VALUE;
-                for (final TransactionImpl txn : set.getCurrent()) {
+                long minRoot = Long.MAX_VALUE;
+                for (final TransactionImpl txn : set) {
                     final long root = txn.getRoot();
                     if (min == null || root < minRoot) {
                         min = txn;
                         minRoot = root;
                     }
                 }
-                this.min = min;
             }
             return min;
         }
 
         @Nullable
-        private TransactionImpl getMax() {
+        private synchronized TransactionImpl getMax() {
             if (max == null) {
-                TransactionImpl max = null;
-                long maxRoot = Long.MAX_VALUE;
-                for (final TransactionImpl txn : set.getCurrent()) {
+                long maxRoot = Long.MIN_VALUE;
+                for (final TransactionImpl txn : set) {
                     final long root = txn.getRoot();
                     if (max == null || root > maxRoot) {
                         max = txn;
                         maxRoot = root;
                     }
                 }
-                this.max = max;
             }
             return max;
         }
@@ -54,6 +54,16 @@ public class EnvironmentConfig extends MBeanBase implements EnvironmentConfigMBe
         config.setLogDurableWrite(durableWrite);
     }
 
+    @Override
+    public boolean isLogGroupCommit() {
+        return config.isLogGroupCommit();
+    }
+
+    @Override
+    public boolean isLogWriteBehind() {
+        return config.isLogWriteBehind();
+    }
+
     @Override
     public long getLogFileSize() {
         return config.getLogFileSize();
@@ -84,6 +94,31 @@ public class EnvironmentConfig extends MBeanBase implements EnvironmentConfigMBe
         return config.isLogCacheNonBlocking();
     }
 
+    @Override
+    public boolean isLogCacheStriped() {
+        return config.isLogCacheStriped();
+    }
+
+    @Override
+    public boolean isLogCacheFrequencySketch() {
+        return config.isLogCacheFrequencySketch();
+    }
+
+    @Override
+    public long getLogCacheOffHeapMemoryUsage() {
+        return config.getLogCacheOffHeapMemoryUsage();
+    }
+
+    @Override
+    public int getLogCacheReadAhead() {
+        return config.getLogCacheReadAhead();
+    }
+
+    @Override
+    public boolean isLogMappedFiles() {
+        return config.isLogMappedFiles();
+    }
+
     @Override
     public boolean isLogCleanDirectoryExpected() {
         return config.isLogCleanDirectoryExpected();
@@ -104,6 +139,26 @@ public class EnvironmentConfig extends MBeanBase implements EnvironmentConfigMBe
         config.setLogSyncPeriod(millis);
     }
 
+    @Override
+    public boolean isLogCheckpoint() {
+        return config.isLogCheckpoint();
+    }
+
+    @Override
+    public long getLogCheckpointPeriod() {
+        return config.getLogCheckpointPeriod();
+    }
+
+    @Override
+    public boolean isLogPageChecksums() {
+        return config.isLogPageChecksums();
+    }
+
+    @Override
+    public boolean isLogCompression() {
+        return config.isLogCompression();
+    }
+
     @Override
     public boolean getEnvIsReadonly() {
         return config.getEnvIsReadonly();
@@ -155,6 +210,16 @@ public class EnvironmentConfig extends MBeanBase implements EnvironmentConfigMBe
         config.setEnvCloseForcedly(closeForcedly);
     }
 
+    @Override
+    public boolean getEnvTxnRebase() {
+        return config.getEnvTxnRebase();
+    }
+
+    @Override
+    public void setEnvTxnRebase(boolean txnRebase) {
+        config.setEnvTxnRebase(txnRebase);
+    }
+
     @Override
     public int getEnvMonitorTxnsTimeout() {
         return config.getEnvMonitorTxnsTimeout();
@@ -180,6 +245,31 @@ public class EnvironmentConfig extends MBeanBase implements EnvironmentConfigMBe
         config.setTreeNodesCacheSize(cacheSize);
     }
 
+    @Override
+    public boolean isTreeNodesCacheShared() {
+        return config.isTreeNodesCacheShared();
+    }
+
+    @Override
+    public void setTreeNodesCacheShared(boolean shared) {
+        config.setTreeNodesCacheShared(shared);
+    }
+
+    @Override
+    public long getTreeNodesCacheMemoryUsage() {
+        return config.getTreeNodesCacheMemoryUsage();
+    }
+
+    @Override
+    public int getTreeKeyPrefixLength() {
+        return config.getTreeKeyPrefixLength();
+    }
+
+    @Override
+    public boolean isTreeSubtreeSizes() {
+        return config.isTreeSubtreeSizes();
+    }
+
     @Override
     public boolean isGcEnabled() {
         return config.isGcEnabled();
@@ -255,6 +345,46 @@ public class EnvironmentConfig extends MBeanBase implements EnvironmentConfigMBe
         return config.getGcUtilizationFromScratch();
     }
 
+    @Override
+    public int getGcFilesPerCleaning() {
+        return config.getGcFilesPerCleaning();
+    }
+
+    @Override
+    public void setGcFilesPerCleaning(int files) {
+        config.setGcFilesPerCleaning(files);
+    }
+
+    @Override
+    public int getGcReclaimThreads() {
+        return config.getGcReclaimThreads();
+    }
+
+    @Override
+    public void setGcReclaimThreads(int threads) {
+        config.setGcReclaimThreads(threads);
+    }
+
+    @Override
+    public boolean isGcThrottle() {
+        return config.isGcThrottle();
+    }
+
+    @Override
+    public void setGcThrottle(boolean throttle) {
+        config.setGcThrottle(throttle);
+    }
+
+    @Override
+    public long getGcThrottleMinRate() {
+        return config.getGcThrottleMinRate();
+    }
+
+    @Override
+    public void setGcThrottleMinRate(long bytesPerSecond) {
+        config.setGcThrottleMinRate(bytesPerSecond);
+    }
+
     @Override
     public void close() {
         env.close();
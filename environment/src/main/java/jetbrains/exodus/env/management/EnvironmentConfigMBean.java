@@ -27,6 +27,10 @@ public interface EnvironmentConfigMBean {
 
     void setLogDurableWrite(boolean durableWrite);
 
+    boolean isLogGroupCommit();
+
+    boolean isLogWriteBehind();
+
     long getLogFileSize();
 
     long getLogLockTimeout();
@@ -39,6 +43,16 @@ public interface EnvironmentConfigMBean {
 
     boolean isLogCacheNonBlocking();
 
+    boolean isLogCacheStriped();
+
+    boolean isLogCacheFrequencySketch();
+
+    long getLogCacheOffHeapMemoryUsage();
+
+    int getLogCacheReadAhead();
+
+    boolean isLogMappedFiles();
+
     boolean isLogCleanDirectoryExpected();
 
     boolean isLogClearInvalid();
@@ -47,6 +61,14 @@ public interface EnvironmentConfigMBean {
 
     void setLogSyncPeriod(long millis);
 
+    boolean isLogCheckpoint();
+
+    long getLogCheckpointPeriod();
+
+    boolean isLogPageChecksums();
+
+    boolean isLogCompression();
+
     boolean getEnvIsReadonly();
 
     void setEnvIsReadonly(boolean isReadonly);
@@ -59,6 +81,10 @@ public interface EnvironmentConfigMBean {
 
     void setEnvCloseForcedly(boolean closeForcedly);
 
+    boolean getEnvTxnRebase();
+
+    void setEnvTxnRebase(boolean txnRebase);
+
     int getEnvMonitorTxnsTimeout();
 
     int getEnvMonitorTxnsCheckFreq();
@@ -69,6 +95,16 @@ public interface EnvironmentConfigMBean {
 
     void setTreeNodesCacheSize(int cacheSize);
 
+    boolean isTreeNodesCacheShared();
+
+    void setTreeNodesCacheShared(boolean shared);
+
+    long getTreeNodesCacheMemoryUsage();
+
+    int getTreeKeyPrefixLength();
+
+    boolean isTreeSubtreeSizes();
+
     boolean isGcEnabled();
 
     void setGcEnabled(boolean enabled);
@@ -99,5 +135,21 @@ public interface EnvironmentConfigMBean {
 
     boolean getGcUtilizationFromScratch();
 
+    int getGcFilesPerCleaning();
+
+    void setGcFilesPerCleaning(int files);
+
+    int getGcReclaimThreads();
+
+    void setGcReclaimThreads(int threads);
+
+    boolean isGcThrottle();
+
+    void setGcThrottle(boolean throttle);
+
+    long getGcThrottleMinRate();
+
+    void setGcThrottleMinRate(long bytesPerSecond);
+
     void close();
 }
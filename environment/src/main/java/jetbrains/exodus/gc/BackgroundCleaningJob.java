@@ -73,8 +73,7 @@ final class BackgroundCleaningJob extends Job {
             if (gc.getMinFileAge() < log.getNumberOfFiles()) {
                 cleaner.setCleaning(true);
                 try {
-                    doCleanLog(log, gc);
-                    if (gc.isTooMuchFreeSpace()) {
+                    if (!doCleanLog(log, gc) && gc.isTooMuchFreeSpace()) {
                         final int gcRunPeriod = ec.getGcRunPeriod();
                         if (gcRunPeriod > 0) {
                             gc.wakeAt(System.currentTimeMillis() + gcRunPeriod);
@@ -91,34 +90,69 @@ final class BackgroundCleaningJob extends Job {
         }
     }
 
-    private void doCleanLog(@NotNull final Log log, @NotNull final GarbageCollector gc) {
+    /**
+     * @return true if the throttle paused cleaning, and the job is already queued to continue it.
+     */
+    private boolean doCleanLog(@NotNull final Log log, @NotNull final GarbageCollector gc) {
         GarbageCollector.loggingInfo("Starting background cleaner loop for " + log.getLocation());
         final int newFiles = gc.getNewFiles();
+        final int filesPerCleaning = gc.getFilesPerCleaning();
         final Long[] sparseFiles = gc.getUtilizationProfile().getFilesSortedByUtilization();
-        for (int i = 0; i < sparseFiles.length && canContinue(); ++i) {
+        for (int i = 0; i < sparseFiles.length && canContinue(); i += filesPerCleaning) {
             // reset new files count before each cleaned file to prevent queueing of the
             // next cleaning job before this one is not finished
             gc.resetNewFiles();
-            final long file = sparseFiles[i];
+            final long[] files = new long[Math.min(filesPerCleaning, sparseFiles.length - i)];
+            for (int j = 0; j < files.length; ++j) {
+                files[j] = sparseFiles[i + j];
+            }
+            final long started = System.currentTimeMillis();
+            final long highAddress = log.getHighAddress();
+            boolean cleaned = false;
             if (i > newFiles) {
-                if (!cleanFile(gc, file)) {
+                if (!cleanFiles(gc, files)) {
                     break;
                 }
+                cleaned = true;
             } else {
-                for (int j = 0; j < 4 && !cleanFile(gc, file) && canContinue(); ++j) {
+                for (int j = 0; j < 4 && !(cleaned = cleanFiles(gc, files)) && canContinue(); ++j) {
                     Thread.yield();
                 }
             }
+            if (gc.getEnvironment().getEnvironmentConfig().isGcThrottle() &&
+                    throttle(gc, cleaned ? files.length * log.getFileLengthBound() : 0,
+                            log.getHighAddress() - highAddress, System.currentTimeMillis() - started)) {
+                gc.resetNewFiles();
+                GarbageCollector.loggingInfo("Throttled background cleaner loop for " + log.getLocation());
+                return true;
+            }
         }
         gc.resetNewFiles();
         GarbageCollector.loggingInfo("Finished background cleaner loop for " + log.getLocation());
+        return false;
+    }
+
+    /**
+     * Instead of waiting for the delay defined by the cleaning throttle, the job is queued to be executed after
+     * the delay, so the cleaner's thread isn't blocked by throttling.
+     *
+     * @return true if the job is queued to continue cleaning after the delay.
+     */
+    private static boolean throttle(@NotNull final GarbageCollector gc,
+                                    final long cleanedBytes, final long writtenBytes, final long elapsed) {
+        final long delay = gc.getThrottle().getDelay(cleanedBytes, writtenBytes, elapsed);
+        if (delay <= 0) {
+            return false;
+        }
+        gc.wakeAt(System.currentTimeMillis() + delay);
+        return true;
     }
 
     /**
      * We need this synchronized method in order to provide correctness of  {@link BackgroundCleaner#suspend()}.
      */
-    private synchronized boolean cleanFile(@NotNull final GarbageCollector gc, final long file) {
-        return gc.cleanFile(file);
+    private synchronized boolean cleanFiles(@NotNull final GarbageCollector gc, @NotNull final long[] files) {
+        return gc.cleanFiles(files);
     }
 
     private boolean canContinue() {
@@ -15,6 +15,7 @@
  */
 package jetbrains.exodus.gc;
 
+import jetbrains.exodus.core.dataStructures.LongArrayList;
 import jetbrains.exodus.core.execution.LatchJob;
 import jetbrains.exodus.log.Log;
 import org.jetbrains.annotations.NotNull;
@@ -43,11 +44,19 @@ final class CleanWholeLogJob extends LatchJob {
             while ((numberOfFiles = log.getNumberOfFiles()) != 1 && numberOfFiles < lastNumberOfFiles) {
                 lastNumberOfFiles = numberOfFiles;
                 final long highFileAddress = log.getHighFileAddress();
+                final LongArrayList files = new LongArrayList();
                 long fileAddress = log.getLowAddress();
                 while (fileAddress != highFileAddress) {
-                    gc.cleanFile(fileAddress);
+                    files.add(fileAddress);
+                    if (files.size() == gc.getFilesPerCleaning()) {
+                        gc.cleanFiles(files.toArray());
+                        files.clear();
+                    }
                     fileAddress = log.getNextFileAddress(fileAddress);
                 }
+                if (!files.isEmpty()) {
+                    gc.cleanFiles(files.toArray());
+                }
                 gc.testDeletePendingFiles();
             }
         } finally {
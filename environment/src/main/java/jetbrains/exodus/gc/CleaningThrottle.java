@@ -0,0 +1,170 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.gc;
+
+import jetbrains.exodus.log.Log;
+import jetbrains.exodus.log.PageReadsCounter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces background cleaner by foreground load. Once per sample period, latency of foreground commits, hit rate
+ * of foreground reads from the log cache and rate of foreground writes to the log are compared to their usual
+ * values. Commits and reads made by the cleaner itself are not counted. If any of them
+ * indicates a peak of load, the budget of cleaned bytes per second is halved down to the minimum rate, otherwise
+ * it is increased by the minimum rate. If there were neither foreground commits nor writes nor reads during the
+ * period, the budget is unlimited so that the cleaner catches up.
+ */
+final class CleaningThrottle {
+
+    interface Clock {
+
+        long currentTimeMillis();
+    }
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    static final long UNLIMITED = Long.MAX_VALUE;
+
+    private static final long SAMPLE_PERIOD = 1000L; // in milliseconds
+    private static final long MAX_DELAY = 10000L; // in milliseconds
+    private static final int LATENCY_FACTOR = 2;
+    private static final int WRITE_RATE_FACTOR = 2;
+    private static final double HIT_RATE_DROP = 0.1;
+
+    @NotNull
+    private final GarbageCollector gc;
+    @NotNull
+    private final Clock clock;
+    @NotNull
+    private final AtomicLong commits;
+    @NotNull
+    private final AtomicLong commitNanos;
+    private long sampleStart;
+    private long sampleHighAddress;
+    private long sampleCleanedBytes;
+    private long sampleCleanerWrittenBytes;
+    private long sampleReads;
+    private long sampleMisses;
+    private long baselineLatency; // in nanoseconds
+    private double baselineHitRate;
+    private long averageWriteRate; // in bytes per second
+    private long budget; // in bytes per second
+
+    CleaningThrottle(@NotNull final GarbageCollector gc) {
+        this(gc, SYSTEM_CLOCK);
+    }
+
+    CleaningThrottle(@NotNull final GarbageCollector gc, @NotNull final Clock clock) {
+        this.gc = gc;
+        this.clock = clock;
+        commits = new AtomicLong();
+        commitNanos = new AtomicLong();
+        budget = UNLIMITED;
+    }
+
+    void commitFinished(final long nanos) {
+        commits.incrementAndGet();
+        commitNanos.addAndGet(nanos);
+    }
+
+    long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Should be called by background cleaner after each cleaning transaction.
+     *
+     * @param cleanedBytes bytes in cleaned files.
+     * @param writtenBytes bytes written to the log by the cleaner.
+     * @param elapsed      time in milliseconds the cleaning took.
+     * @return time in milliseconds the cleaner should wait before next cleaning.
+     */
+    long getDelay(final long cleanedBytes, final long writtenBytes, final long elapsed) {
+        // the throttle is asked for delay by the cleaner, so its own reads are not counted
+        gc.getLog().getPageReads().excludeThread(Thread.currentThread().getId());
+        final long currentTime = clock.currentTimeMillis();
+        // the sample is stale if the cleaner hasn't been running for a while
+        if (currentTime - sampleStart > SAMPLE_PERIOD * 10) {
+            commits.set(0);
+            commitNanos.set(0);
+            startSample(currentTime);
+        }
+        sampleCleanedBytes += cleanedBytes;
+        sampleCleanerWrittenBytes += writtenBytes;
+        if (currentTime - sampleStart >= SAMPLE_PERIOD) {
+            adjustBudget(currentTime);
+        }
+        final long budget = this.budget;
+        if (budget == UNLIMITED) {
+            return 0;
+        }
+        return Math.max(0, Math.min(MAX_DELAY, cleanedBytes * 1000L / budget - elapsed));
+    }
+
+    private void adjustBudget(final long currentTime) {
+        final Log log = gc.getLog();
+        final long elapsed = currentTime - sampleStart;
+        final long commitCount = commits.getAndSet(0);
+        final long nanos = commitNanos.getAndSet(0);
+        final long writeRate = Math.max(0,
+                log.getHighAddress() - sampleHighAddress - sampleCleanerWrittenBytes) * 1000L / elapsed;
+        final PageReadsCounter pageReads = log.getPageReads();
+        final long reads = pageReads.getReads() - sampleReads;
+        final long misses = pageReads.getMisses() - sampleMisses;
+        if (commitCount == 0 && writeRate == 0 && reads == 0) {
+            budget = UNLIMITED;
+        } else {
+            final long latency = commitCount == 0 ? 0 : nanos / commitCount;
+            // baselines follow the best observed values and slowly forget them
+            if (latency > 0) {
+                baselineLatency = baselineLatency == 0 ? latency : Math.min(latency, baselineLatency + baselineLatency / 8);
+            }
+            // hit rate of the sample without reads doesn't differ from the usual one
+            final double hitRate = reads == 0 ? baselineHitRate : 1 - (double) Math.min(misses, reads) / reads;
+            baselineHitRate = Math.max(hitRate, baselineHitRate - 0.01);
+            final boolean isPeak = latency > baselineLatency * LATENCY_FACTOR ||
+                    hitRate < baselineHitRate - HIT_RATE_DROP ||
+                    (averageWriteRate > 0 && writeRate > averageWriteRate * WRITE_RATE_FACTOR);
+            averageWriteRate += (writeRate - averageWriteRate) / 8;
+            final long minRate = gc.getEnvironment().getEnvironmentConfig().getGcThrottleMinRate();
+            if (isPeak) {
+                final long currentRate = budget == UNLIMITED ? sampleCleanedBytes * 1000L / elapsed : budget;
+                budget = Math.max(minRate, currentRate / 2);
+            } else if (budget != UNLIMITED) {
+                budget += minRate;
+            }
+        }
+        startSample(currentTime);
+    }
+
+    private void startSample(final long currentTime) {
+        sampleStart = currentTime;
+        final Log log = gc.getLog();
+        sampleHighAddress = log.getHighAddress();
+        final PageReadsCounter pageReads = log.getPageReads();
+        sampleReads = pageReads.getReads();
+        sampleMisses = pageReads.getMisses();
+        sampleCleanedBytes = 0;
+        sampleCleanerWrittenBytes = 0;
+    }
+}
@@ -16,10 +16,13 @@
 package jetbrains.exodus.gc;
 
 import jetbrains.exodus.ExodusException;
+import jetbrains.exodus.core.dataStructures.LongArrayList;
 import jetbrains.exodus.core.dataStructures.hash.IntHashMap;
 import jetbrains.exodus.core.dataStructures.hash.LongHashSet;
 import jetbrains.exodus.core.dataStructures.hash.LongSet;
+import jetbrains.exodus.core.execution.Job;
 import jetbrains.exodus.core.execution.JobProcessorAdapter;
+import jetbrains.exodus.core.execution.ThreadJobProcessorPool;
 import jetbrains.exodus.env.EnvironmentConfig;
 import jetbrains.exodus.env.EnvironmentImpl;
 import jetbrains.exodus.env.StoreImpl;
@@ -27,13 +30,18 @@ import jetbrains.exodus.env.TransactionImpl;
 import jetbrains.exodus.io.RemoveBlockType;
 import jetbrains.exodus.log.*;
 import jetbrains.exodus.tree.IExpirationChecker;
+import jetbrains.exodus.tree.ITreeMutable;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 
 @SuppressWarnings({"ThisEscapedInObjectConstruction"})
 public final class GarbageCollector {
@@ -54,11 +62,16 @@ public final class GarbageCollector {
     private final ConcurrentLinkedQueue<Long> deletionQueue;
     @NotNull
     private final BackgroundCleaner cleaner;
+    @NotNull
+    private final CleaningThrottle throttle;
     private volatile int newFiles; // number of new files appeared after last cleaning job
     @NotNull
     private final IExpirationChecker expirationChecker;
     @NotNull
     private final IntHashMap<StoreImpl> openStoresCache;
+    @NotNull
+    private final IntHashMap<StoreReclaimRanges> reclaimRanges;
+    private volatile int parallelReclaims; // number of stores reclaimed in parallel, for tests
 
     public GarbageCollector(@NotNull final EnvironmentImpl env) {
         this.env = env;
@@ -67,6 +80,7 @@ public final class GarbageCollector {
         deletionQueue = new ConcurrentLinkedQueue<>();
         utilizationProfile = new UtilizationProfile(env, this);
         cleaner = new BackgroundCleaner(this);
+        throttle = new CleaningThrottle(this);
         newFiles = ec.getGcFilesInterval() + 1;
         if (!ec.getGcUseExpirationChecker()) {
             expirationChecker = IExpirationChecker.NONE;
@@ -85,6 +99,7 @@ public final class GarbageCollector {
             };
         }
         openStoresCache = new IntHashMap<>();
+        reclaimRanges = new IntHashMap<>();
         env.getLog().addNewFileListener(new NewFileListener() {
             @Override
             public void fileCreated(long fileAddress) {
@@ -125,6 +140,17 @@ public final class GarbageCollector {
         utilizationProfile.fetchExpiredLoggables(loggables);
     }
 
+    /**
+     * Reports duration of a foreground commit to the cleaning throttle.
+     *
+     * @param nanos duration of the commit in nanoseconds.
+     */
+    public void commitFinished(final long nanos) {
+        if (!cleaner.isCurrentThread()) {
+            throttle.commitFinished(nanos);
+        }
+    }
+
     public long getFileFreeBytes(final long fileAddress) {
         return utilizationProfile.getFileFreeBytes(fileAddress);
     }
@@ -157,14 +183,31 @@ public final class GarbageCollector {
         }
     }
 
-    @SuppressWarnings("OverlyLongMethod")
     public /* public access is necessary to invoke the method from the Reflect class */
     boolean doCleanFile(final long fileAddress) {
-        // the file may be already cleaned
-        if (isFileToBeDeleted(fileAddress)) {
+        return doCleanFiles(new long[]{fileAddress});
+    }
+
+    /**
+     * Cleans several files in a single transaction.
+     *
+     * @param fileAddresses addresses of files.
+     * @return true if the files were actually cleaned
+     */
+    @SuppressWarnings("OverlyLongMethod")
+    boolean doCleanFiles(@NotNull final long[] fileAddresses) {
+        // some of the files may be already cleaned
+        final LongArrayList files = new LongArrayList(fileAddresses.length);
+        for (final long fileAddress : fileAddresses) {
+            if (!isFileToBeDeleted(fileAddress)) {
+                files.add(fileAddress);
+            }
+        }
+        if (files.isEmpty()) {
             return false;
         }
-        loggingInfo("start cleanFile(" + env.getLocation() + File.separatorChar + LogUtil.getLogFilename(fileAddress) + ')');
+        final String fileNames = getFileNames(files);
+        loggingInfo("start cleanFile(" + env.getLocation() + File.separatorChar + fileNames + ')');
         // At first, we clone whole meta tree inside of 'begin transaction'
         // in order to save it completely on commit of transaction.
         // Thus we can ignore all loggables belonging to the meta tree.
@@ -176,42 +219,41 @@ public final class GarbageCollector {
                 final long highFile = log.getHighFileAddress();
                 logger.debug(String.format(
                         "Cleaner acquired txn when log high address was: %d (%s@%d) when cleaning file %s",
-                        high, LogUtil.getLogFilename(highFile), high - highFile, LogUtil.getLogFilename(fileAddress)
+                        high, LogUtil.getLogFilename(highFile), high - highFile, fileNames
                 ));
             }
-            final long nextFileAddress = log.getNextFileAddress(fileAddress);
-            final Iterator<RandomAccessLoggable> loggables = log.getLoggableIterator(fileAddress);
-            while (loggables.hasNext()) {
-                final RandomAccessLoggable loggable = loggables.next();
-                if (nextFileAddress != Loggable.NULL_ADDRESS && loggable.getAddress() >= nextFileAddress) {
-                    break;
-                }
-                final int structureId = loggable.getStructureId();
-                if (structureId != Loggable.NO_STRUCTURE_ID && structureId != EnvironmentImpl.META_TREE_ID) {
-                    StoreImpl store = openStoresCache.get(structureId);
-                    if (store == null) {
-                        // TODO: remove openStoresCache when txn.openStoreByStructureId() is fast enough (XD-381)
-                        store = txn.openStoreByStructureId(structureId);
-                        openStoresCache.put(structureId, store);
-                    }
-                    store.reclaim(txn, loggable, loggables, expirationChecker);
+            final int reclaimThreads = ec.getGcReclaimThreads();
+            for (int i = 0; i < files.size(); ++i) {
+                if (reclaimThreads > 1) {
+                    collectReclaimRanges(txn, files.get(i));
+                } else {
+                    reclaimFile(txn, files.get(i));
                 }
             }
+            if (reclaimThreads > 1) {
+                reclaimInParallel(txn, reclaimThreads);
+            }
             if (!txn.forceFlush()) {
                 Thread.yield();
                 return false;
             }
         } catch (Throwable e) {
-            logger.error("cleanFile(" + LogUtil.getLogFilename(fileAddress) + ')', e);
+            logger.error("cleanFile(" + fileNames + ')', e);
             throw ExodusException.toExodusException(e);
         } finally {
+            reclaimRanges.clear();
             txn.abort();
         }
-        pendingFilesToDelete.add(fileAddress);
+        final long[] cleanedFiles = files.toArray();
+        for (final long fileAddress : cleanedFiles) {
+            pendingFilesToDelete.add(fileAddress);
+        }
         env.executeTransactionSafeTask(new Runnable() {
             @Override
             public void run() {
-                deletionQueue.offer(fileAddress);
+                for (final long fileAddress : cleanedFiles) {
+                    deletionQueue.offer(fileAddress);
+                }
             }
         });
         return true;
@@ -270,6 +312,34 @@ public final class GarbageCollector {
         return doCleanFile(fileAddress);
     }
 
+    /**
+     * Cleans several files by addresses in a single transaction. Like {@linkplain #cleanFile(long)}, this method
+     * should be called from the thread of background cleaner.
+     *
+     * @param fileAddresses addresses of files.
+     * @return true if the files were actually cleaned
+     */
+    boolean cleanFiles(@NotNull final long[] fileAddresses) {
+        cleaner.checkThread();
+        return doCleanFiles(fileAddresses);
+    }
+
+    int getFilesPerCleaning() {
+        return ec.getGcFilesPerCleaning();
+    }
+
+    @NotNull
+    CleaningThrottle getThrottle() {
+        return throttle;
+    }
+
+    /**
+     * For tests only!!!
+     */
+    int getParallelReclaims() {
+        return parallelReclaims;
+    }
+
     /**
      * Is file already cleaned and is to be deleted soon.
      *
@@ -317,6 +387,140 @@ public final class GarbageCollector {
         }
     }
 
+    private void reclaimFile(@NotNull final TransactionImpl txn, final long fileAddress) {
+        final Log log = getLog();
+        final long nextFileAddress = log.getNextFileAddress(fileAddress);
+        final Iterator<RandomAccessLoggable> loggables = log.getLoggableIterator(fileAddress);
+        while (loggables.hasNext()) {
+            final RandomAccessLoggable loggable = loggables.next();
+            if (nextFileAddress != Loggable.NULL_ADDRESS && loggable.getAddress() >= nextFileAddress) {
+                break;
+            }
+            final int structureId = loggable.getStructureId();
+            if (structureId != Loggable.NO_STRUCTURE_ID && structureId != EnvironmentImpl.META_TREE_ID) {
+                openStore(txn, structureId).reclaim(txn, loggable, loggables, expirationChecker);
+            }
+        }
+    }
+
+    /**
+     * Splits loggables of the file into ranges of successive loggables of a single structure. A range of the last
+     * structure in the file can end in the next file, just like reclaim() of a tree can go beyond the file.
+     */
+    private void collectReclaimRanges(@NotNull final TransactionImpl txn, final long fileAddress) {
+        final Log log = getLog();
+        final long nextFileAddress = log.getNextFileAddress(fileAddress);
+        final Iterator<RandomAccessLoggable> loggables = log.getLoggableIterator(fileAddress);
+        int rangeStructureId = Loggable.NO_STRUCTURE_ID;
+        long rangeStart = Loggable.NULL_ADDRESS;
+        final long fileEnd = nextFileAddress == Loggable.NULL_ADDRESS ? Long.MAX_VALUE : nextFileAddress;
+        while (loggables.hasNext()) {
+            final RandomAccessLoggable loggable = loggables.next();
+            final long address = loggable.getAddress();
+            if (address >= fileEnd) {
+                break;
+            }
+            final int structureId = loggable.getStructureId();
+            if (structureId == Loggable.NO_STRUCTURE_ID || structureId == rangeStructureId) {
+                continue;
+            }
+            if (rangeStructureId != Loggable.NO_STRUCTURE_ID) {
+                addReclaimRange(txn, rangeStructureId, rangeStart, address, nextFileAddress);
+            }
+            rangeStructureId = structureId;
+            rangeStart = address;
+        }
+        if (rangeStructureId != Loggable.NO_STRUCTURE_ID) {
+            addReclaimRange(txn, rangeStructureId, rangeStart, Long.MAX_VALUE, nextFileAddress);
+        }
+    }
+
+    private void addReclaimRange(@NotNull final TransactionImpl txn, final int structureId,
+                                 final long start, final long end, final long nextFileAddress) {
+        if (structureId == EnvironmentImpl.META_TREE_ID) {
+            return;
+        }
+        StoreReclaimRanges ranges = reclaimRanges.get(structureId);
+        if (ranges == null) {
+            ranges = new StoreReclaimRanges(openStore(txn, structureId));
+            reclaimRanges.put(structureId, ranges);
+        }
+        ranges.add(start, end, nextFileAddress);
+    }
+
+    /**
+     * Reclaims collected ranges of loggables by several threads, loggables of each store are reclaimed by
+     * a single thread. Mutable trees are created and discarded in the thread of the transaction.
+     */
+    private void reclaimInParallel(@NotNull final TransactionImpl txn, final int threads) throws Throwable {
+        final List<StoreReclaimRanges> parallelRanges = new ArrayList<>(reclaimRanges.size());
+        for (final StoreReclaimRanges ranges : reclaimRanges.values()) {
+            final ITreeMutable tree = ranges.store.beginReclaim(txn);
+            if (tree == null) {
+                ranges.reclaim(txn);
+            } else {
+                ranges.tree = tree;
+                parallelRanges.add(ranges);
+            }
+        }
+        final int rangesCount = parallelRanges.size();
+        if (rangesCount > 0) {
+            final CountDownLatch latch = new CountDownLatch(rangesCount);
+            final Throwable[] error = {null};
+            for (int i = 0; i < rangesCount; ++i) {
+                final StoreReclaimRanges ranges = parallelRanges.get(i);
+                final Job job = new Job() {
+                    @Override
+                    protected void execute() throws Throwable {
+                        try {
+                            ranges.reclaim();
+                        } catch (Throwable t) {
+                            synchronized (error) {
+                                error[0] = t;
+                            }
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+                };
+                ThreadJobProcessorPool.getOrCreateJobProcessor("Exodus shared GC reclaimer " + (i % threads)).queue(job);
+            }
+            latch.await();
+            synchronized (error) {
+                if (error[0] != null) {
+                    throw error[0];
+                }
+            }
+            for (final StoreReclaimRanges ranges : parallelRanges) {
+                ranges.store.endReclaim(txn, ranges.wasReclaim);
+            }
+            parallelReclaims += rangesCount;
+        }
+    }
+
+    @NotNull
+    private StoreImpl openStore(@NotNull final TransactionImpl txn, final int structureId) {
+        StoreImpl store = openStoresCache.get(structureId);
+        if (store == null) {
+            // TODO: remove openStoresCache when txn.openStoreByStructureId() is fast enough (XD-381)
+            store = txn.openStoreByStructureId(structureId);
+            openStoresCache.put(structureId, store);
+        }
+        return store;
+    }
+
+    @NotNull
+    private static String getFileNames(@NotNull final LongArrayList files) {
+        final StringBuilder result = new StringBuilder();
+        for (int i = 0; i < files.size(); ++i) {
+            if (i > 0) {
+                result.append(", ");
+            }
+            result.append(LogUtil.getLogFilename(files.get(i)));
+        }
+        return result.toString();
+    }
+
     private boolean doDeletePendingFile(long fileAddress) {
         if (pendingFilesToDelete.remove(fileAddress)) {
             utilizationProfile.removeFile(fileAddress);
@@ -325,4 +529,106 @@ public final class GarbageCollector {
         }
         return false;
     }
+
+    /**
+     * Ranges of loggables of a store to reclaim. Each range is reclaimed as if it were a part of the file being
+     * cleaned: reclaiming stops at the end of the range and doesn't start with a loggable from the next file.
+     */
+    private final class StoreReclaimRanges {
+
+        @NotNull
+        private final StoreImpl store;
+        @NotNull
+        private final LongArrayList starts;
+        @NotNull
+        private final LongArrayList ends;
+        @NotNull
+        private final LongArrayList nextFileAddresses;
+        private ITreeMutable tree;
+        private boolean wasReclaim;
+
+        private StoreReclaimRanges(@NotNull final StoreImpl store) {
+            this.store = store;
+            starts = new LongArrayList();
+            ends = new LongArrayList();
+            nextFileAddresses = new LongArrayList();
+        }
+
+        private void add(final long start, final long end, final long nextFileAddress) {
+            starts.add(start);
+            ends.add(end);
+            nextFileAddresses.add(nextFileAddress);
+        }
+
+        /**
+         * Reclaims to the mutable tree created by store.beginReclaim(), can be called in any thread.
+         */
+        private void reclaim() {
+            for (int i = 0; i < starts.size(); ++i) {
+                final Iterator<RandomAccessLoggable> loggables = getRangeIterator(i);
+                final long nextFileAddress = nextFileAddresses.get(i);
+                while (loggables.hasNext()) {
+                    final RandomAccessLoggable loggable = loggables.next();
+                    if (nextFileAddress != Loggable.NULL_ADDRESS && loggable.getAddress() >= nextFileAddress) {
+                        break;
+                    }
+                    if (loggable.getStructureId() != Loggable.NO_STRUCTURE_ID &&
+                            tree.reclaim(loggable, loggables, expirationChecker)) {
+                        wasReclaim = true;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Reclaims to the store in the thread of the transaction.
+         */
+        private void reclaim(@NotNull final TransactionImpl txn) {
+            for (int i = 0; i < starts.size(); ++i) {
+                final Iterator<RandomAccessLoggable> loggables = getRangeIterator(i);
+                final long nextFileAddress = nextFileAddresses.get(i);
+                while (loggables.hasNext()) {
+                    final RandomAccessLoggable loggable = loggables.next();
+                    if (nextFileAddress != Loggable.NULL_ADDRESS && loggable.getAddress() >= nextFileAddress) {
+                        break;
+                    }
+                    if (loggable.getStructureId() != Loggable.NO_STRUCTURE_ID) {
+                        store.reclaim(txn, loggable, loggables, expirationChecker);
+                    }
+                }
+            }
+        }
+
+        private Iterator<RandomAccessLoggable> getRangeIterator(final int i) {
+            final Iterator<RandomAccessLoggable> it = getLog().getLoggableIterator(starts.get(i));
+            final long end = ends.get(i);
+            return new Iterator<RandomAccessLoggable>() {
+
+                private RandomAccessLoggable next;
+
+                @Override
+                public boolean hasNext() {
+                    if (next == null && it.hasNext()) {
+                        next = it.next();
+                    }
+                    return next != null && next.getAddress() < end;
+                }
+
+                @Override
+                public RandomAccessLoggable next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    final RandomAccessLoggable result = next;
+                    next = null;
+                    return result;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
 }
@@ -16,7 +16,7 @@
 package jetbrains.exodus.gc;
 
 import jetbrains.exodus.bindings.LongBinding;
-import jetbrains.exodus.core.dataStructures.hash.LongHashMap;
+import jetbrains.exodus.core.dataStructures.hash.LongOpenHashMap;
 import jetbrains.exodus.env.*;
 import jetbrains.exodus.log.Log;
 import jetbrains.exodus.log.Loggable;
@@ -173,8 +173,8 @@ public final class UtilizationProfile {
     /**
      * @return for given files, map from file address to number of free bytes in it.
      */
-    LongHashMap<Long> getFreeBytes(long[] files) {
-        final LongHashMap<Long> result = new LongHashMap<>();
+    LongOpenHashMap<Long> getFreeBytes(long[] files) {
+        final LongOpenHashMap<Long> result = new LongOpenHashMap<>();
         synchronized (filesUtilization) {
             for (long file : files) {
                 final FileUtilization fileUtilization = filesUtilization.get(file);
@@ -258,7 +258,7 @@ public final class UtilizationProfile {
     Long[] getFilesSortedByUtilization() {
         final long maxFreeBytes = fileSize * (long) gc.getMaximumFreeSpacePercent() / 100L;
         final long[] fileAddresses = log.getAllFileAddresses();
-        final LongHashMap<Long> sparseFiles = new LongHashMap<>();
+        final LongOpenHashMap<Long> sparseFiles = new LongOpenHashMap<>();
         synchronized (filesUtilization) {
             for (int i = gc.getMinFileAge(); i < fileAddresses.length; ++i) {
                 final long file = fileAddresses[i];
@@ -22,4 +22,14 @@ public interface Block {
     long length();
 
     int read(byte[] output, long position, int count);
+
+    /**
+     * Reads bytes starting from specified position into several arrays with a single read if possible. Each array
+     * is filled completely before the next one, and the arrays are filled starting from their first bytes.
+     *
+     * @param outputs  arrays to fill.
+     * @param position position in the block to read from.
+     * @return total number of bytes read, it is less than total length of the arrays if the block ends earlier.
+     */
+    int read(byte[][] outputs, long position);
 }
@@ -0,0 +1,641 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.io;
+
+import jetbrains.exodus.ExodusException;
+import jetbrains.exodus.core.dataStructures.LongObjectCache;
+import jetbrains.exodus.core.dataStructures.hash.LongHashSet;
+import jetbrains.exodus.log.LogUtil;
+import jetbrains.exodus.util.LightOutputStream;
+import jetbrains.exodus.util.SharedRandomAccessFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * DataReader which reads log files either from its child reader or from compressed copies of the files. A file
+ * which won't be appended anymore can be replaced by its compressed copy using {@link #compressBlock(long)}.
+ * Compressed file consists of independently deflated pages, so reading of a page requires reading and inflating
+ * only this page. Compressed files have the {@link #COMPRESSED_FILE_EXTENSION} extension, so the child reader
+ * doesn't see them. A file which can't be compressed sufficiently is marked by an empty file with the
+ * {@link #INCOMPRESSIBLE_FILE_EXTENSION} extension, so that it isn't deflated once again after the log is reopened.
+ */
+public class CompressedFileDataReader implements DataReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressedFileDataReader.class);
+
+    public static final String COMPRESSED_FILE_EXTENSION = ".xdz";
+    public static final String INCOMPRESSIBLE_FILE_EXTENSION = ".xdu";
+    private static final String DELETED_FILE_EXTENSION = ".del";
+    private static final int MAGIC = 0x58445a31;
+    private static final int HEADER_SIZE = 20;
+    // compressed file is saved only if it is at least this percentage smaller than the original one
+    private static final int MIN_SAVED_PERCENTAGE = 10;
+    // states of files which are not compressed
+    private static final CompressedBlockIndex UNCOMPRESSED = new CompressedBlockIndex(0, 0, new int[0]);
+    private static final CompressedBlockIndex INCOMPRESSIBLE = new CompressedBlockIndex(0, 0, new int[0]);
+
+    @NotNull
+    private final DataReader child;
+    @NotNull
+    private final File dir;
+    private final int pageSize;
+    @NotNull
+    private final LongObjectCache<SharedRandomAccessFile> fileCache;
+    // index of compressed file, UNCOMPRESSED or INCOMPRESSIBLE by file address, files are read without locking
+    // but compressed and decompressed under the lock on this
+    @NotNull
+    private final ConcurrentMap<Long, CompressedBlockIndex> blockStates;
+
+    public CompressedFileDataReader(@NotNull final DataReader child,
+                                    @NotNull final File dir,
+                                    final int pageSize,
+                                    final int openFiles) {
+        this.child = child;
+        this.dir = dir;
+        this.pageSize = pageSize;
+        fileCache = new LongObjectCache<>(openFiles);
+        blockStates = new ConcurrentHashMap<>();
+    }
+
+    public static boolean hasCompressedFiles(@NotNull final File dir) {
+        return listCompressedFiles(dir).length > 0;
+    }
+
+    @NotNull
+    public DataReader getChildReader() {
+        return child;
+    }
+
+    @Override
+    public String getLocation() {
+        return child.getLocation();
+    }
+
+    @Override
+    public Block getBlock(final long address) {
+        return new CompressibleBlock(address);
+    }
+
+    @Override
+    public Block[] getBlocks() {
+        final Block[] childBlocks = child.getBlocks();
+        final List<Block> result = new ArrayList<>(childBlocks.length);
+        final LongHashSet uncompressed = new LongHashSet();
+        for (final Block block : childBlocks) {
+            final long address = block.getAddress();
+            uncompressed.add(address);
+            blockStates.putIfAbsent(address, UNCOMPRESSED);
+            result.add(new CompressibleBlock(address));
+        }
+        for (final File file : listCompressedFiles(dir)) {
+            final long address = getAddress(file);
+            // if compression was interrupted before the original file was deleted, the original file is used
+            if (!uncompressed.contains(address)) {
+                getCompressedBlockIndex(address);
+                result.add(new CompressibleBlock(address));
+            }
+        }
+        final Block[] blocks = result.toArray(new Block[result.size()]);
+        FileDataReader.sortBlocks(blocks);
+        return blocks;
+    }
+
+    @Override
+    public synchronized void removeBlock(final long blockAddress, @NotNull final RemoveBlockType rbt) {
+        deleteIncompressibleMarker(blockAddress);
+        final File compressedFile = getCompressedFile(blockAddress);
+        final CompressedBlockIndex state = blockStates.remove(blockAddress);
+        if (state == null || !state.isCompressed()) {
+            child.removeBlock(blockAddress, rbt);
+            // delete compressed copy left by interrupted compression
+            if (compressedFile.exists() && !compressedFile.delete()) {
+                throw new ExodusException("Failed to delete " + compressedFile.getAbsolutePath());
+            }
+            return;
+        }
+        closeFile(blockAddress);
+        final boolean deleted = rbt == RemoveBlockType.Delete ? compressedFile.delete() :
+                compressedFile.renameTo(new File(dir, getFileNamePrefix(blockAddress) + DELETED_FILE_EXTENSION));
+        if (!deleted) {
+            throw new ExodusException("Failed to delete " + compressedFile.getAbsolutePath());
+        } else if (logger.isInfoEnabled()) {
+            logger.info("Deleted file " + compressedFile.getAbsolutePath());
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        close();
+        blockStates.clear();
+        for (final File file : listCompressedFiles(dir)) {
+            if (!file.delete()) {
+                throw new ExodusException("Failed to delete " + file);
+            }
+        }
+        for (final File file : listFiles(dir, INCOMPRESSIBLE_FILE_EXTENSION)) {
+            if (!file.delete()) {
+                throw new ExodusException("Failed to delete " + file);
+            }
+        }
+        child.clear();
+    }
+
+    @Override
+    public void close() {
+        try {
+            final Iterator<SharedRandomAccessFile> itr = fileCache.values();
+            while (itr.hasNext()) {
+                itr.next().close();
+            }
+        } catch (IOException e) {
+            throw new ExodusException("Can't close all files", e);
+        } finally {
+            fileCache.clear();
+            child.close();
+        }
+    }
+
+    public boolean isCompressed(final long address) {
+        return getCompressedBlockIndex(address) != null;
+    }
+
+    /**
+     * Replaces the file by its compressed copy. The file shouldn't be appended anymore. If compressed copy is not
+     * sufficiently smaller than the file then the file is left as is.
+     *
+     * @return true if the file was compressed.
+     */
+    public boolean compressBlock(final long address) {
+        final CompressedCopy copy = createCompressedCopy(address);
+        return copy != null && copy.replaceOriginal();
+    }
+
+    /**
+     * Creates compressed copy of the file which shouldn't be appended anymore. The file is read and deflated
+     * without locking, so compression doesn't block readers of compressed files. The copy takes effect only
+     * after {@link CompressedCopy#replaceOriginal()} is called.
+     *
+     * @return compressed copy or null if the file is already compressed or it can't be compressed sufficiently.
+     */
+    @Nullable
+    public CompressedCopy createCompressedCopy(final long address) {
+        final CompressedBlockIndex state = blockStates.get(address);
+        if (state == INCOMPRESSIBLE || (state != null && state.isCompressed())) {
+            return null;
+        }
+        if (getIncompressibleMarker(address).isFile()) {
+            blockStates.put(address, INCOMPRESSIBLE);
+            return null;
+        }
+        final Block block = child.getBlock(address);
+        final long length = block.length();
+        if (length == 0 || length > Integer.MAX_VALUE) {
+            return null;
+        }
+        final byte[] content = new byte[(int) length];
+        if (readFully(block, content) != length) {
+            throw new ExodusException("Can't read file to compress, address = " + address);
+        }
+        final int pageCount = (int) ((length + pageSize - 1) / pageSize);
+        final int[] pageSizes = new int[pageCount];
+        final LightOutputStream pages = new LightOutputStream((int) (length / 2));
+        final byte[] compressedPage = new byte[pageSize];
+        final Deflater deflater = new Deflater();
+        try {
+            for (int i = 0; i < pageCount; ++i) {
+                final int offset = i * pageSize;
+                final int rawSize = Math.min(pageSize, (int) length - offset);
+                deflater.reset();
+                deflater.setInput(content, offset, rawSize);
+                deflater.finish();
+                final int compressedSize = deflater.deflate(compressedPage);
+                if (deflater.finished() && compressedSize < rawSize) {
+                    pages.write(compressedPage, 0, compressedSize);
+                    pageSizes[i] = compressedSize;
+                } else {
+                    // the page is stored as is
+                    pages.write(content, offset, rawSize);
+                    pageSizes[i] = rawSize;
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        if (pages.size() > length * (100 - MIN_SAVED_PERCENTAGE) / 100) {
+            markIncompressible(address);
+            return null;
+        }
+        final File tempFile = new File(dir, getCompressedFile(address).getName() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(tempFile)) {
+            final DataOutputStream header = new DataOutputStream(new BufferedOutputStream(output));
+            header.writeInt(MAGIC);
+            header.writeInt(pageSize);
+            header.writeLong(length);
+            header.writeInt(pageCount);
+            for (final int size : pageSizes) {
+                header.writeInt(size);
+            }
+            header.write(pages.getBufferBytes(), 0, pages.size());
+            header.flush();
+            output.getFD().sync();
+        } catch (IOException e) {
+            throw new ExodusException("Failed to write compressed file " + tempFile, e);
+        }
+        return new CompressedCopy(address, tempFile, new CompressedBlockIndex(pageSize, length, pageSizes));
+    }
+
+    /**
+     * Restores original file from its compressed copy, so that the file can be appended.
+     */
+    public synchronized void decompressBlock(final long address) {
+        // the file will be appended, so it can turn out to be compressible
+        deleteIncompressibleMarker(address);
+        final CompressedBlockIndex index = getCompressedBlockIndex(address);
+        if (index == null) {
+            blockStates.remove(address);
+            return;
+        }
+        final byte[] content = new byte[(int) index.length];
+        readCompressed(address, index, content, 0, content.length);
+        final File file = new File(dir, LogUtil.getLogFilename(address));
+        final File tempFile = new File(dir, file.getName() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(tempFile)) {
+            output.write(content);
+            output.getFD().sync();
+        } catch (IOException e) {
+            throw new ExodusException("Failed to write decompressed file " + tempFile, e);
+        }
+        if (!tempFile.renameTo(file)) {
+            throw new ExodusException("Failed to rename " + tempFile + " to " + file);
+        }
+        blockStates.put(address, UNCOMPRESSED);
+        closeFile(address);
+        final File compressedFile = getCompressedFile(address);
+        if (!compressedFile.delete()) {
+            throw new ExodusException("Failed to delete " + compressedFile.getAbsolutePath());
+        }
+    }
+
+    @Nullable
+    private CompressedBlockIndex getCompressedBlockIndex(final long address) {
+        CompressedBlockIndex result = blockStates.get(address);
+        if (result == null) {
+            // the file is looked up only once, further its state is changed only on compression or decompression
+            final File file = getCompressedFile(address);
+            result = file.isFile() ? readCompressedBlockIndex(file) : UNCOMPRESSED;
+            final CompressedBlockIndex current = blockStates.putIfAbsent(address, result);
+            if (current != null) {
+                result = current;
+            }
+        }
+        return result.isCompressed() ? result : null;
+    }
+
+    private void markIncompressible(final long address) {
+        final File marker = getIncompressibleMarker(address);
+        try {
+            if (!marker.createNewFile() && !marker.isFile()) {
+                throw new ExodusException("Failed to create " + marker.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            throw new ExodusException("Failed to create " + marker.getAbsolutePath(), e);
+        }
+        blockStates.put(address, INCOMPRESSIBLE);
+    }
+
+    private void deleteIncompressibleMarker(final long address) {
+        if (blockStates.get(address) == INCOMPRESSIBLE) {
+            blockStates.put(address, UNCOMPRESSED);
+        }
+        final File marker = getIncompressibleMarker(address);
+        if (marker.exists() && !marker.delete()) {
+            throw new ExodusException("Failed to delete " + marker.getAbsolutePath());
+        }
+    }
+
+    private int readCompressed(final long address,
+                               @NotNull final CompressedBlockIndex index,
+                               final byte[] output,
+                               final long position,
+                               final int count) {
+        final long end = Math.min(position + count, index.length);
+        if (position >= end) {
+            return 0;
+        }
+        final int indexPageSize = index.pageSize;
+        final byte[] compressedPage = new byte[indexPageSize];
+        final byte[] page = new byte[indexPageSize];
+        final Inflater inflater = new Inflater();
+        try {
+            SharedRandomAccessFile f = null;
+            try {
+                f = employFile(address);
+                int outputOffset = 0;
+                for (int i = (int) (position / indexPageSize); i < index.pageSizes.length; ++i) {
+                    final long pageAddress = (long) i * indexPageSize;
+                    if (pageAddress >= end) {
+                        break;
+                    }
+                    final int rawSize = (int) Math.min(indexPageSize, index.length - pageAddress);
+                    final int compressedSize = index.pageSizes[i];
+                    f.seek(index.offsets[i]);
+                    f.readFully(compressedPage, 0, compressedSize);
+                    final byte[] rawPage;
+                    if (compressedSize == rawSize) {
+                        rawPage = compressedPage;
+                    } else {
+                        inflater.reset();
+                        inflater.setInput(compressedPage, 0, compressedSize);
+                        if (inflater.inflate(page, 0, rawSize) != rawSize) {
+                            throw new ExodusException("Can't inflate page of compressed file, address = " + address);
+                        }
+                        rawPage = page;
+                    }
+                    final int from = (int) Math.max(position - pageAddress, 0);
+                    final int to = (int) Math.min(end - pageAddress, rawSize);
+                    System.arraycopy(rawPage, from, output, outputOffset, to - from);
+                    outputOffset += to - from;
+                }
+                return outputOffset;
+            } finally {
+                if (f != null) {
+                    f.close();
+                }
+            }
+        } catch (IOException | DataFormatException e) {
+            throw new ExodusException("Can't read compressed file " + getCompressedFile(address).getAbsolutePath(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private SharedRandomAccessFile employFile(final long address) throws IOException {
+        fileCache.lock();
+        SharedRandomAccessFile f;
+        try {
+            f = fileCache.tryKey(address);
+            if (f != null && f.employ() > 1) {
+                f.close();
+                f = null;
+            }
+        } finally {
+            fileCache.unlock();
+        }
+        if (f == null) {
+            f = new SharedRandomAccessFile(getCompressedFile(address), "r");
+            SharedRandomAccessFile obsolete = null;
+            fileCache.lock();
+            try {
+                if (fileCache.getObject(address) == null) {
+                    f.employ();
+                    obsolete = fileCache.cacheObject(address, f);
+                }
+            } finally {
+                fileCache.unlock();
+                if (obsolete != null) {
+                    obsolete.close();
+                }
+            }
+        }
+        return f;
+    }
+
+    private void closeFile(final long address) {
+        fileCache.lock();
+        final SharedRandomAccessFile f;
+        try {
+            f = fileCache.remove(address);
+        } finally {
+            fileCache.unlock();
+        }
+        try {
+            if (f != null) {
+                f.close();
+            }
+        } catch (IOException e) {
+            throw new ExodusException(e);
+        }
+    }
+
+    private File getCompressedFile(final long address) {
+        return new File(dir, getFileNamePrefix(address) + COMPRESSED_FILE_EXTENSION);
+    }
+
+    private File getIncompressibleMarker(final long address) {
+        return new File(dir, getFileNamePrefix(address) + INCOMPRESSIBLE_FILE_EXTENSION);
+    }
+
+    private static String getFileNamePrefix(final long address) {
+        final String name = LogUtil.getLogFilename(address);
+        return name.substring(0, name.length() - LogUtil.LOG_FILE_EXTENSION_LENGTH);
+    }
+
+    private static long getAddress(@NotNull final File compressedFile) {
+        final String name = compressedFile.getName();
+        return LogUtil.getAddress(name.substring(0, name.length() - COMPRESSED_FILE_EXTENSION.length()) +
+                LogUtil.LOG_FILE_EXTENSION);
+    }
+
+    private static File[] listCompressedFiles(@NotNull final File dir) {
+        return listFiles(dir, COMPRESSED_FILE_EXTENSION);
+    }
+
+    private static File[] listFiles(@NotNull final File dir, @NotNull final String extension) {
+        final File[] files = dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.length() == LogUtil.LOG_FILE_NAME_LENGTH + extension.length() && name.endsWith(extension);
+            }
+        });
+        return files == null ? new File[0] : files;
+    }
+
+    private static int readFully(@NotNull final Block block, @NotNull final byte[] output) {
+        final byte[] buffer = new byte[Math.min(output.length, 1 << 16)];
+        int read = 0;
+        while (read < output.length) {
+            final int bytes = block.read(buffer, read, Math.min(buffer.length, output.length - read));
+            if (bytes <= 0) {
+                break;
+            }
+            System.arraycopy(buffer, 0, output, read, bytes);
+            read += bytes;
+        }
+        return read;
+    }
+
+    private static CompressedBlockIndex readCompressedBlockIndex(@NotNull final File file) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new ExodusException("Invalid compressed file " + file.getAbsolutePath());
+            }
+            final int pageSize = input.readInt();
+            final long length = input.readLong();
+            final int pageCount = input.readInt();
+            final int[] pageSizes = new int[pageCount];
+            for (int i = 0; i < pageCount; ++i) {
+                pageSizes[i] = input.readInt();
+            }
+            return new CompressedBlockIndex(pageSize, length, pageSizes);
+        } catch (IOException e) {
+            throw new ExodusException("Can't read compressed file " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Compressed copy of a file created by {@link #createCompressedCopy(long)}.
+     */
+    public final class CompressedCopy {
+
+        private final long address;
+        @NotNull
+        private final File tempFile;
+        @NotNull
+        private final CompressedBlockIndex index;
+
+        private CompressedCopy(final long address, @NotNull final File tempFile, @NotNull final CompressedBlockIndex index) {
+            this.address = address;
+            this.tempFile = tempFile;
+            this.index = index;
+        }
+
+        /**
+         * Replaces the original file by the compressed copy unless the file was removed or changed since
+         * the copy was created, then the copy is discarded.
+         *
+         * @return true if the file was replaced.
+         */
+        public boolean replaceOriginal() {
+            synchronized (CompressedFileDataReader.this) {
+                if (getCompressedBlockIndex(address) != null || child.getBlock(address).length() != index.length) {
+                    discard();
+                    return false;
+                }
+                final File compressedFile = getCompressedFile(address);
+                if (!tempFile.renameTo(compressedFile)) {
+                    throw new ExodusException("Failed to rename " + tempFile + " to " + compressedFile);
+                }
+                blockStates.put(address, index);
+                // since now the file is read from compressed copy
+                child.removeBlock(address, RemoveBlockType.Delete);
+                return true;
+            }
+        }
+
+        public void discard() {
+            if (tempFile.exists() && !tempFile.delete()) {
+                throw new ExodusException("Failed to delete " + tempFile.getAbsolutePath());
+            }
+        }
+    }
+
+    private final class CompressibleBlock implements Block {
+
+        private final long address;
+
+        private CompressibleBlock(final long address) {
+            this.address = address;
+        }
+
+        @Override
+        public long getAddress() {
+            return address;
+        }
+
+        @Override
+        public long length() {
+            final CompressedBlockIndex index = getCompressedBlockIndex(address);
+            return index == null ? child.getBlock(address).length() : index.length;
+        }
+
+        @Override
+        public int read(final byte[] output, final long position, final int count) {
+            CompressedBlockIndex index = getCompressedBlockIndex(address);
+            if (index == null) {
+                try {
+                    return child.getBlock(address).read(output, position, count);
+                } catch (ExodusException e) {
+                    // the file could be compressed and deleted concurrently
+                    index = getCompressedBlockIndex(address);
+                    if (index == null) {
+                        throw e;
+                    }
+                }
+            }
+            return readCompressed(address, index, output, position, count);
+        }
+
+        @Override
+        public int read(final byte[][] outputs, final long position) {
+            final CompressedBlockIndex index = getCompressedBlockIndex(address);
+            if (index == null) {
+                try {
+                    return child.getBlock(address).read(outputs, position);
+                } catch (ExodusException e) {
+                    if (getCompressedBlockIndex(address) == null) {
+                        throw e;
+                    }
+                }
+            }
+            // compressed pages are inflated one by one anyway
+            int result = 0;
+            for (final byte[] output : outputs) {
+                final int read = read(output, position + result, output.length);
+                result += Math.max(read, 0);
+                if (read < output.length) {
+                    break;
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class CompressedBlockIndex {
+
+        private final int pageSize;
+        private final long length;
+        private final int[] pageSizes;
+        private final long[] offsets;
+
+        private CompressedBlockIndex(final int pageSize, final long length, @NotNull final int[] pageSizes) {
+            this.pageSize = pageSize;
+            this.length = length;
+            this.pageSizes = pageSizes;
+            offsets = new long[pageSizes.length];
+            long offset = HEADER_SIZE + 4L * pageSizes.length;
+            for (int i = 0; i < pageSizes.length; ++i) {
+                offsets[i] = offset;
+                offset += pageSizes[i];
+            }
+        }
+
+        private boolean isCompressed() {
+            return this != UNCOMPRESSED && this != INCOMPRESSIBLE;
+        }
+    }
+}
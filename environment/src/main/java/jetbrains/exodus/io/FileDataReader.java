@@ -25,6 +25,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -131,7 +133,7 @@ public class FileDataReader implements DataReader {
         });
     }
 
-    private static boolean renameFile(@NotNull final File file) {
+    static boolean renameFile(@NotNull final File file) {
         final String name = file.getName();
         return file.renameTo(new File(file.getParent(),
                 name.substring(0, name.indexOf(LogUtil.LOG_FILE_EXTENSION)) + DELETED_FILE_EXTENSION));
@@ -154,36 +156,39 @@ public class FileDataReader implements DataReader {
         @Override
         public int read(final byte[] output, long position, int count) {
             try {
-                fileCache.lock();
-                SharedRandomAccessFile f;
+                final SharedRandomAccessFile f = employFile();
                 try {
-                    f = fileCache.tryKey(address);
-                    if (f != null && f.employ() > 1) {
-                        f.close();
-                        f = null;
-                    }
+                    f.seek(position);
+                    return f.read(output, 0, count);
                 } finally {
-                    fileCache.unlock();
+                    f.close();
                 }
-                if (f == null) {
-                    f = new SharedRandomAccessFile(this, "r");
-                    SharedRandomAccessFile obsolete = null;
-                    fileCache.lock();
-                    try {
-                        if (fileCache.getObject(address) == null) {
-                            f.employ();
-                            obsolete = fileCache.cacheObject(address, f);
-                        }
-                    } finally {
-                        fileCache.unlock();
-                        if (obsolete != null) {
-                            obsolete.close();
+            } catch (IOException e) {
+                throw new ExodusException("Can't read file " + getAbsolutePath(), e);
+            }
+        }
+
+        @Override
+        public int read(final byte[][] outputs, long position) {
+            final ByteBuffer[] buffers = new ByteBuffer[outputs.length];
+            for (int i = 0; i < outputs.length; ++i) {
+                buffers[i] = ByteBuffer.wrap(outputs[i]);
+            }
+            try {
+                final SharedRandomAccessFile f = employFile();
+                try {
+                    // scattering read fills all buffers with as few system calls as possible
+                    final FileChannel channel = f.getChannel();
+                    channel.position(position);
+                    int result = 0;
+                    while (outputs.length > 0 && buffers[outputs.length - 1].hasRemaining()) {
+                        final long read = channel.read(buffers);
+                        if (read <= 0) {
+                            break;
                         }
+                        result += read;
                     }
-                }
-                try {
-                    f.seek(position);
-                    return f.read(output, 0, count);
+                    return result;
                 } finally {
                     f.close();
                 }
@@ -191,5 +196,36 @@ public class FileDataReader implements DataReader {
                 throw new ExodusException("Can't read file " + getAbsolutePath(), e);
             }
         }
+
+        private SharedRandomAccessFile employFile() throws IOException {
+            fileCache.lock();
+            SharedRandomAccessFile f;
+            try {
+                f = fileCache.tryKey(address);
+                if (f != null && f.employ() > 1) {
+                    f.close();
+                    f = null;
+                }
+            } finally {
+                fileCache.unlock();
+            }
+            if (f == null) {
+                f = new SharedRandomAccessFile(this, "r");
+                SharedRandomAccessFile obsolete = null;
+                fileCache.lock();
+                try {
+                    if (fileCache.getObject(address) == null) {
+                        f.employ();
+                        obsolete = fileCache.cacheObject(address, f);
+                    }
+                } finally {
+                    fileCache.unlock();
+                    if (obsolete != null) {
+                        obsolete.close();
+                    }
+                }
+            }
+            return f;
+        }
     }
 }
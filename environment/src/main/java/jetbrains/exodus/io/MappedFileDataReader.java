@@ -0,0 +1,325 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.io;
+
+import jetbrains.exodus.ExodusException;
+import jetbrains.exodus.core.dataStructures.ConcurrentLongObjectCache;
+import jetbrains.exodus.log.LogUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+
+/**
+ * DataReader which reads log files through read-only memory mappings instead of {@code RandomAccessFile}s.
+ * Mappings are kept in a non-blocking cache, so reading a page of a mapped file is a plain memory copy and
+ * doesn't require any lock. Full (immutable) files are mapped once. The last (appendable) file is read through
+ * its channel beyond its mapped length, and is re-mapped only after it has doubled in size since it was mapped,
+ * so the number of mappings of a file is logarithmic in its length. Mappings are never released explicitly, only
+ * as soon as they are garbage collected, so on Windows a removed file can't be deleted while it is still mapped.
+ */
+public class MappedFileDataReader implements DataReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedFileDataReader.class);
+
+    private static final int MAPPINGS_CACHE_GENERATION_COUNT = 2;
+
+    @NotNull
+    private final File dir;
+    @NotNull
+    private final ConcurrentLongObjectCache<MappedByteBuffer> mappings;
+    @NotNull
+    private final Object tailLock;
+    @Nullable
+    private volatile TailFile tail;
+
+    public MappedFileDataReader(@NotNull final File dir, final int mappedFiles) {
+        this.dir = dir;
+        mappings = new ConcurrentLongObjectCache<>(mappedFiles, MAPPINGS_CACHE_GENERATION_COUNT);
+        tailLock = new Object();
+    }
+
+    @Override
+    public Block[] getBlocks() {
+        final File[] files = LogUtil.listFiles(dir);
+        final Block[] result = new Block[files.length];
+        for (int i = 0; i < files.length; ++i) {
+            result[i] = new MappedFileBlock(LogUtil.getAddress(files[i].getName()));
+        }
+        FileDataReader.sortBlocks(result);
+        return result;
+    }
+
+    @Override
+    public void removeBlock(long blockAddress, @NotNull final RemoveBlockType rbt) {
+        // the mapping is released as soon as the buffer is garbage collected, it can't be released explicitly
+        // since a concurrent read (e.g., read-ahead) could access it afterwards and crash the JVM
+        mappings.remove(blockAddress);
+        closeTail(blockAddress);
+        final File file = new File(dir, LogUtil.getLogFilename(blockAddress));
+        final boolean deleted = rbt == RemoveBlockType.Delete ? file.delete() : FileDataReader.renameFile(file);
+        if (!deleted) {
+            throw new ExodusException("Failed to delete " + file.getAbsolutePath());
+        } else if (logger.isInfoEnabled()) {
+            logger.info("Deleted file " + file.getAbsolutePath());
+        }
+    }
+
+    @Override
+    public void clear() {
+        final File[] files = LogUtil.listFiles(dir);
+        close();
+        for (final File file : files) {
+            if (!file.delete()) {
+                throw new ExodusException("Failed to delete " + file);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        mappings.clear();
+        closeTail(null);
+    }
+
+    /**
+     * Forgets mapping of the file with specified address, so that next read of the file maps it again.
+     * Should be invoked if the file is about to be truncated, since accessing a mapping beyond the end
+     * of the file is not allowed.
+     *
+     * @param blockAddress address of the file.
+     */
+    public void invalidateBlock(final long blockAddress) {
+        mappings.remove(blockAddress);
+    }
+
+    @Override
+    public String getLocation() {
+        return dir.getPath();
+    }
+
+    @Override
+    public MappedFileBlock getBlock(final long address) {
+        return new MappedFileBlock(address);
+    }
+
+    /**
+     * Returns channel of the file with specified address if it is the last file read so far, i.e. presumably
+     * the appendable one. Channel of previous last file is closed.
+     *
+     * @param address address of the file.
+     * @return channel of the file or {@code null} if a file with greater address has been already read.
+     */
+    @Nullable
+    private FileChannel getTailChannel(final long address) {
+        TailFile tail = this.tail;
+        if (tail != null && tail.address == address) {
+            return tail.file.getChannel();
+        }
+        synchronized (tailLock) {
+            tail = this.tail;
+            if (tail != null) {
+                if (tail.address == address) {
+                    return tail.file.getChannel();
+                }
+                if (tail.address > address) {
+                    return null;
+                }
+                tail.close();
+            }
+            try {
+                tail = new TailFile(address, new RandomAccessFile(new File(dir, LogUtil.getLogFilename(address)), "r"));
+            } catch (IOException e) {
+                throw new ExodusException("Can't open file " + LogUtil.getLogFilename(address), e);
+            }
+            this.tail = tail;
+            return tail.file.getChannel();
+        }
+    }
+
+    /**
+     * Closes channel of last read file if it has specified address or if the address is {@code null}.
+     */
+    private void closeTail(@Nullable final Long address) {
+        synchronized (tailLock) {
+            final TailFile tail = this.tail;
+            if (tail != null && (address == null || tail.address == address)) {
+                this.tail = null;
+                tail.close();
+            }
+        }
+    }
+
+    /**
+     * Positional read into the buffer until it is full or end of file is reached.
+     *
+     * @return number of bytes read.
+     */
+    private static int readFully(@NotNull final FileChannel channel,
+                                 @NotNull final ByteBuffer buffer, final long position) throws IOException {
+        int result = 0;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position + result);
+            if (read < 0) {
+                break;
+            }
+            result += read;
+        }
+        return result;
+    }
+
+    private static final class TailFile {
+
+        private final long address;
+        @NotNull
+        private final RandomAccessFile file;
+
+        private TailFile(final long address, @NotNull final RandomAccessFile file) {
+            this.address = address;
+            this.file = file;
+        }
+
+        private void close() {
+            try {
+                file.close();
+            } catch (IOException e) {
+                throw new ExodusException("Can't close file " + LogUtil.getLogFilename(address), e);
+            }
+        }
+    }
+
+    private final class MappedFileBlock extends File implements Block {
+
+        private final long address;
+
+        private MappedFileBlock(final long address) {
+            super(dir, LogUtil.getLogFilename(address));
+            this.address = address;
+        }
+
+        @Override
+        public long getAddress() {
+            return address;
+        }
+
+        @Override
+        public int read(final byte[] output, long position, int count) {
+            MappedByteBuffer mapping = mappings.tryKey(address);
+            if (mapping == null || mapping.limit() < position + count) {
+                // either the file is not mapped yet, or it is the appendable one and has grown since it was mapped
+                if (mapping != null && position + count <= mapping.limit() * 2L) {
+                    final FileChannel channel = getTailChannel(address);
+                    if (channel != null) {
+                        try {
+                            final int read = readFully(channel, ByteBuffer.wrap(output, 0, count), position);
+                            return read == 0 && count > 0 ? -1 : read;
+                        } catch (ClosedChannelException ignore) {
+                            // the file is no longer the last one
+                        } catch (IOException e) {
+                            throw new ExodusException("Can't read file " + getAbsolutePath(), e);
+                        }
+                    }
+                }
+                mapping = map();
+            }
+            final int available = (int) (mapping.limit() - position);
+            if (available <= 0) {
+                return count == 0 ? 0 : -1;
+            }
+            if (count > available) {
+                count = available;
+            }
+            final ByteBuffer view = mapping.duplicate();
+            view.position((int) position);
+            view.get(output, 0, count);
+            return count;
+        }
+
+        @Override
+        public int read(final byte[][] outputs, long position) {
+            int count = 0;
+            for (final byte[] output : outputs) {
+                count += output.length;
+            }
+            MappedByteBuffer mapping = mappings.tryKey(address);
+            if (mapping == null || mapping.limit() < position + count) {
+                if (mapping != null && position + count <= mapping.limit() * 2L) {
+                    final FileChannel channel = getTailChannel(address);
+                    if (channel != null) {
+                        try {
+                            return read(channel, outputs, position);
+                        } catch (ClosedChannelException ignore) {
+                            // the file is no longer the last one
+                        } catch (IOException e) {
+                            throw new ExodusException("Can't read file " + getAbsolutePath(), e);
+                        }
+                    }
+                }
+                mapping = map();
+            }
+            final ByteBuffer view = mapping.duplicate();
+            if (position >= view.limit()) {
+                return 0;
+            }
+            view.position((int) position);
+            int result = 0;
+            for (final byte[] output : outputs) {
+                final int length = Math.min(output.length, view.remaining());
+                view.get(output, 0, length);
+                result += length;
+                if (length < output.length) {
+                    break;
+                }
+            }
+            return result;
+        }
+
+        private int read(@NotNull final FileChannel channel,
+                         @NotNull final byte[][] outputs, long position) throws IOException {
+            int result = 0;
+            for (final byte[] output : outputs) {
+                final int length = readFully(channel, ByteBuffer.wrap(output), position);
+                result += length;
+                position += length;
+                if (length < output.length) {
+                    break;
+                }
+            }
+            return result;
+        }
+
+        private MappedByteBuffer map() {
+            try {
+                try (RandomAccessFile f = new RandomAccessFile(this, "r")) {
+                    // mapping remains valid after the channel is closed
+                    final MappedByteBuffer result = f.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, f.length());
+                    mappings.cacheObject(address, result);
+                    return result;
+                }
+            } catch (IOException e) {
+                throw new ExodusException("Can't map file " + getAbsolutePath(), e);
+            }
+        }
+    }
+}
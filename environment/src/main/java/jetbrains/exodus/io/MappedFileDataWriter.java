@@ -0,0 +1,44 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.io;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+
+/**
+ * DataWriter paired with {@link MappedFileDataReader}. Appends to files just like {@link FileDataWriter} does
+ * (writable mapping would pre-allocate the appendable file and break length-based recovery), but invalidates
+ * reader's mapping of a file before the file is opened and possibly truncated.
+ */
+public class MappedFileDataWriter extends FileDataWriter {
+
+    @NotNull
+    private final MappedFileDataReader reader;
+
+    public MappedFileDataWriter(@NotNull final File directory, @NotNull final MappedFileDataReader reader) {
+        super(directory);
+        this.reader = reader;
+    }
+
+    @Override
+    protected void openOrCreateBlockImpl(final long address, final long length) {
+        reader.invalidateBlock(address);
+        super.openOrCreateBlockImpl(address, length);
+        // the file could be mapped once again before it was truncated
+        reader.invalidateBlock(address);
+    }
+}
@@ -102,5 +102,18 @@ public class MemoryDataReader implements DataReader {
         public int read(final byte[] output, long position, int count) {
             return data.read(output, position, count);
         }
+
+        @Override
+        public int read(final byte[][] outputs, long position) {
+            int result = 0;
+            for (final byte[] output : outputs) {
+                final int read = data.read(output, position + result, output.length);
+                result += read;
+                if (read < output.length) {
+                    break;
+                }
+            }
+            return result;
+        }
     }
 }
\ No newline at end of file
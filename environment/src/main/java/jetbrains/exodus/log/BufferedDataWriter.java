@@ -146,9 +146,13 @@ class BufferedDataWriter implements TransactionalDataWriter {
                 final int off = mutablePage.flushedCount;
                 child.write(mutablePage.bytes, off, pageSize - off);
                 logCache.cachePage(log, mutablePage.pageAddress, mutablePage.page);
+                calculateChecksum(mutablePage);
             }
             currentPage.previousPage = null;
         }
+        if (currentPage.committedCount == pageSize) {
+            calculateChecksum(currentPage);
+        }
     }
 
     @Override
@@ -233,6 +237,14 @@ class BufferedDataWriter implements TransactionalDataWriter {
         return true;
     }
 
+    private void calculateChecksum(@NotNull final MutablePage page) {
+        final PageChecksums pageChecksums = log.pageChecksums;
+        if (pageChecksums != null && !page.checksumCalculated) {
+            pageChecksums.pageWritten(page.pageAddress, page.bytes);
+            page.checksumCalculated = true;
+        }
+    }
+
     private MutablePage allocNewPage() {
         MutablePage currentPage = this.currentPage;
         return this.currentPage = new MutablePage(currentPage, logCache.allocPage(), currentPage.pageAddress + pageSize);
@@ -250,6 +262,7 @@ class BufferedDataWriter implements TransactionalDataWriter {
         int flushedCount;
         int committedCount;
         int writtenCount;
+        boolean checksumCalculated;
 
         MutablePage(@Nullable final MutablePage previousPage,
                     @NotNull final ArrayByteIterable page,
@@ -263,6 +276,7 @@ class BufferedDataWriter implements TransactionalDataWriter {
 
         void setPageSize(final int pageSize) {
             flushedCount = committedCount = writtenCount = pageSize;
+            checksumCalculated = false;
         }
     }
 }
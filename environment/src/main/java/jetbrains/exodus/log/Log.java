@@ -21,6 +21,7 @@ import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.InvalidSettingException;
 import jetbrains.exodus.core.dataStructures.LongArrayList;
 import jetbrains.exodus.core.dataStructures.skiplists.LongSkipList;
+import jetbrains.exodus.core.execution.Job;
 import jetbrains.exodus.io.*;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
 import jetbrains.exodus.util.DeferredIO;
@@ -30,9 +31,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressWarnings({"JavaDoc"})
@@ -43,6 +46,7 @@ public final class Log implements Closeable {
     private static AtomicInteger identityGenerator = new AtomicInteger();
 
     private static LogCache sharedCache = null;
+    private static OffHeapPageCache sharedOffHeapCache = null;
 
     @NotNull
     private final LogConfig config;
@@ -51,6 +55,14 @@ public final class Log implements Closeable {
     private final String location;
     private final LongSkipList blockAddrs;
     final LogCache cache;
+    @Nullable
+    final OffHeapPageCache offHeapCache;
+    @Nullable
+    final PageChecksums pageChecksums;
+    @Nullable
+    final LogPrefetcher prefetcher;
+    @NotNull
+    final PageReadsCounter pageReads;
 
     private int logIdentity;
     @NotNull
@@ -59,8 +71,31 @@ public final class Log implements Closeable {
      * Last ticks when the sync operation was performed.
      */
     private long lastSyncTicks;
+    /**
+     * Group commit: the log is synced outside of commit lock by {@link #syncTo(long)}, syncLock serializes
+     * syncs and opening/closing of files by the writer. Committers waiting on syncLock for a sync which is
+     * in progress are likely to find their data already synced by the time they get the lock.
+     */
+    private final boolean groupCommit;
+    private final Object syncLock = new Object();
+    private volatile long flushedHighAddress;
+    private long syncedHighAddress; // guarded by syncLock
+    @Nullable
+    private final WriteBehindDataWriter writeBehindWriter;
+    @Nullable
+    private final File checkpointDir;
+    private long checkpointRootAddress;
     @NotNull
     private final DataReader reader;
+    /**
+     * Compression of immutable files: files below compressionBound are compressed in background unless
+     * compression is suspended. Both compressionBound and compressionSuspended are guarded by compressedReader.
+     */
+    @Nullable
+    private final CompressedFileDataReader compressedReader;
+    private final AtomicBoolean compressionQueued;
+    private long compressionBound;
+    private int compressionSuspended;
 
     private final List<NewFileListener> newFileListeners;
 
@@ -81,6 +116,7 @@ public final class Log implements Closeable {
     @SuppressWarnings({"OverlyLongMethod", "ThisEscapedInObjectConstruction", "OverlyCoupledMethod"})
     public Log(@NotNull final LogConfig config) {
         this.config = config;
+        groupCommit = config.isGroupCommit();
         tryLock();
         created = System.currentTimeMillis();
         blockAddrs = new LongSkipList();
@@ -92,6 +128,8 @@ public final class Log implements Closeable {
         }
         fileLengthBound = fileLength;
         reader = config.getReader();
+        compressedReader = reader instanceof CompressedFileDataReader ? (CompressedFileDataReader) reader : null;
+        compressionQueued = new AtomicBoolean();
         location = reader.getLocation();
         final Block[] blocks = reader.getBlocks();
         for (int i = 0; i < blocks.length; ++i) {
@@ -113,20 +151,46 @@ public final class Log implements Closeable {
         newFileListeners = new ArrayList<>(2);
         final long memoryUsage = config.getMemoryUsage();
         final boolean nonBlockingCache = config.isNonBlockingCache();
+        final boolean stripedCache = config.isStripedCache();
+        final boolean frequencySketchCache = config.isFrequencySketchCache();
         if (memoryUsage != 0) {
-            cache = config.isSharedCache() ?
-                    getSharedCache(memoryUsage, cachePageSize, nonBlockingCache) :
-                    new SeparateLogCache(memoryUsage, cachePageSize, nonBlockingCache);
+            if (config.isSharedCache()) {
+                cache = getSharedCache(memoryUsage, cachePageSize, nonBlockingCache, stripedCache, frequencySketchCache);
+            } else {
+                cache = stripedCache ?
+                        new StripedLogCache(memoryUsage, cachePageSize, false) :
+                        new SeparateLogCache(memoryUsage, cachePageSize, nonBlockingCache);
+            }
         } else {
             final int memoryUsagePercentage = config.getMemoryUsagePercentage();
-            cache = config.isSharedCache() ?
-                    getSharedCache(memoryUsagePercentage, cachePageSize, nonBlockingCache) :
-                    new SeparateLogCache(memoryUsagePercentage, cachePageSize, nonBlockingCache);
+            if (config.isSharedCache()) {
+                cache = getSharedCache(memoryUsagePercentage, cachePageSize, nonBlockingCache, stripedCache, frequencySketchCache);
+            } else {
+                cache = stripedCache ?
+                        new StripedLogCache(memoryUsagePercentage, cachePageSize, false) :
+                        new SeparateLogCache(memoryUsagePercentage, cachePageSize, nonBlockingCache);
+            }
+        }
+        final long offHeapMemoryUsage = config.getCacheOffHeapMemoryUsage();
+        if (offHeapMemoryUsage == 0) {
+            offHeapCache = null;
+        } else if (config.isSharedCache()) {
+            offHeapCache = getSharedOffHeapCache(offHeapMemoryUsage, cachePageSize);
+        } else {
+            offHeapCache = new OffHeapPageCache(offHeapMemoryUsage, cachePageSize);
         }
-        DeferredIO.getJobProcessor();
+        final int readAheadPages = config.getCacheReadAhead();
+        prefetcher = readAheadPages > 0 ? new LogPrefetcher(this, cache, cachePageSize, readAheadPages) : null;
+        pageReads = new PageReadsCounter();
+        writeBehindWriter = config.isWriteBehind() ? new WriteBehindDataWriter(config.getWriter(), location) : null;
         highAddress = 0;
+        final File logDir = new File(location);
+        checkpointDir = config.isCheckpoint() && logDir.isDirectory() ? logDir : null;
+        checkpointRootAddress = Loggable.NULL_ADDRESS;
+        pageChecksums = config.isPageChecksums() ?
+                new PageChecksums(logDir.isDirectory() ? logDir : null, fileLengthBound, cachePageSize) : null;
 
-        final DataWriter baseWriter = config.getWriter();
+        final DataWriter baseWriter = getBaseWriter();
         final LongSkipList.SkipListNode lastFile = blockAddrs.getMaximumNode();
         if (lastFile == null) {
             setBufferedWriter(createEmptyBufferedWriter(baseWriter));
@@ -137,31 +201,47 @@ public final class Log implements Closeable {
             final byte[] highPageContent = new byte[cachePageSize];
             setBufferedWriter(createBufferedWriter(baseWriter, highPageAddress,
                     highPageContent, highAddress == 0 ? 0 : readBytes(highPageContent, highPageAddress)));
-            // here we should check whether last loggable is written correctly
-            final Iterator<RandomAccessLoggable> lastFileLoggables = new LoggableIterator(this, lastFileAddress);
-            long approvedHighAddress = lastFileAddress;
-            try {
-                while (lastFileLoggables.hasNext()) {
-                    final RandomAccessLoggable loggable = lastFileLoggables.next();
-                    final int dataLength = NullLoggable.isNullLoggable(loggable) ? 0 : loggable.getDataLength();
-                    if (dataLength > 0) {
-                        // if not null loggable read all data to the end
-                        final ByteIteratorWithAddress data = loggable.getData().iterator();
-                        for (int i = 0; i < dataLength; ++i) {
-                            if (!data.hasNext()) {
-                                throw new ExodusException("Can't read loggable fully, address = " + data.getAddress());
+            final LogCheckpoint checkpoint = checkpointDir == null ? null : LogCheckpoint.read(checkpointDir, fileLengthBound);
+            if (checkpoint != null && checkpoint.highAddress == highAddress) {
+                // the log wasn't appended since the checkpoint was saved, so the last file needn't be checked
+                checkpointRootAddress = checkpoint.rootAddress;
+            } else {
+                // here we should check whether last loggable is written correctly
+                final Iterator<RandomAccessLoggable> lastFileLoggables = new LoggableIterator(this, lastFileAddress);
+                long approvedHighAddress = lastFileAddress;
+                // loggables are approved only below the first page which doesn't match its checksum saved on sync
+                final long corruptedPageAddress = pageChecksums == null ? Long.MAX_VALUE :
+                        pageChecksums.findCorruptedPage(this, lastFileAddress, highAddress);
+                if (corruptedPageAddress != Long.MAX_VALUE) {
+                    logger.error("Page checksum mismatch on Log recovery, page address = " + corruptedPageAddress);
+                }
+                try {
+                    while (approvedHighAddress < corruptedPageAddress && lastFileLoggables.hasNext()) {
+                        final RandomAccessLoggable loggable = lastFileLoggables.next();
+                        if (loggable.getAddress() + loggable.length() > corruptedPageAddress) {
+                            break;
+                        }
+                        final int dataLength = NullLoggable.isNullLoggable(loggable) ? 0 : loggable.getDataLength();
+                        if (dataLength > 0) {
+                            // if not null loggable read all data to the end
+                            final ByteIteratorWithAddress data = loggable.getData().iterator();
+                            for (int i = 0; i < dataLength; ++i) {
+                                if (!data.hasNext()) {
+                                    throw new ExodusException("Can't read loggable fully, address = " + data.getAddress());
+                                }
+                                data.next();
                             }
-                            data.next();
                         }
+                        approvedHighAddress = loggable.getAddress() + loggable.length();
                     }
-                    approvedHighAddress = loggable.getAddress() + loggable.length();
+                } catch (ExodusException e) { // if an exception is thrown then last loggable wasn't read correctly
+                    logger.error("Exception on Log recovery. Approved high address = " + approvedHighAddress, e);
                 }
-            } catch (ExodusException e) { // if an exception is thrown then last loggable wasn't read correctly
-                logger.error("Exception on Log recovery. Approved high address = " + approvedHighAddress, e);
+                setHighAddress(approvedHighAddress);
             }
-            setHighAddress(approvedHighAddress);
         }
         flush(true);
+        compressImmutableFiles();
     }
 
     @NotNull
@@ -231,6 +311,10 @@ public final class Log implements Closeable {
         }
         // end of test-only code
 
+        if (prefetcher != null) {
+            prefetcher.invalidate();
+        }
+
         // at first, remove all files which are higher than highAddress
         bufferedWriter.close();
         final LongArrayList blocksToDelete = new LongArrayList();
@@ -249,9 +333,26 @@ public final class Log implements Closeable {
         for (int i = 0; i < blocksToDelete.size(); ++i) {
             removeFile(blocksToDelete.get(i));
         }
+        if (pageChecksums != null) {
+            pageChecksums.truncate(highAddress);
+        }
+        if (compressedReader != null) {
+            // the file containing new high address will be appended, so it can't remain compressed
+            synchronized (compressedReader) {
+                compressionBound = getFileAddress(highAddress);
+                compressedReader.decompressBlock(compressionBound);
+            }
+        }
+
+        if (groupCommit) {
+            synchronized (syncLock) {
+                flushedHighAddress = highAddress;
+                syncedHighAddress = Math.min(syncedHighAddress, highAddress);
+            }
+        }
 
         // update buffered writer
-        final DataWriter baseWriter = config.getWriter();
+        final DataWriter baseWriter = getBaseWriter();
         if (blockAddrs.isEmpty()) {
             this.highAddress = 0;
             setBufferedWriter(createEmptyBufferedWriter(baseWriter));
@@ -266,7 +367,7 @@ public final class Log implements Closeable {
                     throw new ExodusException("Can't read expected high page bytes");
                 }
                 for (long pageAddress = highPageAddress; pageAddress < oldHighPageAddress; pageAddress += cachePageSize) {
-                    cache.removePage(this, pageAddress);
+                    removeCachedPage(pageAddress);
                 }
                 setBufferedWriter(createBufferedWriter(baseWriter, highPageAddress, highPageContent, highPageSize));
             }
@@ -359,6 +460,18 @@ public final class Log implements Closeable {
         return cache == null ? 0 : cache.hitRate();
     }
 
+    /**
+     * @return counter of pages requested from log cache by foreground threads and missed in it.
+     */
+    @NotNull
+    public PageReadsCounter getPageReads() {
+        return pageReads;
+    }
+
+    public double getOffHeapCacheHitRate() {
+        return offHeapCache == null ? 0 : offHeapCache.hitRate();
+    }
+
     public void addNewFileListener(@NotNull final NewFileListener listener) {
         synchronized (newFileListeners) {
             newFileListeners.add(listener);
@@ -403,6 +516,10 @@ public final class Log implements Closeable {
                                 address, new ArrayByteIterableWithAddress(dataAddress, currentPage, currentOffset, dataLength), dataLength, structureId);
             }
         }
+        if (dataLength > cachePageSize) {
+            // data spans several pages, so those of them which are not cached are read at once
+            cache.readPages(this, dataAddress, dataLength);
+        }
         final RandomAccessByteIterable data = new RandomAccessByteIterable(dataAddress, this);
         return prototype == null ?
                 new RandomAccessLoggableImpl(address, type, data, dataLength, structureId) :
@@ -549,20 +666,100 @@ public final class Log implements Closeable {
     }
 
     public void flush(boolean forceSync) {
+        flush(forceSync, false);
+    }
+
+    /**
+     * @param periodic true if the log is synced as defined by syncPeriod, with write-behind such sync
+     *                 is only queued unless the write is durable
+     */
+    private void flush(final boolean forceSync, final boolean periodic) {
         final TransactionalDataWriter bufferedWriter = this.bufferedWriter;
         bufferedWriter.flush();
-        if (forceSync || config.isDurableWrite()) {
+        final boolean waitForWriteBehind = !periodic || config.isDurableWrite();
+        if (groupCommit) {
+            flushedHighAddress = highAddress;
+            if (forceSync) {
+                synchronized (syncLock) {
+                    bufferedWriter.sync();
+                    if (waitForWriteBehind) {
+                        waitForWriteBehind();
+                    }
+                    lastSyncTicks = System.currentTimeMillis();
+                    syncedHighAddress = highAddress;
+                    saveChecksums();
+                }
+            }
+        } else if (forceSync || config.isDurableWrite()) {
             bufferedWriter.sync();
+            if (waitForWriteBehind) {
+                waitForWriteBehind();
+            }
+            lastSyncTicks = System.currentTimeMillis();
+            saveChecksums();
+        }
+    }
+
+    /**
+     * @return address of the root loggable saved in the checkpoint if the log was opened using valid checkpoint,
+     * otherwise {@link Loggable#NULL_ADDRESS}.
+     */
+    public long getCheckpointRootAddress() {
+        return checkpointRootAddress;
+    }
+
+    /**
+     * Syncs the log and saves checkpoint with specified address of root loggable which should be the last loggable
+     * in the log. Does nothing unless checkpoints are enabled by log config.
+     *
+     * @param rootAddress address of the last root loggable
+     */
+    public void saveCheckpoint(final long rootAddress) {
+        if (checkpointDir != null) {
+            flush(true);
+            LogCheckpoint.write(checkpointDir, fileLengthBound, highAddress, rootAddress);
+        }
+    }
+
+    public boolean isGroupCommit() {
+        return groupCommit;
+    }
+
+    /**
+     * Syncs the log if data up to specified address is flushed but not synced yet. Is used for group commit
+     * after a transaction is flushed and commit lock is released, so concurrent committers share a single
+     * fsync. Without group commit, flushing of the log does the sync itself if the write is durable.
+     *
+     * @param address address which the data should be synced up to
+     */
+    public void syncTo(final long address) {
+        if (!groupCommit || !config.isDurableWrite()) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedHighAddress >= address) {
+                return;
+            }
+            final long flushedHighAddress = this.flushedHighAddress;
+            bufferedWriter.sync();
+            waitForWriteBehind();
             lastSyncTicks = System.currentTimeMillis();
+            syncedHighAddress = flushedHighAddress;
+            saveChecksums();
         }
     }
 
     @Override
     public void close() {
         flush(true);
+        saveChecksums();
+        stopCompression();
         reader.close();
         bufferedWriter.close();
         release();
+        if (writeBehindWriter != null) {
+            writeBehindWriter.finish();
+        }
         synchronized (blockAddrs) {
             blockAddrs.clear();
         }
@@ -574,10 +771,31 @@ public final class Log implements Closeable {
 
     public void clear() {
         bufferedWriter.close();
+        if (groupCommit) {
+            synchronized (syncLock) {
+                flushedHighAddress = 0;
+                syncedHighAddress = 0;
+            }
+        }
         synchronized (blockAddrs) {
             blockAddrs.clear();
         }
+        if (prefetcher != null) {
+            prefetcher.invalidate();
+        }
         cache.clear();
+        if (offHeapCache != null && !config.isSharedCache()) {
+            offHeapCache.clear();
+        }
+        waitForWriteBehind();
+        if (checkpointDir != null) {
+            LogCheckpoint.delete(checkpointDir);
+            checkpointRootAddress = Loggable.NULL_ADDRESS;
+        }
+        if (pageChecksums != null) {
+            pageChecksums.clear();
+        }
+        stopCompression();
         reader.clear();
         setBufferedWriter(createEmptyBufferedWriter(bufferedWriter.getChildWriter()));
         highAddress = 0;
@@ -592,8 +810,15 @@ public final class Log implements Closeable {
         // in order to avoid data loss , it's necessary to make sure that any GC transaction is flushed
         // to underlying physical storage before any file is deleted
         bufferedWriter.sync();
+        waitForWriteBehind();
+        if (prefetcher != null) {
+            prefetcher.invalidate();
+        }
         //remove physical file
         reader.removeBlock(address, rbt);
+        if (pageChecksums != null) {
+            pageChecksums.removeFile(address);
+        }
         // remove address of file of the list
         synchronized (blockAddrs) {
             if (!blockAddrs.remove(address)) {
@@ -602,7 +827,7 @@ public final class Log implements Closeable {
         }
         // clear cache
         for (long offset = 0; offset < fileLengthBound; offset += cachePageSize) {
-            cache.removePage(this, address + offset);
+            removeCachedPage(address + offset);
         }
     }
 
@@ -627,6 +852,7 @@ public final class Log implements Closeable {
     public static synchronized void invalidateSharedCache() {
         synchronized (Log.class) {
             sharedCache = null;
+            sharedOffHeapCache = null;
         }
     }
 
@@ -635,6 +861,31 @@ public final class Log implements Closeable {
     }
 
     int readBytes(final byte[] output, final long address) throws BlockNotFoundException {
+        final Block block = getBlockToRead(address, output.length);
+        return block.read(output, address - block.getAddress(), output.length);
+    }
+
+    /**
+     * Reads consecutive pages starting from specified address with a single read if possible.
+     * All the pages should belong to the same file.
+     */
+    int readPages(final byte[][] pages, final long address) throws BlockNotFoundException {
+        final Block block = getBlockToRead(address, (long) pages.length * cachePageSize);
+        return block.read(pages, address - block.getAddress());
+    }
+
+    /**
+     * Returns {@code true} if data up to specified address can be read from the file without waiting for
+     * write-behind.
+     */
+    boolean isWrittenToFile(final long address) {
+        return writeBehindWriter == null || writeBehindWriter.isWritten(address);
+    }
+
+    private Block getBlockToRead(final long address, final long length) throws BlockNotFoundException {
+        if (writeBehindWriter != null) {
+            writeBehindWriter.waitForWrittenAddress(address + length);
+        }
         final LongSkipList.SkipListNode node;
         synchronized (blockAddrs) {
             node = blockAddrs.getLessOrEqual(address);
@@ -651,7 +902,7 @@ public final class Log implements Closeable {
             }
             throw new BlockNotFoundException(address);
         }
-        return block.read(output, address - leftBound, output.length);
+        return block;
     }
 
     /**
@@ -664,28 +915,125 @@ public final class Log implements Closeable {
         return new DataIterator(this, address);
     }
 
-    private static LogCache getSharedCache(final long memoryUsage, final int pageSize, final boolean nonBlocking) {
+    private static LogCache getSharedCache(final long memoryUsage,
+                                           final int pageSize,
+                                           final boolean nonBlocking,
+                                           final boolean striped,
+                                           final boolean frequencySketch) {
         if (sharedCache == null) {
             synchronized (Log.class) {
                 if (sharedCache == null) {
-                    sharedCache = new SharedLogCache(memoryUsage, pageSize, nonBlocking);
+                    sharedCache = striped ?
+                            new StripedLogCache(memoryUsage, pageSize, true) :
+                            new SharedLogCache(memoryUsage, pageSize, nonBlocking, frequencySketch);
                 }
             }
         }
         return sharedCache;
     }
 
-    private static LogCache getSharedCache(final int memoryUsagePercentage, final int pageSize, final boolean nonBlocking) {
+    private static LogCache getSharedCache(final int memoryUsagePercentage,
+                                           final int pageSize,
+                                           final boolean nonBlocking,
+                                           final boolean striped,
+                                           final boolean frequencySketch) {
         if (sharedCache == null) {
             synchronized (Log.class) {
                 if (sharedCache == null) {
-                    sharedCache = new SharedLogCache(memoryUsagePercentage, pageSize, nonBlocking);
+                    sharedCache = striped ?
+                            new StripedLogCache(memoryUsagePercentage, pageSize, true) :
+                            new SharedLogCache(memoryUsagePercentage, pageSize, nonBlocking, frequencySketch);
                 }
             }
         }
         return sharedCache;
     }
 
+    private static OffHeapPageCache getSharedOffHeapCache(final long memoryUsage, final int pageSize) {
+        if (sharedOffHeapCache == null) {
+            synchronized (Log.class) {
+                if (sharedOffHeapCache == null) {
+                    sharedOffHeapCache = new OffHeapPageCache(memoryUsage, pageSize);
+                }
+            }
+        }
+        return sharedOffHeapCache;
+    }
+
+    private void removeCachedPage(final long pageAddress) {
+        cache.removePage(this, pageAddress);
+        if (offHeapCache != null) {
+            offHeapCache.removePage(this, pageAddress);
+        }
+    }
+
+    private DataWriter getBaseWriter() {
+        return writeBehindWriter == null ? config.getWriter() : writeBehindWriter;
+    }
+
+    /**
+     * Suspends compression of log files, so that no file is replaced by its compressed copy until
+     * {@link #resumeCompression()} is called. A file which is being compressed meanwhile is left as is.
+     */
+    public void suspendCompression() {
+        if (compressedReader != null) {
+            synchronized (compressedReader) {
+                ++compressionSuspended;
+            }
+        }
+    }
+
+    public void resumeCompression() {
+        if (compressedReader != null) {
+            synchronized (compressedReader) {
+                --compressionSuspended;
+            }
+            compressImmutableFiles();
+        }
+    }
+
+    /**
+     * Queues compression of all files which won't be appended anymore, i.e. of all files below the file
+     * containing high address.
+     */
+    private void compressImmutableFiles() {
+        final CompressedFileDataReader compressedReader = this.compressedReader;
+        if (compressedReader != null && config.isCompression()) {
+            synchronized (compressedReader) {
+                compressionBound = getFileAddress(highAddress);
+            }
+            if (compressionQueued.compareAndSet(false, true) && !new CompressionJob().wasQueued()) {
+                compressionQueued.set(false);
+            }
+        }
+    }
+
+    private void stopCompression() {
+        if (compressedReader != null) {
+            synchronized (compressedReader) {
+                compressionBound = 0;
+            }
+        }
+    }
+
+    /**
+     * Saves page checksums of the last file as well, so they can be used on recovery after a crash.
+     */
+    private void saveChecksums() {
+        if (pageChecksums != null) {
+            pageChecksums.save();
+        }
+    }
+
+    /**
+     * With write-behind, waits until all queued writes and syncs are performed.
+     */
+    private void waitForWriteBehind() {
+        if (writeBehindWriter != null) {
+            writeBehindWriter.waitForPendingOperations();
+        }
+    }
+
     private void tryLock() {
         final long lockTimeout = config.getLockTimeout();
         if (!config.getWriter().lock(lockTimeout)) {
@@ -708,7 +1056,10 @@ public final class Log implements Closeable {
         return new BufferedDataWriter(this, writer, highPageAddress, highPageContent, highPageSize);
     }
 
-    private long getHighPageAddress() {
+    /**
+     * Returns address of the last page of the log. All pages below it are completely written to the log files.
+     */
+    long getHighPageAddress() {
         final long highAddress = this.highAddress;
         int alignment = ((int) highAddress) & (cachePageSize - 1);
         if (alignment == 0 && highAddress > 0) {
@@ -741,7 +1092,13 @@ public final class Log implements Closeable {
         final TransactionalDataWriter bufferedWriter = this.bufferedWriter;
         if (!bufferedWriter.isOpen()) {
             final long fileAddress = getFileAddress(result);
-            this.bufferedWriter.openOrCreateBlock(fileAddress, getLastFileLength());
+            if (groupCommit) {
+                synchronized (syncLock) {
+                    bufferedWriter.openOrCreateBlock(fileAddress, getLastFileLength());
+                }
+            } else {
+                bufferedWriter.openOrCreateBlock(fileAddress, getLastFileLength());
+            }
             final boolean fileCreated;
             synchronized (blockAddrs) {
                 fileCreated = blockAddrs.search(fileAddress) == null;
@@ -776,9 +1133,18 @@ public final class Log implements Closeable {
             bufferedWriter.commit();
             highAddress += recordLength;
             if (getLastFileLength() == 0 || System.currentTimeMillis() > lastSyncTicks + config.getSyncPeriod()) {
-                flush(true);
+                flush(true, true);
                 if (getLastFileLength() == 0) {
-                    bufferedWriter.close();
+                    if (groupCommit) {
+                        synchronized (syncLock) {
+                            bufferedWriter.close();
+                        }
+                    } else {
+                        bufferedWriter.close();
+                    }
+                    // all pages of the file are written, so its checksums won't change anymore
+                    saveChecksums();
+                    compressImmutableFiles();
                 }
             }
             return result;
@@ -830,7 +1196,13 @@ public final class Log implements Closeable {
     }
 
     public void setBufferedWriter(@NotNull final TransactionalDataWriter bufferedWriter) {
-        this.bufferedWriter = bufferedWriter;
+        if (groupCommit) {
+            synchronized (syncLock) {
+                this.bufferedWriter = bufferedWriter;
+            }
+        } else {
+            this.bufferedWriter = bufferedWriter;
+        }
         // it's better for cached log cache to have always nonzero log identity:
         logIdentity = identityGenerator.incrementAndGet();
     }
@@ -843,4 +1215,64 @@ public final class Log implements Closeable {
     @SuppressWarnings({"serial", "SerializableClassInSecureContext", "SerializableHasSerializationMethods", "DeserializableClassInSecureContext", "EmptyClass"})
     private static final class NewFileCreationDeniedException extends RuntimeException {
     }
+
+    /**
+     * The job is queued by its constructor, so it has no fields which could be not yet assigned at execution.
+     */
+    private final class CompressionJob extends Job {
+
+        private CompressionJob() {
+            super(DeferredIO.getJobProcessor());
+        }
+
+        @Override
+        public String getName() {
+            return "Log compression";
+        }
+
+        @Override
+        public String getGroup() {
+            return location;
+        }
+
+        @Override
+        protected void execute() throws Throwable {
+            final CompressedFileDataReader compressedReader = Log.this.compressedReader;
+            if (compressedReader == null) {
+                return;
+            }
+            compressionQueued.set(false);
+            final long[] fileAddresses = getAllFileAddresses();
+            // from the oldest file to the newest one
+            for (int i = fileAddresses.length - 1; i >= 0; --i) {
+                final long address = fileAddresses[i];
+                // the file can be not yet completely written by write-behind, then it will be compressed next time
+                if (writeBehindWriter != null && !writeBehindWriter.isWritten(address + fileLengthBound)) {
+                    break;
+                }
+                if (!isCompressionAllowed(compressedReader, address)) {
+                    break;
+                }
+                // the file is deflated outside the lock, and its compressed copy replaces it only if
+                // compression wasn't suspended and the file wasn't decompressed meanwhile
+                final CompressedFileDataReader.CompressedCopy copy = compressedReader.createCompressedCopy(address);
+                if (copy != null) {
+                    synchronized (compressedReader) {
+                        if (!isCompressionAllowed(compressedReader, address)) {
+                            copy.discard();
+                            break;
+                        }
+                        copy.replaceOriginal();
+                    }
+                }
+            }
+        }
+
+        private boolean isCompressionAllowed(@NotNull final CompressedFileDataReader compressedReader,
+                                             final long address) {
+            synchronized (compressedReader) {
+                return compressionSuspended == 0 && address < compressionBound;
+            }
+        }
+    }
 }
@@ -20,6 +20,10 @@ import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.InvalidSettingException;
 import jetbrains.exodus.util.MathUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @SuppressWarnings({"ProtectedField"})
 abstract class LogCache {
@@ -83,22 +87,146 @@ abstract class LogCache {
     abstract void cachePage(@NotNull final Log log, final long pageAddress, @NotNull final ArrayByteIterable page);
 
     @NotNull
-    abstract ArrayByteIterable getPage(@NotNull final Log log, final long pageAddress);
+    final ArrayByteIterable getPage(@NotNull final Log log, final long pageAddress) {
+        log.pageReads.pageRead();
+        return getPageImpl(log, pageAddress);
+    }
+
+    @NotNull
+    abstract ArrayByteIterable getPageImpl(@NotNull final Log log, final long pageAddress);
+
+    /**
+     * Returns page if it is in the cache, doesn't read the page from the log.
+     */
+    @Nullable
+    abstract ArrayByteIterable getCachedPage(@NotNull final Log log, final long pageAddress);
 
     abstract ArrayByteIterable removePage(@NotNull final Log log, final long pageAddress);
 
     protected ArrayByteIterable readFullPage(Log log, long pageAddress) {
+        log.pageReads.pageMissed();
         final ArrayByteIterable page = allocPage();
-        if (log.readBytes(page.getBytesUnsafe(), pageAddress) != pageSize) {
+        final byte[] bytes = page.getBytesUnsafe();
+        final OffHeapPageCache offHeapCache = log.offHeapCache;
+        // off-heap page store saves reading of the file, not copying of the page
+        if (offHeapCache != null && offHeapCache.readPage(log, pageAddress, bytes)) {
+            return page;
+        }
+        final LogPrefetcher prefetcher = log.prefetcher;
+        if (prefetcher != null) {
+            prefetcher.pageMissed(pageAddress);
+        }
+        if (log.readBytes(bytes, pageAddress) != pageSize) {
             throw new ExodusException("Can't read full page from log [" + log.getLocation() + "] with address " + pageAddress);
         }
+        // checksum is verified only on reading from the file, pages in cache are trusted
+        final PageChecksums pageChecksums = log.pageChecksums;
+        if (pageChecksums != null) {
+            pageChecksums.verifyPage(log, pageAddress, bytes);
+        }
+        if (offHeapCache != null) {
+            offHeapCache.cachePage(log, pageAddress, bytes);
+        }
         return page;
     }
 
+    /**
+     * Makes sure that all pages of specified range of addresses are in the cache. Pages missing in the cache
+     * are read from the log with a single read per run of consecutive missing pages within a file.
+     */
+    void readPages(@NotNull final Log log, final long address, final int length) {
+        readPages(log, address, length, null, 0);
+    }
+
+    /**
+     * Same as {@linkplain #readPages(Log, long, int)}, but if prefetcher is specified the pages are cached only
+     * if the log wasn't truncated and no file was removed since specified epoch of the prefetcher.
+     */
+    void readPages(@NotNull final Log log, final long address, final int length,
+                   @Nullable final LogPrefetcher prefetcher, final long epoch) {
+        // the last page can be not yet written to the file
+        final long end = Math.min(address + length, log.getHighPageAddress());
+        final List<ArrayByteIterable> missingPages = new ArrayList<>();
+        long missingPagesAddress = 0;
+        for (long pageAddress = address - (address & (pageSize - 1)); pageAddress < end; pageAddress += pageSize) {
+            final boolean missing = getCachedPage(log, pageAddress) == null && !readOffHeapPage(log, pageAddress);
+            if (!missingPages.isEmpty() && (!missing || log.getFileAddress(pageAddress) != log.getFileAddress(missingPagesAddress))) {
+                if (!readMissingPages(log, missingPagesAddress, missingPages, prefetcher, epoch)) {
+                    return;
+                }
+                missingPages.clear();
+            }
+            if (missing) {
+                if (missingPages.isEmpty()) {
+                    missingPagesAddress = pageAddress;
+                }
+                missingPages.add(allocPage());
+            }
+        }
+        if (!missingPages.isEmpty()) {
+            readMissingPages(log, missingPagesAddress, missingPages, prefetcher, epoch);
+        }
+    }
+
     ArrayByteIterable allocPage() {
         return new ArrayByteIterable(new byte[pageSize]);
     }
 
+    private boolean readOffHeapPage(@NotNull final Log log, final long pageAddress) {
+        final OffHeapPageCache offHeapCache = log.offHeapCache;
+        if (offHeapCache == null) {
+            return false;
+        }
+        final ArrayByteIterable page = allocPage();
+        if (!offHeapCache.readPage(log, pageAddress, page.getBytesUnsafe())) {
+            return false;
+        }
+        cachePage(log, pageAddress, page);
+        return true;
+    }
+
+    /**
+     * @return false if the pages weren't cached since the epoch of the prefetcher is outdated.
+     */
+    private boolean readMissingPages(@NotNull final Log log, final long address,
+                                     @NotNull final List<ArrayByteIterable> pages,
+                                     @Nullable final LogPrefetcher prefetcher, final long epoch) {
+        final int count = pages.size();
+        final byte[][] bytes = new byte[count][];
+        for (int i = 0; i < count; ++i) {
+            bytes[i] = pages.get(i).getBytesUnsafe();
+        }
+        final int readPages = log.readPages(bytes, address) / pageSize;
+        final PageChecksums pageChecksums = log.pageChecksums;
+        for (int i = 0; i < readPages; ++i) {
+            final long pageAddress = address + ((long) i << pageSizeLogarithm);
+            if (pageChecksums != null) {
+                pageChecksums.verifyPage(log, pageAddress, bytes[i]);
+            }
+            if (prefetcher == null) {
+                cacheReadPage(log, pageAddress, pages.get(i));
+            } else {
+                // the epoch is checked and the page is cached atomically with respect to prefetcher.invalidate()
+                synchronized (prefetcher) {
+                    if (!prefetcher.isActual(epoch)) {
+                        return false;
+                    }
+                    cacheReadPage(log, pageAddress, pages.get(i));
+                    prefetcher.pagePrefetched();
+                }
+            }
+        }
+        return true;
+    }
+
+    private void cacheReadPage(@NotNull final Log log, final long pageAddress, @NotNull final ArrayByteIterable page) {
+        final OffHeapPageCache offHeapCache = log.offHeapCache;
+        if (offHeapCache != null) {
+            offHeapCache.cachePage(log, pageAddress, page.getBytesUnsafe());
+        }
+        cachePage(log, pageAddress, page);
+    }
+
     private static void checkPageSize(int pageSize) throws InvalidSettingException {
         if (pageSize < MINIMUM_PAGE_SIZE) {
             throw new InvalidSettingException("Page size cannot be less than " + MINIMUM_PAGE_SIZE);
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import jetbrains.exodus.ExodusException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.zip.CRC32;
+
+/**
+ * Checkpoint of the log saved in a small file in the log directory. It contains high address of the log and
+ * address of the root loggable which was the last one written before the checkpoint. If on opening the log its
+ * actual high address matches the checkpoint then the log wasn't appended after the checkpoint was saved, so
+ * neither the last file nor the root loggable have to be searched for.
+ */
+final class LogCheckpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogCheckpoint.class);
+
+    static final String CHECKPOINT_FILE_NAME = "xd.ckp";
+    private static final String TEMP_CHECKPOINT_FILE_NAME = "xd.ckp.tmp";
+    private static final int MAGIC = 0x58444350;
+    private static final int VERSION = 1;
+
+    final long highAddress;
+    final long rootAddress;
+
+    private LogCheckpoint(final long highAddress, final long rootAddress) {
+        this.highAddress = highAddress;
+        this.rootAddress = rootAddress;
+    }
+
+    /**
+     * @return saved checkpoint or null if there is no checkpoint or it is corrupted or saved for different
+     * file length bound.
+     */
+    @Nullable
+    static LogCheckpoint read(@NotNull final File dir, final long fileLengthBound) {
+        final File file = new File(dir, CHECKPOINT_FILE_NAME);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            final int magic = input.readInt();
+            final int version = input.readInt();
+            final long savedFileLengthBound = input.readLong();
+            final long highAddress = input.readLong();
+            final long rootAddress = input.readLong();
+            final long checksum = input.readLong();
+            if (magic != MAGIC || version != VERSION || savedFileLengthBound != fileLengthBound ||
+                    checksum != getChecksum(savedFileLengthBound, highAddress, rootAddress)) {
+                logger.warn("Ignoring invalid log checkpoint " + file);
+                return null;
+            }
+            return new LogCheckpoint(highAddress, rootAddress);
+        } catch (IOException e) {
+            logger.warn("Failed to read log checkpoint " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Saves checkpoint to a temporary file and then renames it, so the checkpoint file is never partially written.
+     */
+    static void write(@NotNull final File dir, final long fileLengthBound, final long highAddress, final long rootAddress) {
+        final File tempFile = new File(dir, TEMP_CHECKPOINT_FILE_NAME);
+        try (FileOutputStream output = new FileOutputStream(tempFile)) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+            final DataOutputStream data = new DataOutputStream(bytes);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeLong(fileLengthBound);
+            data.writeLong(highAddress);
+            data.writeLong(rootAddress);
+            data.writeLong(getChecksum(fileLengthBound, highAddress, rootAddress));
+            output.write(bytes.toByteArray());
+            output.getFD().sync();
+        } catch (IOException e) {
+            throw new ExodusException("Failed to write log checkpoint to " + tempFile, e);
+        }
+        final File file = new File(dir, CHECKPOINT_FILE_NAME);
+        if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+            throw new ExodusException("Failed to rename " + tempFile + " to " + file);
+        }
+    }
+
+    static void delete(@NotNull final File dir) {
+        final File file = new File(dir, CHECKPOINT_FILE_NAME);
+        if (file.exists() && !file.delete()) {
+            throw new ExodusException("Failed to delete log checkpoint " + file);
+        }
+    }
+
+    private static long getChecksum(final long fileLengthBound, final long highAddress, final long rootAddress) {
+        final CRC32 crc = new CRC32();
+        update(crc, fileLengthBound);
+        update(crc, highAddress);
+        update(crc, rootAddress);
+        return crc.getValue();
+    }
+
+    private static void update(@NotNull final CRC32 crc, long value) {
+        for (int i = 0; i < 8; ++i) {
+            crc.update((int) value);
+            value >>>= 8;
+        }
+    }
+}
@@ -16,10 +16,13 @@
 package jetbrains.exodus.log;
 
 import jetbrains.exodus.ExodusException;
+import jetbrains.exodus.io.CompressedFileDataReader;
 import jetbrains.exodus.io.DataReader;
 import jetbrains.exodus.io.DataWriter;
 import jetbrains.exodus.io.FileDataReader;
 import jetbrains.exodus.io.FileDataWriter;
+import jetbrains.exodus.io.MappedFileDataReader;
+import jetbrains.exodus.io.MappedFileDataWriter;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
@@ -37,13 +40,23 @@ public class LogConfig {
     private DataReader reader;
     private DataWriter writer;
     private boolean isDurableWrite;
+    private boolean groupCommit;
+    private boolean writeBehind;
     private boolean sharedCache;
     private boolean nonBlockingCache;
+    private boolean stripedCache;
+    private boolean frequencySketchCache;
+    private long cacheOffHeapMemoryUsage;
+    private int cacheReadAhead;
     private int cachePageSize;
     private int cacheOpenFilesCount;
+    private boolean mappedFiles;
     private boolean cleanDirectoryExpected;
     private boolean clearInvalidLog;
     private long syncPeriod;
+    private boolean checkpoint;
+    private boolean pageChecksums;
+    private boolean compression;
 
     public void setDir(@NotNull final File dir) {
         this.dir = dir;
@@ -89,7 +102,13 @@ public class LogConfig {
 
     public DataReader getReader() {
         if (reader == null) {
-            reader = new FileDataReader(checkDirectory(dir), getCacheOpenFilesCount());
+            final File dir = checkDirectory(this.dir);
+            reader = mappedFiles ?
+                    new MappedFileDataReader(dir, getCacheOpenFilesCount()) :
+                    new FileDataReader(dir, getCacheOpenFilesCount());
+            if (compression || CompressedFileDataReader.hasCompressedFiles(dir)) {
+                reader = new CompressedFileDataReader(reader, dir, getCachePageSize(), getCacheOpenFilesCount());
+            }
         }
         return reader;
     }
@@ -100,7 +119,13 @@ public class LogConfig {
 
     public DataWriter getWriter() {
         if (writer == null) {
-            writer = new FileDataWriter(checkDirectory(dir));
+            DataReader reader = getReader();
+            if (reader instanceof CompressedFileDataReader) {
+                reader = ((CompressedFileDataReader) reader).getChildReader();
+            }
+            writer = reader instanceof MappedFileDataReader ?
+                    new MappedFileDataWriter(checkDirectory(dir), (MappedFileDataReader) reader) :
+                    new FileDataWriter(checkDirectory(dir));
         }
         return writer;
     }
@@ -117,6 +142,22 @@ public class LogConfig {
         isDurableWrite = durableWrite;
     }
 
+    public boolean isGroupCommit() {
+        return groupCommit;
+    }
+
+    public void setGroupCommit(boolean groupCommit) {
+        this.groupCommit = groupCommit;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
     public boolean isSharedCache() {
         return sharedCache;
     }
@@ -133,6 +174,38 @@ public class LogConfig {
         this.nonBlockingCache = nonBlockingCache;
     }
 
+    public boolean isStripedCache() {
+        return stripedCache;
+    }
+
+    public void setStripedCache(boolean stripedCache) {
+        this.stripedCache = stripedCache;
+    }
+
+    public boolean isFrequencySketchCache() {
+        return frequencySketchCache;
+    }
+
+    public void setFrequencySketchCache(boolean frequencySketchCache) {
+        this.frequencySketchCache = frequencySketchCache;
+    }
+
+    public long getCacheOffHeapMemoryUsage() {
+        return cacheOffHeapMemoryUsage;
+    }
+
+    public void setCacheOffHeapMemoryUsage(long cacheOffHeapMemoryUsage) {
+        this.cacheOffHeapMemoryUsage = cacheOffHeapMemoryUsage;
+    }
+
+    public int getCacheReadAhead() {
+        return cacheReadAhead;
+    }
+
+    public void setCacheReadAhead(int cacheReadAhead) {
+        this.cacheReadAhead = cacheReadAhead;
+    }
+
     public int getCachePageSize() {
         if (cachePageSize == 0) {
             cachePageSize = LogCache.MINIMUM_PAGE_SIZE;
@@ -155,6 +228,14 @@ public class LogConfig {
         this.cacheOpenFilesCount = cacheOpenFilesCount;
     }
 
+    public boolean isMappedFiles() {
+        return mappedFiles;
+    }
+
+    public void setMappedFiles(boolean mappedFiles) {
+        this.mappedFiles = mappedFiles;
+    }
+
     public void setCleanDirectoryExpected(boolean cleanDirectoryExpected) {
         this.cleanDirectoryExpected = cleanDirectoryExpected;
     }
@@ -178,6 +259,30 @@ public class LogConfig {
         this.syncPeriod = syncPeriod;
     }
 
+    public boolean isCheckpoint() {
+        return checkpoint;
+    }
+
+    public void setCheckpoint(boolean checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    public boolean isPageChecksums() {
+        return pageChecksums;
+    }
+
+    public void setPageChecksums(boolean pageChecksums) {
+        this.pageChecksums = pageChecksums;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
     private File checkDirectory(@NotNull final File directory) {
         if (directory.isFile()) {
             throw new ExodusException("A directory is required: " + directory);
@@ -0,0 +1,161 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import jetbrains.exodus.ExodusException;
+import jetbrains.exodus.core.dataStructures.Priority;
+import jetbrains.exodus.core.execution.Job;
+import jetbrains.exodus.util.DeferredIO;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Detects sequential reading of log pages which are missing in log cache, and asynchronously reads a number of
+ * following pages into the cache with a single read. Sequential reading is typical for cursor scans and for
+ * iterating over loggables, e.g. by the GC cleaning a file.
+ */
+final class LogPrefetcher {
+
+    private static final int SEQUENTIAL_MISSES_TO_PREFETCH = 2;
+
+    @NotNull
+    private final Log log;
+    @NotNull
+    private final LogCache cache;
+    private final int pageSize;
+    private final int readAheadPages;
+    /**
+     * Incremented each time the log is truncated or its files are removed, so that pages read ahead before
+     * that are not kept in the cache.
+     */
+    private volatile long epoch;
+    // all following fields are guarded by this
+    private long lastMissedPage;
+    private int sequentialMisses;
+    private long prefetchedBound;
+    private long prefetchedPages;
+
+    LogPrefetcher(@NotNull final Log log, @NotNull final LogCache cache, final int pageSize, final int readAheadPages) {
+        this.log = log;
+        this.cache = cache;
+        this.pageSize = pageSize;
+        this.readAheadPages = readAheadPages;
+        lastMissedPage = -1L;
+    }
+
+    /**
+     * Is called each time a page is going to be read from the log because it is missing in the cache.
+     */
+    void pageMissed(final long pageAddress) {
+        final long start;
+        synchronized (this) {
+            if (pageAddress == lastMissedPage + pageSize || pageAddress == prefetchedBound) {
+                ++sequentialMisses;
+            } else {
+                // read-ahead of another range is no longer relevant
+                sequentialMisses = 0;
+                prefetchedBound = 0;
+            }
+            lastMissedPage = pageAddress;
+            // the following pages are already being read ahead
+            if (sequentialMisses < SEQUENTIAL_MISSES_TO_PREFETCH || prefetchedBound > pageAddress + pageSize) {
+                return;
+            }
+            start = pageAddress + pageSize;
+            prefetchedBound = start + (long) readAheadPages * pageSize;
+        }
+        new PrefetchJob(start, epoch).queue(Priority.normal);
+    }
+
+    /**
+     * Is called before the log is truncated or a file of the log is removed.
+     */
+    void invalidate() {
+        synchronized (this) {
+            lastMissedPage = -1L;
+            sequentialMisses = 0;
+            prefetchedBound = 0;
+            ++epoch;
+        }
+    }
+
+    /**
+     * Should be called under lock of the prefetcher.
+     */
+    boolean isActual(final long epoch) {
+        return epoch == this.epoch;
+    }
+
+    /**
+     * Should be called under lock of the prefetcher each time a page read ahead is cached.
+     */
+    void pagePrefetched() {
+        ++prefetchedPages;
+    }
+
+    /**
+     * @return number of pages read ahead and cached so far.
+     */
+    synchronized long getPrefetchedPages() {
+        return prefetchedPages;
+    }
+
+    private void readAhead(final long start, final long epoch) {
+        if (epoch != this.epoch) {
+            return;
+        }
+        final long fileAddress = log.getFileAddress(start);
+        final long end = Math.min(start + (long) readAheadPages * pageSize, fileAddress + log.getFileLengthBound());
+        // with write-behind, the pages can be not yet in the file, reading them would wait for write-behind
+        if (!log.isWrittenToFile(end)) {
+            return;
+        }
+        try {
+            // pages are cached only if the log isn't changed while they are being read
+            cache.readPages(log, start, (int) (end - start), this, epoch);
+        } catch (ExodusException e) {
+            // the file could be removed concurrently or a page can be corrupted, reading ahead is just an
+            // optimization, so the error will be reported on reading the page synchronously
+        }
+    }
+
+    private final class PrefetchJob extends Job {
+
+        private final long start;
+        private final long epoch;
+
+        private PrefetchJob(final long start, final long epoch) {
+            // the job is queued only after its fields are set
+            setProcessor(DeferredIO.getJobProcessor());
+            this.start = start;
+            this.epoch = epoch;
+        }
+
+        @Override
+        public String getName() {
+            return "Log read-ahead";
+        }
+
+        @Override
+        public String getGroup() {
+            return log.getLocation();
+        }
+
+        @Override
+        protected void execute() throws Throwable {
+            readAhead(start, epoch);
+        }
+    }
+}
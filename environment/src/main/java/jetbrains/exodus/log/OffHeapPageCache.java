@@ -0,0 +1,282 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import jetbrains.exodus.InvalidSettingException;
+import jetbrains.exodus.core.dataStructures.CacheHitRateable;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Second level page store of the log cache which keeps full pages in direct ByteBuffer slabs outside of the Java
+ * heap. It never serves reads directly: log readers consume pages as byte arrays, so each hit copies the page to
+ * a newly allocated heap page which is then cached by the log cache. Thus a hit costs a copy of the page and
+ * an allocation instead of reading of the file, and the bulk of cached data doesn't take part in garbage
+ * collection, but the log cache itself still should be big enough to hold hot pages.
+ * Like {@link StripedLogCache}, the cache is a set of segments of 8-way associative sets with CLOCK eviction.
+ * Slabs are allocated lazily as segments are filling, allocated memory is limited by specified memory usage.
+ */
+final class OffHeapPageCache {
+
+    private static final int WAYS = 8; // should be a power of 2
+    private static final int MAX_FREQUENCY = 3;
+    private static final int SEGMENTS_PER_PROCESSOR = 4;
+    private static final int MAX_SLAB_SIZE = 1 << 26;
+
+    private final int pageSize;
+    private final int pageSizeLogarithm;
+    private final Segment[] segments;
+    private final int segmentsMask;
+    private final AtomicLong allocatedBytes;
+
+    OffHeapPageCache(final long memoryUsage, final int pageSize) {
+        this.pageSize = pageSize;
+        pageSizeLogarithm = Integer.numberOfTrailingZeros(pageSize);
+        final long pagesCount = memoryUsage / pageSize;
+        if (pagesCount < WAYS) {
+            throw new InvalidSettingException("Off-heap log cache memory usage is too small: " + memoryUsage);
+        }
+        final long setsCount = pagesCount / WAYS;
+        int segmentsCount = 1;
+        final int maxSegmentsCount = Math.min(1 << 16,
+                Runtime.getRuntime().availableProcessors() * SEGMENTS_PER_PROCESSOR);
+        while (segmentsCount < maxSegmentsCount && segmentsCount < setsCount) {
+            segmentsCount <<= 1;
+        }
+        final long setsPerSegment = setsCount / segmentsCount;
+        if (setsPerSegment * WAYS > Integer.MAX_VALUE) {
+            throw new InvalidSettingException("Off-heap log cache memory usage is too big: " + memoryUsage);
+        }
+        final int framesPerSlab = Math.max(1, MAX_SLAB_SIZE / pageSize);
+        segments = new Segment[segmentsCount];
+        for (int i = 0; i < segmentsCount; ++i) {
+            segments[i] = new Segment((int) setsPerSegment, framesPerSlab);
+        }
+        segmentsMask = segmentsCount - 1;
+        allocatedBytes = new AtomicLong();
+    }
+
+    int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return number of bytes allocated outside of the Java heap.
+     */
+    long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    double hitRate() {
+        long attempts = 0;
+        long hits = 0;
+        for (final Segment segment : segments) {
+            attempts += segment.getAttempts();
+            hits += segment.getHits();
+        }
+        return attempts > 0 ? (double) hits / (double) attempts : 0;
+    }
+
+    /**
+     * Copies the page to the output array if it is cached.
+     *
+     * @return true if the page was found.
+     */
+    boolean readPage(@NotNull final Log log, final long pageAddress, @NotNull final byte[] output) {
+        if (output.length != pageSize) {
+            return false;
+        }
+        final int logIdentity = log.getIdentity();
+        final long adjustedPageAddress = pageAddress >> pageSizeLogarithm;
+        final int hash = StripedLogCache.hash(logIdentity, adjustedPageAddress);
+        return getSegment(hash).readPage(hash, logIdentity, adjustedPageAddress, output);
+    }
+
+    void cachePage(@NotNull final Log log, final long pageAddress, @NotNull final byte[] page) {
+        if (page.length == pageSize) {
+            final int logIdentity = log.getIdentity();
+            final long adjustedPageAddress = pageAddress >> pageSizeLogarithm;
+            final int hash = StripedLogCache.hash(logIdentity, adjustedPageAddress);
+            getSegment(hash).cachePage(hash, logIdentity, adjustedPageAddress, page);
+        }
+    }
+
+    void removePage(@NotNull final Log log, final long pageAddress) {
+        final int logIdentity = log.getIdentity();
+        final long adjustedPageAddress = pageAddress >> pageSizeLogarithm;
+        final int hash = StripedLogCache.hash(logIdentity, adjustedPageAddress);
+        getSegment(hash).removePage(hash, logIdentity, adjustedPageAddress);
+    }
+
+    void clear() {
+        for (final Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private Segment getSegment(final int hash) {
+        return segments[(hash >>> 16) & segmentsMask];
+    }
+
+    private final class Segment extends CacheHitRateable {
+
+        private final int setsCount;
+        private final int framesPerSlab;
+        private final Lock readLock;
+        private final Lock writeLock;
+        // log identity is always nonzero, so zero identity denotes empty frame
+        private final int[] logIdentities;
+        private final long[] addresses;
+        private final byte[] frequencies;
+        private final byte[] clockHands;
+        private final ByteBuffer[] slabs;
+
+        private Segment(final int setsCount, final int framesPerSlab) {
+            this.setsCount = setsCount;
+            this.framesPerSlab = framesPerSlab;
+            final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+            readLock = lock.readLock();
+            writeLock = lock.writeLock();
+            final int framesCount = setsCount * WAYS;
+            logIdentities = new int[framesCount];
+            addresses = new long[framesCount];
+            frequencies = new byte[framesCount];
+            clockHands = new byte[setsCount];
+            slabs = new ByteBuffer[(framesCount + framesPerSlab - 1) / framesPerSlab];
+        }
+
+        private boolean readPage(final int hash, final int logIdentity, final long adjustedPageAddress, final byte[] output) {
+            incAttempts();
+            readLock.lock();
+            try {
+                final int frame = findFrame(getSet(hash) * WAYS, logIdentity, adjustedPageAddress);
+                if (frame < 0) {
+                    return false;
+                }
+                getFrame(frame).get(output, 0, pageSize);
+                final byte frequency = frequencies[frame];
+                if (frequency < MAX_FREQUENCY) {
+                    // benign race: lost increments only make eviction a bit less precise
+                    frequencies[frame] = (byte) (frequency + 1);
+                }
+            } finally {
+                readLock.unlock();
+            }
+            incHits();
+            return true;
+        }
+
+        private void cachePage(final int hash, final int logIdentity, final long adjustedPageAddress, final byte[] page) {
+            writeLock.lock();
+            try {
+                final int set = getSet(hash);
+                final int firstFrame = set * WAYS;
+                if (findFrame(firstFrame, logIdentity, adjustedPageAddress) >= 0) {
+                    return;
+                }
+                int frame = -1;
+                for (int i = firstFrame; i < firstFrame + WAYS; ++i) {
+                    if (logIdentities[i] == 0) {
+                        frame = i;
+                        break;
+                    }
+                }
+                if (frame < 0) {
+                    frame = firstFrame + selectVictim(set);
+                }
+                getFrame(frame).put(page, 0, pageSize);
+                logIdentities[frame] = logIdentity;
+                addresses[frame] = adjustedPageAddress;
+                frequencies[frame] = 0;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        private void removePage(final int hash, final int logIdentity, final long adjustedPageAddress) {
+            writeLock.lock();
+            try {
+                final int frame = findFrame(getSet(hash) * WAYS, logIdentity, adjustedPageAddress);
+                if (frame >= 0) {
+                    logIdentities[frame] = 0;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        private void clear() {
+            writeLock.lock();
+            try {
+                Arrays.fill(logIdentities, 0);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        private int findFrame(final int firstFrame, final int logIdentity, final long adjustedPageAddress) {
+            for (int i = firstFrame; i < firstFrame + WAYS; ++i) {
+                if (addresses[i] == adjustedPageAddress && logIdentities[i] == logIdentity) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return index of the way in specified set which should be replaced.
+         */
+        private int selectVictim(final int set) {
+            final int firstFrame = set * WAYS;
+            int hand = clockHands[set];
+            for (int moves = 0; moves < WAYS * MAX_FREQUENCY; ++moves) {
+                final int frame = firstFrame + hand;
+                if (frequencies[frame] <= 0) {
+                    break;
+                }
+                --frequencies[frame];
+                hand = (hand + 1) & (WAYS - 1);
+            }
+            clockHands[set] = (byte) ((hand + 1) & (WAYS - 1));
+            return hand;
+        }
+
+        /**
+         * @return view of the frame positioned at its beginning. Slab is allocated if necessary under write lock.
+         */
+        private ByteBuffer getFrame(final int frame) {
+            final int slabIndex = frame / framesPerSlab;
+            ByteBuffer slab = slabs[slabIndex];
+            if (slab == null) {
+                final int slabSize = Math.min(framesPerSlab, logIdentities.length - slabIndex * framesPerSlab) * pageSize;
+                slabs[slabIndex] = slab = ByteBuffer.allocateDirect(slabSize);
+                allocatedBytes.addAndGet(slabSize);
+            }
+            final ByteBuffer result = slab.duplicate();
+            result.position((frame % framesPerSlab) * pageSize);
+            return result;
+        }
+
+        private int getSet(final int hash) {
+            return (hash & 0x7fffffff) % setsCount;
+        }
+    }
+}
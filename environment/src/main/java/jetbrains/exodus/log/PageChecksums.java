@@ -0,0 +1,326 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import jetbrains.exodus.ExodusException;
+import jetbrains.exodus.core.dataStructures.hash.LongHashSet;
+import jetbrains.exodus.core.dataStructures.hash.LongIterator;
+import jetbrains.exodus.core.dataStructures.hash.LongLinkedHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * CRC32 checksums of log pages. Checksum of a page is calculated once the page is completely written, and it is
+ * verified when the page is read from the file into log cache. Checksums of pages of each file are saved in a
+ * separate file next to the log file, so they survive reopening of the log. Checksums of the last file are saved
+ * on each sync of the log, so recovery after a crash can find the first corrupted page of the last file. Checksums
+ * of at most {@link #MAX_CACHED_FILES} files are held in memory. If the log is located not in a directory then
+ * checksums are held only in memory, and checksums of files evicted from memory are lost.
+ */
+final class PageChecksums {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageChecksums.class);
+
+    static final String CHECKSUMS_FILE_EXTENSION = ".crc";
+    private static final int MAX_CACHED_FILES = 64;
+
+    @Nullable
+    private final File dir;
+    private final int pageSize;
+    private final int pagesPerFile;
+    private final long fileLengthBound;
+    // all following fields are guarded by this
+    private final LongLinkedHashMap<FileChecksums> checksums;
+    private final LongHashSet dirtyFiles;
+
+    PageChecksums(@Nullable final File dir, final long fileLengthBound, final int pageSize) {
+        this.dir = dir;
+        this.pageSize = pageSize;
+        this.fileLengthBound = fileLengthBound;
+        pagesPerFile = (int) (fileLengthBound / pageSize);
+        checksums = new LongLinkedHashMap<FileChecksums>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, FileChecksums> eldest) {
+                if (size() <= MAX_CACHED_FILES) {
+                    return false;
+                }
+                final long fileAddress = eldest.getKey();
+                if (dirtyFiles.remove(fileAddress)) {
+                    trySave(fileAddress, eldest.getValue());
+                }
+                return true;
+            }
+        };
+        dirtyFiles = new LongHashSet();
+    }
+
+    /**
+     * Calculates checksum of completely written page.
+     */
+    synchronized void pageWritten(final long pageAddress, @NotNull final byte[] page) {
+        final long fileAddress = getFileAddress(pageAddress);
+        getFileChecksums(fileAddress).set(getPageIndex(pageAddress), getChecksum(page));
+        dirtyFiles.add(fileAddress);
+    }
+
+    /**
+     * Verifies page read from the file against its checksum if it's known.
+     *
+     * @throws ExodusException if the page is corrupted.
+     */
+    void verifyPage(@NotNull final Log log, final long pageAddress, @NotNull final byte[] page) {
+        if (!isValid(pageAddress, page)) {
+            throw new ExodusException("Page checksum mismatch in log [" + log.getLocation() + "], page address = " + pageAddress);
+        }
+    }
+
+    /**
+     * Is used on recovery to find the first page of the last file which doesn't match its saved checksum.
+     *
+     * @param fileAddress address of the last file
+     * @param highAddress high address of the log, pages which are not completely below it are not checked
+     * @return address of the first corrupted page or {@code Long.MAX_VALUE} if no page is corrupted.
+     */
+    long findCorruptedPage(@NotNull final Log log, final long fileAddress, final long highAddress) {
+        final byte[] page = new byte[pageSize];
+        for (long pageAddress = fileAddress; pageAddress + pageSize <= highAddress; pageAddress += pageSize) {
+            if (!isKnown(pageAddress)) {
+                continue;
+            }
+            if (log.readBytes(page, pageAddress) < pageSize || !isValid(pageAddress, page)) {
+                return pageAddress;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Forgets checksums of pages which are not completely below specified high address.
+     */
+    synchronized void truncate(final long highAddress) {
+        final long fileAddress = getFileAddress(highAddress);
+        final FileChecksums fileChecksums = checksums.get(fileAddress);
+        if (fileChecksums != null) {
+            fileChecksums.forget((int) ((highAddress - fileAddress) / pageSize));
+            dirtyFiles.add(fileAddress);
+        }
+        // until the file is saved again, checksums of its truncated pages are unknown
+        deleteChecksumsFile(fileAddress);
+    }
+
+    synchronized void removeFile(final long fileAddress) {
+        checksums.remove(fileAddress);
+        dirtyFiles.remove(fileAddress);
+        deleteChecksumsFile(fileAddress);
+    }
+
+    /**
+     * Saves checksums of all files which have new checksums calculated. Failure to save checksums is not fatal,
+     * it only results in pages which won't be verified after the log is reopened.
+     */
+    synchronized void save() {
+        final LongIterator it = dirtyFiles.iterator();
+        while (it.hasNext()) {
+            final long fileAddress = it.nextLong();
+            final FileChecksums fileChecksums = checksums.get(fileAddress);
+            if (fileChecksums != null) {
+                trySave(fileAddress, fileChecksums);
+            }
+        }
+        dirtyFiles.clear();
+    }
+
+    synchronized void clear() {
+        checksums.clear();
+        dirtyFiles.clear();
+        if (dir != null) {
+            final File[] files = dir.listFiles(new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String name) {
+                    return name.endsWith(CHECKSUMS_FILE_EXTENSION);
+                }
+            });
+            if (files != null) {
+                for (final File file : files) {
+                    if (!file.delete()) {
+                        throw new ExodusException("Failed to delete " + file);
+                    }
+                }
+            }
+        }
+    }
+
+    private long getFileAddress(final long address) {
+        return address - address % fileLengthBound;
+    }
+
+    private int getPageIndex(final long pageAddress) {
+        return (int) (pageAddress % fileLengthBound / pageSize);
+    }
+
+    private synchronized boolean isKnown(final long pageAddress) {
+        return getFileChecksums(getFileAddress(pageAddress)).isKnown(getPageIndex(pageAddress));
+    }
+
+    private boolean isValid(final long pageAddress, @NotNull final byte[] page) {
+        final int expected;
+        synchronized (this) {
+            final FileChecksums fileChecksums = getFileChecksums(getFileAddress(pageAddress));
+            final int pageIndex = getPageIndex(pageAddress);
+            if (!fileChecksums.isKnown(pageIndex)) {
+                return true;
+            }
+            expected = fileChecksums.get(pageIndex);
+        }
+        return expected == getChecksum(page);
+    }
+
+    private int getChecksum(@NotNull final byte[] page) {
+        final CRC32 crc = new CRC32();
+        crc.update(page, 0, pageSize);
+        return (int) crc.getValue();
+    }
+
+    private FileChecksums getFileChecksums(final long fileAddress) {
+        FileChecksums result = checksums.get(fileAddress);
+        if (result == null) {
+            result = loadChecksumsFile(fileAddress);
+            checksums.put(fileAddress, result);
+        }
+        return result;
+    }
+
+    private File getChecksumsFile(final long fileAddress) {
+        return new File(dir, LogUtil.getLogFilename(fileAddress) + CHECKSUMS_FILE_EXTENSION);
+    }
+
+    private FileChecksums loadChecksumsFile(final long fileAddress) {
+        final FileChecksums result = new FileChecksums(pagesPerFile);
+        if (dir != null) {
+            final File file = getChecksumsFile(fileAddress);
+            if (file.isFile()) {
+                try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                    if (file.length() != 4 + 5 * pagesPerFile || input.readInt() != pageSize) {
+                        logger.warn("Ignoring page checksums " + file + " saved for different page or file size");
+                    } else {
+                        for (int i = 0; i < pagesPerFile; ++i) {
+                            final boolean known = input.readBoolean();
+                            final int checksum = input.readInt();
+                            if (known) {
+                                result.set(i, checksum);
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    logger.warn("Failed to read page checksums " + file, e);
+                    result.forget(0);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Failure to save checksums is not fatal, it only results in pages which won't be verified after the log
+     * is reopened.
+     */
+    private void trySave(final long fileAddress, @NotNull final FileChecksums fileChecksums) {
+        if (dir != null) {
+            try {
+                saveChecksumsFile(fileAddress, fileChecksums);
+            } catch (ExodusException e) {
+                logger.warn("Failed to save page checksums", e);
+            }
+        }
+    }
+
+    /**
+     * Saves checksums to a temporary file, syncs it and then renames it, so partially written checksums never can
+     * be read.
+     */
+    private void saveChecksumsFile(final long fileAddress, @NotNull final FileChecksums fileChecksums) {
+        final File file = getChecksumsFile(fileAddress);
+        final File tempFile = new File(dir, file.getName() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(tempFile)) {
+            final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output));
+            data.writeInt(pageSize);
+            for (int i = 0; i < pagesPerFile; ++i) {
+                data.writeBoolean(fileChecksums.isKnown(i));
+                data.writeInt(fileChecksums.get(i));
+            }
+            data.flush();
+            // checksums are saved on sync of the log, so they should be as durable as the data they describe
+            output.getFD().sync();
+        } catch (IOException e) {
+            throw new ExodusException("Failed to write page checksums to " + tempFile, e);
+        }
+        if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+            throw new ExodusException("Failed to rename " + tempFile + " to " + file);
+        }
+    }
+
+    private void deleteChecksumsFile(final long fileAddress) {
+        if (dir != null) {
+            final File file = getChecksumsFile(fileAddress);
+            if (file.exists() && !file.delete()) {
+                throw new ExodusException("Failed to delete " + file);
+            }
+        }
+    }
+
+    /**
+     * CRC32 values of pages of a single file and the set of pages whose checksums are known.
+     */
+    private static final class FileChecksums {
+
+        @NotNull
+        private final int[] values;
+        @NotNull
+        private final BitSet known;
+
+        private FileChecksums(final int pageCount) {
+            values = new int[pageCount];
+            known = new BitSet(pageCount);
+        }
+
+        private boolean isKnown(final int pageIndex) {
+            return known.get(pageIndex);
+        }
+
+        private int get(final int pageIndex) {
+            return values[pageIndex];
+        }
+
+        private void set(final int pageIndex, final int checksum) {
+            values[pageIndex] = checksum;
+            known.set(pageIndex);
+        }
+
+        /**
+         * Forgets checksums of pages starting from specified one.
+         */
+        private void forget(final int fromPageIndex) {
+            known.clear(fromPageIndex, values.length);
+        }
+    }
+}
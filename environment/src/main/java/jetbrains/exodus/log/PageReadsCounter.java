@@ -0,0 +1,74 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts pages requested from log cache by foreground threads of the log and those of them which were missed in
+ * log cache, so that background cleaner can detect peaks of foreground read load on its own log even if log cache
+ * is shared. Counting is off until a thread to be excluded (background cleaner) is set.
+ */
+public final class PageReadsCounter {
+
+    private static final long NO_THREAD = -1L;
+
+    @NotNull
+    private final AtomicLong reads;
+    @NotNull
+    private final AtomicLong misses;
+    private volatile long excludedThreadId;
+
+    PageReadsCounter() {
+        reads = new AtomicLong();
+        misses = new AtomicLong();
+        excludedThreadId = NO_THREAD;
+    }
+
+    /**
+     * Turns counting on. Reads by the thread with specified id are not counted.
+     */
+    public void excludeThread(final long threadId) {
+        excludedThreadId = threadId;
+    }
+
+    public long getReads() {
+        return reads.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    void pageRead() {
+        if (isCounted()) {
+            reads.incrementAndGet();
+        }
+    }
+
+    void pageMissed() {
+        if (isCounted()) {
+            misses.incrementAndGet();
+        }
+    }
+
+    private boolean isCounted() {
+        final long excludedThreadId = this.excludedThreadId;
+        return excludedThreadId != NO_THREAD && excludedThreadId != Thread.currentThread().getId();
+    }
+}
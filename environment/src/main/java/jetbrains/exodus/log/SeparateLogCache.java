@@ -70,9 +70,14 @@ final class SeparateLogCache extends LogCache {
         cachePage(pageAddress >> pageSizeLogarithm, page);
     }
 
+    @Override
+    ArrayByteIterable getCachedPage(@NotNull final Log log, final long pageAddress) {
+        return pagesCache.tryKeyLocked(pageAddress >> pageSizeLogarithm);
+    }
+
     @Override
     @NotNull
-    ArrayByteIterable getPage(@NotNull final Log log, final long pageAddress) {
+    ArrayByteIterable getPageImpl(@NotNull final Log log, final long pageAddress) {
         final long cacheKey = pageAddress >> pageSizeLogarithm;
         ArrayByteIterable page = pagesCache.tryKeyLocked(cacheKey);
         if (page != null) {
@@ -19,6 +19,7 @@ import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.core.dataStructures.ConcurrentObjectCache;
 import jetbrains.exodus.core.dataStructures.ObjectCache;
 import jetbrains.exodus.core.dataStructures.ObjectCacheBase;
+import jetbrains.exodus.core.dataStructures.TinyLfuObjectCache;
 import org.jetbrains.annotations.NotNull;
 
 final class SharedLogCache extends LogCache {
@@ -26,27 +27,21 @@ final class SharedLogCache extends LogCache {
     @NotNull
     private final ObjectCacheBase<CacheKey, ArrayByteIterable> pagesCache;
 
-    SharedLogCache(final long memoryUsage, final int pageSize, final boolean nonBlocking) {
+    SharedLogCache(final long memoryUsage, final int pageSize, final boolean nonBlocking, final boolean frequencySketch) {
         super(memoryUsage, pageSize);
         final int pagesCount = (int) (memoryUsage / (pageSize +
                 /* each page consumes additionally nearly 104 bytes in the cache */ 104));
-        pagesCache = nonBlocking ?
-                new ConcurrentObjectCache<CacheKey, ArrayByteIterable>(pagesCount, CONCURRENT_CACHE_GENERATION_COUNT) :
-                new ObjectCache<CacheKey, ArrayByteIterable>(pagesCount);
+        pagesCache = createPagesCache(pagesCount, nonBlocking, frequencySketch);
     }
 
-    SharedLogCache(final int memoryUsagePercentage, final int pageSize, final boolean nonBlocking) {
+    SharedLogCache(final int memoryUsagePercentage, final int pageSize, final boolean nonBlocking, final boolean frequencySketch) {
         super(memoryUsagePercentage, pageSize);
         if (memoryUsage == Long.MAX_VALUE) {
-            pagesCache = nonBlocking ?
-                    new ConcurrentObjectCache<CacheKey, ArrayByteIterable>(ObjectCacheBase.DEFAULT_SIZE, CONCURRENT_CACHE_GENERATION_COUNT) :
-                    new ObjectCache<CacheKey, ArrayByteIterable>();
+            pagesCache = createPagesCache(ObjectCacheBase.DEFAULT_SIZE, nonBlocking, frequencySketch);
         } else {
             final int pagesCount = (int) (memoryUsage / (pageSize +
                     /* each page consumes additionally nearly 104 bytes in the cache */ 104));
-            pagesCache = nonBlocking ?
-                    new ConcurrentObjectCache<CacheKey, ArrayByteIterable>(pagesCount, CONCURRENT_CACHE_GENERATION_COUNT) :
-                    new ObjectCache<CacheKey, ArrayByteIterable>(pagesCount);
+            pagesCache = createPagesCache(pagesCount, nonBlocking, frequencySketch);
         }
     }
 
@@ -65,9 +60,14 @@ final class SharedLogCache extends LogCache {
         cachePage(new CacheKey(log.getIdentity(), pageAddress >> pageSizeLogarithm), page);
     }
 
+    @Override
+    ArrayByteIterable getCachedPage(@NotNull final Log log, final long pageAddress) {
+        return pagesCache.tryKeyLocked(new CacheKey(log.getIdentity(), pageAddress >> pageSizeLogarithm));
+    }
+
     @Override
     @NotNull
-    protected ArrayByteIterable getPage(@NotNull final Log log, final long pageAddress) {
+    ArrayByteIterable getPageImpl(@NotNull final Log log, final long pageAddress) {
         final long adjustedPageAddress = pageAddress >> pageSizeLogarithm;
         final int logIdentity = log.getIdentity();
         final CacheKey cacheKey = new CacheKey(logIdentity, adjustedPageAddress);
@@ -129,4 +129,15 @@ final class SharedLogCache extends LogCache {
             return (logIdentity ^ (int) address) + (logIdentity << 16);
         }
     }
+
+    private static ObjectCacheBase<CacheKey, ArrayByteIterable> createPagesCache(final int pagesCount,
+                                                                              final boolean nonBlocking,
+                                                                              final boolean frequencySketch) {
+        if (frequencySketch) {
+            return new TinyLfuObjectCache<>(pagesCount);
+        }
+        return nonBlocking ?
+                new ConcurrentObjectCache<CacheKey, ArrayByteIterable>(pagesCount, CONCURRENT_CACHE_GENERATION_COUNT) :
+                new ObjectCache<CacheKey, ArrayByteIterable>(pagesCount);
+    }
 }
@@ -0,0 +1,263 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.core.dataStructures.CacheHitRateable;
+import jetbrains.exodus.core.dataStructures.ObjectCacheBase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Log cache keyed by the primitive pair (log identity, page address) which can be shared by several logs.
+ * Pages are distributed among segments, each segment is a set-associative table: a page can be placed only
+ * in one of {@code WAYS} slots of its set. Lookups don't lock and don't allocate, insertions and removals
+ * lock only the segment. A victim within a set is selected by generalized CLOCK: each hit increments page's
+ * frequency, the clock hand decrements frequencies and evicts the first page with zero frequency. Newly
+ * cached pages start with zero frequency, so pages read once (e.g., by a scan) don't push out hot ones.
+ */
+final class StripedLogCache extends LogCache {
+
+    private static final int WAYS = 8; // should be a power of 2
+    private static final int MAX_FREQUENCY = 3;
+    private static final int SEGMENTS_PER_PROCESSOR = 4;
+
+    private final boolean shared;
+    private final Segment[] segments;
+    private final int segmentsMask;
+
+    StripedLogCache(final long memoryUsage, final int pageSize, final boolean shared) {
+        super(memoryUsage, pageSize);
+        this.shared = shared;
+        segments = createSegments((int) (memoryUsage / (pageSize +
+                /* each page consumes additionally nearly 80 bytes in the cache */ 80)));
+        segmentsMask = segments.length - 1;
+    }
+
+    StripedLogCache(final int memoryUsagePercentage, final int pageSize, final boolean shared) {
+        super(memoryUsagePercentage, pageSize);
+        this.shared = shared;
+        segments = createSegments(memoryUsage == Long.MAX_VALUE ? ObjectCacheBase.DEFAULT_SIZE :
+                (int) (memoryUsage / (pageSize + /* each page consumes additionally nearly 80 bytes in the cache */ 80)));
+        segmentsMask = segments.length - 1;
+    }
+
+    @Override
+    void clear() {
+        // shared cache can contain pages of different environments
+        if (!shared) {
+            for (final Segment segment : segments) {
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    double hitRate() {
+        long attempts = 0;
+        long hits = 0;
+        for (final Segment segment : segments) {
+            attempts += segment.getAttempts();
+            hits += segment.getHits();
+        }
+        return attempts > 0 ? (double) hits / (double) attempts : 0;
+    }
+
+    @Override
+    void cachePage(@NotNull final Log log, final long pageAddress, @NotNull final ArrayByteIterable page) {
+        final int logIdentity = log.getIdentity();
+        final long adjustedPageAddress = pageAddress >> pageSizeLogarithm;
+        final int hash = hash(logIdentity, adjustedPageAddress);
+        getSegment(hash).cachePage(hash, logIdentity, adjustedPageAddress, page);
+    }
+
+    @Override
+    ArrayByteIterable getCachedPage(@NotNull final Log log, final long pageAddress) {
+        final int logIdentity = log.getIdentity();
+        final long adjustedPageAddress = pageAddress >> pageSizeLogarithm;
+        final int hash = hash(logIdentity, adjustedPageAddress);
+        return getSegment(hash).getPage(hash, logIdentity, adjustedPageAddress);
+    }
+
+    @NotNull
+    @Override
+    ArrayByteIterable getPageImpl(@NotNull final Log log, final long pageAddress) {
+        final int logIdentity = log.getIdentity();
+        final long adjustedPageAddress = pageAddress >> pageSizeLogarithm;
+        final int hash = hash(logIdentity, adjustedPageAddress);
+        final Segment segment = getSegment(hash);
+        ArrayByteIterable page = segment.getPage(hash, logIdentity, adjustedPageAddress);
+        if (page != null) {
+            return page;
+        }
+        page = log.getHighPage(pageAddress);
+        if (page != null) {
+            return page;
+        }
+        page = readFullPage(log, pageAddress);
+        segment.cachePage(hash, logIdentity, adjustedPageAddress, page);
+        return page;
+    }
+
+    @Override
+    ArrayByteIterable removePage(@NotNull final Log log, final long pageAddress) {
+        final int logIdentity = log.getIdentity();
+        final long adjustedPageAddress = pageAddress >> pageSizeLogarithm;
+        final int hash = hash(logIdentity, adjustedPageAddress);
+        return getSegment(hash).removePage(hash, logIdentity, adjustedPageAddress);
+    }
+
+    private Segment getSegment(final int hash) {
+        // high bits select segment, low bits select set within the segment
+        return segments[(hash >>> 16) & segmentsMask];
+    }
+
+    private static Segment[] createSegments(final int pagesCount) {
+        final int setsCount = Math.max(1, pagesCount / WAYS);
+        int segmentsCount = 1;
+        final int maxSegmentsCount = Math.min(1 << 16,
+                Runtime.getRuntime().availableProcessors() * SEGMENTS_PER_PROCESSOR);
+        while (segmentsCount < maxSegmentsCount && segmentsCount < setsCount) {
+            segmentsCount <<= 1;
+        }
+        final Segment[] result = new Segment[segmentsCount];
+        for (int i = 0; i < segmentsCount; ++i) {
+            result[i] = new Segment(Math.max(1, setsCount / segmentsCount));
+        }
+        return result;
+    }
+
+    static int hash(final int logIdentity, final long adjustedPageAddress) {
+        long h = (adjustedPageAddress ^ ((long) logIdentity << 32)) * 0x9e3779b97f4a7c15L;
+        h ^= h >>> 29;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static final class Segment extends CacheHitRateable {
+
+        private final int setsCount;
+        private final AtomicReferenceArray<CachedPage> slots;
+        private final byte[] clockHands;
+
+        private Segment(final int setsCount) {
+            this.setsCount = setsCount;
+            slots = new AtomicReferenceArray<>(setsCount * WAYS);
+            clockHands = new byte[setsCount];
+        }
+
+        @Nullable
+        private ArrayByteIterable getPage(final int hash, final int logIdentity, final long adjustedPageAddress) {
+            incAttempts();
+            final int firstSlot = getSet(hash) * WAYS;
+            for (int i = firstSlot; i < firstSlot + WAYS; ++i) {
+                final CachedPage cached = slots.get(i);
+                if (cached != null && cached.address == adjustedPageAddress && cached.logIdentity == logIdentity) {
+                    incHits();
+                    final int frequency = cached.frequency;
+                    if (frequency < MAX_FREQUENCY) {
+                        // benign race: lost increments only make eviction a bit less precise
+                        cached.frequency = frequency + 1;
+                    }
+                    return cached.page;
+                }
+            }
+            return null;
+        }
+
+        private synchronized void cachePage(final int hash,
+                                            final int logIdentity,
+                                            final long adjustedPageAddress,
+                                            @NotNull final ArrayByteIterable page) {
+            final int set = getSet(hash);
+            final int firstSlot = set * WAYS;
+            int freeSlot = -1;
+            for (int i = firstSlot; i < firstSlot + WAYS; ++i) {
+                final CachedPage cached = slots.get(i);
+                if (cached == null) {
+                    if (freeSlot < 0) {
+                        freeSlot = i;
+                    }
+                } else if (cached.address == adjustedPageAddress && cached.logIdentity == logIdentity) {
+                    return;
+                }
+            }
+            if (freeSlot < 0) {
+                freeSlot = firstSlot + selectVictim(set);
+            }
+            slots.set(freeSlot, new CachedPage(logIdentity, adjustedPageAddress, page));
+        }
+
+        @Nullable
+        private synchronized ArrayByteIterable removePage(final int hash, final int logIdentity, final long adjustedPageAddress) {
+            final int firstSlot = getSet(hash) * WAYS;
+            for (int i = firstSlot; i < firstSlot + WAYS; ++i) {
+                final CachedPage cached = slots.get(i);
+                if (cached != null && cached.address == adjustedPageAddress && cached.logIdentity == logIdentity) {
+                    slots.set(i, null);
+                    return cached.page;
+                }
+            }
+            return null;
+        }
+
+        private synchronized void clear() {
+            for (int i = 0; i < slots.length(); ++i) {
+                slots.set(i, null);
+            }
+        }
+
+        /**
+         * @return index of the way in specified set which should be replaced.
+         */
+        private int selectVictim(final int set) {
+            final int firstSlot = set * WAYS;
+            int hand = clockHands[set];
+            // concurrent hits can increase frequencies, so limit the number of clock hand moves
+            for (int moves = 0; moves < WAYS * MAX_FREQUENCY; ++moves) {
+                final CachedPage cached = slots.get(firstSlot + hand);
+                if (cached.frequency <= 0) {
+                    break;
+                }
+                --cached.frequency;
+                hand = (hand + 1) & (WAYS - 1);
+            }
+            clockHands[set] = (byte) ((hand + 1) & (WAYS - 1));
+            return hand;
+        }
+
+        private int getSet(final int hash) {
+            return (hash & 0x7fffffff) % setsCount;
+        }
+    }
+
+    private static final class CachedPage {
+
+        private final int logIdentity;
+        private final long address;
+        @NotNull
+        private final ArrayByteIterable page;
+        private int frequency;
+
+        private CachedPage(final int logIdentity, final long address, @NotNull final ArrayByteIterable page) {
+            this.logIdentity = logIdentity;
+            this.address = address;
+            this.page = page;
+            frequency = 0;
+        }
+    }
+}
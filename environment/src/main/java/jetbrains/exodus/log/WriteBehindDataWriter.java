@@ -0,0 +1,342 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import jetbrains.exodus.ExodusException;
+import jetbrains.exodus.core.execution.Job;
+import jetbrains.exodus.core.execution.ThreadJobProcessor;
+import jetbrains.exodus.io.DataWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DataWriter which passes all operations to the child writer asynchronously in a job of its own processor.
+ * Consecutive writes are coalesced into larger ones. Operations are executed strictly in the order they were
+ * requested, so the child writer sees exactly the same sequence of calls as without write-behind.
+ * Since written data can be not yet in the file, log should {@link #waitForWrittenAddress(long)} before reading
+ * from the file data which can be missing in log cache.
+ */
+final class WriteBehindDataWriter implements DataWriter {
+
+    private static final int WRITE_BATCH_SIZE = 1 << 18;
+    private static final long MAX_PENDING_BYTES = 1 << 24;
+
+    @NotNull
+    private final DataWriter child;
+    /**
+     * Write-behind has its own thread, so that committers waiting for written data don't wait for unrelated jobs.
+     */
+    @NotNull
+    private final ThreadJobProcessor processor;
+    @NotNull
+    private final String location;
+    private final Object lock = new Object();
+    // all following fields are guarded by lock
+    private List<Operation> pendingOperations;
+    private long pendingBytes;
+    private boolean flushing;
+    private boolean open;
+    private long enqueuedAddress;
+    private long writtenAddress;
+    @Nullable
+    private Throwable error;
+
+    WriteBehindDataWriter(@NotNull final DataWriter child, @NotNull final String location) {
+        this.child = child;
+        processor = new ThreadJobProcessor("Exodus write-behind for " + location);
+        processor.start();
+        this.location = location;
+        pendingOperations = new ArrayList<>();
+        open = child.isOpen();
+    }
+
+    @Override
+    public boolean isOpen() {
+        synchronized (lock) {
+            return open;
+        }
+    }
+
+    @Override
+    public boolean write(byte[] b, int off, int len) throws ExodusException {
+        synchronized (lock) {
+            checkError();
+            while (pendingBytes >= MAX_PENDING_BYTES) {
+                waitForFlush();
+            }
+            final int operationsCount = pendingOperations.size();
+            final Operation last = operationsCount == 0 ? null : pendingOperations.get(operationsCount - 1);
+            if (last instanceof Write && ((Write) last).tryAppend(b, off, len)) {
+                pendingBytes += len;
+                enqueuedAddress += len;
+                return true;
+            }
+            final Write write = new Write(Math.max(len, WRITE_BATCH_SIZE));
+            write.tryAppend(b, off, len);
+            pendingBytes += len;
+            enqueuedAddress += len;
+            enqueue(write);
+        }
+        return true;
+    }
+
+    @Override
+    public void sync() {
+        synchronized (lock) {
+            checkError();
+            if (open) {
+                final int operationsCount = pendingOperations.size();
+                if (operationsCount == 0 || !(pendingOperations.get(operationsCount - 1) instanceof Sync)) {
+                    enqueue(new Sync());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            checkError();
+            if (open) {
+                open = false;
+                enqueue(new Close());
+            }
+        }
+    }
+
+    @Override
+    public void openOrCreateBlock(long address, long length) {
+        synchronized (lock) {
+            checkError();
+            if (open) {
+                throw new IllegalStateException("Can't create blocks with open data writer");
+            }
+            open = true;
+            enqueuedAddress = address + length;
+            enqueue(new Open(address, length));
+        }
+    }
+
+    @Override
+    public boolean lock(long timeout) {
+        return child.lock(timeout);
+    }
+
+    @Override
+    public boolean release() {
+        waitForPendingOperations();
+        return child.release();
+    }
+
+    /**
+     * Waits until all requested operations are executed by the child writer and stops the thread of write-behind.
+     */
+    void finish() {
+        try {
+            waitForPendingOperations();
+        } finally {
+            processor.finish();
+        }
+    }
+
+    /**
+     * Waits until all requested operations are executed by the child writer.
+     */
+    void waitForPendingOperations() {
+        synchronized (lock) {
+            while (flushing) {
+                waitForFlush();
+            }
+            checkError();
+        }
+    }
+
+    /**
+     * Waits until data up to specified address is passed to the child writer, so it can be read from the file.
+     */
+    void waitForWrittenAddress(final long address) {
+        synchronized (lock) {
+            while (flushing && writtenAddress < Math.min(address, enqueuedAddress)) {
+                waitForFlush();
+            }
+            checkError();
+        }
+    }
+
+    /**
+     * Returns {@code true} if data up to specified address is passed to the child writer.
+     */
+    boolean isWritten(final long address) {
+        synchronized (lock) {
+            return !flushing || writtenAddress >= address;
+        }
+    }
+
+    private void enqueue(@NotNull final Operation operation) {
+        pendingOperations.add(operation);
+        if (!flushing) {
+            if (!new FlushJob().wasQueued()) {
+                pendingOperations.remove(pendingOperations.size() - 1);
+                throw new ExodusException("Can't queue write-behind of log [" + location + ']');
+            }
+            flushing = true;
+        }
+    }
+
+    private void waitForFlush() {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExodusException("Interrupted while waiting for write-behind of log [" + location + ']', e);
+        }
+    }
+
+    private void checkError() {
+        final Throwable error = this.error;
+        if (error != null) {
+            throw ExodusException.toExodusException(error, "Write-behind of log [" + location + "] failed");
+        }
+    }
+
+    private final class FlushJob extends Job {
+
+        private FlushJob() {
+            super(processor);
+        }
+
+        @Override
+        public String getName() {
+            return "Log write-behind";
+        }
+
+        @Override
+        public String getGroup() {
+            return location;
+        }
+
+        @Override
+        protected void execute() throws Throwable {
+            final List<Operation> operations;
+            synchronized (lock) {
+                operations = pendingOperations;
+                pendingOperations = new ArrayList<>();
+            }
+            try {
+                for (final Operation operation : operations) {
+                    operation.execute();
+                    if (operation instanceof Write) {
+                        final int length = ((Write) operation).count;
+                        synchronized (lock) {
+                            pendingBytes -= length;
+                            writtenAddress += length;
+                            lock.notifyAll();
+                        }
+                    } else if (operation instanceof Open) {
+                        synchronized (lock) {
+                            final Open open = (Open) operation;
+                            writtenAddress = open.address + open.length;
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                synchronized (lock) {
+                    error = t;
+                    flushing = false;
+                    pendingOperations.clear();
+                    pendingBytes = 0;
+                    lock.notifyAll();
+                }
+                throw t;
+            }
+            synchronized (lock) {
+                if (pendingOperations.isEmpty()) {
+                    flushing = false;
+                    lock.notifyAll();
+                } else if (!new FlushJob().wasQueued()) {
+                    // new job is queued instead of looping in order not to block other jobs of the processor
+                    error = new ExodusException("Can't queue write-behind of log [" + location + ']');
+                    flushing = false;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private abstract static class Operation {
+
+        abstract void execute();
+    }
+
+    private final class Write extends Operation {
+
+        private final byte[] buffer;
+        private int count;
+
+        private Write(final int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        private boolean tryAppend(final byte[] b, final int off, final int len) {
+            if (count + len > buffer.length) {
+                return false;
+            }
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+            return true;
+        }
+
+        @Override
+        void execute() {
+            child.write(buffer, 0, count);
+        }
+    }
+
+    private final class Sync extends Operation {
+
+        @Override
+        void execute() {
+            child.sync();
+        }
+    }
+
+    private final class Close extends Operation {
+
+        @Override
+        void execute() {
+            child.close();
+        }
+    }
+
+    private final class Open extends Operation {
+
+        private final long address;
+        private final long length;
+
+        private Open(final long address, final long length) {
+            this.address = address;
+            this.length = length;
+        }
+
+        @Override
+        void execute() {
+            child.openOrCreateBlock(address, length);
+        }
+    }
+}
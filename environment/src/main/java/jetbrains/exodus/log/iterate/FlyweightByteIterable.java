@@ -0,0 +1,92 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log.iterate;
+
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.ByteIterableBase;
+import jetbrains.exodus.ByteIterator;
+import jetbrains.exodus.log.ByteIterableWithAddress;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reusable view of a range of bytes of a {@link ByteIterableWithAddress}. The view is re-pointed to another range by
+ * {@link #reset(ByteIterableWithAddress, int, int)} without allocating new objects, so its contents are valid only
+ * until the next reset. Use {@link #copy()} to retain the contents.
+ */
+public class FlyweightByteIterable extends ByteIterableBase {
+
+    @NotNull
+    private ByteIterableWithAddress source = ByteIterableWithAddress.EMPTY;
+    private int offset;
+
+    public FlyweightByteIterable() {
+        length = 0;
+    }
+
+    public FlyweightByteIterable reset(@NotNull final ByteIterableWithAddress source, final int offset, final int length) {
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        bytes = null;
+        return this;
+    }
+
+    @NotNull
+    public ArrayByteIterable copy() {
+        return new ArrayByteIterable(getIterator(), length);
+    }
+
+    @SuppressWarnings({"CompareToUsesNonFinalVariable"})
+    @Override
+    public int compareTo(ByteIterable right) {
+        return source.compareTo(offset, length, right);
+    }
+
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    protected ByteIterator getIterator() {
+        if (length == 0) {
+            return ByteIterable.EMPTY_ITERATOR;
+        }
+        final ByteIterator bi = source.iterator(offset);
+        return new ByteIterator() {
+            private int i = length;
+
+            @Override
+            public boolean hasNext() {
+                return i > 0 && bi.hasNext();
+            }
+
+            @Override
+            public byte next() {
+                i--;
+                return bi.next();
+            }
+
+            @Override
+            public long skip(long length) {
+                long result = bi.skip(Math.min(length, i));
+                i -= (int) result;
+                return result;
+            }
+        };
+    }
+}
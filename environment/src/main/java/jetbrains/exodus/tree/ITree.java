@@ -17,6 +17,7 @@ package jetbrains.exodus.tree;
 
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.core.dataStructures.LongObjectCacheBase;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.log.Log;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -38,6 +39,43 @@ public interface ITree {
     @Nullable
     ByteIterable get(@NotNull final ByteIterable key);
 
+    /**
+     * Gets values by keys sorted in ascending order in a single pass, so that the part of the tree shared by paths
+     * to neighbouring keys is traversed once.
+     *
+     * @param keys   keys sorted in ascending order.
+     * @param values values by indices of keys, null is set for a missing key.
+     */
+    void getAll(@NotNull final ByteIterable[] keys, @NotNull final ByteIterable[] values);
+
+    /**
+     * Counts key/value pairs with keys in specified range including all duplicates of the keys.
+     *
+     * @param from start of the range of keys, inclusive.
+     * @param to   end of the range of keys, inclusive.
+     * @return number of key/value pairs.
+     */
+    long countRange(@NotNull final ByteIterable from, @NotNull final ByteIterable to);
+
+    /**
+     * Returns position of the key/value pair in the tree, i.e. number of pairs preceding it in the order of keys
+     * and values. The pair can be missing in the tree.
+     *
+     * @param key   key.
+     * @param value value, if null then number of pairs with keys less than specified one is returned.
+     * @return zero-based position.
+     */
+    long getPosition(@NotNull final ByteIterable key, @Nullable final ByteIterable value);
+
+    /**
+     * Gets key/value pair by its position in the tree.
+     *
+     * @param position zero-based position.
+     * @return the pair or null if position is out of bounds.
+     */
+    @Nullable
+    Pair<ByteIterable, ByteIterable> getAtPosition(final long position);
+
     boolean hasPair(@NotNull final ByteIterable key, @NotNull final ByteIterable value);
 
     boolean hasKey(@NotNull final ByteIterable key);
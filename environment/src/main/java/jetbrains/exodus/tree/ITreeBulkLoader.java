@@ -0,0 +1,34 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree;
+
+/**
+ * Writes a tree from key/value pairs sorted by key (and by value for a tree with duplicates) straight to the log,
+ * bottom-up, so that neither the pairs nor the whole tree are held in memory.
+ */
+public interface ITreeBulkLoader {
+
+    int getStructureId();
+
+    /**
+     * Consumes the pairs and writes the tree to the log. Is called on commit under the commit lock, pages are
+     * appended to the log as soon as they are filled, so the lock is held for the whole load.
+     *
+     * @return address of the root of the written tree.
+     * @throws IllegalArgumentException if the pairs are not sorted.
+     */
+    long save();
+}
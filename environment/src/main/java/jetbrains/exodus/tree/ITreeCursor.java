@@ -103,6 +103,25 @@ public interface ITreeCursor extends Cursor {
             return null;
         }
 
+        @Override
+        public void setFlyweight(boolean flyweight) {
+        }
+
+        @Override
+        public boolean isFlyweight() {
+            return false;
+        }
+
+        @Override
+        public boolean getAtPosition(long position) {
+            return false;
+        }
+
+        @Override
+        public long getPosition() {
+            throw new UnsupportedOperationException("No key found");
+        }
+
         @Override
         public int count() {
             return 0;
@@ -112,6 +112,22 @@ public interface ITreeMutable extends ITree {
      */
     boolean delete(@NotNull ByteIterable key, @Nullable ByteIterable value, @Nullable ITreeCursorMutable cursorToSkip);
 
+    /**
+     * Delete all key/value pairs with keys in specified range including all duplicates of the keys.
+     *
+     * @param from start of the range of keys, inclusive.
+     * @param to   end of the range of keys, inclusive.
+     * @return number of deleted key/value pairs.
+     */
+    long deleteRange(@NotNull ByteIterable from, @NotNull ByteIterable to);
+
+    /**
+     * Prepares the tree for saving: encodes new nodes and loads data of saved ones which is needed to save
+     * the tree. This doesn't write to the log, so it can be done before the commit is serialized with other ones.
+     * The tree should not be modified between {@link #prepareSave()} and {@link #save()}.
+     */
+    void prepareSave();
+
     /**
      * Save changes to log.
      *
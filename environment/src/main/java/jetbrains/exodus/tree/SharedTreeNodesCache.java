@@ -0,0 +1,408 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree;
+
+import jetbrains.exodus.core.dataStructures.LongObjectCacheBase;
+import jetbrains.exodus.core.dataStructures.hash.HashUtil;
+import jetbrains.exodus.core.dataStructures.hash.LongOpenHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Tree nodes cache which can be shared by several environments. Unlike per-environment tree nodes cache,
+ * it is bounded by estimated number of bytes retained by cached nodes (see {@link Weighable}) rather than by
+ * number of nodes. Nodes are keyed by the primitive pair ({@linkplain #newCache() partition}, address), so nodes
+ * of different environments never collide and probes don't allocate. The cache is split into stripes, each stripe
+ * has its own read-write lock, CLOCK queue and share of the memory bound. Each partition keeps its nodes in
+ * a primitive-keyed open addressing map per stripe, lookups take only the read lock of the stripe and a hit just
+ * marks the node as referenced, so that it gets the second chance on eviction.
+ */
+public final class SharedTreeNodesCache {
+
+    private static final int STRIPES_COUNT_LOG = 6;
+    private static final int STRIPES_COUNT = 1 << STRIPES_COUNT_LOG;
+    /**
+     * Estimated number of bytes consumed by a cache entry itself, i.e. by the entry, the hash table slots and
+     * the CLOCK queue slot.
+     */
+    private static final int ENTRY_OVERHEAD = 64;
+    /**
+     * Weight of a node which is not {@link Weighable}.
+     */
+    private static final int DEFAULT_NODE_WEIGHT = 256;
+
+    private final long maxMemoryUsage;
+    @NotNull
+    private final Stripe[] stripes;
+    @NotNull
+    private final AtomicInteger partitionIdGenerator;
+    @NotNull
+    private final AtomicLong attempts;
+    @NotNull
+    private final AtomicLong hits;
+
+    public SharedTreeNodesCache(final long maxMemoryUsage) {
+        if (maxMemoryUsage <= 0) {
+            throw new IllegalArgumentException("Invalid memory usage of tree nodes cache: " + maxMemoryUsage);
+        }
+        this.maxMemoryUsage = maxMemoryUsage;
+        stripes = new Stripe[STRIPES_COUNT];
+        final long stripeMemoryUsage = Math.max(maxMemoryUsage / STRIPES_COUNT, 1L);
+        for (int i = 0; i < STRIPES_COUNT; ++i) {
+            stripes[i] = new Stripe(stripeMemoryUsage);
+        }
+        partitionIdGenerator = new AtomicInteger();
+        attempts = new AtomicLong();
+        hits = new AtomicLong();
+    }
+
+    /**
+     * Creates new partition of the cache. A partition can be set to trees as an ordinary tree nodes cache, its
+     * nodes are evicted along with nodes of all other partitions.
+     *
+     * @return new partition of the cache
+     */
+    @NotNull
+    public LongObjectCacheBase<Object> newCache() {
+        return new Partition(partitionIdGenerator.incrementAndGet());
+    }
+
+    /**
+     * Removes all nodes of specified partition from the cache. Nodes of an environment retain pages of its log,
+     * so the partition of the environment should be removed on close.
+     *
+     * @param cache partition of the cache
+     */
+    public void removeCache(@NotNull final LongObjectCacheBase<Object> cache) {
+        final Partition partition = (Partition) cache;
+        for (int i = 0; i < STRIPES_COUNT; ++i) {
+            stripes[i].removeAll(partition, i);
+        }
+    }
+
+    public long getMaxMemoryUsage() {
+        return maxMemoryUsage;
+    }
+
+    /**
+     * @return estimated number of bytes retained by cached nodes
+     */
+    public long getMemoryUsage() {
+        long result = 0;
+        for (final Stripe stripe : stripes) {
+            result += stripe.weight;
+        }
+        return result;
+    }
+
+    public int count() {
+        int result = 0;
+        for (final Stripe stripe : stripes) {
+            result += stripe.count;
+        }
+        return result;
+    }
+
+    public double hitRate() {
+        final long attempts = this.attempts.get();
+        return attempts == 0 ? 0 : (double) hits.get() / (double) attempts;
+    }
+
+    public void clear() {
+        for (final Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    private static int getStripeIndex(final int partitionId, final long address) {
+        // stripe is selected by high bits of the mixed pair since low bits of the address are used by hash tables
+        return HashUtil.mix(address ^ ((long) partitionId << 48)) >>> (Integer.SIZE - STRIPES_COUNT_LOG);
+    }
+
+    private static int getWeight(@NotNull final Object node) {
+        return ENTRY_OVERHEAD + (node instanceof Weighable ? ((Weighable) node).getWeight() : DEFAULT_NODE_WEIGHT);
+    }
+
+    private final class Partition extends LongObjectCacheBase<Object> {
+
+        private final int id;
+        /**
+         * Nodes of the partition per stripe, each map is guarded by the lock of its stripe.
+         */
+        @NotNull
+        private final LongOpenHashMap<CachedNode>[] nodes;
+
+        @SuppressWarnings("unchecked")
+        private Partition(final int id) {
+            super(Integer.MAX_VALUE);
+            this.id = id;
+            nodes = new LongOpenHashMap[STRIPES_COUNT];
+            for (int i = 0; i < STRIPES_COUNT; ++i) {
+                nodes[i] = new LongOpenHashMap<>();
+            }
+        }
+
+        @Override
+        public Object tryKeyLocked(final long key) {
+            return tryKey(key);
+        }
+
+        @Override
+        public void clear() {
+            removeCache(this);
+        }
+
+        @Override
+        public void lock() {
+        }
+
+        @Override
+        public void unlock() {
+        }
+
+        @Override
+        public Object cacheObject(final long key, @NotNull final Object x) {
+            final int stripeIndex = getStripeIndex(id, key);
+            stripes[stripeIndex].put(nodes[stripeIndex], key, x);
+            // pushed out node can belong to another partition
+            return null;
+        }
+
+        @Override
+        public Object remove(final long key) {
+            final int stripeIndex = getStripeIndex(id, key);
+            return stripes[stripeIndex].remove(nodes[stripeIndex], key);
+        }
+
+        @Override
+        public Object tryKey(final long key) {
+            incAttempts();
+            attempts.incrementAndGet();
+            final Object result = getObject(key);
+            if (result != null) {
+                incHits();
+                hits.incrementAndGet();
+            }
+            return result;
+        }
+
+        @Override
+        public Object getObject(final long key) {
+            final int stripeIndex = getStripeIndex(id, key);
+            return stripes[stripeIndex].get(nodes[stripeIndex], key);
+        }
+
+        @Override
+        public int count() {
+            int result = 0;
+            for (int i = 0; i < STRIPES_COUNT; ++i) {
+                result += stripes[i].count(nodes[i]);
+            }
+            return result;
+        }
+    }
+
+    private static final class Stripe {
+
+        private final long maxWeight;
+        @NotNull
+        private final Lock readLock;
+        @NotNull
+        private final Lock writeLock;
+        /**
+         * CLOCK queue: nodes in order of caching, referenced nodes are moved to the tail on eviction instead of
+         * being evicted. Removed nodes are skipped lazily.
+         */
+        @NotNull
+        private final ArrayDeque<CachedNode> queue;
+        private volatile long weight; // guarded by writeLock
+        private volatile int count; // guarded by writeLock
+
+        private Stripe(final long maxWeight) {
+            this.maxWeight = maxWeight;
+            final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+            readLock = lock.readLock();
+            writeLock = lock.writeLock();
+            queue = new ArrayDeque<>();
+        }
+
+        @Nullable
+        private Object get(@NotNull final LongOpenHashMap<CachedNode> nodes, final long address) {
+            final CachedNode result;
+            readLock.lock();
+            try {
+                result = nodes.get(address);
+            } finally {
+                readLock.unlock();
+            }
+            if (result == null) {
+                return null;
+            }
+            // benign race: a lost mark only makes eviction a bit less precise
+            if (!result.referenced) {
+                result.referenced = true;
+            }
+            return result.node;
+        }
+
+        private void put(@NotNull final LongOpenHashMap<CachedNode> nodes,
+                         final long address, @NotNull final Object node) {
+            final int nodeWeight = getWeight(node);
+            if (nodeWeight > maxWeight) {
+                return;
+            }
+            final CachedNode cached = new CachedNode(nodes, address, node, nodeWeight);
+            writeLock.lock();
+            try {
+                long weight = this.weight + nodeWeight;
+                int count = this.count + 1;
+                final CachedNode prev = nodes.put(address, cached);
+                if (prev != null) {
+                    prev.removed = true;
+                    weight -= prev.weight;
+                    --count;
+                }
+                queue.addLast(cached);
+                while (weight > maxWeight) {
+                    final CachedNode victim = queue.pollFirst();
+                    if (victim == null) {
+                        break;
+                    }
+                    if (victim.removed) {
+                        continue;
+                    }
+                    if (victim.referenced) {
+                        victim.referenced = false;
+                        queue.addLast(victim);
+                        continue;
+                    }
+                    victim.removed = true;
+                    victim.nodes.remove(victim.address);
+                    weight -= victim.weight;
+                    --count;
+                }
+                this.weight = weight;
+                this.count = count;
+                compactQueue();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Nullable
+        private Object remove(@NotNull final LongOpenHashMap<CachedNode> nodes, final long address) {
+            writeLock.lock();
+            try {
+                final CachedNode result = nodes.remove(address);
+                if (result == null) {
+                    return null;
+                }
+                result.removed = true;
+                weight -= result.weight;
+                --count;
+                compactQueue();
+                return result.node;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        private void removeAll(@NotNull final Partition partition, final int stripeIndex) {
+            final LongOpenHashMap<CachedNode> nodes = partition.nodes[stripeIndex];
+            writeLock.lock();
+            try {
+                long weight = this.weight;
+                for (final CachedNode cached : nodes.values()) {
+                    cached.removed = true;
+                    weight -= cached.weight;
+                }
+                count -= nodes.size();
+                this.weight = weight;
+                nodes.clear();
+                compactQueue();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        private void clear() {
+            writeLock.lock();
+            try {
+                for (final CachedNode cached : queue) {
+                    if (!cached.removed) {
+                        cached.removed = true;
+                        cached.nodes.remove(cached.address);
+                    }
+                }
+                queue.clear();
+                weight = 0;
+                count = 0;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        private int count(@NotNull final LongOpenHashMap<CachedNode> nodes) {
+            readLock.lock();
+            try {
+                return nodes.size();
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        /**
+         * Drops removed nodes from the queue if they are the majority.
+         */
+        private void compactQueue() {
+            if (queue.size() > (count << 1) + 16) {
+                final Iterator<CachedNode> it = queue.iterator();
+                while (it.hasNext()) {
+                    if (it.next().removed) {
+                        it.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class CachedNode {
+
+        @NotNull
+        private final LongOpenHashMap<CachedNode> nodes;
+        private final long address;
+        @NotNull
+        private final Object node;
+        private final int weight;
+        private boolean referenced; // may be set without lock
+        private boolean removed; // guarded by the write lock of the stripe
+
+        private CachedNode(@NotNull final LongOpenHashMap<CachedNode> nodes,
+                           final long address, @NotNull final Object node, final int weight) {
+            this.nodes = nodes;
+            this.address = address;
+            this.node = node;
+            this.weight = weight;
+        }
+    }
+}
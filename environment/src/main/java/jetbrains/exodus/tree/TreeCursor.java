@@ -16,6 +16,8 @@
 package jetbrains.exodus.tree;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
+import jetbrains.exodus.log.iterate.FlyweightByteIterable;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -30,6 +32,10 @@ public class TreeCursor implements ITreeCursor {
     protected boolean canGoDown = true;
     protected boolean alreadyIn;
     protected boolean inited = false;
+    @Nullable
+    private FlyweightByteIterable keyFlyweight = null;
+    @Nullable
+    private FlyweightByteIterable valueFlyweight = null;
 
     public TreeCursor(TreeTraverser traverser) {
         this.traverser = traverser;
@@ -159,13 +165,28 @@ public class TreeCursor implements ITreeCursor {
     @Override
     @NotNull
     public ByteIterable getKey() {
-        return traverser.getKey();
+        final FlyweightByteIterable flyweight = keyFlyweight;
+        return flyweight == null ? traverser.getKey() : traverser.getKey(flyweight);
     }
 
     @Override
     @NotNull
     public ByteIterable getValue() {
-        return traverser.getValue();
+        final FlyweightByteIterable flyweight = valueFlyweight;
+        return flyweight == null ? traverser.getValue() : traverser.getValue(flyweight);
+    }
+
+    @Override
+    public void setFlyweight(final boolean flyweight) {
+        if (flyweight != isFlyweight()) {
+            keyFlyweight = flyweight ? new FlyweightByteIterable() : null;
+            valueFlyweight = flyweight ? new FlyweightByteIterable() : null;
+        }
+    }
+
+    @Override
+    public boolean isFlyweight() {
+        return keyFlyweight != null;
     }
 
     @Override
@@ -209,6 +230,17 @@ public class TreeCursor implements ITreeCursor {
         return moveTo(key, value, true);
     }
 
+    @Override
+    public boolean getAtPosition(final long position) {
+        final Pair<ByteIterable, ByteIterable> pair = getTree().getAtPosition(position);
+        return pair != null && getSearchBoth(pair.getFirst(), pair.getSecond());
+    }
+
+    @Override
+    public long getPosition() {
+        return getTree().getPosition(getKey(), getValue());
+    }
+
     @Override
     public int count() {
         return 1;
@@ -98,8 +98,8 @@ public class TreeCursorMutable extends TreeCursor implements ITreeCursorMutable
         }
 
         // delete and remember next
-        final ByteIterable key = getKey();
-        final ByteIterable value = getValue();
+        final ByteIterable key = traverser.getKey();
+        final ByteIterable value = traverser.getValue();
         if (getNext()) {
             nextAfterRemovedKey = traverser.getKey();
             nextAfterRemovedValue = traverser.getValue();
@@ -127,8 +127,8 @@ public class TreeCursorMutable extends TreeCursor implements ITreeCursorMutable
 
     @Override
     public void treeChanged() {
-        final ByteIterable key = getKey();
-        final ByteIterable value = getValue();
+        final ByteIterable key = traverser.getKey();
+        final ByteIterable value = traverser.getValue();
 
         reset(tree.getRoot());
 
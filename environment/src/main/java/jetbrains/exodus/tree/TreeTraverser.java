@@ -16,6 +16,7 @@
 package jetbrains.exodus.tree;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.log.iterate.FlyweightByteIterable;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -30,6 +31,18 @@ public interface TreeTraverser {
     @NotNull
     ByteIterable getValue();
 
+    /**
+     * Returns current key, probably as specified flyweight pointed to the key.
+     */
+    @NotNull
+    ByteIterable getKey(@NotNull FlyweightByteIterable flyweight);
+
+    /**
+     * Returns current value, probably as specified flyweight pointed to the value.
+     */
+    @NotNull
+    ByteIterable getValue(@NotNull FlyweightByteIterable flyweight);
+
     boolean canMoveRight();
 
     boolean canMoveLeft();
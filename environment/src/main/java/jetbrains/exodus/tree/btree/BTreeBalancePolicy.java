@@ -22,15 +22,42 @@ public class BTreeBalancePolicy {
     public static BTreeBalancePolicy DEFAULT = new BTreeBalancePolicy(256);
 
     private final int maxSize;
+    private final int keyPrefixLength;
+    private final boolean subtreeSizes;
 
     public BTreeBalancePolicy(int maxSize) {
+        this(maxSize, 0);
+    }
+
+    public BTreeBalancePolicy(int maxSize, int keyPrefixLength) {
+        this(maxSize, keyPrefixLength, false);
+    }
+
+    public BTreeBalancePolicy(int maxSize, int keyPrefixLength, boolean subtreeSizes) {
         this.maxSize = maxSize;
+        this.keyPrefixLength = keyPrefixLength;
+        this.subtreeSizes = subtreeSizes;
     }
 
     public int getPageMaxSize() {
         return maxSize;
     }
 
+    /**
+     * @return number of leading bytes of keys which are saved in pages along with addresses of leaf nodes,
+     * zero value means that pages are saved without key prefixes.
+     */
+    public int getKeyPrefixLength() {
+        return keyPrefixLength;
+    }
+
+    /**
+     * @return true if internal pages are saved with numbers of key/value pairs in sub-trees of their children.
+     */
+    public boolean hasSubtreeSizes() {
+        return subtreeSizes;
+    }
+
     /**
      * @param page page to check whether it has to be split.
      * @return true if specified page has to be split before inserting new item.
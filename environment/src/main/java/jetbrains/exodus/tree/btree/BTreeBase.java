@@ -18,6 +18,7 @@ package jetbrains.exodus.tree.btree;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.core.dataStructures.LongObjectCacheBase;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.log.ByteIterableWithAddress;
 import jetbrains.exodus.log.Log;
 import jetbrains.exodus.log.RandomAccessLoggable;
@@ -201,6 +202,54 @@ public abstract class BTreeBase implements ITree {
         return leaf == null ? null : leaf.getValue();
     }
 
+    @Override
+    public void getAll(@NotNull final ByteIterable[] keys, @NotNull final ByteIterable[] values) {
+        if (keys.length > 0) {
+            getRoot().getAll(keys, 0, keys.length, values);
+        }
+    }
+
+    @Override
+    public long getPosition(@NotNull final ByteIterable key, @Nullable final ByteIterable value) {
+        final BasePage root = getRoot();
+        long result = root.getPosition(key);
+        if (value != null && allowsDuplicates) {
+            final ILeafNode ln = root.get(key);
+            if (ln != null) {
+                if (ln.isDup()) {
+                    result += ln.getTree().getRoot().getPosition(value);
+                } else if (ln.compareValueTo(value) < 0) {
+                    ++result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    @Nullable
+    public Pair<ByteIterable, ByteIterable> getAtPosition(final long position) {
+        if (position < 0 || position >= getSize()) {
+            return null;
+        }
+        final long[] offset = {0};
+        final ILeafNode ln = getRoot().getLeafAtPosition(position, offset);
+        if (ln == null) {
+            return null;
+        }
+        if (ln.isDup()) {
+            // keys of duplicates sub-tree are values
+            final ILeafNode dup = ln.getTree().getRoot().getLeafAtPosition(offset[0], offset);
+            return dup == null ? null : new Pair<ByteIterable, ByteIterable>(ln.getKey(), dup.getKey());
+        }
+        return new Pair<ByteIterable, ByteIterable>(ln.getKey(), ln.getValue());
+    }
+
+    @Override
+    public long countRange(@NotNull final ByteIterable from, @NotNull final ByteIterable to) {
+        return from.compareTo(to) > 0 ? 0 : getRoot().countRange(from, to);
+    }
+
     @Override
     public boolean hasKey(@NotNull final ByteIterable key) {
         return getRoot().keyExists(key);
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree.btree;
+
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
+import jetbrains.exodus.log.Log;
+import jetbrains.exodus.tree.ITreeBulkLoader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes BTree from sorted pairs bottom-up: leaves of a full bottom page are saved just before the page, full
+ * internal pages are saved as soon as the next child arrives, and the highest page is saved as root at the end.
+ * Pages are packed just like the ones created by {@link BTreeMutable#putRight(ByteIterable, ByteIterable)}.
+ */
+public class BTreeBulkLoader implements ITreeBulkLoader {
+
+    @NotNull
+    private final BTreeMutable tree;
+    @NotNull
+    private final Iterator<Pair<ByteIterable, ByteIterable>> pairs;
+    private final int pageMaxSize;
+    private final boolean subtreeSizes;
+    /**
+     * Internal pages being filled, from the lowest level to the highest one.
+     */
+    @NotNull
+    private final List<InternalPageMutable> internalPages;
+
+    public BTreeBulkLoader(@NotNull final Log log,
+                           @NotNull final BTreeBalancePolicy balancePolicy,
+                           final boolean allowsDuplicates,
+                           final int structureId,
+                           @NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs) {
+        tree = new BTreeEmpty(log, balancePolicy, allowsDuplicates, structureId).getMutableCopy();
+        this.pairs = pairs;
+        pageMaxSize = balancePolicy.getPageMaxSize();
+        subtreeSizes = balancePolicy.hasSubtreeSizes();
+        internalPages = new ArrayList<>();
+    }
+
+    @Override
+    public int getStructureId() {
+        return tree.getStructureId();
+    }
+
+    @Override
+    public long save() {
+        BottomPageMutable page = new BottomPageMutable(tree);
+        @Nullable
+        ByteIterable prevKey = null;
+        long size = 0;
+        while (pairs.hasNext()) {
+            final Pair<ByteIterable, ByteIterable> pair = pairs.next();
+            final ByteIterable key = pair.getFirst();
+            final ByteIterable value = pair.getSecond();
+            final int cmp = prevKey == null ? 1 : key.compareTo(prevKey);
+            if (cmp < 0 || (cmp == 0 && !tree.allowsDuplicates)) {
+                throw new IllegalArgumentException("Keys must be sorted in ascending order and be unique");
+            }
+            if (cmp == 0) {
+                // the last key of the page gets one more value, duplicates sub-tree checks order of values
+                final int last = page.size - 1;
+                page.set(last, LeafNodeDupMutable.convert(page.getKey(last), tree).putRight(value), null);
+            } else {
+                if (page.size == pageMaxSize) {
+                    addChild(0, page, page.save());
+                    page = new BottomPageMutable(tree);
+                }
+                page.insertDirectly(page.size, tree.createMutableLeaf(key, value), null);
+                prevKey = key;
+            }
+            ++size;
+        }
+        tree.size = size;
+        // save pages which are not full yet from the lowest level, the highest one is root
+        BasePageMutable root = page;
+        for (int level = 0; level < internalPages.size(); ++level) {
+            addChild(level, root, root.save());
+            root = internalPages.get(level);
+        }
+        return tree.save(root);
+    }
+
+    private void addChild(final int level, @NotNull final BasePageMutable child, final long childAddress) {
+        InternalPageMutable page;
+        if (level == internalPages.size()) {
+            page = new InternalPageMutable(tree);
+            internalPages.add(page);
+        } else {
+            page = internalPages.get(level);
+            if (page.size == pageMaxSize) {
+                addChild(level + 1, page, page.save());
+                page = new InternalPageMutable(tree);
+                internalPages.set(level, page);
+            }
+        }
+        final long[] prefixes = child.keysPrefixes;
+        page.addSavedChild(child.keysAddresses[0], prefixes == null ? BasePage.NO_KEY_PREFIX : prefixes[0],
+                childAddress, subtreeSizes ? child.getSubtreeSize() : -1L);
+    }
+}
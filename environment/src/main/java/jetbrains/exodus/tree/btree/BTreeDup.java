@@ -20,6 +20,7 @@ import jetbrains.exodus.ByteIterator;
 import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.log.RandomAccessLoggable;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
+import jetbrains.exodus.log.iterate.FlyweightByteIterable;
 import jetbrains.exodus.tree.TreeCursor;
 import org.jetbrains.annotations.NotNull;
 
@@ -87,6 +88,12 @@ final class BTreeDup extends BTreeBase {
                     return leafNodeDupKey; // get key from tree
                 }
 
+                @NotNull
+                @Override
+                public ByteIterable getValue(@NotNull final FlyweightByteIterable flyweight) {
+                    return getValue();
+                }
+
                 @Override
                 public boolean isDupLeaf() {
                     return true;
@@ -19,6 +19,7 @@ import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.log.*;
 import jetbrains.exodus.log.iterate.CompoundByteIterable;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
+import jetbrains.exodus.log.iterate.FlyweightByteIterable;
 import org.jetbrains.annotations.NotNull;
 
 final class BTreeDupMutable extends BTreeMutable {
@@ -137,6 +138,12 @@ final class BTreeDupMutable extends BTreeMutable {
                     return BTreeDupMutable.this.key; // get key from tree
                 }
 
+                @NotNull
+                @Override
+                public ByteIterable getValue(@NotNull final FlyweightByteIterable flyweight) {
+                    return getValue();
+                }
+
                 @Override
                 public boolean isDupLeaf() {
                     return true;
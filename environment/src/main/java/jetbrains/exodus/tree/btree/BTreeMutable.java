@@ -175,6 +175,57 @@ public class BTreeMutable extends BTreeBase implements ITreeMutable {
         return res[0];
     }
 
+    @Override
+    public long deleteRange(@NotNull final ByteIterable from, @NotNull final ByteIterable to) {
+        if (from.compareTo(to) > 0 || root.getSize() == 0) {
+            return 0;
+        }
+        final long result = root.deleteRange(from, to);
+        if (result > 0) {
+            decrementSize(result);
+            root = root.getSize() == 0 ? new BottomPageMutable(this) : root.mergeWithChildren();
+            TreeCursorMutable.notifyCursors(this);
+        }
+        return result;
+    }
+
+    /**
+     * Expires leaf node with specified index in a bottom page along with the sub-tree of its duplicates.
+     *
+     * @return number of key/value pairs in the leaf node.
+     */
+    long expireLeaf(@NotNull final BasePage page, final int index) {
+        addExpiredLoggable(page.getKeyAddress(index));
+        if (!allowsDuplicates) {
+            return 1;
+        }
+        final ILeafNode ln = page.getKey(index);
+        final LongIterator it = ln.addressIterator();
+        while (it.hasNext()) addExpiredLoggable(it.next());
+        return ln.getDupCount();
+    }
+
+    /**
+     * Expires all pages and leaf nodes of the sub-tree of specified page except the page itself.
+     *
+     * @return number of key/value pairs in the sub-tree.
+     */
+    long expireSubtree(@NotNull final BasePage page) {
+        long result = 0;
+        final int size = page.getSize();
+        if (page.isBottom()) {
+            for (int i = 0; i < size; ++i) {
+                result += expireLeaf(page, i);
+            }
+        } else {
+            for (int i = 0; i < size; ++i) {
+                addExpiredLoggable(page.getChildAddress(i));
+                result += expireSubtree(page.getChild(i));
+            }
+        }
+        return result;
+    }
+
     protected void decrementSize(final long delta) {
         size -= delta;
     }
@@ -194,8 +245,22 @@ public class BTreeMutable extends BTreeBase implements ITreeMutable {
         return root;
     }
 
+    @Override
+    public void prepareSave() {
+        root.prepareSave();
+    }
+
     @Override
     public long save() {
+        return save(root);
+    }
+
+    /**
+     * Saves the tree with specified root page.
+     *
+     * @return address of the root loggable.
+     */
+    long save(@NotNull final BasePageMutable root) {
         // dfs, save leafs, then bottoms, then internals, then root
         final byte type = root.isBottom() ? BOTTOM_ROOT : INTERNAL_ROOT;
         final Log log = getLog();
@@ -367,7 +432,7 @@ public class BTreeMutable extends BTreeBase implements ITreeMutable {
 
     @Nullable
     private LeafNode loadMinKey(ByteIterator it) {
-        final int addressLen = it.next();
+        final int addressLen = it.next() & ~(BasePage.KEY_PREFIXES_FLAG | BasePage.SUBTREE_SIZES_FLAG);
         final long keyAddress = LongBinding.entryToUnsignedLong(it, addressLen);
         return log.hasAddress(keyAddress) ? loadLeaf(keyAddress) : null;
     }
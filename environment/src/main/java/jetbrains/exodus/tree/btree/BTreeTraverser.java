@@ -16,6 +16,7 @@
 package jetbrains.exodus.tree.btree;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.log.iterate.FlyweightByteIterable;
 import jetbrains.exodus.tree.INode;
 import jetbrains.exodus.tree.MutableTreeRoot;
 import jetbrains.exodus.tree.TreeTraverser;
@@ -74,6 +75,18 @@ class BTreeTraverser implements TreeTraverser {
         return node.getValue();
     }
 
+    @Override
+    @NotNull
+    public ByteIterable getKey(@NotNull final FlyweightByteIterable flyweight) {
+        return node.getKey(flyweight);
+    }
+
+    @Override
+    @NotNull
+    public ByteIterable getValue(@NotNull final FlyweightByteIterable flyweight) {
+        return node.getValue(flyweight);
+    }
+
     @Override
     @NotNull
     public INode moveDown() {
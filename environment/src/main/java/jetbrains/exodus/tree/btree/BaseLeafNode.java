@@ -17,6 +17,7 @@ package jetbrains.exodus.tree.btree;
 
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.log.Loggable;
+import jetbrains.exodus.log.iterate.FlyweightByteIterable;
 import jetbrains.exodus.tree.INode;
 import jetbrains.exodus.tree.LongIterator;
 import org.jetbrains.annotations.NotNull;
@@ -80,6 +81,18 @@ abstract class BaseLeafNode implements ILeafNode {
         return compareValueTo(value) == 0;
     }
 
+    @Override
+    @NotNull
+    public ByteIterable getKey(@NotNull final FlyweightByteIterable flyweight) {
+        return getKey();
+    }
+
+    @Override
+    @NotNull
+    public ByteIterable getValue(@NotNull final FlyweightByteIterable flyweight) {
+        return getValue();
+    }
+
     @Override
     public int compareKeyTo(@NotNull final ByteIterable iterable) {
         return getKey().compareTo(iterable);
@@ -15,9 +15,15 @@
  */
 package jetbrains.exodus.tree.btree;
 
+import jetbrains.exodus.tree.ITree;
+
 abstract class BaseLeafNodeMutable extends BaseLeafNode implements ILeafNodeMutable {
     @Override
     public boolean isMutable() {
         return true;
     }
+
+    @Override
+    public void prepareSave(ITree tree) {
+    }
 }
@@ -16,6 +16,7 @@
 package jetbrains.exodus.tree.btree;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.ByteIterator;
 import jetbrains.exodus.tree.Dumpable;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -27,6 +28,22 @@ import java.io.PrintStream;
  */
 abstract class BasePage implements Dumpable {
 
+    /**
+     * Is set in the byte of length of key addresses if saved page contains prefixes of keys. The prefixes follow
+     * the rest of page data as the byte of prefix length and the prefixes of that length for each key.
+     */
+    protected static final int KEY_PREFIXES_FLAG = 0x40;
+    /**
+     * Is set in the byte of length of key addresses if saved internal page contains numbers of key/value pairs in
+     * sub-trees of its children. The numbers follow addresses of children as the byte of length of a number and
+     * the numbers of that length for each child.
+     */
+    protected static final int SUBTREE_SIZES_FLAG = 0x20;
+    /**
+     * Prefix of a key which is not known yet.
+     */
+    protected static final long NO_KEY_PREFIX = Long.MIN_VALUE;
+
     @NotNull
     private final BTreeBase tree;
     protected int size;
@@ -90,6 +107,158 @@ abstract class BasePage implements Dumpable {
     @Nullable
     protected abstract ILeafNode get(@NotNull final ByteIterable key);
 
+    /**
+     * Gets values by keys from specified range of sorted keys.
+     *
+     * @param keys   keys sorted in ascending order.
+     * @param from   start of the range of keys, inclusive.
+     * @param to     end of the range of keys, exclusive.
+     * @param values values by indices of keys.
+     */
+    protected abstract void getAll(@NotNull ByteIterable[] keys, int from, int to, @NotNull ByteIterable[] values);
+
+    /**
+     * Counts key/value pairs with keys in specified range. Sub-trees lying entirely inside the range are counted
+     * by sizes saved in internal pages or by sizes of their bottom pages, so leaf nodes of a tree without
+     * duplicates are not loaded at all.
+     *
+     * @param from start of the range of keys, inclusive, null if the range is not bounded from the left.
+     * @param to   end of the range of keys, inclusive, null if the range is not bounded from the right.
+     * @return number of key/value pairs.
+     */
+    protected long countRange(@Nullable final ByteIterable from, @Nullable final ByteIterable to) {
+        if (size == 0) {
+            return 0;
+        }
+        if (isBottom()) {
+            final int first = getRangeStart(from);
+            final int last = getRangeEnd(to, first);
+            if (!getTree().allowsDuplicates) {
+                return Math.max(last - first, 0);
+            }
+            long result = 0;
+            for (int i = first; i < last; ++i) {
+                result += getKey(i).getDupCount();
+            }
+            return result;
+        }
+        final int first = from == null ? 0 : InternalPage.binarySearchGuess(this, from);
+        final int last = to == null ? size - 1 : InternalPage.binarySearchGuessUnsafe(this, to);
+        if (last < first) {
+            return 0;
+        }
+        if (first == last) {
+            return from == null && to == null ? getChildSubtreeSize(first) : getChild(first).countRange(from, to);
+        }
+        long result = from == null ? getChildSubtreeSize(first) : getChild(first).countRange(from, null);
+        result += to == null ? getChildSubtreeSize(last) : getChild(last).countRange(null, to);
+        for (int i = first + 1; i < last; ++i) {
+            result += getChildSubtreeSize(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return number of key/value pairs in the sub-tree of the page.
+     */
+    protected long getSubtreeSize() {
+        return countRange(null, null);
+    }
+
+    /**
+     * Returns number of key/value pairs in the sub-tree of the child with specified index. Pages which don't know
+     * sizes of sub-trees of their children count them loading the sub-trees.
+     */
+    protected long getChildSubtreeSize(final int index) {
+        return getChild(index).getSubtreeSize();
+    }
+
+    /**
+     * @return number of key/value pairs in the sub-tree of the page with keys less than specified one.
+     */
+    protected long getPosition(@NotNull final ByteIterable key) {
+        if (size == 0) {
+            return 0;
+        }
+        if (isBottom()) {
+            final int end = getRangeStart(key);
+            if (!getTree().allowsDuplicates) {
+                return end;
+            }
+            long result = 0;
+            for (int i = 0; i < end; ++i) {
+                result += getKey(i).getDupCount();
+            }
+            return result;
+        }
+        final int index = InternalPage.binarySearchGuessUnsafe(this, key);
+        if (index < 0) {
+            return 0;
+        }
+        long result = getChild(index).getPosition(key);
+        for (int i = 0; i < index; ++i) {
+            result += getChildSubtreeSize(i);
+        }
+        return result;
+    }
+
+    /**
+     * Finds leaf node holding the key/value pair with specified position in the sub-tree of the page.
+     *
+     * @param position position of the pair in the sub-tree.
+     * @param offset   array of single element to return position of the pair among duplicates of the leaf node.
+     * @return the leaf node or null if position is not less than the size of the sub-tree.
+     */
+    @Nullable
+    protected ILeafNode getLeafAtPosition(long position, @NotNull final long[] offset) {
+        if (isBottom()) {
+            if (!getTree().allowsDuplicates) {
+                offset[0] = 0;
+                return position < size ? getKey((int) position) : null;
+            }
+            for (int i = 0; i < size; ++i) {
+                final ILeafNode ln = getKey(i);
+                final long dupCount = ln.getDupCount();
+                if (position < dupCount) {
+                    offset[0] = position;
+                    return ln;
+                }
+                position -= dupCount;
+            }
+            return null;
+        }
+        for (int i = 0; i < size; ++i) {
+            final long childSize = getChildSubtreeSize(i);
+            if (position < childSize) {
+                return getChild(i).getLeafAtPosition(position, offset);
+            }
+            position -= childSize;
+        }
+        return null;
+    }
+
+    /**
+     * Returns index of the first key of a bottom page which is greater than or equal to specified one.
+     */
+    protected final int getRangeStart(@Nullable final ByteIterable from) {
+        if (from == null) {
+            return 0;
+        }
+        final int index = binarySearch(from).index;
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Returns index following the last key of a bottom page which is less than or equal to specified one.
+     */
+    protected final int getRangeEnd(@Nullable final ByteIterable to, final int start) {
+        if (to == null) {
+            return size;
+        }
+        final int index = binarySearch(to, start).index;
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
     @Nullable
     protected abstract ILeafNode find(@NotNull BTreeTraverser stack, int depth,
                                       @NotNull ByteIterable key, @Nullable ByteIterable value, boolean equalOrNext);
@@ -102,6 +271,23 @@ abstract class BasePage implements Dumpable {
 
     protected abstract long getChildAddress(int index);
 
+    /**
+     * Returns first prefixLength bytes of the key as unsigned long, short key is padded with zeros. If
+     * prefixes of two keys are not equal then they compare just like the keys.
+     */
+    static long getKeyPrefix(@NotNull final ByteIterable key, final int prefixLength) {
+        final ByteIterator it = key.iterator();
+        long result = 0;
+        for (int i = 0; i < prefixLength; ++i) {
+            result = (result << 8) + (it.hasNext() ? it.next() & 0xff : 0);
+        }
+        return result;
+    }
+
+    static int compareKeyPrefixes(final long prefix1, final long prefix2) {
+        return Long.compare(prefix1 ^ Long.MIN_VALUE, prefix2 ^ Long.MIN_VALUE);
+    }
+
     static void indent(PrintStream out, int level) {
         for (int i = 0; i < level; i++) out.print(" ");
     }
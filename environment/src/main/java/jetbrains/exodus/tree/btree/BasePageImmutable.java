@@ -25,15 +25,22 @@ import jetbrains.exodus.log.ByteIteratorWithAddress;
 import jetbrains.exodus.log.IByteIterableComparator;
 import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
+import jetbrains.exodus.tree.Weighable;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-abstract class BasePageImmutable extends BasePage {
+import java.util.Arrays;
+
+abstract class BasePageImmutable extends BasePage implements Weighable {
 
     @NotNull
     protected final ByteIterableWithAddress data;
     protected long dataAddress;
     protected int keyAddressLen;
+    private boolean hasKeyPrefixes;
+    protected boolean hasSubtreeSizes;
+    @Nullable
+    private long[] keyPrefixes;
     @Nullable
     protected LongObjectCacheBase treeNodesCache;
 
@@ -81,7 +88,9 @@ abstract class BasePageImmutable extends BasePage {
         if (size > 0) {
             final int next = itr.next();
             dataAddress = itr.getAddress();
-            loadAddressLengths(next);
+            hasKeyPrefixes = (next & KEY_PREFIXES_FLAG) != 0;
+            hasSubtreeSizes = (next & SUBTREE_SIZES_FLAG) != 0;
+            loadAddressLengths(next & ~(KEY_PREFIXES_FLAG | SUBTREE_SIZES_FLAG));
         } else {
             dataAddress = itr.getAddress();
         }
@@ -107,6 +116,47 @@ abstract class BasePageImmutable extends BasePage {
         }
     }
 
+    /**
+     * @return offset of the byte of key prefix length from the beginning of page data.
+     */
+    protected int getKeyPrefixesOffset() {
+        return size * keyAddressLen;
+    }
+
+    /**
+     * Returns prefixes of keys if the page was saved with them, the prefixes are loaded once.
+     */
+    @Nullable
+    protected long[] getKeyPrefixes() {
+        long[] result = keyPrefixes;
+        if (result == null && hasKeyPrefixes) {
+            final ByteIterator it = getDataIterator(getKeyPrefixesOffset());
+            final int prefixLength = it.next();
+            checkAddressLength(prefixLength);
+            result = new long[size + 1];
+            for (int i = 0; i < size; ++i) {
+                result[i] = LongBinding.entryToUnsignedLong(it, prefixLength);
+            }
+            // the last element holds prefix length
+            result[size] = prefixLength;
+            keyPrefixes = result;
+        }
+        return result;
+    }
+
+    /**
+     * Copies prefixes of keys to the array of a mutable copy of the page. If the page has no prefixes or they
+     * are of different length, then the prefixes are set to NO_KEY_PREFIX.
+     */
+    protected void copyKeyPrefixes(@NotNull final long[] output, final int prefixLength) {
+        final long[] prefixes = getKeyPrefixes();
+        if (prefixes != null && prefixes[size] == prefixLength) {
+            System.arraycopy(prefixes, 0, output, 0, size);
+        } else {
+            Arrays.fill(output, 0, size, NO_KEY_PREFIX);
+        }
+    }
+
     @Override
     protected long getKeyAddress(final int index) {
         return LongBinding.entryToUnsignedLong(getDataIterator(index * keyAddressLen), keyAddressLen);
@@ -133,6 +183,10 @@ abstract class BasePageImmutable extends BasePage {
         if (dataAddress == Loggable.NULL_ADDRESS) {
             return SearchRes.NOT_FOUND;
         }
+        final long[] prefixes = getKeyPrefixes();
+        if (prefixes != null) {
+            return binarySearch(key, low, prefixes);
+        }
         final ILeafNode[] lastComparedKey = new ILeafNode[1];
         final int index = ByteIterableWithAddress.binarySearch(
                 new IByteIterableComparator() {
@@ -144,12 +198,44 @@ abstract class BasePageImmutable extends BasePage {
         return index >= 0 ? new SearchRes(index, lastComparedKey[0]) : new SearchRes(index);
     }
 
+    /**
+     * Binary search comparing prefixes of keys, leaf node is loaded only if the prefixes are equal.
+     */
+    private SearchRes binarySearch(final ByteIterable key, int low, @NotNull final long[] prefixes) {
+        final long keyPrefix = getKeyPrefix(key, (int) prefixes[size]);
+        int high = size - 1;
+        while (low <= high) {
+            final int mid = (low + high + 1) >>> 1;
+            ILeafNode midKey = null;
+            int cmp = compareKeyPrefixes(prefixes[mid], keyPrefix);
+            if (cmp == 0) {
+                midKey = getTree().loadLeaf(getKeyAddress(mid), treeNodesCache);
+                cmp = midKey.compareKeyTo(key);
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return new SearchRes(mid, midKey);
+            }
+        }
+        return new SearchRes(-(low + 1));
+    }
+
     protected void setTreeNodesCache(@Nullable final LongObjectCacheBase treeNodesCache) {
         if (this.treeNodesCache == null) {
             this.treeNodesCache = treeNodesCache;
         }
     }
 
+    @Override
+    public int getWeight() {
+        // the page object itself, its data and the array of key prefixes
+        final long[] keyPrefixes = this.keyPrefixes;
+        return 64 + size * keyAddressLen + (keyPrefixes == null ? 0 : 16 + (keyPrefixes.length << 3));
+    }
+
     protected static void doReclaim(BTreeReclaimTraverser context) {
         final BasePageMutable node = context.currentNode.getMutableCopy(context.mainTree);
         context.wasReclaim = true;
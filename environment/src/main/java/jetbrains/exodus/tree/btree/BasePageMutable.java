@@ -19,6 +19,7 @@ import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.ByteIterator;
 import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.bindings.CompressedUnsignedLongArrayByteIterable;
+import jetbrains.exodus.bindings.LongBinding;
 import jetbrains.exodus.log.Log;
 import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.log.LoggableToWrite;
@@ -26,6 +27,7 @@ import jetbrains.exodus.log.TooBigLoggableException;
 import jetbrains.exodus.log.iterate.CompoundByteIterable;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
 import jetbrains.exodus.tree.MutableTreeRoot;
+import jetbrains.exodus.util.LightOutputStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -33,6 +35,11 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
 
     protected BaseLeafNodeMutable[] keys;
     protected long[] keysAddresses;
+    /**
+     * Prefixes of keys to save along with their addresses, is null if the tree is saved without key prefixes.
+     */
+    @Nullable
+    protected long[] keysPrefixes;
 
     protected BasePageMutable(BTreeMutable tree) {
         super(tree);
@@ -44,6 +51,9 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
         createChildren(Math.max(page.size, getBalancePolicy().getPageMaxSize()));
         if (size > 0) {
             load(page.getDataIterator(0), page.keyAddressLen);
+            if (keysPrefixes != null) {
+                page.copyKeyPrefixes(keysPrefixes, getBalancePolicy().getKeyPrefixLength());
+            }
         }
     }
 
@@ -67,6 +77,7 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
     protected void createChildren(int max) {
         keys = new BaseLeafNodeMutable[max];
         keysAddresses = new long[max];
+        keysPrefixes = getBalancePolicy().getKeyPrefixLength() > 0 ? new long[max] : null;
     }
 
     /**
@@ -78,6 +89,15 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
      */
     protected abstract boolean delete(@NotNull ByteIterable key, @Nullable ByteIterable value);
 
+    /**
+     * Deletes key/value pairs with keys in specified range, the page can become empty.
+     *
+     * @param from start of the range of keys, inclusive, null if the range is not bounded from the left.
+     * @param to   end of the range of keys, inclusive, null if the range is not bounded from the right.
+     * @return number of deleted key/value pairs.
+     */
+    protected abstract long deleteRange(@Nullable ByteIterable from, @Nullable ByteIterable to);
+
     /**
      * Insert or update value in tree.
      * If tree supports duplicates and key exists, inserts after existing key
@@ -103,8 +123,72 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
     @NotNull
     protected abstract ReclaimFlag saveChildren();
 
+    /**
+     * Does the part of {@link #save()} which doesn't write to the log: prepares unsaved children and loads data
+     * of saved ones which is needed to save the page.
+     */
+    protected abstract void prepareSave();
+
+    /**
+     * Gets prefix of the key with specified index if it is not known yet.
+     */
+    protected final void prepareKeyPrefix(final int index) {
+        if (keysPrefixes != null && keysPrefixes[index] == NO_KEY_PREFIX) {
+            final int prefixLength = getBalancePolicy().getKeyPrefixLength();
+            keysPrefixes[index] = getKeyPrefix(getKey(index).getKey(), prefixLength);
+        }
+    }
+
     protected abstract ByteIterable[] getByteIterables(ReclaimFlag flag);
 
+    /**
+     * Serialize addresses of keys. Length of addresses is marked with flags describing the rest of page data.
+     */
+    protected ByteIterable getKeysAddressesIterable() {
+        final int flags = getFlags();
+        if (flags == 0 || size == 0) {
+            return CompressedUnsignedLongArrayByteIterable.getIterable(keysAddresses, size);
+        }
+        int bytesPerAddress = 0;
+        for (int i = 0; i < size; ++i) {
+            bytesPerAddress = Math.max(bytesPerAddress, CompressedUnsignedLongArrayByteIterable.logarithm(keysAddresses[i]));
+        }
+        final LightOutputStream output = new LightOutputStream(1 + size * bytesPerAddress);
+        output.write(bytesPerAddress | flags);
+        for (int i = 0; i < size; ++i) {
+            LongBinding.writeUnsignedLong(keysAddresses[i], bytesPerAddress, output);
+        }
+        return output.asArrayByteIterable();
+    }
+
+    /**
+     * @return flags which mark length of key addresses in saved page data.
+     */
+    protected int getFlags() {
+        return keysPrefixes == null ? 0 : KEY_PREFIXES_FLAG;
+    }
+
+    /**
+     * Serialize prefixes of keys, they are placed after the rest of page data. Prefixes which are not known
+     * (keys of a page saved before the prefixes were turned on) are got from leaf nodes.
+     */
+    protected ByteIterable getKeysPrefixesIterable() {
+        if (keysPrefixes == null || size == 0) {
+            return ByteIterable.EMPTY;
+        }
+        final int prefixLength = getBalancePolicy().getKeyPrefixLength();
+        final LightOutputStream output = new LightOutputStream(1 + size * prefixLength);
+        output.write(prefixLength);
+        for (int i = 0; i < size; ++i) {
+            long prefix = keysPrefixes[i];
+            if (prefix == NO_KEY_PREFIX) {
+                keysPrefixes[i] = prefix = getKeyPrefix(getKey(i).getKey(), prefixLength);
+            }
+            LongBinding.writeUnsignedLong(prefix, prefixLength, output);
+        }
+        return output.asArrayByteIterable();
+    }
+
     /**
      * Save page to log
      *
@@ -197,6 +281,9 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
             keys[pos] = null; // forget previous mutable leaf
         }
         keysAddresses[pos] = key.getAddress();
+        if (keysPrefixes != null) {
+            keysPrefixes[pos] = getKeyPrefix(key.getKey(), getBalancePolicy().getKeyPrefixLength());
+        }
     }
 
     protected void insertDirectly(final int pos, @NotNull ILeafNode key, @Nullable BasePageMutable child) {
@@ -211,6 +298,9 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
         if (from >= size) return;
         System.arraycopy(keys, from, keys, to, size - from);
         System.arraycopy(keysAddresses, from, keysAddresses, to, size - from);
+        if (keysPrefixes != null) {
+            System.arraycopy(keysPrefixes, from, keysPrefixes, to, size - from);
+        }
     }
 
     @Override
@@ -243,6 +333,17 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
 
     protected abstract void mergeWithLeft(BasePageMutable page);
 
+    /**
+     * Copies keys from specified page starting from specified index to this page starting from specified index.
+     */
+    protected void copyKeys(@NotNull final BasePageMutable page, final int from, final int to, final int length) {
+        System.arraycopy(page.keys, from, keys, to, length);
+        System.arraycopy(page.keysAddresses, from, keysAddresses, to, length);
+        if (keysPrefixes != null && page.keysPrefixes != null) {
+            System.arraycopy(page.keysPrefixes, from, keysPrefixes, to, length);
+        }
+    }
+
     /**
      * Classical binary search without cast to Comparable
      *
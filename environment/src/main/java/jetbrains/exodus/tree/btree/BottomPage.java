@@ -57,6 +57,11 @@ final class BottomPage extends BasePageImmutable {
         return get(key, this);
     }
 
+    @Override
+    public void getAll(@NotNull ByteIterable[] keys, int from, int to, @NotNull ByteIterable[] values) {
+        getAll(keys, from, to, values, this);
+    }
+
     @Override
     public ILeafNode find(@NotNull BTreeTraverser stack, int depth, @NotNull ByteIterable key, @Nullable ByteIterable value, boolean equalOrNext) {
         return find(stack, depth, key, value, equalOrNext, this);
@@ -143,6 +148,22 @@ final class BottomPage extends BasePageImmutable {
         return null;
     }
 
+    static void getAll(@NotNull ByteIterable[] keys, int from, int to, @NotNull ByteIterable[] values, @NotNull BasePage page) {
+        // search of each next key starts from the position of the previous one
+        int low = 0;
+        for (int i = from; i < to; ++i) {
+            final SearchRes res = page.binarySearch(keys[i], low);
+            final int index = res.index;
+            if (index >= 0) {
+                //noinspection ConstantConditions
+                values[i] = res.key.getValue();
+                low = index;
+            } else {
+                low = -index - 1;
+            }
+        }
+    }
+
     @NotNull
     private static ILeafNode findFirst(@NotNull BTreeTraverser stack, int depth, BasePage page) {
         final ILeafNode result;
@@ -16,7 +16,6 @@
 package jetbrains.exodus.tree.btree;
 
 import jetbrains.exodus.ByteIterable;
-import jetbrains.exodus.bindings.CompressedUnsignedLongArrayByteIterable;
 import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
 import jetbrains.exodus.tree.LongIterator;
@@ -33,15 +32,16 @@ class BottomPageMutable extends BasePageMutable {
         super(tree, page);
     }
 
+    BottomPageMutable(BTreeMutable tree) {
+        super(tree);
+        createChildren(getBalancePolicy().getPageMaxSize());
+    }
+
     private BottomPageMutable(BottomPageMutable page, int from, int length) {
         super((BTreeMutable) page.getTree());
 
-        final int max = Math.max(length, getBalancePolicy().getPageMaxSize());
-        keys = new BaseLeafNodeMutable[max];
-        keysAddresses = new long[max];
-
-        System.arraycopy(page.keys, from, keys, 0, length);
-        System.arraycopy(page.keysAddresses, from, keysAddresses, 0, length);
+        createChildren(Math.max(length, getBalancePolicy().getPageMaxSize()));
+        copyKeys(page, from, 0, length);
 
         size = length;
     }
@@ -147,6 +147,11 @@ class BottomPageMutable extends BasePageMutable {
         return BottomPage.get(key, this);
     }
 
+    @Override
+    public void getAll(@NotNull ByteIterable[] keys, int from, int to, @NotNull ByteIterable[] values) {
+        BottomPage.getAll(keys, from, to, values, this);
+    }
+
     @Override
     public ILeafNode find(@NotNull BTreeTraverser stack, int depth, @NotNull ByteIterable key, @Nullable ByteIterable value, boolean equalOrNext) {
         return BottomPage.find(stack, depth, key, value, equalOrNext, this);
@@ -176,11 +181,24 @@ class BottomPageMutable extends BasePageMutable {
         return result;
     }
 
+    @Override
+    protected void prepareSave() {
+        final BTreeBase tree = getTree();
+        for (int i = 0; i < size; i++) {
+            if (keysAddresses[i] == Loggable.NULL_ADDRESS) {
+                keys[i].prepareSave(tree);
+            } else {
+                prepareKeyPrefix(i);
+            }
+        }
+    }
+
     @Override
     protected ByteIterable[] getByteIterables(@NotNull final ReclaimFlag flag) {
         return new ByteIterable[]{
                 CompressedUnsignedLongByteIterable.getIterable((size << 1) + flag.value), // store flag bit
-                CompressedUnsignedLongArrayByteIterable.getIterable(keysAddresses, size)
+                getKeysAddressesIterable(),
+                getKeysPrefixesIterable()
         };
     }
 
@@ -260,6 +278,23 @@ class BottomPageMutable extends BasePageMutable {
         return true;
     }
 
+    @Override
+    protected long deleteRange(@Nullable ByteIterable from, @Nullable ByteIterable to) {
+        final int first = getRangeStart(from);
+        final int last = getRangeEnd(to, first);
+        if (last <= first) {
+            return 0;
+        }
+        final BTreeMutable tree = (BTreeMutable) getTree();
+        long result = 0;
+        for (int i = first; i < last; ++i) {
+            result += tree.expireLeaf(this, i);
+        }
+        copyChildren(last, first);
+        decrementSize(last - first);
+        return result;
+    }
+
     @Override
     protected BasePageMutable mergeWithChildren() {
         return this;
@@ -267,8 +302,7 @@ class BottomPageMutable extends BasePageMutable {
 
     @Override
     protected void mergeWithRight(BasePageMutable page) {
-        System.arraycopy(page.keys, 0, keys, size, page.size);
-        System.arraycopy(page.keysAddresses, 0, keysAddresses, size, page.size);
+        copyKeys(page, 0, size, page.size);
         size += page.size;
     }
 
@@ -277,6 +311,7 @@ class BottomPageMutable extends BasePageMutable {
         page.mergeWithRight(this);
         keys = page.keys;
         keysAddresses = page.keysAddresses;
+        keysPrefixes = page.keysPrefixes;
         size = page.size;
     }
 
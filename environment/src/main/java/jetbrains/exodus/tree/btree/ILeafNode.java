@@ -17,6 +17,7 @@ package jetbrains.exodus.tree.btree;
 
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.log.Loggable;
+import jetbrains.exodus.log.iterate.FlyweightByteIterable;
 import jetbrains.exodus.tree.INode;
 import jetbrains.exodus.tree.LongIterator;
 import org.jetbrains.annotations.NotNull;
@@ -87,6 +88,18 @@ interface ILeafNode extends INode {
 
     boolean isDupLeaf();
 
+    /**
+     * Returns key of the node, probably as specified flyweight pointed to the key.
+     */
+    @NotNull
+    ByteIterable getKey(@NotNull FlyweightByteIterable flyweight);
+
+    /**
+     * Returns value of the node, probably as specified flyweight pointed to the value.
+     */
+    @NotNull
+    ByteIterable getValue(@NotNull FlyweightByteIterable flyweight);
+
     ILeafNode EMPTY = new ILeafNode() {
         @Override
         public boolean hasValue() {
@@ -104,6 +117,18 @@ interface ILeafNode extends INode {
             return ByteIterable.EMPTY;
         }
 
+        @NotNull
+        @Override
+        public ByteIterable getKey(@NotNull FlyweightByteIterable flyweight) {
+            return ByteIterable.EMPTY;
+        }
+
+        @NotNull
+        @Override
+        public ByteIterable getValue(@NotNull FlyweightByteIterable flyweight) {
+            return ByteIterable.EMPTY;
+        }
+
         @Override
         public long getAddress() {
             return Loggable.NULL_ADDRESS;
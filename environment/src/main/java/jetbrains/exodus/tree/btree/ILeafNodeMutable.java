@@ -20,6 +20,12 @@ import jetbrains.exodus.tree.ITree;
 
 interface ILeafNodeMutable extends ILeafNode {
 
+    /**
+     * Does the part of {@link #save(ITree)} which doesn't depend on the log, so it can be done before the tree
+     * is saved.
+     */
+    void prepareSave(ITree tree);
+
     long save(ITree tree);
 
     boolean delete(ByteIterable value);
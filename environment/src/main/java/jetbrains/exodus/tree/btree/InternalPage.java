@@ -17,6 +17,7 @@ package jetbrains.exodus.tree.btree;
 
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.ByteIterator;
+import jetbrains.exodus.bindings.CompressedUnsignedLongArrayByteIterable;
 import jetbrains.exodus.bindings.LongBinding;
 import jetbrains.exodus.log.ByteIterableWithAddress;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
@@ -24,10 +25,12 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.PrintStream;
+import java.util.Arrays;
 
 final class InternalPage extends BasePageImmutable {
 
     private int childAddressLen;
+    private int subtreeSizeLen;
 
     protected InternalPage(@NotNull final BTreeBase tree, @NotNull final ByteIterableWithAddress data) {
         super(tree, data);
@@ -43,6 +46,15 @@ final class InternalPage extends BasePageImmutable {
         final ByteIterator it = getDataIterator(0);
         it.skip(size * keyAddressLen);
         checkAddressLength(childAddressLen = it.next());
+        if (hasSubtreeSizes) {
+            it.skip(size * childAddressLen);
+            checkAddressLength(subtreeSizeLen = it.next());
+        }
+    }
+
+    @Override
+    protected int getKeyPrefixesOffset() {
+        return getSubtreeSizesOffset() + (hasSubtreeSizes ? size * subtreeSizeLen + 1 : 0);
     }
 
     @Override
@@ -57,6 +69,35 @@ final class InternalPage extends BasePageImmutable {
         return LongBinding.entryToUnsignedLong(getDataIterator(offset), childAddressLen);
     }
 
+    @Override
+    protected long getChildSubtreeSize(final int index) {
+        if (hasSubtreeSizes) {
+            return LongBinding.entryToUnsignedLong(
+                    getDataIterator(getSubtreeSizesOffset() + 1 + index * subtreeSizeLen), subtreeSizeLen);
+        }
+        return super.getChildSubtreeSize(index);
+    }
+
+    /**
+     * Copies sizes of sub-trees of children to the array of a mutable copy of the page. If the page has no sizes
+     * of sub-trees, then they are set to -1 which means that the sizes are not known.
+     */
+    void copySubtreeSizes(@NotNull final long[] output) {
+        if (hasSubtreeSizes) {
+            CompressedUnsignedLongArrayByteIterable.loadLongs(
+                    output, getDataIterator(getSubtreeSizesOffset()), size);
+        } else {
+            Arrays.fill(output, 0, size, -1L);
+        }
+    }
+
+    /**
+     * @return offset of the byte of length of sizes of sub-trees from the beginning of page data.
+     */
+    private int getSubtreeSizesOffset() {
+        return size * (keyAddressLen + childAddressLen) + 1;
+    }
+
     @Override
     @NotNull
     public BasePage getChild(final int index) {
@@ -73,6 +114,11 @@ final class InternalPage extends BasePageImmutable {
         return get(key, this);
     }
 
+    @Override
+    public void getAll(@NotNull ByteIterable[] keys, int from, int to, @NotNull ByteIterable[] values) {
+        getAll(keys, from, to, values, this);
+    }
+
     @Override
     public ILeafNode find(@NotNull BTreeTraverser stack, int depth, @NotNull ByteIterable key, @Nullable ByteIterable value, boolean equalOrNext) {
         return find(stack, depth, key, value, equalOrNext, this);
@@ -100,6 +146,36 @@ final class InternalPage extends BasePageImmutable {
         return index < 0 ? page.getChild(Math.max(-index - 2, 0)).get(key) : res.key;
     }
 
+    static void getAll(@NotNull ByteIterable[] keys, int from, int to, @NotNull ByteIterable[] values, @NotNull BasePage page) {
+        final int size = page.getSize();
+        int low = 0;
+        int i = from;
+        while (i < to) {
+            final SearchRes res = page.binarySearch(keys[i], low);
+            int index = res.index;
+            if (index >= 0) {
+                //noinspection ConstantConditions
+                values[i++] = res.key.getValue();
+                low = index;
+                continue;
+            }
+            index = Math.max(-index - 2, 0);
+            // all keys less than the minimum key of the next child are got from the same child
+            int next = i + 1;
+            if (index < size - 1) {
+                final ILeafNode bound = page.getKey(index + 1);
+                while (next < to && bound.compareKeyTo(keys[next]) > 0) {
+                    ++next;
+                }
+            } else {
+                next = to;
+            }
+            page.getChild(index).getAll(keys, i, next, values);
+            low = index;
+            i = next;
+        }
+    }
+
     @SuppressWarnings({"VariableNotUsedInsideIf"})
     @Nullable
     static ILeafNode find(@NotNull BTreeTraverser stack, int depth, @NotNull ByteIterable key, @Nullable ByteIterable value, boolean equalOrNext, @NotNull BasePage page) {
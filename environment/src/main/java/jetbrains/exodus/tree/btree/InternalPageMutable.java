@@ -30,9 +30,19 @@ import java.io.PrintStream;
 public class InternalPageMutable extends BasePageMutable {
     protected BasePageMutable[] children;
     protected long[] childrenAddresses;
+    /**
+     * Numbers of key/value pairs in sub-trees of saved children, -1 if not known yet.
+     */
+    protected long[] childrenSizes;
 
     InternalPageMutable(BTreeMutable tree, InternalPage page) {
         super(tree, page);
+        page.copySubtreeSizes(childrenSizes);
+    }
+
+    InternalPageMutable(BTreeMutable tree) {
+        super(tree);
+        createChildren(getBalancePolicy().getPageMaxSize());
     }
 
     private InternalPageMutable(InternalPageMutable page, int from, int length) {
@@ -40,10 +50,10 @@ public class InternalPageMutable extends BasePageMutable {
 
         createChildren(Math.max(length, getBalancePolicy().getPageMaxSize()));
 
-        System.arraycopy(page.keys, from, keys, 0, length);
-        System.arraycopy(page.keysAddresses, from, keysAddresses, 0, length);
+        copyKeys(page, from, 0, length);
         System.arraycopy(page.children, from, children, 0, length);
         System.arraycopy(page.childrenAddresses, from, childrenAddresses, 0, length);
+        System.arraycopy(page.childrenSizes, from, childrenSizes, 0, length);
 
         size = length;
     }
@@ -68,11 +78,25 @@ public class InternalPageMutable extends BasePageMutable {
         return false;
     }
 
+    /**
+     * Appends already saved child page by the address, the prefix of its minimum key and the size of its sub-tree.
+     */
+    void addSavedChild(final long keyAddress, final long keyPrefix, final long childAddress, final long childSize) {
+        keysAddresses[size] = keyAddress;
+        if (keysPrefixes != null) {
+            keysPrefixes[size] = keyPrefix;
+        }
+        childrenAddresses[size] = childAddress;
+        childrenSizes[size] = childSize;
+        ++size;
+    }
+
     @Override
     protected void createChildren(int max) {
         super.createChildren(max);
         children = new BasePageMutable[max];
         childrenAddresses = new long[max];
+        childrenSizes = new long[max];
     }
 
     @Override
@@ -90,6 +114,19 @@ public class InternalPageMutable extends BasePageMutable {
         return children[index];
     }
 
+    @Override
+    protected long getChildSubtreeSize(final int index) {
+        if (childrenAddresses[index] == Loggable.NULL_ADDRESS) {
+            // sub-tree of mutable child can be changed
+            return children[index].getSubtreeSize();
+        }
+        long result = childrenSizes[index];
+        if (result < 0) {
+            childrenSizes[index] = result = getChild(index).getSubtreeSize();
+        }
+        return result;
+    }
+
     @Override
     public boolean childExists(@NotNull ByteIterable key, long pageAddress) {
         final int index = InternalPage.binarySearchGuessUnsafe(this, key);
@@ -125,6 +162,9 @@ public class InternalPageMutable extends BasePageMutable {
         if (key != null) { // first key is mutable ==> changed, no merges or reclaims allowed
             keys[index] = key;
             keysAddresses[index] = key.getAddress();
+            if (keysPrefixes != null) {
+                keysPrefixes[index] = child.keysPrefixes[0];
+            }
         }
         children[index] = child;
         ((BTreeMutable) getTree()).addExpiredLoggable(childrenAddresses[index]);
@@ -194,6 +234,7 @@ public class InternalPageMutable extends BasePageMutable {
         super.copyChildren(from, to);
         System.arraycopy(children, from, children, to, size - from);
         System.arraycopy(childrenAddresses, from, childrenAddresses, to, size - from);
+        System.arraycopy(childrenSizes, from, childrenSizes, to, size - from);
     }
 
     @Override
@@ -218,6 +259,11 @@ public class InternalPageMutable extends BasePageMutable {
         return InternalPage.get(key, this);
     }
 
+    @Override
+    public void getAll(@NotNull ByteIterable[] keys, int from, int to, @NotNull ByteIterable[] values) {
+        InternalPage.getAll(keys, from, to, values, this);
+    }
+
     @Override
     public ILeafNode find(@NotNull BTreeTraverser stack, int depth, @NotNull ByteIterable key, @Nullable ByteIterable value, boolean equalOrNext) {
         return InternalPage.find(stack, depth, key, value, equalOrNext, this);
@@ -247,9 +293,11 @@ public class InternalPageMutable extends BasePageMutable {
     protected ReclaimFlag saveChildren() {
         // save children to get their addresses
         ReclaimFlag result = ReclaimFlag.RECLAIM;
+        final boolean subtreeSizes = getBalancePolicy().hasSubtreeSizes();
         for (int i = 0; i < size; i++) {
             if (childrenAddresses[i] == Loggable.NULL_ADDRESS) {
                 childrenAddresses[i] = children[i].save();
+                childrenSizes[i] = subtreeSizes ? children[i].getSubtreeSize() : -1L;
                 keysAddresses[i] = children[i].keysAddresses[0];
                 result = ReclaimFlag.PRESERVE;
             }
@@ -257,15 +305,52 @@ public class InternalPageMutable extends BasePageMutable {
         return result;
     }
 
+    @Override
+    protected void prepareSave() {
+        final boolean subtreeSizes = getBalancePolicy().hasSubtreeSizes();
+        for (int i = 0; i < size; i++) {
+            if (childrenAddresses[i] == Loggable.NULL_ADDRESS) {
+                // key address of mutable child is known only after the child is saved
+                children[i].prepareSave();
+            } else {
+                prepareKeyPrefix(i);
+                if (subtreeSizes) {
+                    // loads sizes of sub-trees of children saved without them
+                    getChildSubtreeSize(i);
+                }
+            }
+        }
+    }
+
     @Override
     protected ByteIterable[] getByteIterables(@NotNull final ReclaimFlag flag) {
         return new ByteIterable[]{
                 CompressedUnsignedLongByteIterable.getIterable((size << 1) + flag.value),
-                CompressedUnsignedLongArrayByteIterable.getIterable(keysAddresses, size),
+                getKeysAddressesIterable(),
                 CompressedUnsignedLongArrayByteIterable.getIterable(childrenAddresses, size),
+                getSubtreeSizesIterable(),
+                getKeysPrefixesIterable()
         };
     }
 
+    @Override
+    protected int getFlags() {
+        return getBalancePolicy().hasSubtreeSizes() ? super.getFlags() | SUBTREE_SIZES_FLAG : super.getFlags();
+    }
+
+    /**
+     * Serialize sizes of sub-trees of children, sizes which are not known yet are counted.
+     */
+    private ByteIterable getSubtreeSizesIterable() {
+        if (!getBalancePolicy().hasSubtreeSizes()) {
+            return ByteIterable.EMPTY;
+        }
+        for (int i = 0; i < size; ++i) {
+            getChildSubtreeSize(i);
+        }
+        return CompressedUnsignedLongArrayByteIterable.getIterable(childrenSizes, size);
+    }
+
     @Override
     public String toString() {
         return "Internal* [" + size + ']';
@@ -279,10 +364,10 @@ public class InternalPageMutable extends BasePageMutable {
     @Override
     protected void mergeWithRight(BasePageMutable _page) {
         InternalPageMutable page = (InternalPageMutable) _page;
-        System.arraycopy(page.keys, 0, keys, size, page.size);
-        System.arraycopy(page.keysAddresses, 0, keysAddresses, size, page.size);
+        copyKeys(page, 0, size, page.size);
         System.arraycopy(page.children, 0, children, size, page.size);
         System.arraycopy(page.childrenAddresses, 0, childrenAddresses, size, page.size);
+        System.arraycopy(page.childrenSizes, 0, childrenSizes, size, page.size);
         size += page.size;
     }
 
@@ -292,8 +377,10 @@ public class InternalPageMutable extends BasePageMutable {
         page.mergeWithRight(this);
         keys = page.keys;
         keysAddresses = page.keysAddresses;
+        keysPrefixes = page.keysPrefixes;
         children = page.children;
         childrenAddresses = page.childrenAddresses;
+        childrenSizes = page.childrenSizes;
         size = page.size;
     }
 
@@ -339,6 +426,55 @@ public class InternalPageMutable extends BasePageMutable {
         return true;
     }
 
+    @Override
+    protected long deleteRange(@Nullable ByteIterable from, @Nullable ByteIterable to) {
+        final int first = from == null ? 0 : InternalPage.binarySearchGuess(this, from);
+        final int last = to == null ? size - 1 : InternalPage.binarySearchGuessUnsafe(this, to);
+        if (last < first) {
+            return 0;
+        }
+        final BTreeMutable tree = (BTreeMutable) getTree();
+        long result = 0;
+        // children between the first and the last ones are dropped entirely without making mutable copies
+        if (last - first > 1) {
+            for (int i = first + 1; i < last; ++i) {
+                tree.addExpiredLoggable(childrenAddresses[i]);
+                result += tree.expireSubtree(getChild(i));
+            }
+            copyChildren(last, first + 1);
+            decrementSize(last - first - 1);
+        }
+        final BasePageMutable child = getMutableChild(first);
+        if (last == first) {
+            result += child.deleteRange(from, to);
+        } else {
+            result += child.deleteRange(from, null);
+            final BasePageMutable right = getMutableChild(first + 1);
+            result += right.deleteRange(null, to);
+            if (right.getSize() == 0) {
+                removeChild(first + 1);
+            } else {
+                set(first + 1, right.getMinKey(), right);
+            }
+        }
+        if (child.getSize() == 0) {
+            removeChild(first);
+            return result;
+        }
+        // if first element was removed in child, then update min key
+        set(first, child.getMinKey(), child);
+        final BTreeBalancePolicy balancePolicy = getBalancePolicy();
+        if (first + 1 < size && balancePolicy.needMerge(child, getChild(first + 1))) {
+            child.mergeWithRight(getMutableChild(first + 1));
+            removeChild(first + 1);
+        }
+        if (first > 0 && balancePolicy.needMerge(getChild(first - 1), child)) {
+            getMutableChild(first - 1).mergeWithRight(child);
+            removeChild(first);
+        }
+        return result;
+    }
+
     @Override
     protected BasePageMutable mergeWithChildren() {
         BasePageMutable result = this;
@@ -20,13 +20,15 @@ import jetbrains.exodus.log.ByteIterableWithAddress;
 import jetbrains.exodus.log.ByteIteratorWithAddress;
 import jetbrains.exodus.log.RandomAccessLoggable;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
+import jetbrains.exodus.log.iterate.FlyweightByteIterable;
 import jetbrains.exodus.log.iterate.FixedLengthByteIterable;
+import jetbrains.exodus.tree.Weighable;
 import org.jetbrains.annotations.NotNull;
 
 /**
  * Stateless leaf node for immutable btree
  */
-class LeafNode extends BaseLeafNode {
+class LeafNode extends BaseLeafNode implements Weighable {
 
     @NotNull
     private final RandomAccessLoggable loggable;
@@ -53,6 +55,12 @@ class LeafNode extends BaseLeafNode {
         return loggable.getType();
     }
 
+    @Override
+    public int getWeight() {
+        // the node object, the loggable and its data
+        return 96 + loggable.getDataLength();
+    }
+
     @Override
     public int compareKeyTo(@NotNull final ByteIterable iterable) {
         return loggable.getData().compareTo(keyRecordSize, keyLength, iterable);
@@ -75,6 +83,18 @@ class LeafNode extends BaseLeafNode {
         return new FixedLengthByteIterable(getRawValue(), valueLength);
     }
 
+    @Override
+    @NotNull
+    public ByteIterable getKey(@NotNull final FlyweightByteIterable flyweight) {
+        return flyweight.reset(loggable.getData(), keyRecordSize, keyLength);
+    }
+
+    @Override
+    @NotNull
+    public ByteIterable getValue(@NotNull final FlyweightByteIterable flyweight) {
+        return flyweight.reset(loggable.getData(), keyRecordSize + keyLength, valueLength);
+    }
+
     @Override
     public boolean isMutable() {
         return false;
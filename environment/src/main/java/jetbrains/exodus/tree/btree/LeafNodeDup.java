@@ -18,6 +18,7 @@ package jetbrains.exodus.tree.btree;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.log.*;
+import jetbrains.exodus.log.iterate.FlyweightByteIterable;
 import jetbrains.exodus.tree.IExpirationChecker;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -45,6 +46,12 @@ class LeafNodeDup extends LeafNode {
         return tree.getRoot().getMinKey().getKey();
     }
 
+    @NotNull
+    @Override
+    public ByteIterable getValue(@NotNull final FlyweightByteIterable flyweight) {
+        return tree.getRoot().getMinKey().getKey(flyweight);
+    }
+
     @Override
     public int compareValueTo(@NotNull ByteIterable iterable) {
         throw new UnsupportedOperationException();
@@ -114,6 +114,11 @@ class LeafNodeDupMutable extends BaseLeafNodeMutable {
         return this;
     }
 
+    @Override
+    public void prepareSave(final ITree mainTree) {
+        tree.prepareSave();
+    }
+
     @Override
     public long save(final ITree mainTree) {
         if (tree.mainTree != mainTree) {
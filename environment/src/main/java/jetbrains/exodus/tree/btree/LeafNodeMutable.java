@@ -15,6 +15,7 @@
  */
 package jetbrains.exodus.tree.btree;
 
+import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.ByteIterableBase;
 import jetbrains.exodus.log.Loggable;
@@ -23,6 +24,7 @@ import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
 import jetbrains.exodus.tree.ITree;
 import jetbrains.exodus.util.LightOutputStream;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Stateful leaf node for mutable tree
@@ -32,6 +34,11 @@ class LeafNodeMutable extends BaseLeafNodeMutable {
     private long address = Loggable.NULL_ADDRESS;
     private final ByteIterable key;
     private final ByteIterable value;
+    /**
+     * Data of the leaf encoded by {@link #prepareSave(ITree)}, is null if the leaf is not prepared for saving.
+     */
+    @Nullable
+    private ArrayByteIterable data;
 
     LeafNodeMutable(@NotNull ByteIterable key, @NotNull ByteIterable value) {
         this.key = key;
@@ -55,18 +62,22 @@ class LeafNodeMutable extends BaseLeafNodeMutable {
         return address;
     }
 
+    @Override
+    public void prepareSave(ITree tree) {
+        if (data == null) {
+            data = encode();
+        }
+    }
+
     @Override
     public long save(ITree tree) {
         if (address != Loggable.NULL_ADDRESS) {
             throw new IllegalStateException("Leaf already saved");
         }
-        final int keyLength = key.getLength();
-        final LightOutputStream output = new LightOutputStream(keyLength + value.getLength() + 3);
-        CompressedUnsignedLongByteIterable.fillBytes(keyLength, output);
-        ByteIterableBase.fillBytes(key, output);
-        ByteIterableBase.fillBytes(value, output);
+        final ArrayByteIterable data = this.data == null ? encode() : this.data;
         address = tree.getLog().write(new LoggableToWrite(
-                ((BTreeMutable) tree).getLeafType(), output.asArrayByteIterable(), tree.getStructureId()));
+                ((BTreeMutable) tree).getLeafType(), data, tree.getStructureId()));
+        this.data = null;
         return address;
     }
 
@@ -75,6 +86,15 @@ class LeafNodeMutable extends BaseLeafNodeMutable {
         throw new UnsupportedOperationException("Supported by dup node only");
     }
 
+    private ArrayByteIterable encode() {
+        final int keyLength = key.getLength();
+        final LightOutputStream output = new LightOutputStream(keyLength + value.getLength() + 3);
+        CompressedUnsignedLongByteIterable.fillBytes(keyLength, output);
+        ByteIterableBase.fillBytes(key, output);
+        ByteIterableBase.fillBytes(value, output);
+        return output.asArrayByteIterable();
+    }
+
     @Override
     public String toString() {
         return "LN* {key:" + key.toString() + "} @ " + address;
@@ -24,12 +24,18 @@ import jetbrains.exodus.log.ByteIterableWithAddress;
 import jetbrains.exodus.log.ByteIteratorWithAddress;
 import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
+import jetbrains.exodus.tree.Weighable;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-final class ImmutableNode extends NodeBase {
+final class ImmutableNode extends NodeBase implements Weighable {
 
     private static final int CHILDREN_COUNT_TO_TRIGGER_BINARY_SEARCH = 8;
+    /**
+     * Children are decoded from the log after this number of lookups, so only nodes which are looked up
+     * repeatedly (e.g., roots of trees or cached nodes) pay for decoding.
+     */
+    private static final int LOOKUPS_TO_DECODE_CHILDREN = 2;
 
     private final long address;
     private final byte type;
@@ -38,6 +44,9 @@ final class ImmutableNode extends NodeBase {
     private final int dataOffset;
     private final short childrenCount;
     private final byte childAddressLength;
+    @Nullable
+    private DecodedChildren decodedChildren;
+    private int lookups;
 
     ImmutableNode(final long address, final byte type, @NotNull final ByteIterableWithAddress data) {
         this(address, type, data, data.iterator());
@@ -82,6 +91,13 @@ final class ImmutableNode extends NodeBase {
         return false;
     }
 
+    @Override
+    public int getWeight() {
+        // the node object, its key and value, its children addresses and decoded children
+        return 96 + dataOffset + childrenCount * (childAddressLength + 1) +
+                (childrenCount == 0 ? 0 : 64 + (childrenCount << 3));
+    }
+
     @Override
     MutableNode getMutableCopy(@NotNull final PatriciaTreeMutable mutableTree) {
         return mutableTree.mutateNode(this);
@@ -91,6 +107,11 @@ final class ImmutableNode extends NodeBase {
     @Nullable
     NodeBase getChild(@NotNull final PatriciaTreeBase tree, final byte b) {
         final int key = b & 0xff;
+        final DecodedChildren decodedChildren = getDecodedChildren();
+        if (decodedChildren != null) {
+            final int index = decodedChildren.search(key);
+            return index < 0 ? null : loadChild(tree, decodedChildren.addresses[index]);
+        }
         if (childrenCount < CHILDREN_COUNT_TO_TRIGGER_BINARY_SEARCH) {
             // linear search
             final ByteIterator it = getDataIterator(0);
@@ -100,8 +121,7 @@ final class ImmutableNode extends NodeBase {
                     break;
                 }
                 if (cmp == 0) {
-                    final long nodeAddress = LongBinding.entryToUnsignedLong(it, childAddressLength);
-                    return PatriciaTreeBase.nodeIsRoot(type) ? tree.loadNode(nodeAddress) : tree.loadNonCachedNode(nodeAddress);
+                    return loadChild(tree, LongBinding.entryToUnsignedLong(it, childAddressLength));
                 }
                 it.skip(childAddressLength);
             }
@@ -119,8 +139,7 @@ final class ImmutableNode extends NodeBase {
                 } else if (cmp > 0) {
                     high = mid - 1;
                 } else {
-                    final long nodeAddress = LongBinding.entryToUnsignedLong(it, childAddressLength);
-                    return PatriciaTreeBase.nodeIsRoot(type) ? tree.loadNode(nodeAddress) : tree.loadNonCachedNode(nodeAddress);
+                    return loadChild(tree, LongBinding.entryToUnsignedLong(it, childAddressLength));
                 }
             }
         }
@@ -145,6 +164,15 @@ final class ImmutableNode extends NodeBase {
     @NotNull
     NodeChildrenIterator getChildren(final byte b) {
         final int key = b & 0xff;
+        final DecodedChildren decodedChildren = getDecodedChildren();
+        if (decodedChildren != null) {
+            final int index = decodedChildren.search(key);
+            if (index < 0) {
+                return new EmptyNodeChildrenIterator();
+            }
+            return new ImmutableNodeChildrenIterator(getDataIterator((index + 1) * (childAddressLength + 1)),
+                    index + 1, new ChildReference(b, decodedChildren.addresses[index]));
+        }
         if (childrenCount < CHILDREN_COUNT_TO_TRIGGER_BINARY_SEARCH) {
             // linear search
             final ByteIterator it = getDataIterator(0);
@@ -185,6 +213,16 @@ final class ImmutableNode extends NodeBase {
     @NotNull
     NodeChildrenIterator getChildrenRange(final byte b) {
         final int key = b & 0xff;
+        final DecodedChildren decodedChildren = getDecodedChildren();
+        if (decodedChildren != null) {
+            final int nextKey = decodedChildren.next(key);
+            if (nextKey < 0) {
+                return new EmptyNodeChildrenIterator();
+            }
+            final int index = decodedChildren.search(nextKey);
+            return new ImmutableNodeChildrenIterator(getDataIterator((index + 1) * (childAddressLength + 1)),
+                    index + 1, new ChildReference((byte) nextKey, decodedChildren.addresses[index]));
+        }
         if (childrenCount < CHILDREN_COUNT_TO_TRIGGER_BINARY_SEARCH) {
             // linear search
             final ByteIterator it = getDataIterator(0);
@@ -240,6 +278,20 @@ final class ImmutableNode extends NodeBase {
         return address == Loggable.NULL_ADDRESS ? ByteIterable.EMPTY_ITERATOR : data.iterator(dataOffset + offset);
     }
 
+    private NodeBase loadChild(@NotNull final PatriciaTreeBase tree, final long childAddress) {
+        return PatriciaTreeBase.nodeIsRoot(type) ? tree.loadNode(childAddress) : tree.loadNonCachedNode(childAddress);
+    }
+
+    @Nullable
+    private DecodedChildren getDecodedChildren() {
+        DecodedChildren result = decodedChildren;
+        // lookups are counted without synchronization, so concurrent threads can decode children more than once
+        if (result == null && childrenCount > 0 && ++lookups > LOOKUPS_TO_DECODE_CHILDREN) {
+            decodedChildren = result = new DecodedChildren(getDataIterator(0), childrenCount, childAddressLength);
+        }
+        return result;
+    }
+
     @NotNull
     private static ByteIterable extractKey(final byte type, @NotNull final ByteIterator it) {
         if (!PatriciaTreeBase.nodeHasKey(type)) {
@@ -264,6 +316,61 @@ final class ImmutableNode extends NodeBase {
         }
     }
 
+    /**
+     * Children decoded from the log: 256-bit presence bitmap of first bytes of children and the array of children
+     * addresses in ascending order of first bytes. Index of a child is the rank of its first byte in the bitmap.
+     */
+    private static final class DecodedChildren {
+
+        @NotNull
+        private final long[] bitmap;
+        @NotNull
+        private final long[] addresses;
+
+        private DecodedChildren(@NotNull final ByteIterator it, final int childrenCount, final int childAddressLength) {
+            bitmap = new long[4];
+            addresses = new long[childrenCount];
+            for (int i = 0; i < childrenCount; ++i) {
+                final int firstByte = it.next() & 0xff;
+                bitmap[firstByte >>> 6] |= 1L << firstByte;
+                addresses[i] = LongBinding.entryToUnsignedLong(it, childAddressLength);
+            }
+        }
+
+        /**
+         * @return index of the child with specified first byte or -1 if there is no such child.
+         */
+        private int search(final int key) {
+            final int word = key >>> 6;
+            final long bits = bitmap[word];
+            final long bit = 1L << key;
+            if ((bits & bit) == 0) {
+                return -1;
+            }
+            int result = Long.bitCount(bits & (bit - 1));
+            for (int i = 0; i < word; ++i) {
+                result += Long.bitCount(bitmap[i]);
+            }
+            return result;
+        }
+
+        /**
+         * @return the least first byte of a child which is greater than specified one or -1 if there is no such child.
+         */
+        private int next(final int key) {
+            int word = key >>> 6;
+            // for key % 64 == 63, the mask is zero
+            long bits = bitmap[word] & (-2L << key);
+            while (bits == 0) {
+                if (++word == bitmap.length) {
+                    return -1;
+                }
+                bits = bitmap[word];
+            }
+            return (word << 6) + Long.numberOfTrailingZeros(bits);
+        }
+    }
+
     private final class ImmutableNodeChildrenIterator implements NodeChildrenIterator {
 
         private ByteIterator itr;
@@ -38,6 +38,12 @@ class MutableNode extends NodeBase {
 
     @NotNull
     protected final ChildReferenceSet children;
+    /**
+     * Key and value encoded by {@link #prepareSave(PatriciaTreeMutable)}, is null if the node is not prepared
+     * for saving or its key or value is changed after that.
+     */
+    @Nullable
+    private ArrayByteIterable preparedKeyValue;
 
     MutableNode(@NotNull final ImmutableNode origin) {
         super(origin.keySequence, origin.value);
@@ -58,10 +64,12 @@ class MutableNode extends NodeBase {
 
     void setKeySequence(@NotNull final ByteIterable keySequence) {
         this.keySequence = keySequence;
+        preparedKeyValue = null;
     }
 
     void setValue(@Nullable final ByteIterable value) {
         this.value = value;
+        preparedKeyValue = null;
     }
 
     @Override
@@ -205,6 +213,18 @@ class MutableNode extends NodeBase {
         children.setAt(children.size() - 1, new ChildReferenceMutable(b, child));
     }
 
+    /**
+     * Saves the child at specified position if it's mutable and replaces the reference to it with the immutable one.
+     *
+     * @param index position of the child.
+     */
+    void saveChild(final int index, @NotNull final PatriciaTreeMutable tree, @NotNull final MutableNodeSaveContext context) {
+        final ChildReference ref = children.referenceAt(index);
+        if (ref.isMutable()) {
+            children.setAt(index, new ChildReference(ref.firstByte, ((ChildReferenceMutable) ref).child.save(tree, context)));
+        }
+    }
+
     boolean removeChild(final byte b) {
         return children.remove(b);
     }
@@ -249,6 +269,7 @@ class MutableNode extends NodeBase {
         value = child.value;
         keySequence = new CompoundByteIterable(new ByteIterable[]{
                 keySequence, SingleByteIterable.getIterable(ref.firstByte), child.keySequence});
+        preparedKeyValue = null;
         copyChildrenFrom(child);
     }
 
@@ -264,6 +285,23 @@ class MutableNode extends NodeBase {
         return result;
     }
 
+    /**
+     * Does the part of {@link #save(PatriciaTreeMutable, MutableNodeSaveContext)} which doesn't write to the log:
+     * encodes keys and values of the node and its mutable descendants.
+     */
+    void prepareSave(@NotNull final PatriciaTreeMutable tree) {
+        for (final ChildReference ref : children) {
+            if (ref.isMutable()) {
+                ((ChildReferenceMutable) ref).child.prepareSave(tree);
+            }
+        }
+        if (preparedKeyValue == null) {
+            final LightOutputStream output = new LightOutputStream();
+            writeKeyValue(output);
+            preparedKeyValue = output.asArrayByteIterable();
+        }
+    }
+
     @SuppressWarnings({"OverlyLongMethod"})
     long save(@NotNull final PatriciaTreeMutable tree, @NotNull final MutableNodeSaveContext context) {
         final Log log = tree.getLog();
@@ -280,16 +318,11 @@ class MutableNode extends NodeBase {
         }
         final int childrenCount = getChildrenCount();
         final LightOutputStream nodeStream = context.newNodeStream();
-        // save key and value
-        if (hasKey()) {
-            CompressedUnsignedLongByteIterable.fillBytes(keySequence.getLength(), nodeStream);
-            ByteIterableBase.fillBytes(keySequence, nodeStream);
-        }
-        if (hasValue()) {
-            // noinspection ConstantConditions
-            CompressedUnsignedLongByteIterable.fillBytes(value.getLength(), nodeStream);
-            // noinspection ConstantConditions
-            ByteIterableBase.fillBytes(value, nodeStream);
+        // save key and value unless they are prepared, prepared ones are written to the log as is
+        final ArrayByteIterable preparedKeyValue = this.preparedKeyValue;
+        this.preparedKeyValue = null;
+        if (preparedKeyValue == null) {
+            writeKeyValue(nodeStream);
         }
         if (!children.isEmpty()) {
             // save references to children
@@ -302,7 +335,14 @@ class MutableNode extends NodeBase {
         // finally, write loggable
         byte type = getLoggableType();
         final int structureId = tree.getStructureId();
-        final ByteIterable mainIterable = nodeStream.asArrayByteIterable();
+        final ByteIterable mainIterable;
+        if (preparedKeyValue == null) {
+            mainIterable = nodeStream.asArrayByteIterable();
+        } else if (nodeStream.size() == 0) {
+            mainIterable = preparedKeyValue;
+        } else {
+            mainIterable = new CompoundByteIterable(new ByteIterable[]{preparedKeyValue, nodeStream.asArrayByteIterable()});
+        }
         final long startAddress = context.startAddress;
         long result;
         if (!isRoot()) {
@@ -355,6 +395,19 @@ class MutableNode extends NodeBase {
         return result;
     }
 
+    private void writeKeyValue(@NotNull final LightOutputStream output) {
+        if (hasKey()) {
+            CompressedUnsignedLongByteIterable.fillBytes(keySequence.getLength(), output);
+            ByteIterableBase.fillBytes(keySequence, output);
+        }
+        if (hasValue()) {
+            // noinspection ConstantConditions
+            CompressedUnsignedLongByteIterable.fillBytes(value.getLength(), output);
+            // noinspection ConstantConditions
+            ByteIterableBase.fillBytes(value, output);
+        }
+    }
+
     protected boolean isRoot() {
         return false;
     }
@@ -17,6 +17,7 @@ package jetbrains.exodus.tree.patricia;
 
 import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
 import jetbrains.exodus.tree.ITree;
 import jetbrains.exodus.tree.ITreeCursor;
@@ -59,6 +60,32 @@ public class PatriciaCursorDecorator implements ITreeCursor {
         return patriciaCursor.getTree();
     }
 
+    @Override
+    public void setFlyweight(final boolean flyweight) {
+        // key and value are decoded from the key of the tree without duplicates, so they're anyway new iterables
+    }
+
+    @Override
+    public boolean isFlyweight() {
+        return false;
+    }
+
+    @Override
+    public boolean getAtPosition(final long position) {
+        // pairs are keys of the tree without duplicates in the same order
+        final Pair<ByteIterable, ByteIterable> pair = patriciaCursor.getTree().getAtPosition(position);
+        if (pair == null) {
+            return false;
+        }
+        final Pair<ByteIterable, ByteIterable> keyValue = PatriciaTreeWithDuplicates.getUnescapedKeyValue(pair);
+        return getSearchBoth(keyValue.getFirst(), keyValue.getSecond());
+    }
+
+    @Override
+    public long getPosition() {
+        return patriciaCursor.getTree().getPosition(PatriciaTreeWithDuplicates.getEscapedKeyValue(getKey(), getValue()), null);
+    }
+
     @Override
     public boolean getNext() {
         if (getNextLazy()) {
@@ -18,6 +18,7 @@ package jetbrains.exodus.tree.patricia;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.ByteIterableBase;
 import jetbrains.exodus.ByteIterator;
+import jetbrains.exodus.log.iterate.FlyweightByteIterable;
 import jetbrains.exodus.tree.INode;
 import jetbrains.exodus.tree.MutableTreeRoot;
 import jetbrains.exodus.tree.TreeTraverser;
@@ -116,6 +117,19 @@ class PatriciaTraverser implements TreeTraverser {
         return result;
     }
 
+    @NotNull
+    @Override
+    public ByteIterable getKey(@NotNull final FlyweightByteIterable flyweight) {
+        // key is composed of key sequences of nodes along the path, so it's anyway a new iterable
+        return getKey();
+    }
+
+    @NotNull
+    @Override
+    public ByteIterable getValue(@NotNull final FlyweightByteIterable flyweight) {
+        return getValue();
+    }
+
     @Override
     public void moveUp() {
         --top;
@@ -15,18 +15,22 @@
  */
 package jetbrains.exodus.tree.patricia;
 
+import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.ByteIterator;
 import jetbrains.exodus.core.dataStructures.LongObjectCacheBase;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.log.Log;
 import jetbrains.exodus.log.RandomAccessLoggable;
 import jetbrains.exodus.tree.INode;
 import jetbrains.exodus.tree.ITree;
+import jetbrains.exodus.tree.ITreeCursor;
 import jetbrains.exodus.tree.LongIterator;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.PrintStream;
+import java.util.Arrays;
 
 public abstract class PatriciaTreeBase implements ITree {
 
@@ -74,6 +78,88 @@ public abstract class PatriciaTreeBase implements ITree {
         return node == null ? null : node.getValue();
     }
 
+    @Override
+    public long countRange(@NotNull final ByteIterable from, @NotNull final ByteIterable to) {
+        return countRange(this, from, to);
+    }
+
+    @Override
+    public long getPosition(@NotNull final ByteIterable key, @Nullable final ByteIterable value) {
+        long result = 0;
+        try (ITreeCursor cursor = openCursor()) {
+            while (cursor.getNext()) {
+                final int cmp = cursor.getKey().compareTo(key);
+                if (cmp > 0 || (cmp == 0 && (value == null || cursor.getValue().compareTo(value) >= 0))) {
+                    break;
+                }
+                ++result;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    @Nullable
+    public Pair<ByteIterable, ByteIterable> getAtPosition(long position) {
+        if (position >= 0 && position < getSize()) {
+            try (ITreeCursor cursor = openCursor()) {
+                while (cursor.getNext()) {
+                    if (position-- == 0) {
+                        return new Pair<ByteIterable, ByteIterable>(
+                                new ArrayByteIterable(cursor.getKey()), new ArrayByteIterable(cursor.getValue()));
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void getAll(@NotNull final ByteIterable[] keys, @NotNull final ByteIterable[] values) {
+        // path to the node of previous key and numbers of key bytes preceding key sequences of its nodes
+        NodeBase[] path = new NodeBase[16];
+        int[] offsets = new int[16];
+        path[0] = getRoot();
+        int depth = 1;
+        ByteIterable prevKey = null;
+        for (int i = 0; i < keys.length; ++i) {
+            final ByteIterable key = keys[i];
+            if (prevKey != null) {
+                // nodes reached by common prefix of the keys are on the path to the key as well
+                final int commonLength = getCommonPrefixLength(prevKey, key);
+                while (offsets[depth - 1] > commonLength) {
+                    --depth;
+                }
+            }
+            prevKey = key;
+            NodeBase node = path[depth - 1];
+            int offset = offsets[depth - 1];
+            final ByteIterator it = key.iterator();
+            if (offset > 0) {
+                it.skip(offset);
+            }
+            ByteIterable value = null;
+            while (node.matchesKeySequence(it).matchingLength >= 0) {
+                if (!it.hasNext()) {
+                    value = node.getValue();
+                    break;
+                }
+                offset += node.keySequence.getLength() + 1;
+                node = node.getChild(this, it.next());
+                if (node == null) {
+                    break;
+                }
+                if (depth == path.length) {
+                    path = Arrays.copyOf(path, depth << 1);
+                    offsets = Arrays.copyOf(offsets, depth << 1);
+                }
+                path[depth] = node;
+                offsets[depth++] = offset;
+            }
+            values[i] = value;
+        }
+    }
+
     @Override
     public boolean hasPair(@NotNull final ByteIterable key, @NotNull final ByteIterable value) {
         final ByteIterable val = get(key);
@@ -166,6 +252,17 @@ public abstract class PatriciaTreeBase implements ITree {
 
     abstract NodeBase getRoot();
 
+    private static int getCommonPrefixLength(@NotNull final ByteIterable key1, @NotNull final ByteIterable key2) {
+        final byte[] bytes1 = key1.getBytesUnsafe();
+        final byte[] bytes2 = key2.getBytesUnsafe();
+        final int length = Math.min(key1.getLength(), key2.getLength());
+        int result = 0;
+        while (result < length && bytes1[result] == bytes2[result]) {
+            ++result;
+        }
+        return result;
+    }
+
     @Nullable
     protected NodeBase getNode(@NotNull final ByteIterable key) {
         final ByteIterator it = key.iterator();
@@ -181,4 +278,23 @@ public abstract class PatriciaTreeBase implements ITree {
         } while (node != null);
         return node;
     }
+
+    /**
+     * Counts key/value pairs in specified range of keys iterating them with a cursor, since nodes of patricia tree
+     * don't hold sizes of their sub-trees.
+     */
+    static long countRange(@NotNull final ITree tree, @NotNull final ByteIterable from, @NotNull final ByteIterable to) {
+        long result = 0;
+        try (ITreeCursor cursor = tree.openCursor()) {
+            if (cursor.getSearchKeyRange(from) != null) {
+                do {
+                    if (cursor.getKey().compareTo(to) > 0) {
+                        break;
+                    }
+                    ++result;
+                } while (cursor.getNext());
+            }
+        }
+        return result;
+    }
 }
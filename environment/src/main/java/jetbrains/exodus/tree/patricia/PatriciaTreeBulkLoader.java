@@ -0,0 +1,107 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree.patricia;
+
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
+import jetbrains.exodus.log.Log;
+import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
+import jetbrains.exodus.tree.ITreeBulkLoader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+
+/**
+ * Writes Patricia tree from sorted pairs. Pairs are put to the right edge of the tree, and as soon as a node
+ * leaves the right edge, i.e. no more keys can be put to it, the node is saved with its sub-tree. So only the right
+ * edge of the tree is held in memory, and all the nodes are saved in the same order as by {@link PatriciaTreeMutable#save()}.
+ */
+public class PatriciaTreeBulkLoader implements ITreeBulkLoader {
+
+    @NotNull
+    private final PatriciaTreeMutable tree;
+    private final boolean hasDuplicates;
+    @NotNull
+    private final Iterator<Pair<ByteIterable, ByteIterable>> pairs;
+
+    public PatriciaTreeBulkLoader(@NotNull final Log log,
+                                  final int structureId,
+                                  final boolean hasDuplicates,
+                                  @NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs) {
+        tree = new PatriciaTreeMutable(log, structureId, 0, new ImmutableNode());
+        this.hasDuplicates = hasDuplicates;
+        this.pairs = pairs;
+    }
+
+    @Override
+    public int getStructureId() {
+        return tree.getStructureId();
+    }
+
+    @Override
+    public long save() {
+        final MutableNodeSaveContext context = new MutableNodeSaveContext(ByteIterable.EMPTY);
+        @Nullable
+        ByteIterable prevKey = null;
+        while (pairs.hasNext()) {
+            final Pair<ByteIterable, ByteIterable> pair = pairs.next();
+            ByteIterable key = pair.getFirst();
+            ByteIterable value = pair.getSecond();
+            if (hasDuplicates) {
+                // key/value pairs are keys of the tree without duplicates, see PatriciaTreeWithDuplicatesMutable
+                final int keyLength = key.getLength();
+                key = PatriciaTreeWithDuplicates.getEscapedKeyValue(key, value);
+                value = CompressedUnsignedLongByteIterable.getIterable(keyLength);
+            }
+            if (prevKey != null && key.compareTo(prevKey) <= 0) {
+                throw new IllegalArgumentException(hasDuplicates ?
+                        "Pairs must be sorted in ascending order and be unique" :
+                        "Keys must be sorted in ascending order and be unique");
+            }
+            tree.putRight(key, value);
+            saveLeftChildren(context);
+            prevKey = key;
+        }
+        final MutableNodeSaveContext rootContext =
+                new MutableNodeSaveContext(CompressedUnsignedLongByteIterable.getIterable(tree.size));
+        // back reference of root should point to the first node saved by the loader
+        rootContext.startAddress = context.startAddress;
+        return tree.getRoot().save(tree, rootContext);
+    }
+
+    /**
+     * After a pair is put to the right edge, at most one child of each node at the edge is moved off it, and that is
+     * the child next to the right one.
+     */
+    private void saveLeftChildren(@NotNull final MutableNodeSaveContext context) {
+        MutableNode node = tree.getRoot();
+        while (true) {
+            final int childrenCount = node.getChildrenCount();
+            if (childrenCount == 0) {
+                break;
+            }
+            if (childrenCount > 1) {
+                node.saveChild(childrenCount - 2, tree, context);
+            }
+            final ChildReference right = node.getRef(childrenCount - 1);
+            if (!right.isMutable()) {
+                break;
+            }
+            node = ((ChildReferenceMutable) right).child;
+        }
+    }
+}
@@ -55,6 +55,11 @@ abstract class PatriciaTreeDecorator implements ITree {
         return get(key) != null;
     }
 
+    @Override
+    public long countRange(@NotNull final ByteIterable from, @NotNull final ByteIterable to) {
+        return PatriciaTreeBase.countRange(this, from, to);
+    }
+
     @Override
     public boolean isEmpty() {
         return treeNoDuplicates.isEmpty();
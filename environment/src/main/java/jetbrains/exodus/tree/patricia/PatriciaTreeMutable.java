@@ -250,6 +250,23 @@ final class PatriciaTreeMutable extends PatriciaTreeBase implements ITreeMutable
         throw new UnsupportedOperationException("Patricia tree doesn't support duplicates!");
     }
 
+    @Override
+    public long deleteRange(@NotNull final ByteIterable from, @NotNull final ByteIterable to) {
+        long result = 0;
+        try (ITreeCursor cursor = openCursor()) {
+            if (cursor.getSearchKeyRange(from) != null) {
+                do {
+                    if (cursor.getKey().compareTo(to) > 0) {
+                        break;
+                    }
+                    cursor.deleteCurrent();
+                    ++result;
+                } while (cursor.getNext());
+            }
+        }
+        return result;
+    }
+
     @Override
     public void put(@NotNull final INode ln) {
         put(ln.getKey(), getNotNullValue(ln));
@@ -265,6 +282,11 @@ final class PatriciaTreeMutable extends PatriciaTreeBase implements ITreeMutable
         return add(ln.getKey(), getNotNullValue(ln));
     }
 
+    @Override
+    public void prepareSave() {
+        root.prepareSave(this);
+    }
+
     @Override
     public long save() {
         return root.save(this, new MutableNodeSaveContext(CompressedUnsignedLongByteIterable.getIterable(size)));
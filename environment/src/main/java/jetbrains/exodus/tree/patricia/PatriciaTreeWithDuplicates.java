@@ -17,6 +17,7 @@ package jetbrains.exodus.tree.patricia;
 
 import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.log.Log;
 import jetbrains.exodus.log.iterate.CompoundByteIterable;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
@@ -52,23 +53,33 @@ public class PatriciaTreeWithDuplicates extends PatriciaTreeDecorator {
     @Override
     public ByteIterable get(@NotNull final ByteIterable key) {
         try (ITreeCursor cursor = treeNoDuplicates.openCursor()) {
-            final ByteIterable value = cursor.getSearchKeyRange(getEscapedKeyWithSeparator(key));
-            if (value != null && value != ByteIterable.EMPTY) {
-                int keyLength = CompressedUnsignedLongByteIterable.getInt(value);
-                if (key.getLength() == keyLength) {
-                    final ByteIterable noDupKey = new UnEscapingByteIterable(cursor.getKey());
-                    final byte[] noDupKeyBytes = noDupKey.getBytesUnsafe();
-                    if (ByteIterableUtil.compare(key.getBytesUnsafe(), keyLength, noDupKeyBytes, keyLength) == 0) {
-                        return new ArrayByteIterable(Arrays.copyOfRange(noDupKeyBytes,
-                                keyLength + 1, // skip separator
-                                noDupKey.getLength()));
-                    }
-                }
+            return get(cursor, key);
+        }
+    }
+
+    @Override
+    public void getAll(@NotNull final ByteIterable[] keys, @NotNull final ByteIterable[] values) {
+        try (ITreeCursor cursor = treeNoDuplicates.openCursor()) {
+            for (int i = 0; i < keys.length; ++i) {
+                values[i] = get(cursor, keys[i]);
             }
-            return null;
         }
     }
 
+    @Override
+    public long getPosition(@NotNull final ByteIterable key, @Nullable final ByteIterable value) {
+        // pairs are keys of the tree without duplicates in the same order
+        return treeNoDuplicates.getPosition(
+                value == null ? getEscapedKeyWithSeparator(key) : getEscapedKeyValue(key, value), null);
+    }
+
+    @Override
+    @Nullable
+    public Pair<ByteIterable, ByteIterable> getAtPosition(final long position) {
+        final Pair<ByteIterable, ByteIterable> pair = treeNoDuplicates.getAtPosition(position);
+        return pair == null ? null : getUnescapedKeyValue(pair);
+    }
+
     @Override
     public boolean hasPair(@NotNull final ByteIterable key, final @NotNull ByteIterable value) {
         return treeNoDuplicates.hasKey(getEscapedKeyValue(key, value));
@@ -90,6 +101,24 @@ public class PatriciaTreeWithDuplicates extends PatriciaTreeDecorator {
         return treeNoDuplicates.addressIterator();
     }
 
+    @Nullable
+    private static ByteIterable get(@NotNull final ITreeCursor cursor, @NotNull final ByteIterable key) {
+        final ByteIterable value = cursor.getSearchKeyRange(getEscapedKeyWithSeparator(key));
+        if (value != null && value != ByteIterable.EMPTY) {
+            int keyLength = CompressedUnsignedLongByteIterable.getInt(value);
+            if (key.getLength() == keyLength) {
+                final ByteIterable noDupKey = new UnEscapingByteIterable(cursor.getKey());
+                final byte[] noDupKeyBytes = noDupKey.getBytesUnsafe();
+                if (ByteIterableUtil.compare(key.getBytesUnsafe(), keyLength, noDupKeyBytes, keyLength) == 0) {
+                    return new ArrayByteIterable(Arrays.copyOfRange(noDupKeyBytes,
+                            keyLength + 1, // skip separator
+                            noDupKey.getLength()));
+                }
+            }
+        }
+        return null;
+    }
+
     protected static ByteIterable getEscapedKeyValue(@NotNull final ByteIterable key, @NotNull final ByteIterable value) {
         return new CompoundByteIterable(new ByteIterable[]{
                 new EscapingByteIterable(key),
@@ -98,6 +127,18 @@ public class PatriciaTreeWithDuplicates extends PatriciaTreeDecorator {
         });
     }
 
+    /**
+     * Converts a pair of the tree without duplicates to the key/value pair it holds.
+     */
+    static Pair<ByteIterable, ByteIterable> getUnescapedKeyValue(@NotNull final Pair<ByteIterable, ByteIterable> pair) {
+        final int keyLength = CompressedUnsignedLongByteIterable.getInt(pair.getSecond());
+        final ByteIterable noDupKey = new UnEscapingByteIterable(pair.getFirst());
+        final byte[] noDupKeyBytes = noDupKey.getBytesUnsafe();
+        return new Pair<ByteIterable, ByteIterable>(
+                new ArrayByteIterable(Arrays.copyOf(noDupKeyBytes, keyLength)),
+                new ArrayByteIterable(Arrays.copyOfRange(noDupKeyBytes, keyLength + 1, noDupKey.getLength())));
+    }
+
     protected static ByteIterable getEscapedKeyWithSeparator(@NotNull final ByteIterable key) {
         return new CompoundByteIterable(new ByteIterable[]{
                 new EscapingByteIterable(key),
@@ -15,6 +15,7 @@
  */
 package jetbrains.exodus.tree.patricia;
 
+import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.log.RandomAccessLoggable;
@@ -24,8 +25,10 @@ import jetbrains.exodus.util.ByteIterableUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 final class PatriciaTreeWithDuplicatesMutable extends PatriciaTreeWithDuplicates implements ITreeMutable {
     PatriciaTreeWithDuplicatesMutable(@NotNull final ITreeMutable treeNoDuplicates) {
@@ -135,6 +138,36 @@ final class PatriciaTreeWithDuplicatesMutable extends PatriciaTreeWithDuplicates
         return false;
     }
 
+    @Override
+    public long deleteRange(@NotNull final ByteIterable from, @NotNull final ByteIterable to) {
+        // collect distinct keys first, each of them is then deleted with all its duplicates
+        final List<ByteIterable> keys = new ArrayList<>();
+        long result = 0;
+        try (ITreeCursor cursor = openCursor()) {
+            if (cursor.getSearchKeyRange(from) != null) {
+                do {
+                    final ByteIterable key = cursor.getKey();
+                    if (key.compareTo(to) > 0) {
+                        break;
+                    }
+                    if (keys.isEmpty() || keys.get(keys.size() - 1).compareTo(key) != 0) {
+                        keys.add(new ArrayByteIterable(key));
+                    }
+                    ++result;
+                } while (cursor.getNext());
+            }
+        }
+        for (final ByteIterable key : keys) {
+            delete(key);
+        }
+        return result;
+    }
+
+    @Override
+    public void prepareSave() {
+        getTreeNoDuplicates().prepareSave();
+    }
+
     @Override
     public long save() {
         return getTreeNoDuplicates().save();
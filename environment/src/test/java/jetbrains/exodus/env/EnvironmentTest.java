@@ -21,6 +21,7 @@ import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.TestUtil;
 import jetbrains.exodus.bindings.IntegerBinding;
 import jetbrains.exodus.bindings.StringBinding;
+import jetbrains.exodus.core.dataStructures.LongObjectCacheBase;
 import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.core.dataStructures.hash.HashMap;
 import jetbrains.exodus.core.dataStructures.hash.HashSet;
@@ -40,6 +41,8 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
@@ -190,6 +193,39 @@ public class EnvironmentTest extends EnvironmentTestsBase {
         testGetAllStoreNames();
     }
 
+    @Test
+    public void testReopenWithCheckpoint() throws IOException {
+        final File envDirectory = new File(env.getLocation());
+        if (!envDirectory.isDirectory()) {
+            return;
+        }
+        env.getEnvironmentConfig().setLogCheckpoint(true);
+        reopenEnvironment();
+        testGetAllStoreNames();
+        reopenEnvironment();
+        Assert.assertNotEquals(Loggable.NULL_ADDRESS, env.getLog().getCheckpointRootAddress());
+        testGetAllStoreNames();
+        // checkpoint saved before the log was appended should be ignored
+        final File checkpoint = new File(envDirectory, "xd.ckp");
+        final byte[] checkpointBytes = new byte[(int) checkpoint.length()];
+        try (FileInputStream input = new FileInputStream(checkpoint)) {
+            IOUtil.readFully(input, checkpointBytes);
+        }
+        final Store store = openStoreAutoCommit("new_store", StoreConfig.WITHOUT_DUPLICATES);
+        putAutoCommit(store, IntegerBinding.intToEntry(0), StringBinding.stringToEntry("value"));
+        final EnvironmentConfig ec = env.getEnvironmentConfig();
+        env.close();
+        try (FileOutputStream output = new FileOutputStream(checkpoint)) {
+            output.write(checkpointBytes);
+        }
+        final LogConfig config = new LogConfig();
+        config.setReader(reader);
+        config.setWriter(writer);
+        env = newEnvironmentInstance(config, ec);
+        Assert.assertEquals(Loggable.NULL_ADDRESS, env.getLog().getCheckpointRootAddress());
+        assertNotNullStringValue(openStoreAutoCommit("new_store", StoreConfig.WITHOUT_DUPLICATES), IntegerBinding.intToEntry(0), "value");
+    }
+
     @Test
     public void testBreakSavingMetaTree() {
         final EnvironmentConfig ec = env.getEnvironmentConfig();
@@ -312,6 +348,60 @@ public class EnvironmentTest extends EnvironmentTestsBase {
         }
     }
 
+    @Test
+    public void testGroupCommit() throws InterruptedException {
+        final EnvironmentConfig ec = env.getEnvironmentConfig();
+        ec.setLogDurableWrite(true);
+        ec.setLogGroupCommit(true);
+        reopenEnvironment();
+        Assert.assertTrue(getLog().isGroupCommit());
+        final int numberOfThreads = 8;
+        final int numberOfTxns = 200;
+        final Thread[] threads = new Thread[numberOfThreads];
+        for (int t = 0; t < numberOfThreads; ++t) {
+            final int threadNumber = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < numberOfTxns; ++i) {
+                        final Transaction txn = env.beginTransaction();
+                        try {
+                            while (true) {
+                                final Store store = env.openStore("store" + threadNumber, StoreConfig.WITHOUT_DUPLICATES, txn);
+                                store.put(txn, IntegerBinding.intToEntry(i), StringBinding.stringToEntry("value" + i));
+                                if (txn.flush()) {
+                                    break;
+                                }
+                                txn.revert();
+                            }
+                        } finally {
+                            txn.abort();
+                        }
+                    }
+                }
+            });
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        reopenEnvironment();
+        env.executeInTransaction(new TransactionalExecutable() {
+            @Override
+            public void execute(@NotNull final Transaction txn) {
+                for (int t = 0; t < numberOfThreads; ++t) {
+                    final Store store = env.openStore("store" + t, StoreConfig.WITHOUT_DUPLICATES, txn);
+                    Assert.assertEquals(numberOfTxns, store.count(txn));
+                    for (int i = 0; i < numberOfTxns; ++i) {
+                        Assert.assertEquals("value" + i, StringBinding.entryToString(store.get(txn, IntegerBinding.intToEntry(i))));
+                    }
+                }
+            }
+        });
+    }
+
     @Test
     public void testSharedCache() throws InterruptedException, IOException {
         env.getEnvironmentConfig().setLogCacheShared(true);
@@ -390,6 +480,55 @@ public class EnvironmentTest extends EnvironmentTestsBase {
         }
     }
 
+    @Test
+    public void testSharedTreeNodesCache() throws IOException {
+        env.getEnvironmentConfig().setTreeNodesCacheShared(true);
+        final Pair<DataReader, DataWriter> readerWriterPair = createReaderWriter("sub");
+        final LogConfig logConfig = new LogConfig();
+        logConfig.setReader(readerWriterPair.getFirst());
+        logConfig.setWriter(readerWriterPair.getSecond());
+        final EnvironmentConfig ec = new EnvironmentConfig();
+        ec.setTreeNodesCacheShared(true);
+        final EnvironmentImpl additionalEnv = newEnvironmentInstance(logConfig, ec);
+        try {
+            final LongObjectCacheBase treeNodesCache = env.getTreeNodesCache();
+            Assert.assertNotNull(treeNodesCache);
+            Assert.assertNotSame(treeNodesCache, additionalEnv.getTreeNodesCache());
+            for (final Environment env : new Environment[]{this.env, additionalEnv}) {
+                env.executeInTransaction(new TransactionalExecutable() {
+                    @Override
+                    public void execute(@NotNull final Transaction txn) {
+                        final Store store = env.openStore("store", StoreConfig.WITHOUT_DUPLICATES, txn);
+                        for (int i = 0; i < 10000; ++i) {
+                            store.put(txn, IntegerBinding.intToEntry(i), IntegerBinding.intToEntry(env == additionalEnv ? -i : i));
+                        }
+                    }
+                });
+            }
+            for (int j = 0; j < 2; ++j) {
+                for (final Environment env : new Environment[]{this.env, additionalEnv}) {
+                    env.executeInReadonlyTransaction(new TransactionalExecutable() {
+                        @Override
+                        public void execute(@NotNull final Transaction txn) {
+                            final Store store = env.openStore("store", StoreConfig.WITHOUT_DUPLICATES, txn);
+                            // cursor loads tree nodes using tree nodes cache
+                            try (Cursor cursor = store.openCursor(txn)) {
+                                for (int i = 0; i < 10000; ++i) {
+                                    final ByteIterable bi = cursor.getSearchKey(IntegerBinding.intToEntry(i));
+                                    Assert.assertNotNull(bi);
+                                    Assert.assertEquals(env == additionalEnv ? -i : i, IntegerBinding.entryToInt(bi));
+                                }
+                            }
+                        }
+                    });
+                }
+            }
+            Assert.assertTrue(treeNodesCache.hitRate() > 0);
+        } finally {
+            additionalEnv.close();
+        }
+    }
+
     private Pair<DataReader, DataWriter> createReaderWriter(String subfolder) throws IOException {
         final File parent = getEnvDirectory();
         File child = subfolders.get(subfolder);
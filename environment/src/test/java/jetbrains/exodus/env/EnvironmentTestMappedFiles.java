@@ -0,0 +1,150 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.env;
+
+import jetbrains.exodus.ExodusException;
+import jetbrains.exodus.TestUtil;
+import jetbrains.exodus.core.dataStructures.Pair;
+import jetbrains.exodus.io.Block;
+import jetbrains.exodus.io.DataReader;
+import jetbrains.exodus.io.DataWriter;
+import jetbrains.exodus.io.MappedFileDataReader;
+import jetbrains.exodus.io.MappedFileDataWriter;
+import jetbrains.exodus.io.RemoveBlockType;
+import jetbrains.exodus.log.LogUtil;
+import jetbrains.exodus.util.IOUtil;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class EnvironmentTestMappedFiles extends EnvironmentTest {
+
+    @Override
+    protected Pair<DataReader, DataWriter> createRW() throws IOException {
+        final File testsDirectory = getEnvDirectory();
+        if (testsDirectory.exists()) {
+            IOUtil.deleteRecursively(testsDirectory);
+        } else if (!testsDirectory.mkdir()) {
+            throw new IOException("Failed to create directory for tests.");
+        }
+        final MappedFileDataReader reader = new MappedFileDataReader(testsDirectory, 16);
+        return new Pair<DataReader, DataWriter>(reader, new MappedFileDataWriter(testsDirectory, reader));
+    }
+
+    @Test
+    public void testReadGrowingFile() throws IOException {
+        final File dir = TestUtil.createTempDir();
+        final File file = new File(dir, LogUtil.getLogFilename(0));
+        final MappedFileDataReader reader = new MappedFileDataReader(dir, 16);
+        try {
+            final byte[] bytes = new byte[1000];
+            for (int i = 0; i < bytes.length; ++i) {
+                bytes[i] = (byte) i;
+            }
+            append(file, bytes, 0, 100);
+            final Block block = reader.getBlock(0);
+            final byte[] output = new byte[bytes.length];
+            Assert.assertEquals(100, block.read(output, 0, 100));
+            Assert.assertArrayEquals(Arrays.copyOf(bytes, 100), Arrays.copyOf(output, 100));
+            // read beyond the mapping
+            append(file, bytes, 100, 50);
+            Assert.assertEquals(50, block.read(output, 100, 50));
+            Assert.assertArrayEquals(Arrays.copyOfRange(bytes, 100, 150), Arrays.copyOf(output, 50));
+            Assert.assertEquals(-1, block.read(output, 150, 10));
+            // read beyond doubled mapping
+            append(file, bytes, 150, 850);
+            Assert.assertEquals(850, block.read(output, 150, 900));
+            Assert.assertArrayEquals(Arrays.copyOfRange(bytes, 150, 1000), Arrays.copyOf(output, 850));
+            reader.removeBlock(0, RemoveBlockType.Delete);
+            Assert.assertFalse(file.exists());
+        } finally {
+            reader.close();
+            IOUtil.deleteRecursively(dir);
+            IOUtil.deleteFile(dir);
+        }
+    }
+
+    @Test
+    public void testReadRemovedFile() throws Exception {
+        final File dir = TestUtil.createTempDir();
+        final File file = new File(dir, LogUtil.getLogFilename(0));
+        final MappedFileDataReader reader = new MappedFileDataReader(dir, 16);
+        try {
+            final byte[] bytes = new byte[1 << 16];
+            for (int i = 0; i < bytes.length; ++i) {
+                bytes[i] = (byte) i;
+            }
+            for (int attempt = 0; attempt < 10; ++attempt) {
+                append(file, bytes, 0, bytes.length);
+                final Block block = reader.getBlock(0);
+                Assert.assertEquals(bytes.length, block.read(new byte[bytes.length], 0, bytes.length));
+                final AtomicBoolean removed = new AtomicBoolean();
+                final AtomicReference<Throwable> error = new AtomicReference<>();
+                final Thread[] readers = new Thread[4];
+                for (int i = 0; i < readers.length; ++i) {
+                    readers[i] = new Thread() {
+                        @Override
+                        public void run() {
+                            final byte[] output = new byte[bytes.length];
+                            // keep reading for a while after the file is removed
+                            for (int reads = 0; reads < 100; ) {
+                                try {
+                                    final int read = block.read(output, 0, output.length);
+                                    if (read != output.length || !Arrays.equals(bytes, output)) {
+                                        error.set(new AssertionError("Unexpected data read"));
+                                    }
+                                } catch (ExodusException ignore) {
+                                    // the file is already removed and not mapped anymore
+                                } catch (Throwable t) {
+                                    error.set(t);
+                                }
+                                if (removed.get()) {
+                                    ++reads;
+                                }
+                            }
+                        }
+                    };
+                    readers[i].start();
+                }
+                reader.removeBlock(0, RemoveBlockType.Delete);
+                removed.set(true);
+                for (final Thread thread : readers) {
+                    thread.join();
+                }
+                Assert.assertNull(error.get());
+                Assert.assertFalse(file.exists());
+            }
+        } finally {
+            reader.close();
+            IOUtil.deleteRecursively(dir);
+            IOUtil.deleteFile(dir);
+        }
+    }
+
+    private static void append(@NotNull final File file,
+                               final byte[] bytes, final int off, final int len) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(file, true)) {
+            output.write(bytes, off, len);
+        }
+    }
+}
@@ -19,8 +19,10 @@ import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.TestUtil;
+import jetbrains.exodus.bindings.IntegerBinding;
 import jetbrains.exodus.bindings.LongBinding;
 import jetbrains.exodus.bindings.StringBinding;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.core.dataStructures.hash.LongHashSet;
 import jetbrains.exodus.core.dataStructures.hash.LongSet;
 import jetbrains.exodus.core.execution.Job;
@@ -32,7 +34,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.security.SecureRandom;
-import java.util.Arrays;
+import java.util.*;
 
 public class StoreTest extends EnvironmentTestsBase {
 
@@ -68,6 +70,137 @@ public class StoreTest extends EnvironmentTestsBase {
         truncateWithinTxn(StoreConfig.WITHOUT_DUPLICATES_WITH_PREFIXING);
     }
 
+    @Test
+    public void testBulkLoad() {
+        bulkLoad(StoreConfig.WITHOUT_DUPLICATES);
+    }
+
+    @Test
+    public void testBulkLoadWithPrefixing() {
+        bulkLoad(StoreConfig.WITHOUT_DUPLICATES_WITH_PREFIXING);
+    }
+
+    @Test
+    public void testBulkLoadWithDuplicates() {
+        bulkLoad(StoreConfig.WITH_DUPLICATES);
+    }
+
+    @Test
+    public void testBulkLoadWithDuplicatesWithPrefixing() {
+        bulkLoad(StoreConfig.WITH_DUPLICATES_WITH_PREFIXING);
+    }
+
+    @Test
+    public void testBulkLoadTruncated() {
+        final Store store = openStoreAutoCommit("store", StoreConfig.WITHOUT_DUPLICATES);
+        Transaction txn = env.beginTransaction();
+        store.put(txn, getKey(), getValue());
+        txn.commit();
+        txn = env.beginTransaction();
+        env.truncateStore("store", txn);
+        final Store truncated = env.openStore("store", StoreConfig.USE_EXISTING, txn);
+        truncated.bulkLoad(txn, createPairs(1000, 1).iterator());
+        txn.commit();
+        assertEmptyValue(truncated, getKey());
+        txn = env.beginReadonlyTransaction();
+        Assert.assertEquals(1000, truncated.count(txn));
+        txn.abort();
+    }
+
+    @Test
+    public void testBulkLoadNotEmpty() {
+        final Store store = openStoreAutoCommit("store", StoreConfig.WITHOUT_DUPLICATES);
+        env.executeInTransaction(new TransactionalExecutable() {
+            @Override
+            public void execute(@NotNull final Transaction txn) {
+                store.put(txn, getKey(), getValue());
+                TestUtil.runWithExpectedException(new Runnable() {
+                    @Override
+                    public void run() {
+                        store.bulkLoad(txn, createPairs(10, 1).iterator());
+                    }
+                }, ExodusException.class);
+            }
+        });
+    }
+
+    @Test
+    public void testBulkLoadNotSorted() {
+        final Store store = openStoreAutoCommit("store", StoreConfig.WITHOUT_DUPLICATES);
+        final List<Pair<ByteIterable, ByteIterable>> pairs = createPairs(1000, 1);
+        pairs.add(pairs.get(0));
+        final Transaction txn = env.beginTransaction();
+        store.bulkLoad(txn, pairs.iterator());
+        TestUtil.runWithExpectedException(new Runnable() {
+            @Override
+            public void run() {
+                txn.commit();
+            }
+        }, IllegalArgumentException.class);
+        txn.abort();
+        env.executeInReadonlyTransaction(new TransactionalExecutable() {
+            @Override
+            public void execute(@NotNull final Transaction txn) {
+                Assert.assertEquals(0, store.count(txn));
+            }
+        });
+    }
+
+    @Test
+    public void testGetAllPutAll() {
+        getAllPutAll(StoreConfig.WITHOUT_DUPLICATES);
+    }
+
+    @Test
+    public void testGetAllPutAllWithPrefixing() {
+        getAllPutAll(StoreConfig.WITHOUT_DUPLICATES_WITH_PREFIXING);
+    }
+
+    @Test
+    public void testGetAllPutAllWithDuplicates() {
+        getAllPutAll(StoreConfig.WITH_DUPLICATES);
+    }
+
+    @Test
+    public void testGetAllPutAllWithDuplicatesWithPrefixing() {
+        getAllPutAll(StoreConfig.WITH_DUPLICATES_WITH_PREFIXING);
+    }
+
+    @Test
+    public void testDeleteRangeCountRange() {
+        deleteRangeCountRange(StoreConfig.WITHOUT_DUPLICATES);
+    }
+
+    @Test
+    public void testDeleteRangeCountRangeWithPrefixing() {
+        deleteRangeCountRange(StoreConfig.WITHOUT_DUPLICATES_WITH_PREFIXING);
+    }
+
+    @Test
+    public void testDeleteRangeCountRangeWithDuplicates() {
+        deleteRangeCountRange(StoreConfig.WITH_DUPLICATES);
+    }
+
+    @Test
+    public void testDeleteRangeCountRangeWithDuplicatesWithPrefixing() {
+        deleteRangeCountRange(StoreConfig.WITH_DUPLICATES_WITH_PREFIXING);
+    }
+
+    @Test
+    public void testCursorPositions() {
+        cursorPositions(StoreConfig.WITHOUT_DUPLICATES);
+    }
+
+    @Test
+    public void testCursorPositionsWithDuplicates() {
+        cursorPositions(StoreConfig.WITH_DUPLICATES);
+    }
+
+    @Test
+    public void testCursorPositionsWithPrefixing() {
+        cursorPositions(StoreConfig.WITH_DUPLICATES_WITH_PREFIXING);
+    }
+
     @Test
     public void testRemoveWithoutTransaction() {
         final Store store = openStoreAutoCommit("store", StoreConfig.WITHOUT_DUPLICATES);
@@ -240,6 +373,162 @@ public class StoreTest extends EnvironmentTestsBase {
         assertEmptyValue(store, getKey());
     }
 
+    private void bulkLoad(final StoreConfig config) {
+        final int valuesPerKey = config.duplicates ? 3 : 1;
+        final List<Pair<ByteIterable, ByteIterable>> pairs = createPairs(10000, valuesPerKey);
+        final Transaction loadTxn = env.beginTransaction();
+        final Store store = env.openStore("store", config, loadTxn);
+        store.bulkLoad(loadTxn, pairs.iterator());
+        // loaded pairs can't be accessed till commit
+        TestUtil.runWithExpectedException(new Runnable() {
+            @Override
+            public void run() {
+                store.count(loadTxn);
+            }
+        }, ExodusException.class);
+        loadTxn.commit();
+        final Transaction txn = env.beginTransaction();
+        Assert.assertEquals(pairs.size(), store.count(txn));
+        try (Cursor cursor = store.openCursor(txn)) {
+            for (final Pair<ByteIterable, ByteIterable> pair : pairs) {
+                Assert.assertTrue(cursor.getNext());
+                Assert.assertEquals(pair.getFirst(), cursor.getKey());
+                Assert.assertEquals(pair.getSecond(), cursor.getValue());
+            }
+            Assert.assertFalse(cursor.getNext());
+        }
+        // loaded store can be modified
+        store.put(txn, getKey(), getValue());
+        txn.commit();
+        assertNotNullStringValue(store, getKey(), "value");
+    }
+
+    private void getAllPutAll(final StoreConfig config) {
+        final int count = 1000;
+        // even keys in descending order
+        final List<Pair<ByteIterable, ByteIterable>> pairs = new ArrayList<>();
+        for (int i = count - 1; i >= 0; --i) {
+            pairs.add(new Pair<ByteIterable, ByteIterable>(IntegerBinding.intToEntry(i * 2), IntegerBinding.intToEntry(i)));
+        }
+        pairs.add(new Pair<ByteIterable, ByteIterable>(IntegerBinding.intToEntry(0), IntegerBinding.intToEntry(-1)));
+        Transaction txn = env.beginTransaction();
+        final Store store = env.openStore("store", config, txn);
+        final int putCount = store.putAll(txn, pairs);
+        if (config.duplicates) {
+            Assert.assertEquals(count + 1, putCount);
+        }
+        Assert.assertEquals(config.duplicates ? count + 1 : count, store.count(txn));
+        txn.commit();
+        // all keys in random order
+        final ByteIterable[] keys = new ByteIterable[count * 2];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = IntegerBinding.intToEntry(i);
+        }
+        Collections.shuffle(Arrays.asList(keys), new Random(1));
+        txn = env.beginReadonlyTransaction();
+        final ByteIterable[] values = store.getAll(txn, keys);
+        Assert.assertEquals(keys.length, values.length);
+        for (int i = 0; i < keys.length; ++i) {
+            final int key = IntegerBinding.entryToInt(keys[i]);
+            if (key % 2 == 0) {
+                // the last value put by key 0 overwrites the first one, or it is the least duplicate
+                Assert.assertEquals(key == 0 ? -1 : key / 2, IntegerBinding.entryToInt(values[i]));
+            } else {
+                Assert.assertNull(values[i]);
+            }
+            Assert.assertEquals(store.get(txn, keys[i]), values[i]);
+        }
+        Assert.assertEquals(0, store.getAll(txn, new ByteIterable[0]).length);
+        txn.abort();
+    }
+
+    private void deleteRangeCountRange(final StoreConfig config) {
+        final int count = 2000;
+        Transaction txn = env.beginTransaction();
+        final Store store = env.openStore("store", config, txn);
+        for (int i = 0; i < count; ++i) {
+            store.put(txn, IntegerBinding.intToEntry(i), IntegerBinding.intToEntry(i));
+            if (config.duplicates && i % 10 == 0) {
+                store.put(txn, IntegerBinding.intToEntry(i), IntegerBinding.intToEntry(-i - 1));
+            }
+        }
+        txn.commit();
+        txn = env.beginReadonlyTransaction();
+        final Random rnd = new Random(1);
+        for (int i = 0; i < 100; ++i) {
+            final int from = rnd.nextInt(count + 100) - 50;
+            final int to = from + rnd.nextInt(count / 2);
+            Assert.assertEquals(countInRange(config, from, to, 0, -1),
+                    store.countRange(txn, IntegerBinding.intToEntry(from), IntegerBinding.intToEntry(to)));
+        }
+        Assert.assertEquals(0, store.countRange(txn, IntegerBinding.intToEntry(10), IntegerBinding.intToEntry(9)));
+        txn.abort();
+        txn = env.beginTransaction();
+        Assert.assertEquals(countInRange(config, 500, 1499, 0, -1),
+                store.deleteRange(txn, IntegerBinding.intToEntry(500), IntegerBinding.intToEntry(1499)));
+        Assert.assertEquals(0, store.deleteRange(txn, IntegerBinding.intToEntry(500), IntegerBinding.intToEntry(1499)));
+        Assert.assertEquals(countInRange(config, 0, count - 1, 500, 1499), store.count(txn));
+        Assert.assertEquals(countInRange(config, 400, 1600, 500, 1499),
+                store.countRange(txn, IntegerBinding.intToEntry(400), IntegerBinding.intToEntry(1600)));
+        txn.commit();
+        txn = env.beginReadonlyTransaction();
+        Assert.assertEquals(countInRange(config, 0, count - 1, 500, 1499), store.count(txn));
+        try (Cursor cursor = store.openCursor(txn)) {
+            long pairs = 0;
+            while (cursor.getNext()) {
+                final int key = IntegerBinding.entryToInt(cursor.getKey());
+                Assert.assertTrue(key < 500 || key > 1499);
+                ++pairs;
+            }
+            Assert.assertEquals(store.count(txn), pairs);
+        }
+        Assert.assertNotNull(store.get(txn, IntegerBinding.intToEntry(499)));
+        Assert.assertNull(store.get(txn, IntegerBinding.intToEntry(500)));
+        Assert.assertNull(store.get(txn, IntegerBinding.intToEntry(1499)));
+        Assert.assertNotNull(store.get(txn, IntegerBinding.intToEntry(1500)));
+        txn.abort();
+    }
+
+    private static long countInRange(final StoreConfig config, final int from, final int to,
+                                     final int deletedFrom, final int deletedTo) {
+        long result = 0;
+        for (int i = Math.max(from, 0); i <= to && i < 2000; ++i) {
+            if (i < deletedFrom || i > deletedTo) {
+                result += config.duplicates && i % 10 == 0 ? 2 : 1;
+            }
+        }
+        return result;
+    }
+
+    private void cursorPositions(final StoreConfig config) {
+        env.getEnvironmentConfig().setTreeSubtreeSizes(true);
+        env.getEnvironmentConfig().setTreeMaxPageSize(16);
+        reopenEnvironment();
+        final int count = 1000;
+        Transaction txn = env.beginTransaction();
+        final Store store = env.openStore("store", config, txn);
+        for (int i = 0; i < count; ++i) {
+            store.put(txn, IntegerBinding.intToEntry(i), IntegerBinding.intToEntry(i));
+            if (config.duplicates) {
+                store.put(txn, IntegerBinding.intToEntry(i), IntegerBinding.intToEntry(-i - 1));
+            }
+        }
+        txn.commit();
+        final int pairs = config.duplicates ? count * 2 : count;
+        txn = env.beginReadonlyTransaction();
+        try (Cursor cursor = store.openCursor(txn)) {
+            for (int i = pairs - 1; i >= 0; i -= 3) {
+                Assert.assertTrue(cursor.getAtPosition(i));
+                Assert.assertEquals(config.duplicates ? i / 2 : i, IntegerBinding.entryToInt(cursor.getKey()));
+                Assert.assertEquals(i, cursor.getPosition());
+            }
+            Assert.assertFalse(cursor.getAtPosition(pairs));
+            Assert.assertNotNull(cursor.getSearchKey(IntegerBinding.intToEntry(count / 2)));
+            Assert.assertEquals(config.duplicates ? count : count / 2, cursor.getPosition());
+        }
+        txn.abort();
+    }
+
     private void concurrentPutLikeJetPass(@NotNull final StoreConfig config) {
         env.getEnvironmentConfig().setGcEnabled(false);
         final Store store = openStoreAutoCommit("store", config);
@@ -299,6 +588,16 @@ public class StoreTest extends EnvironmentTestsBase {
         });
     }
 
+    private static List<Pair<ByteIterable, ByteIterable>> createPairs(final int keyCount, final int valuesPerKey) {
+        final List<Pair<ByteIterable, ByteIterable>> result = new ArrayList<>(keyCount * valuesPerKey);
+        for (int i = 0; i < keyCount; ++i) {
+            for (int j = 0; j < valuesPerKey; ++j) {
+                result.add(new Pair<ByteIterable, ByteIterable>(IntegerBinding.intToEntry(i), IntegerBinding.intToEntry(j)));
+            }
+        }
+        return result;
+    }
+
     private static ByteIterable getKey() {
         return StringBinding.stringToEntry("key");
     }
@@ -273,6 +273,89 @@ public class TransactionTest extends EnvironmentTestsBase {
         txn.abort();
     }
 
+    @Test
+    public void testRebaseDisjointStores() {
+        final Environment env = getEnvironment();
+        final ByteIterable key = StringBinding.stringToEntry("key");
+        Transaction txn = env.beginTransaction();
+        final Store store1 = env.openStore("store1", StoreConfig.WITHOUT_DUPLICATES, txn);
+        final Store store2 = env.openStore("store2", StoreConfig.WITHOUT_DUPLICATES, txn);
+        txn.commit();
+        // without rebase, any concurrent commit fails flush
+        txn = env.beginTransaction();
+        store1.put(txn, key, StringBinding.stringToEntry("value1"));
+        putInParallelTransaction(store2, key, "value2");
+        Assert.assertFalse(txn.flush());
+        txn.abort();
+        env.getEnvironmentConfig().setEnvTxnRebase(true);
+        txn = env.beginTransaction();
+        store1.put(txn, key, StringBinding.stringToEntry("value1"));
+        putInParallelTransaction(store2, key, "value3");
+        Assert.assertTrue(txn.flush());
+        assertNotNullStringValue(txn, store1, key, "value1");
+        assertNotNullStringValue(txn, store2, key, "value3");
+        txn.abort();
+        assertNotNullStringValue(store1, key, "value1");
+        assertNotNullStringValue(store2, key, "value3");
+    }
+
+    @Test
+    public void testRebaseConflict() {
+        final Environment env = getEnvironment();
+        env.getEnvironmentConfig().setEnvTxnRebase(true);
+        final ByteIterable key1 = StringBinding.stringToEntry("key1");
+        final ByteIterable key2 = StringBinding.stringToEntry("key2");
+        Transaction txn = env.beginTransaction();
+        final Store store1 = env.openStore("store1", StoreConfig.WITHOUT_DUPLICATES, txn);
+        final Store store2 = env.openStore("store2", StoreConfig.WITHOUT_DUPLICATES, txn);
+        txn.commit();
+        // concurrent modification of a store which is read
+        txn = env.beginTransaction();
+        assertEmptyValue(txn, store2, key1);
+        store1.put(txn, key1, StringBinding.stringToEntry("value1"));
+        putInParallelTransaction(store2, key2, "value2");
+        Assert.assertFalse(txn.flush());
+        // concurrent modification of the same store
+        txn.revert();
+        store1.put(txn, key1, StringBinding.stringToEntry("value1"));
+        putInParallelTransaction(store1, key2, "value2");
+        Assert.assertFalse(txn.flush());
+        // concurrent creation of a store with the same name
+        txn.revert();
+        env.openStore("store3", StoreConfig.WITHOUT_DUPLICATES, txn);
+        executeParallelTransaction(new TransactionalExecutable() {
+            @Override
+            public void execute(@NotNull final Transaction txn) {
+                env.openStore("store3", StoreConfig.WITHOUT_DUPLICATES, txn);
+            }
+        });
+        Assert.assertFalse(txn.flush());
+        // absence of a store is read
+        txn.revert();
+        Assert.assertNull(env.openStore("store4", StoreConfig.WITHOUT_DUPLICATES, txn, false));
+        store1.put(txn, key1, StringBinding.stringToEntry("value1"));
+        executeParallelTransaction(new TransactionalExecutable() {
+            @Override
+            public void execute(@NotNull final Transaction txn) {
+                env.openStore("store4", StoreConfig.WITHOUT_DUPLICATES, txn);
+            }
+        });
+        Assert.assertFalse(txn.flush());
+        // list of stores is read
+        txn.revert();
+        env.getAllStoreNames(txn);
+        store1.put(txn, key1, StringBinding.stringToEntry("value1"));
+        putInParallelTransaction(store2, key2, "value3");
+        Assert.assertFalse(txn.flush());
+        txn.revert();
+        store1.put(txn, key1, StringBinding.stringToEntry("value1"));
+        Assert.assertTrue(txn.flush());
+        txn.abort();
+        assertNotNullStringValue(store1, key1, "value1");
+        assertNotNullStringValue(store1, key2, "value2");
+        assertNotNullStringValue(store2, key2, "value3");
+    }
+
     @Test(expected = ReadonlyTransactionException.class)
     public void testExecuteInReadonlyTransaction() {
         final EnvironmentImpl env = getEnvironment();
@@ -339,4 +422,13 @@ public class TransactionTest extends EnvironmentTestsBase {
             txn.abort();
         }
     }
+
+    private void putInParallelTransaction(@NotNull final Store store, @NotNull final ByteIterable key, @NotNull final String value) {
+        executeParallelTransaction(new TransactionalExecutable() {
+            @Override
+            public void execute(@NotNull final Transaction txn) {
+                store.put(txn, key, StringBinding.stringToEntry(value));
+            }
+        });
+    }
 }
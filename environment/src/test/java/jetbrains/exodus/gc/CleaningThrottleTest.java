@@ -0,0 +1,148 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.gc;
+
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.bindings.IntegerBinding;
+import jetbrains.exodus.env.*;
+import jetbrains.exodus.log.Log;
+import jetbrains.exodus.log.LoggableIterator;
+import jetbrains.exodus.log.PageReadsCounter;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CleaningThrottleTest extends EnvironmentTestsBase {
+
+    private static final long MB = 1024L * 1024L;
+
+    private final TestClock clock = new TestClock();
+
+    @Test
+    public void idle() {
+        final CleaningThrottle throttle = new CleaningThrottle(env.getGC(), clock);
+        Assert.assertEquals(0, throttle.getDelay(MB, 0, 10));
+        clock.advance(1100);
+        Assert.assertEquals(0, throttle.getDelay(MB, 0, 10));
+        Assert.assertEquals(CleaningThrottle.UNLIMITED, throttle.getBudget());
+    }
+
+    @Test
+    public void backOffOnLatencyGrowth() {
+        env.getEnvironmentConfig().setGcThrottleMinRate(MB);
+        final CleaningThrottle throttle = new CleaningThrottle(env.getGC(), clock);
+        throttle.getDelay(MB, 0, 10);
+        throttle.commitFinished(1000000L);
+        clock.advance(1100);
+        Assert.assertEquals(0, throttle.getDelay(MB, 0, 10));
+        Assert.assertEquals(CleaningThrottle.UNLIMITED, throttle.getBudget());
+        throttle.commitFinished(10000000L);
+        clock.advance(1100);
+        Assert.assertTrue(throttle.getDelay(MB, 0, 10) > 0);
+        Assert.assertEquals(MB, throttle.getBudget());
+        // no more foreground commits
+        clock.advance(1100);
+        Assert.assertEquals(0, throttle.getDelay(MB, 0, 10));
+        Assert.assertEquals(CleaningThrottle.UNLIMITED, throttle.getBudget());
+    }
+
+    @Test
+    public void cleanerReadsAreNotCounted() throws InterruptedException {
+        final Log log = getLog();
+        final PageReadsCounter pageReads = log.getPageReads();
+        final CleaningThrottle throttle = new CleaningThrottle(env.getGC(), clock);
+        // current thread acts as the cleaner
+        throttle.getDelay(MB, 0, 10);
+        final long reads = pageReads.getReads();
+        readLog(log, Integer.MAX_VALUE);
+        Assert.assertEquals(reads, pageReads.getReads());
+        readLogInForeground(log, Integer.MAX_VALUE, 1);
+        Assert.assertTrue(pageReads.getReads() > reads);
+    }
+
+    @Test
+    public void backOffOnMissRateGrowth() throws InterruptedException {
+        final EnvironmentConfig ec = env.getEnvironmentConfig();
+        ec.setGcEnabled(false);
+        ec.setGcThrottleMinRate(MB);
+        ec.setLogCacheShared(false);
+        ec.setLogCachePageSize(1024);
+        ec.setMemoryUsage(64 * 1024);
+        reopenEnvironment();
+        final Store store = env.computeInTransaction(new TransactionalComputable<Store>() {
+            @Override
+            public Store compute(@NotNull final Transaction txn) {
+                return env.openStore("store", StoreConfig.WITHOUT_DUPLICATES, txn);
+            }
+        });
+        env.executeInTransaction(new TransactionalExecutable() {
+            @Override
+            public void execute(@NotNull final Transaction txn) {
+                for (int i = 0; i < 1000; ++i) {
+                    store.put(txn, IntegerBinding.intToEntry(i), new ArrayByteIterable(new byte[1000]));
+                }
+            }
+        });
+        final Log log = getLog();
+        final CleaningThrottle throttle = new CleaningThrottle(env.getGC(), clock);
+        throttle.getDelay(MB, 0, 10);
+        // foreground reads of a few pages hit the cache
+        readLogInForeground(log, 10, 100);
+        clock.advance(1100);
+        Assert.assertEquals(0, throttle.getDelay(MB, 0, 10));
+        Assert.assertEquals(CleaningThrottle.UNLIMITED, throttle.getBudget());
+        // foreground scan of the log doesn't fit in the cache
+        readLogInForeground(log, Integer.MAX_VALUE, 1);
+        clock.advance(1100);
+        Assert.assertTrue(throttle.getDelay(MB, 0, 10) > 0);
+        Assert.assertEquals(MB, throttle.getBudget());
+    }
+
+    private static void readLogInForeground(final Log log,
+                                            final int loggables, final int times) throws InterruptedException {
+        final Thread foreground = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < times; ++i) {
+                    readLog(log, loggables);
+                }
+            }
+        });
+        foreground.start();
+        foreground.join();
+    }
+
+    private static void readLog(final Log log, int loggables) {
+        final LoggableIterator it = log.getLoggableIterator(0);
+        while (loggables-- > 0 && it.hasNext()) {
+            it.next();
+        }
+    }
+
+    private static class TestClock implements CleaningThrottle.Clock {
+
+        private long time = 1000000L;
+
+        @Override
+        public long currentTimeMillis() {
+            return time;
+        }
+
+        private void advance(final long millis) {
+            time += millis;
+        }
+    }
+}
@@ -118,6 +118,34 @@ public class GarbageCollectorTest extends EnvironmentTestsBase {
         Assert.assertEquals(1L, env.getLog().getNumberOfFiles());
     }
 
+    @Test
+    public void cleanSeveralFilesInParallel() {
+        set1KbFileWithoutGC();
+        env.getEnvironmentConfig().setGcFilesPerCleaning(4);
+        env.getEnvironmentConfig().setGcReclaimThreads(3);
+        final Store[] stores = new Store[5];
+        for (int i = 0; i < stores.length; ++i) {
+            stores[i] = openStoreAutoCommit("store" + i, getStoreConfig(i % 2 == 0));
+        }
+        for (int i = 0; i < 1000; ++i) {
+            putAutoCommit(stores[i % stores.length], IntegerBinding.intToEntry(i % 10), IntegerBinding.intToEntry(i));
+        }
+        final long filesBefore = env.getLog().getNumberOfFiles();
+        Assert.assertTrue(filesBefore > 4);
+
+        env.getGC().cleanWholeLog();
+
+        Assert.assertTrue(env.getLog().getNumberOfFiles() < filesBefore);
+        Assert.assertTrue(env.getGC().getParallelReclaims() > 0);
+
+        reopenEnvironment();
+
+        for (int i = 0; i < stores.length; ++i) {
+            final Store store = openStoreAutoCommit("store" + i, StoreConfig.USE_EXISTING);
+            Assert.assertEquals(i % 2 == 0 ? 200 : 2, countAutoCommit(store));
+        }
+    }
+
     @Test
     public void reopenDbAfterGc() {
         set1KbFileWithoutGC();
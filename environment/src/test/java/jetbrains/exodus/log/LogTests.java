@@ -15,19 +15,27 @@
  */
 package jetbrains.exodus.log;
 
+import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.ByteIterator;
 import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.TestUtil;
 import jetbrains.exodus.core.dataStructures.LongArrayList;
 import jetbrains.exodus.core.dataStructures.hash.LongHashMap;
+import jetbrains.exodus.io.CompressedFileDataReader;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
+import jetbrains.exodus.util.DeferredIO;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.Iterator;
+import java.util.Random;
 
 import static java.lang.Integer.valueOf;
 
@@ -298,6 +306,264 @@ public class LogTests extends LogTestsBase {
         testWriteRandomRead(2, 1024);
     }
 
+    @Test
+    public void testWriteRandomReadStripedCache() throws IOException {
+        final LogConfig config = new LogConfig();
+        config.setFileSize(4);
+        config.setCachePageSize(1024);
+        config.setStripedCache(true);
+        testWriteRandomRead(config);
+    }
+
+    @Test
+    public void testWriteRandomReadStripedCacheEviction() throws IOException {
+        final LogConfig config = new LogConfig();
+        config.setFileSize(4);
+        config.setCachePageSize(1024);
+        config.setMemoryUsage(64 * 1024);
+        config.setStripedCache(true);
+        testWriteRandomRead(config);
+    }
+
+    @Test
+    public void testWriteRandomReadOffHeapCache() throws IOException {
+        final LogConfig config = new LogConfig();
+        config.setFileSize(4);
+        config.setCachePageSize(1024);
+        config.setMemoryUsage(64 * 1024);
+        config.setCacheOffHeapMemoryUsage(1024 * 1024);
+        testWriteRandomRead(config);
+        Assert.assertTrue(getLog().getOffHeapCacheHitRate() > 0);
+    }
+
+    @Test
+    public void testWriteRandomReadWriteBehind() throws IOException {
+        final LogConfig config = new LogConfig();
+        config.setFileSize(4);
+        config.setCachePageSize(1024);
+        config.setMemoryUsage(64 * 1024);
+        config.setWriteBehind(true);
+        testWriteRandomRead(config);
+    }
+
+    @Test
+    public void testWriteSequentialReadAhead() throws IOException {
+        final LogConfig config = new LogConfig();
+        config.setFileSize(16);
+        config.setCachePageSize(1024);
+        config.setMemoryUsage(64 * 1024);
+        config.setCacheReadAhead(8);
+        testWriteSequentialReadAhead(config);
+    }
+
+    @Test
+    public void testWriteSequentialReadAheadWriteBehind() throws IOException {
+        final LogConfig config = new LogConfig();
+        config.setFileSize(16);
+        config.setCachePageSize(1024);
+        config.setMemoryUsage(64 * 1024);
+        config.setCacheReadAhead(8);
+        config.setWriteBehind(true);
+        // read-ahead near the tail of the log mustn't wait for write-behind
+        testWriteSequentialReadAhead(config);
+    }
+
+    private void testWriteSequentialReadAhead(@NotNull final LogConfig config) throws IOException {
+        initLog(config);
+        writeSequentialRead();
+        final Log log = getLog();
+        // pages are read ahead while loggables are iterated
+        final Iterator<RandomAccessLoggable> it = log.getLoggableIterator(0);
+        int i = 0;
+        while (it.hasNext()) {
+            final RandomAccessLoggable loggable = it.next();
+            if (!NullLoggable.isNullLoggable(loggable)) {
+                Assert.assertEquals(i++, (int) CompressedUnsignedLongByteIterable.getLong(loggable.getData()));
+            }
+        }
+        Assert.assertEquals(50000, i);
+        final LogPrefetcher prefetcher = log.prefetcher;
+        Assert.assertNotNull(prefetcher);
+        // the first pages are already evicted, so three sequential misses make the following pages be read ahead
+        final long prefetched = prefetcher.getPrefetchedPages();
+        final int pageSize = config.getCachePageSize();
+        for (int page = 0; page < 3; ++page) {
+            Assert.assertNull(log.cache.getCachedPage(log, (long) page * pageSize));
+            log.cache.getPage(log, (long) page * pageSize);
+        }
+        DeferredIO.getJobProcessor().waitForJobs(100);
+        Assert.assertTrue(prefetcher.getPrefetchedPages() > prefetched);
+        Assert.assertNotNull(log.cache.getCachedPage(log, 3L * pageSize));
+    }
+
+    @Test
+    public void testReadMultiPageLoggables() throws IOException {
+        final LogConfig config = new LogConfig();
+        config.setFileSize(64);
+        config.setCachePageSize(1024);
+        config.setMemoryUsage(64 * 1024);
+        initLog(config);
+        final int count = 500;
+        final long[] addrs = new long[count];
+        for (int i = 0; i < count; ++i) {
+            addrs[i] = getLog().write(new LoggableToWrite((byte) 127, createMultiPageData(i), Loggable.NO_STRUCTURE_ID));
+        }
+        getLog().flush();
+        // data of loggables are read in reverse order in order to have cache misses
+        for (int i = count - 1; i >= 0; --i) {
+            final RandomAccessLoggable loggable = getLog().read(addrs[i]);
+            final ArrayByteIterable expected = createMultiPageData(i);
+            Assert.assertEquals(expected.getLength(), loggable.getDataLength());
+            final ByteIterator it = loggable.getData().iterator();
+            for (int j = 0; j < expected.getLength(); ++j) {
+                Assert.assertEquals(expected.getBytesUnsafe()[j], it.next());
+            }
+        }
+    }
+
+    @Test
+    public void testPageChecksums() throws IOException {
+        final LogConfig config = new LogConfig();
+        config.setFileSize(4);
+        config.setCachePageSize(1024);
+        config.setMemoryUsage(64 * 1024);
+        config.setPageChecksums(true);
+        testWriteRandomRead(config);
+        closeLog();
+        final File logFile = new File(getLogDirectory(), LogUtil.getLogFilename(0));
+        Assert.assertTrue(new File(getLogDirectory(), logFile.getName() + PageChecksums.CHECKSUMS_FILE_EXTENSION).isFile());
+        // corrupt the first page
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+            file.seek(100);
+            final int b = file.read();
+            file.seek(100);
+            file.write(b ^ 0xff);
+        }
+        initLog(config);
+        TestUtil.runWithExpectedException(new Runnable() {
+            @Override
+            public void run() {
+                getLog().read(0);
+            }
+        }, ExodusException.class);
+        // other pages are still readable
+        getLog().read(1024 * 4);
+    }
+
+    @Test
+    public void testPageChecksumsRecovery() throws IOException {
+        final LogConfig config = new LogConfig();
+        config.setFileSize(64);
+        config.setCachePageSize(1024);
+        config.setMemoryUsage(64 * 1024);
+        config.setPageChecksums(true);
+        initLog(config);
+        final LongArrayList addrs = new LongArrayList();
+        for (int i = 0; i < 4000; ++i) {
+            addrs.add(getLog().write(createDataLoggable(i)));
+        }
+        getLog().flush(true);
+        // checksums of the last file are saved on sync
+        final File logFile = new File(getLogDirectory(), LogUtil.getLogFilename(0));
+        Assert.assertTrue(new File(getLogDirectory(), logFile.getName() + PageChecksums.CHECKSUMS_FILE_EXTENSION).isFile());
+        closeLog();
+        // corrupt the fifth page
+        final long corruptedPageAddress = 1024 * 4;
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+            file.seek(corruptedPageAddress + 100);
+            final int b = file.read();
+            file.seek(corruptedPageAddress + 100);
+            file.write(b ^ 0xff);
+        }
+        initLog(config);
+        // the log is truncated to the last loggable completely below the corrupted page
+        final long highAddress = getLog().getHighAddress();
+        Assert.assertTrue(highAddress <= corruptedPageAddress);
+        for (int i = 0; i < addrs.size(); ++i) {
+            final long address = addrs.get(i);
+            if (address >= highAddress) {
+                Assert.assertTrue(corruptedPageAddress - address < 10);
+                break;
+            }
+            Assert.assertEquals(i, (int) CompressedUnsignedLongByteIterable.getLong(getLog().read(address).getData()));
+        }
+    }
+
+    @Test
+    public void testCompression() throws InterruptedException {
+        final File dir = getLogDirectory();
+        Log log = new Log(createCompressionConfig(dir, true));
+        final LongHashMap<Integer> addrs = new LongHashMap<>();
+        try {
+            for (int i = 0; i < 50000; ++i) {
+                addrs.put(log.write(createDataLoggable(i)), valueOf(i));
+            }
+            log.flush();
+            // wait until all files except the last one are compressed
+            for (int i = 0; i < 100 && LogUtil.listFiles(dir).length > 1; ++i) {
+                Thread.sleep(100);
+            }
+            Assert.assertEquals(1, LogUtil.listFiles(dir).length);
+            Assert.assertTrue(log.getNumberOfFiles() > 1);
+            assertLoggables(log, addrs, Long.MAX_VALUE);
+        } finally {
+            log.close();
+        }
+        // compressed files are readable even if compression is off
+        log = new Log(createCompressionConfig(dir, false));
+        try {
+            assertLoggables(log, addrs, Long.MAX_VALUE);
+            // truncate the log in the middle of the second file, so it's decompressed in order to be appended
+            long highAddress = Long.MAX_VALUE;
+            for (final Long address : addrs.keySet()) {
+                if (address > log.getFileLengthBound() + 100 && address < highAddress) {
+                    highAddress = address;
+                }
+            }
+            log.setHighAddress(highAddress);
+            final String secondFile = LogUtil.getLogFilename(log.getFileLengthBound());
+            Assert.assertTrue(new File(dir, secondFile).isFile());
+            Assert.assertEquals(2, log.getNumberOfFiles());
+            final long address = log.write(createDataLoggable(50000));
+            Assert.assertEquals(highAddress, address);
+            addrs.put(address, valueOf(50000));
+            assertLoggables(log, addrs, address + 1);
+        } finally {
+            log.close();
+        }
+    }
+
+    @Test
+    public void testIncompressibleFiles() throws InterruptedException {
+        final File dir = getLogDirectory();
+        Log log = new Log(createCompressionConfig(dir, true));
+        final Random random = new Random(239);
+        try {
+            for (int i = 0; i < 20; ++i) {
+                final byte[] bytes = new byte[1300];
+                random.nextBytes(bytes);
+                log.write(new LoggableToWrite((byte) 127, new ArrayByteIterable(bytes), Loggable.NO_STRUCTURE_ID));
+            }
+            // immutable files are compressed on opening the log
+            log.close();
+            log = new Log(createCompressionConfig(dir, true));
+            final int fileCount = (int) log.getNumberOfFiles();
+            for (int i = 0; i < 100 && listIncompressibleMarkers(dir).length < fileCount - 1; ++i) {
+                Thread.sleep(100);
+            }
+            Assert.assertEquals(fileCount - 1, listIncompressibleMarkers(dir).length);
+            Assert.assertEquals(fileCount, LogUtil.listFiles(dir).length);
+            // markers survive reopening and are removed with their files
+            log.close();
+            log = new Log(createCompressionConfig(dir, true));
+            Assert.assertEquals(fileCount - 1, listIncompressibleMarkers(dir).length);
+            log.removeFile(0);
+            Assert.assertEquals(fileCount - 2, listIncompressibleMarkers(dir).length);
+        } finally {
+            log.close();
+        }
+    }
+
     @Test
     public void testAllLoggablesIterator() throws IOException {
         initLog(4, 1024 * 4);
@@ -375,6 +641,10 @@ public class LogTests extends LogTestsBase {
 
     private void testWriteSequentialRead(int fileSize, int pageSize) {
         initLog(fileSize, pageSize);
+        writeSequentialRead();
+    }
+
+    private void writeSequentialRead() {
         final int count = 50000;
         final LongArrayList addrs = new LongArrayList();
         for (int i = 0; i < count; ++i) {
@@ -387,6 +657,15 @@ public class LogTests extends LogTestsBase {
 
     private void testWriteRandomRead(int fileSize, int pageSize) {
         initLog(fileSize, pageSize);
+        writeRandomRead();
+    }
+
+    private void testWriteRandomRead(final LogConfig config) {
+        initLog(config);
+        writeRandomRead();
+    }
+
+    private void writeRandomRead() {
         final int count = 50000;
         final LongHashMap<Integer> addrs = new LongHashMap<>();
         for (int i = 0; i < count; ++i) {
@@ -398,6 +677,41 @@ public class LogTests extends LogTestsBase {
         }
     }
 
+    private static LogConfig createCompressionConfig(@NotNull final File dir, final boolean compression) {
+        final LogConfig config = new LogConfig();
+        config.setDir(dir);
+        config.setFileSize(4);
+        config.setCachePageSize(1024);
+        config.setMemoryUsage(64 * 1024);
+        config.setCompression(compression);
+        return config;
+    }
+
+    private static File[] listIncompressibleMarkers(@NotNull final File dir) {
+        return dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(CompressedFileDataReader.INCOMPRESSIBLE_FILE_EXTENSION);
+            }
+        });
+    }
+
+    private static void assertLoggables(@NotNull final Log log, @NotNull final LongHashMap<Integer> addrs, final long highAddress) {
+        for (final Long addr : addrs.keySet()) {
+            if (addr < highAddress) {
+                Assert.assertEquals((int) addrs.get(addr), (int) CompressedUnsignedLongByteIterable.getLong(log.read(addr).getData()));
+            }
+        }
+    }
+
+    private static ArrayByteIterable createMultiPageData(final int i) {
+        final byte[] bytes = new byte[1000 + i * 37 % 5000];
+        for (int j = 0; j < bytes.length; ++j) {
+            bytes[j] = (byte) (i + j);
+        }
+        return new ArrayByteIterable(bytes);
+    }
+
     private static LoggableToWrite createDataLoggable(long data) {
         return new LoggableToWrite((byte) 127, CompressedUnsignedLongByteIterable.getIterable(data), Loggable.NO_STRUCTURE_ID);
     }
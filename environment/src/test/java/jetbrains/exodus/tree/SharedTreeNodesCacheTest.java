@@ -0,0 +1,112 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree;
+
+import jetbrains.exodus.core.dataStructures.LongObjectCacheBase;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SharedTreeNodesCacheTest {
+
+    @Test
+    public void partitions() {
+        final SharedTreeNodesCache cache = new SharedTreeNodesCache(1 << 20);
+        final LongObjectCacheBase<Object> cache1 = cache.newCache();
+        final LongObjectCacheBase<Object> cache2 = cache.newCache();
+        cache1.cacheObject(1L, "node1");
+        cache2.cacheObject(1L, "node2");
+        Assert.assertEquals("node1", cache1.tryKey(1L));
+        Assert.assertEquals("node2", cache2.tryKey(1L));
+        Assert.assertNull(cache1.tryKey(2L));
+        Assert.assertEquals(1, cache1.count());
+        Assert.assertEquals(2, cache.count());
+        Assert.assertEquals("node2", cache2.remove(1L));
+        Assert.assertNull(cache2.tryKey(1L));
+        Assert.assertEquals("node1", cache1.tryKey(1L));
+        cache.removeCache(cache1);
+        Assert.assertNull(cache1.tryKey(1L));
+        Assert.assertEquals(0, cache.count());
+        Assert.assertEquals(0, cache.getMemoryUsage());
+    }
+
+    @Test
+    public void memoryUsageBound() {
+        final long maxMemoryUsage = 1 << 20;
+        final SharedTreeNodesCache cache = new SharedTreeNodesCache(maxMemoryUsage);
+        final LongObjectCacheBase<Object> cache1 = cache.newCache();
+        final LongObjectCacheBase<Object> cache2 = cache.newCache();
+        for (int i = 0; i < 100000; ++i) {
+            cache1.cacheObject(i, new Node(100));
+            cache2.cacheObject(i, new Node(1000));
+            Assert.assertTrue(cache.getMemoryUsage() <= maxMemoryUsage);
+        }
+        Assert.assertTrue(cache.getMemoryUsage() > maxMemoryUsage / 2);
+        // the most recently cached nodes are in the cache
+        Assert.assertNotNull(cache1.tryKey(99999));
+        Assert.assertNotNull(cache2.tryKey(99999));
+        Assert.assertNull(cache1.tryKey(0));
+        Assert.assertNull(cache2.tryKey(0));
+        // heavy nodes are evicted along with light ones
+        Assert.assertTrue(cache1.count() > cache2.count());
+        cache.clear();
+        Assert.assertEquals(0, cache.getMemoryUsage());
+    }
+
+    @Test
+    public void referencedNodesSurvive() {
+        final SharedTreeNodesCache cache = new SharedTreeNodesCache(1 << 20);
+        final LongObjectCacheBase<Object> cache1 = cache.newCache();
+        for (int i = 0; i < 100000; ++i) {
+            cache1.cacheObject(i, new Node(100));
+            Assert.assertNotNull(cache1.tryKey(0));
+        }
+        Assert.assertNull(cache1.tryKey(1));
+    }
+
+    @Test
+    public void nodeHeavierThanStripe() {
+        final SharedTreeNodesCache cache = new SharedTreeNodesCache(1 << 16);
+        final LongObjectCacheBase<Object> cache1 = cache.newCache();
+        cache1.cacheObject(1L, new Node(1 << 16));
+        Assert.assertNull(cache1.tryKey(1L));
+        Assert.assertEquals(0, cache.getMemoryUsage());
+    }
+
+    @Test
+    public void hitRate() {
+        final SharedTreeNodesCache cache = new SharedTreeNodesCache(1 << 20);
+        final LongObjectCacheBase<Object> cache1 = cache.newCache();
+        cache1.cacheObject(1L, new Node(10));
+        Assert.assertNotNull(cache1.tryKey(1L));
+        Assert.assertNull(cache1.tryKey(2L));
+        Assert.assertEquals(0.5, cache.hitRate(), 1e-9);
+        Assert.assertEquals(0.5, cache1.hitRate(), 1e-9);
+    }
+
+    private static class Node implements Weighable {
+
+        private final int weight;
+
+        private Node(final int weight) {
+            this.weight = weight;
+        }
+
+        @Override
+        public int getWeight() {
+            return weight;
+        }
+    }
+}
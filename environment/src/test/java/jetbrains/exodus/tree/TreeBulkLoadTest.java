@@ -0,0 +1,133 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree;
+
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.TestUtil;
+import jetbrains.exodus.core.dataStructures.Pair;
+import jetbrains.exodus.log.RandomAccessLoggable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public abstract class TreeBulkLoadTest extends TreeBaseTest {
+
+    protected abstract ITreeBulkLoader createBulkLoader(final boolean hasDuplicates,
+                                                        final int structureId,
+                                                        final Iterator<Pair<ByteIterable, ByteIterable>> pairs);
+
+    @Test
+    public void testLoadEmpty() {
+        final long address = createBulkLoader(false, 1, new ArrayList<Pair<ByteIterable, ByteIterable>>().iterator()).save();
+        t = openTree(address, false);
+        checkEmptyTree(t);
+    }
+
+    @Test
+    public void testLoadWithoutDuplicates() {
+        final List<Pair<ByteIterable, ByteIterable>> pairs = createPairs(10000, 1);
+        t = openTree(createBulkLoader(false, 1, pairs.iterator()).save(), false);
+        checkTree(pairs);
+    }
+
+    @Test
+    public void testLoadWithDuplicates() {
+        final List<Pair<ByteIterable, ByteIterable>> pairs = createPairs(10000, 3);
+        t = openTree(createBulkLoader(true, 1, pairs.iterator()).save(), true);
+        checkTree(pairs);
+    }
+
+    @Test
+    public void testLoadThenModify() {
+        final int count = 1000;
+        final List<Pair<ByteIterable, ByteIterable>> pairs = createPairs(count, 1);
+        tm = openTree(createBulkLoader(false, 1, pairs.iterator()).save(), false).getMutableCopy();
+        for (int i = 0; i < count; i += 2) {
+            assertTrue(tm.delete(key(i)));
+        }
+        tm.put(key(count), v(count));
+        t = openTree(tm.save(), false);
+        assertEquals(count / 2 + 1, t.getSize());
+        for (int i = 0; i <= count; ++i) {
+            if (i % 2 == 0 && i < count) {
+                assertNull(t.get(key(i)));
+            } else {
+                assertEquals(v(i), t.get(key(i)));
+            }
+        }
+    }
+
+    @Test
+    public void testLoadUnsorted() {
+        final List<Pair<ByteIterable, ByteIterable>> pairs = createPairs(1000, 1);
+        pairs.add(pairs.get(500));
+        TestUtil.runWithExpectedException(new Runnable() {
+            @Override
+            public void run() {
+                createBulkLoader(false, 1, pairs.iterator()).save();
+            }
+        }, IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testLoadDuplicateWithoutDuplicates() {
+        final List<Pair<ByteIterable, ByteIterable>> pairs = createPairs(1000, 2);
+        TestUtil.runWithExpectedException(new Runnable() {
+            @Override
+            public void run() {
+                createBulkLoader(false, 1, pairs.iterator()).save();
+            }
+        }, IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testReclaim() {
+        final List<Pair<ByteIterable, ByteIterable>> pairs = createPairs(5000, 1);
+        final long startAddress = log.getHighAddress();
+        tm = openTree(createBulkLoader(false, 1, pairs.iterator()).save(), false).getMutableCopy();
+        final Iterator<RandomAccessLoggable> loggables = log.getLoggableIterator(startAddress);
+        assertTrue(tm.reclaim(loggables.next(), loggables));
+        t = openTree(tm.save(), false);
+        checkTree(pairs);
+    }
+
+    private void checkTree(final List<Pair<ByteIterable, ByteIterable>> pairs) {
+        assertEquals(pairs.size(), t.getSize());
+        try (ITreeCursor cursor = t.openCursor()) {
+            for (final Pair<ByteIterable, ByteIterable> pair : pairs) {
+                assertTrue(cursor.getNext());
+                assertEquals(pair.getFirst(), cursor.getKey());
+                assertEquals(pair.getSecond(), cursor.getValue());
+                assertTrue(t.hasPair(pair.getFirst(), pair.getSecond()));
+            }
+            assertFalse(cursor.getNext());
+        }
+    }
+
+    private static List<Pair<ByteIterable, ByteIterable>> createPairs(final int keyCount, final int valuesPerKey) {
+        final List<Pair<ByteIterable, ByteIterable>> result = new ArrayList<>(keyCount * valuesPerKey);
+        for (int i = 0; i < keyCount; ++i) {
+            for (int j = 0; j < valuesPerKey; ++j) {
+                result.add(new Pair<ByteIterable, ByteIterable>(key(i), v(i * valuesPerKey + j)));
+            }
+        }
+        return result;
+    }
+}
@@ -57,6 +57,22 @@ public abstract class TreeCursorDuplicatesTest extends TreeBaseTest {
         }
     }
 
+    @Test
+    public void testFlyweight() throws IOException {
+        long a = tm.save();
+        reopen();
+        t = openTree(a, true);
+        try (ITreeCursor cursor = t.openCursor()) {
+            cursor.setFlyweight(true);
+            for (final INode ln : values) {
+                assertTrue(cursor.getNext());
+                assertEquals(ln.getKey(), cursor.getKey());
+                assertEquals(ln.getValue(), cursor.getValue());
+            }
+            assertFalse(cursor.getNext());
+        }
+    }
+
     @Test
     public void testInitialState() throws IOException {
         final TreeAwareRunnable initial = new TreeAwareRunnable(getTreeMutable()) {
@@ -106,6 +106,28 @@ public abstract class TreeCursorNoDuplicatesTest extends CursorTestBase {
         assertFalse(c.getNext());
     }
 
+    @Test
+    public void testFlyweight() throws IOException {
+        long a = getTreeMutable().save();
+        reopen();
+        t = openTree(a, false);
+        final ByteIterable[] keys = new ByteIterable[s];
+        try (ITreeCursor cursor = t.openCursor()) {
+            cursor.setFlyweight(true);
+            for (int i = 0; i < s; i++) {
+                assertTrue(cursor.getNext());
+                final ByteIterable key = cursor.getKey();
+                assertEquals(key(i), key);
+                assertEquals(value("v" + i), cursor.getValue());
+                keys[i] = new ArrayByteIterable(key);
+            }
+            assertFalse(cursor.getNext());
+        }
+        for (int i = 0; i < s; i++) {
+            assertEquals(key(i), keys[i]);
+        }
+    }
+
     @Test
     public void testCount() throws IOException {
         final GetNext getNext = new GetNext() {
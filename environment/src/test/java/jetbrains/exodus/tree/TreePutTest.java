@@ -24,6 +24,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
 
 import static org.junit.Assert.*;
@@ -118,6 +119,82 @@ public abstract class TreePutTest extends TreeBaseTest {
         }
     }
 
+    @Test
+    public void testGetAll() {
+        tm = createMutableTree(false, 1);
+        final int count = 1000;
+        for (int i = 0; i < count; ++i) {
+            tm.put(key(i * 2), value("v" + i));
+        }
+        final ByteIterable[] keys = new ByteIterable[count * 2 + 1];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = key(i);
+        }
+        checkGetAll(tm, keys, count);
+        t = openTree(tm.save(), false);
+        checkGetAll(t, keys, count);
+        // keys skipping whole pages
+        final ByteIterable[] someKeys = {key(0), key(2), key(1000), key(1001), key(1998)};
+        final ByteIterable[] values = new ByteIterable[someKeys.length];
+        t.getAll(someKeys, values);
+        valueEquals("v0", values[0]);
+        valueEquals("v1", values[1]);
+        valueEquals("v500", values[2]);
+        assertNull(values[3]);
+        valueEquals("v999", values[4]);
+    }
+
+    @Test
+    public void testGetAllKeysWithSamePrefix() {
+        tm = createMutableTree(false, 1);
+        final StringBuilder key = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            key.append('1');
+            tm.put(key(key.toString()), value(Integer.toString(i)));
+            tm.put(key(key.toString() + '3'), value("x" + i));
+        }
+        t = openTree(tm.save(), false);
+        // "1...1", "1...12", "1...13" in ascending order
+        final ByteIterable[] keys = new ByteIterable[300];
+        key.setLength(0);
+        for (int i = 0; i < 100; ++i) {
+            key.append('1');
+            keys[i * 3] = key(key.toString());
+            keys[i * 3 + 1] = key(key.toString() + '2');
+            keys[i * 3 + 2] = key(key.toString() + '3');
+        }
+        Arrays.sort(keys);
+        final ByteIterable[] values = new ByteIterable[keys.length];
+        t.getAll(keys, values);
+        for (int i = 0; i < keys.length; ++i) {
+            Assert.assertEquals(t.get(keys[i]), values[i]);
+        }
+    }
+
+    @Test
+    public void testGetAllWithDuplicates() {
+        tm = createMutableTree(true, 1);
+        final int count = 500;
+        for (int i = 0; i < count; ++i) {
+            tm.put(key(i * 2), value("v" + i));
+            tm.put(key(i * 2), value("w" + i));
+        }
+        t = openTree(tm.save(), true);
+        final ByteIterable[] keys = new ByteIterable[count * 2];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = key(i);
+        }
+        final ByteIterable[] values = new ByteIterable[keys.length];
+        t.getAll(keys, values);
+        for (int i = 0; i < keys.length; ++i) {
+            if (i % 2 == 0) {
+                valueEquals("v" + i / 2, values[i]);
+            } else {
+                assertNull(values[i]);
+            }
+        }
+    }
+
     @Test
     public void testPutReopen() throws IOException {
         tm = createMutableTree(false, 1);
@@ -461,4 +538,40 @@ public abstract class TreePutTest extends TreeBaseTest {
             }
         });
     }
+
+    private static void checkGetAll(final ITree tree, final ByteIterable[] keys, final int count) {
+        final ByteIterable[] values = new ByteIterable[keys.length];
+        tree.getAll(keys, values);
+        for (int i = 0; i < keys.length; ++i) {
+            if (i % 2 == 0 && i < count * 2) {
+                valueEquals("v" + i / 2, values[i]);
+            } else {
+                assertNull(values[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testPrepareSave() {
+        tm = createMutableTree(true, 1);
+        final int count = 1000;
+        for (int i = 0; i < count; ++i) {
+            tm.put(key(i), value("v" + i));
+        }
+        long address = tm.save();
+        tm = openTree(address, true).getMutableCopy();
+        for (int i = 0; i < count; i += 3) {
+            tm.put(key(i), value("w" + i));
+        }
+        final long highAddress = log.getHighAddress();
+        tm.prepareSave();
+        assertEquals(highAddress, log.getHighAddress());
+        address = tm.save();
+        t = openTree(address, true);
+        assertEquals(count + (count + 2) / 3, t.getSize());
+        for (int i = 0; i < count; ++i) {
+            assertTrue(t.hasPair(key(i), value("v" + i)));
+            assertEquals(i % 3 == 0, t.hasPair(key(i), value("w" + i)));
+        }
+    }
 }
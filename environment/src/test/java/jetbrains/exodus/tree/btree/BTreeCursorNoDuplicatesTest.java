@@ -15,16 +15,17 @@
  */
 package jetbrains.exodus.tree.btree;
 
+import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.env.Cursor;
 import jetbrains.exodus.tree.ITree;
+import jetbrains.exodus.tree.ITreeCursor;
 import jetbrains.exodus.tree.ITreeMutable;
 import jetbrains.exodus.tree.TreeCursorNoDuplicatesTest;
 import org.junit.Test;
 
 import java.io.IOException;
 
-import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 /**
  *
@@ -65,4 +66,20 @@ public class BTreeCursorNoDuplicatesTest extends TreeCursorNoDuplicatesTest {
         genNextDup.run();
     }
 
+    @Test
+    public void testFlyweightIsReused() throws IOException {
+        t = openTree(getTreeMutable().save(), false);
+        final ITreeCursor cursor = t.openCursor();
+        cursor.setFlyweight(true);
+        assertTrue(cursor.getNext());
+        final ByteIterable key = cursor.getKey();
+        final ByteIterable value = cursor.getValue();
+        assertTrue(cursor.getNext());
+        assertSame(key, cursor.getKey());
+        assertSame(value, cursor.getValue());
+        assertEquals(key(1), key);
+        assertEquals(value("v1"), value);
+        cursor.close();
+    }
+
 }
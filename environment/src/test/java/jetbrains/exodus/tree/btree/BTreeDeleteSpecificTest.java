@@ -16,12 +16,14 @@
 package jetbrains.exodus.tree.btree;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.tree.INode;
+import jetbrains.exodus.tree.ITree;
+import jetbrains.exodus.tree.ITreeCursor;
 import org.junit.Test;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 import static org.junit.Assert.*;
 
@@ -359,6 +361,89 @@ public class BTreeDeleteSpecificTest extends BTreeTestBase {
         assertFalse(tm.openCursor().getNext());
     }
 
+    @Test
+    public void testDeleteRange() throws IOException {
+        final BTreeBalancePolicy smallPagesPolicy = new BTreeBalancePolicy(4);
+        tm = new BTreeEmpty(log, smallPagesPolicy, false, 1).getMutableCopy();
+        final TreeMap<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 1000; i++) {
+            getTreeMutable().put(kv(i, "v" + i));
+            expected.put(i, "v" + i);
+        }
+        final Random rnd = new Random(1);
+        for (int i = 0; i < 50; i++) {
+            final int from = rnd.nextInt(1100);
+            final int to = from + rnd.nextInt(100);
+            final SortedMap<Integer, String> range = expected.subMap(from, to + 1);
+            assertEquals(range.size(), tm.countRange(key(from), key(to)));
+            assertEquals(range.size(), tm.deleteRange(key(from), key(to)));
+            range.clear();
+            assertEquals(expected.size(), tm.getSize());
+            if (i % 10 == 0) {
+                final Collection<Loggable> expiredLoggables = tm.getExpiredLoggables();
+                final Set<Long> expiredAddresses = new HashSet<>();
+                for (final Loggable loggable : expiredLoggables) {
+                    assertTrue(expiredAddresses.add(loggable.getAddress()));
+                }
+                tm = new BTree(log, smallPagesPolicy, tm.save(), false, 1).getMutableCopy();
+            }
+            checkPages(getTreeMutable().getRoot());
+            checkCursor(tm, expected);
+        }
+        assertEquals(expected.size(), tm.deleteRange(key(0), key(2000)));
+        assertTrue(tm.isEmpty());
+        assertFalse(tm.openCursor().getNext());
+        t = new BTree(log, smallPagesPolicy, tm.save(), false, 1);
+        assertTrue(t.isEmpty());
+        assertEquals(0, t.countRange(key(0), key(2000)));
+    }
+
+    @Test
+    public void testDeleteRangeWithDuplicates() throws IOException {
+        final BTreeBalancePolicy smallPagesPolicy = new BTreeBalancePolicy(4);
+        tm = new BTreeEmpty(log, smallPagesPolicy, true, 1).getMutableCopy();
+        for (int i = 0; i < 300; i++) {
+            for (int j = 0; j <= i % 3; j++) {
+                getTreeMutable().put(key(i), value("v" + j));
+            }
+        }
+        t = new BTree(log, smallPagesPolicy, tm.save(), true, 1);
+        assertEquals(600, t.getSize());
+        assertEquals(6, t.countRange(key(0), key(2)));
+        assertEquals(200, t.countRange(key(100), key(199)));
+        tm = t.getMutableCopy();
+        assertEquals(200, tm.deleteRange(key(100), key(199)));
+        assertEquals(400, tm.getSize());
+        assertNull(tm.get(key(150)));
+        assertTrue(tm.hasPair(key(200), value("v2")));
+        t = new BTree(log, smallPagesPolicy, tm.save(), true, 1);
+        assertEquals(400, t.getSize());
+        assertEquals(0, t.countRange(key(100), key(199)));
+        assertEquals(7, t.countRange(key(98), key(200)));
+    }
+
+    private void checkCursor(final ITree tree, final SortedMap<Integer, String> expected) {
+        try (ITreeCursor cursor = tree.openCursor()) {
+            for (final Map.Entry<Integer, String> entry : expected.entrySet()) {
+                assertTrue(cursor.getNext());
+                assertEquals(key(entry.getKey()), cursor.getKey());
+                valueEquals(entry.getValue(), cursor.getValue());
+            }
+            assertFalse(cursor.getNext());
+        }
+    }
+
+    private static void checkPages(final BasePage page) {
+        if (!page.isBottom()) {
+            for (int i = 0; i < page.getSize(); i++) {
+                final BasePage child = page.getChild(i);
+                assertTrue(child.getSize() > 0);
+                assertEquals(0, page.getKey(i).compareKeyTo(child.getMinKey().getKey()));
+                checkPages(child);
+            }
+        }
+    }
+
     private void prepareData(int size) {
         tm = new BTreeEmpty(log, true, 1).getMutableCopy();
         for (int i = 0; i < size; i++) {
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree.btree;
+
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.log.RandomAccessLoggable;
+import jetbrains.exodus.tree.INode;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class BTreeKeyPrefixesTest extends BTreeTestBase {
+
+    private static final BTreeBalancePolicy PREFIXES_POLICY = new BTreeBalancePolicy(8, 2);
+
+    @Override
+    protected BTreeMutable createMutableTree(final boolean hasDuplicates, final int structureId) {
+        return new BTreeEmpty(log, PREFIXES_POLICY, hasDuplicates, structureId).getMutableCopy();
+    }
+
+    @Override
+    protected BTree openTree(long address, boolean hasDuplicates) {
+        return new BTree(log, PREFIXES_POLICY, address, hasDuplicates, 1);
+    }
+
+    @Test
+    public void testKeyPrefix() {
+        assertEquals(0x6162L, BasePage.getKeyPrefix(key("abc"), 2));
+        assertEquals(0x610000L, BasePage.getKeyPrefix(key("a"), 3));
+        assertTrue(BasePage.compareKeyPrefixes(BasePage.getKeyPrefix(key("a"), 2), BasePage.getKeyPrefix(key("ab"), 2)) < 0);
+        final ByteIterable high = new ArrayByteIterable(new byte[]{(byte) 0xff, 0, 0, 0, 0, 0, 0, 0});
+        assertTrue(BasePage.compareKeyPrefixes(BasePage.getKeyPrefix(key("zzzzzzzz"), 8), BasePage.getKeyPrefix(high, 8)) < 0);
+    }
+
+    @Test
+    public void testPutSaveGet() {
+        tm = createMutableTree(false, 1);
+        final int count = 1000;
+        for (int i = 0; i < count; ++i) {
+            getTreeMutable().put(kv(i * 2, "v" + i));
+        }
+        final long address = tm.save();
+        t = openTree(address, false);
+        assertTrue(getTree().getRoot() instanceof InternalPage);
+        assertNotNull(((BasePageImmutable) getTree().getRoot()).getKeyPrefixes());
+        for (int i = 0; i < count; ++i) {
+            valueEquals("v" + i, t.get(key(i * 2)));
+            assertNull(t.get(key(i * 2 + 1)));
+        }
+        assertNull(t.get(key("")));
+        assertNull(t.get(key("zzz")));
+        checkTreeCursor(count);
+    }
+
+    @Test
+    public void testSaveWithoutPrefixesThenWithPrefixes() {
+        tm = new BTreeEmpty(log, new BTreeBalancePolicy(8), false, 1).getMutableCopy();
+        final int count = 500;
+        for (int i = 0; i < count; ++i) {
+            getTreeMutable().put(kv(i * 2, "v" + i));
+        }
+        long address = tm.save();
+        assertNull(((BasePageImmutable) new BTree(log, new BTreeBalancePolicy(8), address, false, 1).getRoot()).getKeyPrefixes());
+        // modify the tree saved without prefixes and save it with prefixes
+        tm = openTree(address, false).getMutableCopy();
+        for (int i = 0; i < count; ++i) {
+            getTreeMutable().put(kv(i * 2 + 1, "w" + i));
+        }
+        for (int i = 0; i < count; i += 3) {
+            assertTrue(getTreeMutable().delete(key(i * 2)));
+        }
+        address = tm.save();
+        t = openTree(address, false);
+        assertNotNull(((BasePageImmutable) getTree().getRoot()).getKeyPrefixes());
+        for (int i = 0; i < count; ++i) {
+            if (i % 3 == 0) {
+                assertNull(t.get(key(i * 2)));
+            } else {
+                valueEquals("v" + i, t.get(key(i * 2)));
+            }
+            valueEquals("w" + i, t.get(key(i * 2 + 1)));
+        }
+    }
+
+    @Test
+    public void testPrepareSaveLoadsUnknownPrefixes() {
+        tm = new BTreeEmpty(log, new BTreeBalancePolicy(8), false, 1).getMutableCopy();
+        final int count = 500;
+        for (int i = 0; i < count; ++i) {
+            getTreeMutable().put(kv(i * 2, "v" + i));
+        }
+        long address = tm.save();
+        tm = openTree(address, false).getMutableCopy();
+        getTreeMutable().put(kv(1, "w"));
+        final BasePageMutable root = getTreeMutable().getRoot();
+        assertNotNull(root.keysPrefixes);
+        assertEquals(BasePage.NO_KEY_PREFIX, root.keysPrefixes[root.getSize() - 1]);
+        final long highAddress = log.getHighAddress();
+        tm.prepareSave();
+        assertEquals(highAddress, log.getHighAddress());
+        for (int i = 0; i < root.getSize(); ++i) {
+            assertNotEquals(BasePage.NO_KEY_PREFIX, root.keysPrefixes[i]);
+        }
+        address = tm.save();
+        t = openTree(address, false);
+        assertNotNull(((BasePageImmutable) getTree().getRoot()).getKeyPrefixes());
+        valueEquals("w", t.get(key(1)));
+        for (int i = 0; i < count; ++i) {
+            valueEquals("v" + i, t.get(key(i * 2)));
+        }
+    }
+
+    @Test
+    public void testDuplicates() {
+        tm = createMutableTree(true, 1);
+        final int count = 100;
+        for (int i = 0; i < count; ++i) {
+            for (int j = 0; j < 10; ++j) {
+                getTreeMutable().put(key(i), value("v" + j));
+            }
+        }
+        final long address = tm.save();
+        t = openTree(address, true);
+        for (int i = 0; i < count; ++i) {
+            for (int j = 0; j < 10; ++j) {
+                assertTrue(t.hasPair(key(i), value("v" + j)));
+            }
+            assertFalse(t.hasPair(key(i), value("w")));
+        }
+        assertEquals(count * 10, t.getSize());
+    }
+
+    @Test
+    public void testReclaim() {
+        tm = createMutableTree(false, 1);
+        final int count = 200;
+        for (int i = 0; i < count; ++i) {
+            getTreeMutable().put(kv(i * 2, "v" + i));
+        }
+        long address = tm.save();
+        // deletion of keys makes pages which can be reclaimed
+        tm = openTree(address, false).getMutableCopy();
+        for (int i = 0; i < count; i += 8) {
+            assertTrue(getTreeMutable().delete(key(i * 2)));
+        }
+        final long reclaimedAddress = log.getHighAddress();
+        address = tm.save();
+        tm = openTree(address, false).getMutableCopy();
+        final Iterator<RandomAccessLoggable> loggables = log.getLoggableIterator(reclaimedAddress);
+        assertTrue(tm.reclaim(loggables.next(), loggables));
+        t = openTree(tm.save(), false);
+        for (int i = 0; i < count; ++i) {
+            if (i % 8 == 0) {
+                assertNull(t.get(key(i * 2)));
+            } else {
+                valueEquals("v" + i, t.get(key(i * 2)));
+            }
+        }
+    }
+
+    private void checkTreeCursor(final int count) {
+        final INode[] expected = new INode[count];
+        for (int i = 0; i < count; ++i) {
+            expected[i] = kv(i * 2, "v" + i);
+        }
+        assertMatchesIterator(t, expected);
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree.btree;
+
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
+import jetbrains.exodus.tree.ITree;
+import jetbrains.exodus.tree.ITreeCursor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BTreeSubtreeSizesTest extends BTreeTestBase {
+
+    private static final BTreeBalancePolicy SIZES_POLICY = new BTreeBalancePolicy(8, 0, true);
+
+    @Override
+    protected BTreeMutable createMutableTree(final boolean hasDuplicates, final int structureId) {
+        return new BTreeEmpty(log, SIZES_POLICY, hasDuplicates, structureId).getMutableCopy();
+    }
+
+    @Override
+    protected BTree openTree(long address, boolean hasDuplicates) {
+        return new BTree(log, SIZES_POLICY, address, hasDuplicates, 1);
+    }
+
+    @Test
+    public void testPositions() {
+        tm = createMutableTree(false, 1);
+        final int count = 1000;
+        for (int i = 0; i < count; ++i) {
+            getTreeMutable().put(kv(i * 2, "v" + i));
+        }
+        checkPositions(tm, count);
+        t = openTree(tm.save(), false);
+        assertTrue(getTree().getRoot() instanceof InternalPage);
+        assertTrue(((BasePageImmutable) getTree().getRoot()).hasSubtreeSizes);
+        checkPositions(t, count);
+        assertEquals(count, t.countRange(key(0), key(count * 2)));
+        assertEquals(10, t.countRange(key(100), key(119)));
+    }
+
+    @Test
+    public void testModifyAfterSave() {
+        tm = createMutableTree(false, 1);
+        final int count = 500;
+        for (int i = 0; i < count; ++i) {
+            getTreeMutable().put(kv(i * 2, "v" + i));
+        }
+        tm = openTree(tm.save(), false).getMutableCopy();
+        for (int i = 0; i < count; i += 3) {
+            assertTrue(getTreeMutable().delete(key(i * 2)));
+        }
+        final List<ByteIterable> keys = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            if (i % 3 != 0) {
+                keys.add(key(i * 2));
+            }
+        }
+        checkPositions(tm, keys);
+        t = openTree(tm.save(), false);
+        checkPositions(t, keys);
+    }
+
+    @Test
+    public void testSaveWithoutSizesThenWithSizes() {
+        tm = new BTreeEmpty(log, new BTreeBalancePolicy(8), false, 1).getMutableCopy();
+        final int count = 500;
+        for (int i = 0; i < count; ++i) {
+            getTreeMutable().put(kv(i * 2, "v" + i));
+        }
+        final long address = tm.save();
+        t = new BTree(log, new BTreeBalancePolicy(8), address, false, 1);
+        assertFalse(((BasePageImmutable) getTree().getRoot()).hasSubtreeSizes);
+        // tree saved without sizes counts sub-trees
+        checkPositions(t, count);
+        tm = openTree(address, false).getMutableCopy();
+        getTreeMutable().put(kv(count * 2, "v" + count));
+        t = openTree(tm.save(), false);
+        assertTrue(((BasePageImmutable) getTree().getRoot()).hasSubtreeSizes);
+        checkPositions(t, count + 1);
+    }
+
+    @Test
+    public void testDuplicates() {
+        tm = createMutableTree(true, 1);
+        final int count = 100;
+        for (int i = 0; i < count; ++i) {
+            for (int j = 0; j < i % 5 + 1; ++j) {
+                getTreeMutable().put(key(i), value("v" + j));
+            }
+        }
+        t = openTree(tm.save(), true);
+        long position = 0;
+        for (int i = 0; i < count; ++i) {
+            assertEquals(position, t.getPosition(key(i), null));
+            for (int j = 0; j < i % 5 + 1; ++j) {
+                assertEquals(position, t.getPosition(key(i), value("v" + j)));
+                final Pair<ByteIterable, ByteIterable> pair = t.getAtPosition(position);
+                assertNotNull(pair);
+                assertIterablesMatch(key(i), pair.getFirst());
+                assertIterablesMatch(value("v" + j), pair.getSecond());
+                ++position;
+            }
+        }
+        assertEquals(t.getSize(), position);
+        assertNull(t.getAtPosition(position));
+        try (ITreeCursor cursor = t.openCursor()) {
+            assertTrue(cursor.getAtPosition(position - 1));
+            assertIterablesMatch(key(count - 1), cursor.getKey());
+            assertEquals(position - 1, cursor.getPosition());
+        }
+    }
+
+    @Test
+    public void testBulkLoad() {
+        final int count = 1000;
+        final List<Pair<ByteIterable, ByteIterable>> pairs = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            pairs.add(new Pair<ByteIterable, ByteIterable>(key(i * 2), value("v" + i)));
+        }
+        final long address = new BTreeBulkLoader(log, SIZES_POLICY, false, 1, pairs.iterator()).save();
+        t = openTree(address, false);
+        assertTrue(((BasePageImmutable) getTree().getRoot()).hasSubtreeSizes);
+        checkPositions(t, count);
+    }
+
+    private static void checkPositions(final ITree tree, final int count) {
+        final List<ByteIterable> keys = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            keys.add(key(i * 2));
+        }
+        checkPositions(tree, keys);
+    }
+
+    private static void checkPositions(final ITree tree, final List<ByteIterable> keys) {
+        final int count = keys.size();
+        for (int i = 0; i < count; ++i) {
+            final ByteIterable key = keys.get(i);
+            assertEquals(i, tree.getPosition(key, null));
+            final Pair<ByteIterable, ByteIterable> pair = tree.getAtPosition(i);
+            assertNotNull(pair);
+            assertIterablesMatch(key, pair.getFirst());
+        }
+        assertNull(tree.getAtPosition(count));
+        assertNull(tree.getAtPosition(-1));
+        try (ITreeCursor cursor = tree.openCursor()) {
+            for (int i = count - 1; i >= 0; i -= 7) {
+                assertTrue(cursor.getAtPosition(i));
+                assertIterablesMatch(keys.get(i), cursor.getKey());
+                assertEquals(i, cursor.getPosition());
+            }
+            assertFalse(cursor.getAtPosition(count));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree.patricia;
+
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.ConcurrentLongObjectCache;
+import jetbrains.exodus.tree.ITreeCursor;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PatriciaChildrenTest extends PatriciaTestBase {
+
+    @Test
+    public void testGet() {
+        saveAndOpenTree();
+        // children of nodes are decoded after several lookups
+        for (int i = 0; i < 5; ++i) {
+            checkGet();
+        }
+    }
+
+    @Test
+    public void testGetWithTreeNodesCache() {
+        saveAndOpenTree();
+        t.setTreeNodesCache(new ConcurrentLongObjectCache<>(1000));
+        for (int i = 0; i < 5; ++i) {
+            checkGet();
+        }
+    }
+
+    @Test
+    public void testSearchKeyRange() {
+        saveAndOpenTree();
+        for (int i = 0; i < 5; ++i) {
+            try (ITreeCursor cursor = t.openCursor()) {
+                for (int b = 0; b < 256; ++b) {
+                    final ByteIterable value = cursor.getSearchKeyRange(key(b, 1));
+                    // the least key greater than or equal to [b, 1] is either [b, 1] or [next, 0]
+                    if (b % 3 == 0) {
+                        assertIterablesMatch(key(b, 1), cursor.getKey());
+                        assertIterablesMatch(value(b + "-1"), value);
+                    } else {
+                        final int next = b + 3 - b % 3;
+                        if (next > 255) {
+                            assertNull(value);
+                        } else {
+                            assertIterablesMatch(key(next, 0), cursor.getKey());
+                            assertIterablesMatch(value(next + "-0"), value);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSearchKey() {
+        saveAndOpenTree();
+        for (int i = 0; i < 5; ++i) {
+            try (ITreeCursor cursor = t.openCursor()) {
+                for (int b = 0; b < 256; ++b) {
+                    final ByteIterable value = cursor.getSearchKey(key(b, 2));
+                    if (b % 3 == 0) {
+                        assertIterablesMatch(value(b + "-2"), value);
+                        if (b == 255) {
+                            assertFalse(cursor.getNext());
+                        } else {
+                            assertTrue(cursor.getNext());
+                            assertIterablesMatch(key(b + 3, 0), cursor.getKey());
+                        }
+                    } else {
+                        assertNull(value);
+                    }
+                }
+            }
+        }
+    }
+
+    private void saveAndOpenTree() {
+        tm = createMutableTree(false, 1);
+        // root has 86 children with first bytes 0, 3, 6 ... 255, each of them has 3 children
+        for (int b = 0; b < 256; b += 3) {
+            for (int j = 0; j < 3; ++j) {
+                tm.put(key(b, j), value(b + "-" + j));
+            }
+        }
+        t = openTree(tm.save(), false);
+    }
+
+    private void checkGet() {
+        for (int b = 0; b < 256; ++b) {
+            for (int j = 0; j < 4; ++j) {
+                final ByteIterable value = t.get(key(b, j));
+                if (b % 3 == 0 && j < 3) {
+                    assertIterablesMatch(value(b + "-" + j), value);
+                } else {
+                    assertNull(value);
+                }
+            }
+        }
+    }
+
+    private static ArrayByteIterable key(final int firstByte, final int secondByte) {
+        return new ArrayByteIterable(new byte[]{(byte) firstByte, (byte) secondByte});
+    }
+}
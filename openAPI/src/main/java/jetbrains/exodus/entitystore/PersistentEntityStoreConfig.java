@@ -63,6 +63,8 @@ public final class PersistentEntityStoreConfig extends AbstractConfig {
 
     public static final String ENTITY_ITERABLE_CACHE_USE_HUMAN_READABLE = "exodus.entityStore.entityIterableCache.useHumanReadable";
 
+    public static final String ENTITY_ITERABLE_CACHE_FREQUENCY_SKETCH = "exodus.entityStore.entityIterableCache.frequencySketch";
+
     public static final String TRANSACTION_PROPS_CACHE_SIZE = "exodus.entityStore.transaction.propsCacheSize";
 
     public static final String TRANSACTION_LINKS_CACHE_SIZE = "exodus.entityStore.transaction.linksCacheSize";
@@ -99,6 +101,7 @@ public final class PersistentEntityStoreConfig extends AbstractConfig {
                 new Pair(ENTITY_ITERABLE_CACHE_DEFERRED_DELAY, 2000),
                 new Pair(ENTITY_ITERABLE_CACHE_MAX_SIZE_OF_DIRECT_VALUE, 512),
                 new Pair(ENTITY_ITERABLE_CACHE_USE_HUMAN_READABLE, false),
+                new Pair(ENTITY_ITERABLE_CACHE_FREQUENCY_SKETCH, false),
                 new Pair(TRANSACTION_PROPS_CACHE_SIZE, 1024),
                 new Pair(TRANSACTION_LINKS_CACHE_SIZE, 4096),
                 new Pair(TRANSACTION_BLOB_STRINGS_CACHE_SIZE, 128),
@@ -258,6 +261,14 @@ public final class PersistentEntityStoreConfig extends AbstractConfig {
         setSetting(ENTITY_ITERABLE_CACHE_USE_HUMAN_READABLE, useHumanReadable);
     }
 
+    public boolean getEntityIterableCacheFrequencySketch() {
+        return (Boolean) getSetting(ENTITY_ITERABLE_CACHE_FREQUENCY_SKETCH);
+    }
+
+    public void setEntityIterableCacheFrequencySketch(final boolean frequencySketch) {
+        setSetting(ENTITY_ITERABLE_CACHE_FREQUENCY_SKETCH, frequencySketch);
+    }
+
     public int getTransactionPropsCacheSize() {
         return (Integer) getSetting(TRANSACTION_PROPS_CACHE_SIZE);
     }
@@ -16,26 +16,41 @@
 package jetbrains.exodus.env;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
+import java.util.Iterator;
+
 public interface ContextualStore extends Store {
 
     @Nullable
     ByteIterable get(@NotNull final ByteIterable key);
 
+    @NotNull
+    ByteIterable[] getAll(@NotNull final ByteIterable[] keys);
+
     boolean exists(@NotNull final ByteIterable key, @NotNull final ByteIterable data);
 
     boolean put(@NotNull final ByteIterable key, @NotNull final ByteIterable value);
 
     void putRight(@NotNull final ByteIterable key, @NotNull final ByteIterable value);
 
+    int putAll(@NotNull final Collection<Pair<ByteIterable, ByteIterable>> pairs);
+
     boolean add(@NotNull final ByteIterable key, @NotNull final ByteIterable value);
 
     boolean delete(@NotNull final ByteIterable key);
 
+    long deleteRange(@NotNull final ByteIterable from, @NotNull final ByteIterable to);
+
+    void bulkLoad(@NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs);
+
     long count();
 
+    long countRange(@NotNull final ByteIterable from, @NotNull final ByteIterable to);
+
     Cursor openCursor();
 
 }
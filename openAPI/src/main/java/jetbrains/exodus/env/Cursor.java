@@ -64,6 +64,19 @@ public interface Cursor extends AutoCloseable {
     @NotNull
     ByteIterable getValue();
 
+    /**
+     * Switches flyweight mode of the cursor. In flyweight mode, {@link #getKey()} and {@link #getValue()} can
+     * return reusable views of the current key and value which are valid only until next call of the same method.
+     * A key or a value retained longer should be copied, e.g. using
+     * {@link jetbrains.exodus.ArrayByteIterable#ArrayByteIterable(ByteIterable)}. The mode saves allocation of new
+     * iterables on each move of a cursor over a B-tree, so it's useful for full scans.
+     *
+     * @param flyweight {@code true} to turn flyweight mode on
+     */
+    void setFlyweight(final boolean flyweight);
+
+    boolean isFlyweight();
+
     @Nullable
     ByteIterable getSearchKey(final @NotNull ByteIterable key);
 
@@ -75,6 +88,21 @@ public interface Cursor extends AutoCloseable {
     @Nullable
     ByteIterable getSearchBothRange(final @NotNull ByteIterable key, final @NotNull ByteIterable value);
 
+    /**
+     * Moves the cursor to the key/value pair with specified position in the store. If the store is a B-tree saved
+     * with sizes of sub-trees (see {@link EnvironmentConfig#TREE_SUBTREE_SIZES}), the pair is found in logarithmic
+     * time, otherwise pairs or pages preceding the position are counted.
+     *
+     * @param position zero-based position of the pair
+     * @return true if the position is less than number of pairs in the store
+     */
+    boolean getAtPosition(final long position);
+
+    /**
+     * @return zero-based position of the current key/value pair in the store, i.e. number of pairs preceding it
+     */
+    long getPosition();
+
     //TODO: must be the same type as Store.count()
 
     int count();
@@ -32,6 +32,21 @@ public final class EnvironmentConfig extends AbstractConfig {
 
     public static final String LOG_DURABLE_WRITE = "exodus.log.durableWrite";
 
+    /**
+     * If this setting is set to {@code true} together with exodus.log.durableWrite then the log is synced
+     * after commit lock is released, and concurrently committed transactions share a single sync.
+     * A transaction is considered committed only after the sync is finished.
+     */
+    public static final String LOG_GROUP_COMMIT = "exodus.log.groupCommit";
+
+    /**
+     * If this setting is set to {@code true} then log data is written to files asynchronously in background.
+     * Committed data is visible to readers immediately, though it isn't written to the file yet. Unless
+     * exodus.log.durableWrite is set, syncs are asynchronous as well, so durability is the same as of
+     * periodic syncs defined by exodus.log.syncPeriod.
+     */
+    public static final String LOG_WRITE_BEHIND = "exodus.log.writeBehind";
+
     public static final String LOG_FILE_SIZE = "exodus.log.fileSize"; // in Kb
 
     public static final String LOG_LOCK_TIMEOUT = "exodus.log.lockTimeout"; // in milliseconds
@@ -44,12 +59,69 @@ public final class EnvironmentConfig extends AbstractConfig {
 
     public static final String LOG_CACHE_NON_BLOCKING = "exodus.log.cache.nonBlocking";
 
+    /**
+     * If this setting is set to {@code true} then log cache is lock-free for reading, is split into segments
+     * locked separately for writing, and uses scan-resistant eviction policy. exodus.log.cache.nonBlocking
+     * is ignored in that case.
+     */
+    public static final String LOG_CACHE_STRIPED = "exodus.log.cache.striped";
+
+    /**
+     * If this setting is set to {@code true} then shared log cache which is not striped uses W-TinyLFU eviction
+     * policy: a page is admitted to the cache only if it is used more frequently than the page it would push out.
+     * The cache is lock-free for reading. exodus.log.cache.nonBlocking is ignored in that case.
+     */
+    public static final String LOG_CACHE_FREQUENCY_SKETCH = "exodus.log.cache.frequencySketch";
+
+    /**
+     * Amount of memory in bytes which can be used outside of the Java heap for second level of log cache.
+     * It is a page store only, reads are never served from off-heap memory directly: a page missing in log cache
+     * is copied from off-heap memory to a newly allocated heap page instead of being read from log file. So it
+     * saves file reads at the cost of a page copy and allocation, and log cache still should hold hot pages.
+     * Zero value means that off-heap cache is not used.
+     */
+    public static final String LOG_CACHE_OFF_HEAP_MEMORY_USAGE = "exodus.log.cache.offHeapMemoryUsage"; // in bytes
+
+    /**
+     * Number of log cache pages which are read ahead in background once sequential reading of pages missing in
+     * log cache is detected. Zero value means that pages are not read ahead.
+     */
+    public static final String LOG_CACHE_READ_AHEAD = "exodus.log.cache.readAhead"; // in pages
+
+    /**
+     * If this setting is set to {@code true} then log files are read through memory mappings. Number of
+     * simultaneously mapped files is limited by exodus.log.cache.openFilesCount.
+     */
+    public static final String LOG_MAPPED_FILES = "exodus.log.mappedFiles";
+
     public static final String LOG_CLEAN_DIRECTORY_EXPECTED = "exodus.log.cleanDirectoryExpected";
 
     public static final String LOG_CLEAR_INVALID = "exodus.log.clearInvalid";
 
     public static final String LOG_SYNC_PERIOD = "exodus.log.syncPeriod"; // in milliseconds
 
+    /**
+     * If this setting is set to {@code true} then a checkpoint with high address of the log and address of
+     * the last database root is saved on closing environment and each exodus.log.checkpointPeriod. If the log
+     * wasn't appended after the checkpoint then on opening environment the log isn't scanned for recovery.
+     */
+    public static final String LOG_CHECKPOINT = "exodus.log.checkpoint";
+
+    public static final String LOG_CHECKPOINT_PERIOD = "exodus.log.checkpointPeriod"; // in milliseconds
+
+    /**
+     * If this setting is set to {@code true} then checksum of each log cache page is calculated once the page is
+     * written completely, and it is verified each time the page is read from the file into log cache.
+     */
+    public static final String LOG_PAGE_CHECKSUMS = "exodus.log.pageChecksums";
+
+    /**
+     * If this setting is set to {@code true} then log files which won't be appended anymore are compressed in
+     * background. Each page of a compressed file is compressed separately, so reading of a page requires
+     * decompression of only this page.
+     */
+    public static final String LOG_COMPRESSION = "exodus.log.compression";
+
     public static final String ENV_IS_READONLY = "exodus.env.isReadonly";
 
     /**
@@ -60,8 +132,22 @@ public final class EnvironmentConfig extends AbstractConfig {
 
     public static final String ENV_STOREGET_CACHE_SIZE = "exodus.env.storeGetCacheSize";
 
+    /**
+     * If this setting is set to {@code true} then StoreGetCache uses W-TinyLFU eviction policy, so results of
+     * Store.get() repeated rarely don't push out results of frequent ones.
+     */
+    public static final String ENV_STOREGET_CACHE_FREQUENCY_SKETCH = "exodus.env.storeGetCacheFrequencySketch";
+
     public static final String ENV_CLOSE_FORCEDLY = "exodus.env.closeForcedly";
 
+    /**
+     * If this setting is set to {@code true}, a transaction which is not based on the latest database snapshot is
+     * committed anyway if none of the stores it has read or modified were changed by transactions committed after
+     * its snapshot. Its trees are then saved on top of the latest meta tree instead of failing flush and replaying
+     * the whole transaction. A transaction which has listed stores or checked their existence is always replayed.
+     */
+    public static final String ENV_TXN_REBASE = "exodus.env.txnRebase";
+
     public static final String ENV_MONITOR_TXNS_TIMEOUT = "exodus.env.monitorTxns.timeout"; // in milliseconds
 
     public static final String ENV_MONITOR_TXNS_CHECK_FREQ = "exodus.env.monitorTxns.checkFreq"; // in milliseconds
@@ -70,6 +156,33 @@ public final class EnvironmentConfig extends AbstractConfig {
 
     public static final String TREE_NODES_CACHE_SIZE = "exodus.tree.nodesCacheSize";
 
+    /**
+     * If true then tree nodes are cached in the cache shared by all environments having this setting on. The shared
+     * cache is bounded by memory usage instead of number of nodes, and {@linkplain #TREE_NODES_CACHE_SIZE} is ignored.
+     */
+    public static final String TREE_NODES_CACHE_SHARED = "exodus.tree.nodesCacheShared";
+
+    /**
+     * Memory usage of the shared tree nodes cache. The first environment creating the shared cache defines its
+     * memory usage.
+     */
+    public static final String TREE_NODES_CACHE_MEMORY_USAGE = "exodus.tree.nodesCacheMemoryUsage"; // in bytes
+
+    /**
+     * Number of leading bytes of keys which are saved in B-tree pages along with addresses of leaf nodes. Search
+     * in a page compares the prefixes and loads a leaf node only if its key prefix is equal to the prefix of the
+     * key being searched for. Zero value means that pages are saved without key prefixes. Pages saved with key
+     * prefixes can't be read by versions which don't support them.
+     */
+    public static final String TREE_KEY_PREFIX_LENGTH = "exodus.tree.keyPrefixLength"; // in bytes
+
+    /**
+     * If is set to true, internal B-tree pages are saved with numbers of key/value pairs in sub-trees of their
+     * children. This lets a cursor move to a pair by its position and report position of the current pair in
+     * logarithmic time. Pages saved with sizes of sub-trees can't be read by versions which don't support them.
+     */
+    public static final String TREE_SUBTREE_SIZES = "exodus.tree.subtreeSizes";
+
     public static final String GC_ENABLED = "exodus.gc.enabled";
 
     public static final String GC_START_IN = "exodus.gc.startIn"; // in milliseconds
@@ -97,6 +210,30 @@ public final class EnvironmentConfig extends AbstractConfig {
 
     public static final String GC_UTILIZATION_FROM_SCRATCH = "exodus.gc.utilization.fromScratch";
 
+    /**
+     * Number of files which cleaner reclaims in a single transaction. Cloned meta tree is saved and the transaction
+     * is flushed once per this many files.
+     */
+    public static final String GC_FILES_PER_CLEANING = "exodus.gc.filesPerCleaning";
+
+    /**
+     * If greater than 1, loggables of different stores are reclaimed by this number of threads in parallel. The
+     * threads are shared by all environments.
+     */
+    public static final String GC_RECLAIM_THREADS = "exodus.gc.reclaimThreads";
+
+    /**
+     * If this setting is set to {@code true} then background cleaner is paced by foreground load. Cleaner slows
+     * down if latency of commits or log cache misses or writes to the log grow, and runs at full speed if there
+     * are no foreground commits.
+     */
+    public static final String GC_THROTTLE = "exodus.gc.throttle";
+
+    /**
+     * Minimum number of bytes of log files cleaned per second if exodus.gc.throttle is on.
+     */
+    public static final String GC_THROTTLE_MIN_RATE = "exodus.gc.throttleMinRate"; // in bytes per second
+
     public static final String MANAGEMENT_ENABLED = "exodus.managementEnabled";
 
     public EnvironmentConfig() {
@@ -108,23 +245,40 @@ public final class EnvironmentConfig extends AbstractConfig {
         super(new Pair[]{
                 new Pair(MEMORY_USAGE_PERCENTAGE, 60),
                 new Pair(LOG_DURABLE_WRITE, false),
+                new Pair(LOG_GROUP_COMMIT, false),
+                new Pair(LOG_WRITE_BEHIND, false),
                 new Pair(LOG_FILE_SIZE, 8192L),
                 new Pair(LOG_LOCK_TIMEOUT, 0L),
                 new Pair(LOG_CACHE_PAGE_SIZE, 65536),
                 new Pair(LOG_CACHE_OPEN_FILES, 50),
                 new Pair(LOG_CACHE_SHARED, true),
                 new Pair(LOG_CACHE_NON_BLOCKING, true),
+                new Pair(LOG_CACHE_STRIPED, false),
+                new Pair(LOG_CACHE_FREQUENCY_SKETCH, false),
+                new Pair(LOG_CACHE_OFF_HEAP_MEMORY_USAGE, 0L),
+                new Pair(LOG_CACHE_READ_AHEAD, 0),
+                new Pair(LOG_MAPPED_FILES, false),
                 new Pair(LOG_CLEAN_DIRECTORY_EXPECTED, false),
                 new Pair(LOG_CLEAR_INVALID, false),
                 new Pair(LOG_SYNC_PERIOD, 1000L),
+                new Pair(LOG_CHECKPOINT, false),
+                new Pair(LOG_CHECKPOINT_PERIOD, 60000L),
+                new Pair(LOG_PAGE_CHECKSUMS, false),
+                new Pair(LOG_COMPRESSION, false),
                 new Pair(ENV_IS_READONLY, false),
                 new Pair(ENV_READONLY_EMPTY_STORES, false),
                 new Pair(ENV_STOREGET_CACHE_SIZE, 0),
+                new Pair(ENV_STOREGET_CACHE_FREQUENCY_SKETCH, false),
                 new Pair(ENV_CLOSE_FORCEDLY, false),
+                new Pair(ENV_TXN_REBASE, false),
                 new Pair(ENV_MONITOR_TXNS_CHECK_FREQ, 60000),
                 new Pair(ENV_MONITOR_TXNS_TIMEOUT, 0),
                 new Pair(TREE_MAX_PAGE_SIZE, 128),
                 new Pair(TREE_NODES_CACHE_SIZE, 4096),
+                new Pair(TREE_NODES_CACHE_SHARED, false),
+                new Pair(TREE_NODES_CACHE_MEMORY_USAGE, Runtime.getRuntime().maxMemory() / 20),
+                new Pair(TREE_KEY_PREFIX_LENGTH, 0),
+                new Pair(TREE_SUBTREE_SIZES, false),
                 new Pair(GC_ENABLED, true),
                 new Pair(GC_START_IN, 60000),
                 new Pair(GC_MIN_UTILIZATION, 75),
@@ -134,6 +288,10 @@ public final class EnvironmentConfig extends AbstractConfig {
                 new Pair(GC_FILES_INTERVAL, 1),
                 new Pair(GC_RUN_PERIOD, 30000),
                 new Pair(GC_UTILIZATION_FROM_SCRATCH, false),
+                new Pair(GC_FILES_PER_CLEANING, 1),
+                new Pair(GC_RECLAIM_THREADS, 1),
+                new Pair(GC_THROTTLE, false),
+                new Pair(GC_THROTTLE_MIN_RATE, 1024L * 1024L),
                 new Pair(MANAGEMENT_ENABLED, true)
         }, strategy);
     }
@@ -162,6 +320,22 @@ public final class EnvironmentConfig extends AbstractConfig {
         setSetting(LOG_DURABLE_WRITE, durableWrite);
     }
 
+    public boolean isLogGroupCommit() {
+        return (Boolean) getSetting(LOG_GROUP_COMMIT);
+    }
+
+    public void setLogGroupCommit(boolean groupCommit) {
+        setSetting(LOG_GROUP_COMMIT, groupCommit);
+    }
+
+    public boolean isLogWriteBehind() {
+        return (Boolean) getSetting(LOG_WRITE_BEHIND);
+    }
+
+    public void setLogWriteBehind(boolean writeBehind) {
+        setSetting(LOG_WRITE_BEHIND, writeBehind);
+    }
+
     public long getLogFileSize() {
         return (Long) getSetting(LOG_FILE_SIZE);
     }
@@ -210,6 +384,46 @@ public final class EnvironmentConfig extends AbstractConfig {
         setSetting(LOG_CACHE_NON_BLOCKING, nonBlocking);
     }
 
+    public boolean isLogCacheStriped() {
+        return (Boolean) getSetting(LOG_CACHE_STRIPED);
+    }
+
+    public void setLogCacheStriped(boolean striped) {
+        setSetting(LOG_CACHE_STRIPED, striped);
+    }
+
+    public boolean isLogCacheFrequencySketch() {
+        return (Boolean) getSetting(LOG_CACHE_FREQUENCY_SKETCH);
+    }
+
+    public void setLogCacheFrequencySketch(boolean frequencySketch) {
+        setSetting(LOG_CACHE_FREQUENCY_SKETCH, frequencySketch);
+    }
+
+    public long getLogCacheOffHeapMemoryUsage() {
+        return (Long) getSetting(LOG_CACHE_OFF_HEAP_MEMORY_USAGE);
+    }
+
+    public void setLogCacheOffHeapMemoryUsage(long bytes) {
+        setSetting(LOG_CACHE_OFF_HEAP_MEMORY_USAGE, bytes);
+    }
+
+    public int getLogCacheReadAhead() {
+        return (Integer) getSetting(LOG_CACHE_READ_AHEAD);
+    }
+
+    public void setLogCacheReadAhead(int pages) {
+        setSetting(LOG_CACHE_READ_AHEAD, pages);
+    }
+
+    public boolean isLogMappedFiles() {
+        return (Boolean) getSetting(LOG_MAPPED_FILES);
+    }
+
+    public void setLogMappedFiles(boolean mappedFiles) {
+        setSetting(LOG_MAPPED_FILES, mappedFiles);
+    }
+
     public boolean isLogCleanDirectoryExpected() {
         return (Boolean) getSetting(LOG_CLEAN_DIRECTORY_EXPECTED);
     }
@@ -234,6 +448,38 @@ public final class EnvironmentConfig extends AbstractConfig {
         setSetting(LOG_SYNC_PERIOD, millis);
     }
 
+    public boolean isLogCheckpoint() {
+        return (Boolean) getSetting(LOG_CHECKPOINT);
+    }
+
+    public void setLogCheckpoint(boolean checkpoint) {
+        setSetting(LOG_CHECKPOINT, checkpoint);
+    }
+
+    public long getLogCheckpointPeriod() {
+        return (Long) getSetting(LOG_CHECKPOINT_PERIOD);
+    }
+
+    public void setLogCheckpointPeriod(long millis) {
+        setSetting(LOG_CHECKPOINT_PERIOD, millis);
+    }
+
+    public boolean isLogPageChecksums() {
+        return (Boolean) getSetting(LOG_PAGE_CHECKSUMS);
+    }
+
+    public void setLogPageChecksums(boolean pageChecksums) {
+        setSetting(LOG_PAGE_CHECKSUMS, pageChecksums);
+    }
+
+    public boolean isLogCompression() {
+        return (Boolean) getSetting(LOG_COMPRESSION);
+    }
+
+    public void setLogCompression(boolean compression) {
+        setSetting(LOG_COMPRESSION, compression);
+    }
+
     public boolean getEnvIsReadonly() {
         return (Boolean) getSetting(ENV_IS_READONLY);
     }
@@ -261,6 +507,14 @@ public final class EnvironmentConfig extends AbstractConfig {
         setSetting(ENV_STOREGET_CACHE_SIZE, storeGetCacheSize);
     }
 
+    public boolean isEnvStoreGetCacheFrequencySketch() {
+        return (Boolean) getSetting(ENV_STOREGET_CACHE_FREQUENCY_SKETCH);
+    }
+
+    public void setEnvStoreGetCacheFrequencySketch(final boolean frequencySketch) {
+        setSetting(ENV_STOREGET_CACHE_FREQUENCY_SKETCH, frequencySketch);
+    }
+
     public boolean getEnvCloseForcedly() {
         return (Boolean) getSetting(ENV_CLOSE_FORCEDLY);
     }
@@ -269,6 +523,14 @@ public final class EnvironmentConfig extends AbstractConfig {
         setSetting(ENV_CLOSE_FORCEDLY, closeForcedly);
     }
 
+    public boolean getEnvTxnRebase() {
+        return (Boolean) getSetting(ENV_TXN_REBASE);
+    }
+
+    public void setEnvTxnRebase(final boolean txnRebase) {
+        setSetting(ENV_TXN_REBASE, txnRebase);
+    }
+
     public int getEnvMonitorTxnsTimeout() {
         return (Integer) getSetting(ENV_MONITOR_TXNS_TIMEOUT);
     }
@@ -310,6 +572,44 @@ public final class EnvironmentConfig extends AbstractConfig {
         setSetting(TREE_NODES_CACHE_SIZE, cacheSize);
     }
 
+    public boolean isTreeNodesCacheShared() {
+        return (Boolean) getSetting(TREE_NODES_CACHE_SHARED);
+    }
+
+    public void setTreeNodesCacheShared(final boolean shared) {
+        setSetting(TREE_NODES_CACHE_SHARED, shared);
+    }
+
+    public long getTreeNodesCacheMemoryUsage() {
+        return (Long) getSetting(TREE_NODES_CACHE_MEMORY_USAGE);
+    }
+
+    public void setTreeNodesCacheMemoryUsage(final long bytes) throws InvalidSettingException {
+        if (bytes <= 0) {
+            throw new InvalidSettingException("Invalid memory usage of tree nodes cache: " + bytes);
+        }
+        setSetting(TREE_NODES_CACHE_MEMORY_USAGE, bytes);
+    }
+
+    public int getTreeKeyPrefixLength() {
+        return (Integer) getSetting(TREE_KEY_PREFIX_LENGTH);
+    }
+
+    public void setTreeKeyPrefixLength(final int prefixLength) throws InvalidSettingException {
+        if (prefixLength < 0 || prefixLength > 8) {
+            throw new InvalidSettingException("Invalid length of key prefix: " + prefixLength);
+        }
+        setSetting(TREE_KEY_PREFIX_LENGTH, prefixLength);
+    }
+
+    public boolean isTreeSubtreeSizes() {
+        return (Boolean) getSetting(TREE_SUBTREE_SIZES);
+    }
+
+    public void setTreeSubtreeSizes(final boolean subtreeSizes) {
+        setSetting(TREE_SUBTREE_SIZES, subtreeSizes);
+    }
+
     public boolean isGcEnabled() {
         return (Boolean) getSetting(GC_ENABLED);
     }
@@ -397,6 +697,47 @@ public final class EnvironmentConfig extends AbstractConfig {
         setSetting(GC_UTILIZATION_FROM_SCRATCH, fromScratch);
     }
 
+    public int getGcFilesPerCleaning() {
+        return (Integer) getSetting(GC_FILES_PER_CLEANING);
+    }
+
+    public void setGcFilesPerCleaning(final int files) throws InvalidSettingException {
+        if (files < 1) {
+            throw new InvalidSettingException("Invalid number of files per cleaning: " + files);
+        }
+        setSetting(GC_FILES_PER_CLEANING, files);
+    }
+
+    public int getGcReclaimThreads() {
+        return (Integer) getSetting(GC_RECLAIM_THREADS);
+    }
+
+    public void setGcReclaimThreads(final int threads) throws InvalidSettingException {
+        if (threads < 1) {
+            throw new InvalidSettingException("Invalid number of GC reclaim threads: " + threads);
+        }
+        setSetting(GC_RECLAIM_THREADS, threads);
+    }
+
+    public boolean isGcThrottle() {
+        return (Boolean) getSetting(GC_THROTTLE);
+    }
+
+    public void setGcThrottle(final boolean throttle) {
+        setSetting(GC_THROTTLE, throttle);
+    }
+
+    public long getGcThrottleMinRate() {
+        return (Long) getSetting(GC_THROTTLE_MIN_RATE);
+    }
+
+    public void setGcThrottleMinRate(final long bytesPerSecond) throws InvalidSettingException {
+        if (bytesPerSecond < 1) {
+            throw new InvalidSettingException("Invalid GC throttle minimum rate: " + bytesPerSecond);
+        }
+        setSetting(GC_THROTTLE_MIN_RATE, bytesPerSecond);
+    }
+
     public boolean isManagementEnabled() {
         return (Boolean) getSetting(MANAGEMENT_ENABLED);
     }
@@ -16,9 +16,13 @@
 package jetbrains.exodus.env;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
+import java.util.Iterator;
+
 public interface Store {
     @NotNull
     Environment getEnvironment();
@@ -26,6 +30,17 @@ public interface Store {
     @Nullable
     ByteIterable get(@NotNull Transaction txn, @NotNull ByteIterable key);
 
+    /**
+     * Gets values by a batch of keys. The keys are sorted and looked up in a single traversal of the store,
+     * so neighbouring keys share the path from the root.
+     *
+     * @param txn  a transaction required
+     * @param keys not null store keys
+     * @return values in the order of the keys, null for a key which doesn't exist
+     */
+    @NotNull
+    ByteIterable[] getAll(@NotNull Transaction txn, @NotNull ByteIterable[] keys);
+
     boolean exists(@NotNull Transaction txn, @NotNull ByteIterable key, @NotNull ByteIterable data);
 
     /**
@@ -46,6 +61,17 @@ public interface Store {
 
     void putRight(@NotNull Transaction txn, @NotNull ByteIterable key, @NotNull ByteIterable value);
 
+    /**
+     * Puts a batch of key/value pairs just like {@link #put(Transaction, ByteIterable, ByteIterable)} does.
+     * The pairs are put in ascending order of keys, so neighbouring keys share the path from the root.
+     * Pairs with equal keys are put in their order in the batch.
+     *
+     * @param txn   a transaction required
+     * @param pairs not null key/value pairs
+     * @return number of pairs for which {@link #put(Transaction, ByteIterable, ByteIterable)} returned true
+     */
+    int putAll(@NotNull Transaction txn, @NotNull Collection<Pair<ByteIterable, ByteIterable>> pairs);
+
     /**
      * <p>If tree support duplicates and key already exists, then return false.</p>
      * <p>If tree support duplicates and key doesn't exists, then add key/value pair, return true.</p>
@@ -73,8 +99,43 @@ public interface Store {
      */
     boolean delete(@NotNull Transaction txn, @NotNull ByteIterable key);
 
+    /**
+     * Deletes key/value pairs with keys in specified range including all duplicates of the keys. Sub-trees of
+     * a B-tree lying entirely inside the range are dropped without visiting their leaves one by one.
+     *
+     * @param txn  a transaction required
+     * @param from start of the range of keys, inclusive
+     * @param to   end of the range of keys, inclusive
+     * @return number of deleted key/value pairs
+     */
+    long deleteRange(@NotNull Transaction txn, @NotNull ByteIterable from, @NotNull ByteIterable to);
+
+    /**
+     * Loads key/value pairs to the store which is empty in the transaction, e.g. just created or truncated.
+     * The pairs are consumed on commit of the transaction and written to the log bottom-up, page by page, so neither
+     * the pairs nor the store are held in memory. The pairs are consumed under the commit lock, so commits of other
+     * transactions are blocked for the whole load, including time spent by the iterator itself. Till commit the store
+     * can't be read or modified in the transaction.
+     *
+     * @param txn   a transaction required
+     * @param pairs key/value pairs sorted by key, and by value for a store with duplicates
+     * @throws jetbrains.exodus.ExodusException if the store is not empty in the transaction
+     */
+    void bulkLoad(@NotNull Transaction txn, @NotNull Iterator<Pair<ByteIterable, ByteIterable>> pairs);
+
     long count(@NotNull Transaction txn);
 
+    /**
+     * Counts key/value pairs with keys in specified range including all duplicates of the keys. For a B-tree,
+     * pages lying entirely inside the range are counted by their sizes, so the pairs are not iterated.
+     *
+     * @param txn  a transaction required
+     * @param from start of the range of keys, inclusive
+     * @param to   end of the range of keys, inclusive
+     * @return number of key/value pairs
+     */
+    long countRange(@NotNull Transaction txn, @NotNull ByteIterable from, @NotNull ByteIterable to);
+
     /**
      * Opens cursor over the store associated with a transaction.
      *
@@ -0,0 +1,311 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.core.dataStructures;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Object cache with W-TinyLFU eviction policy. A newly cached object gets to a small LRU window, an object evicted
+ * from the window is admitted to the main segmented LRU only if it is estimated by a {@link FrequencySketch} to be
+ * used more frequently than the main victim. So objects used once (e.g., by a scan) don't push out the hot ones.
+ * Lookups don't lock, hits are recorded in a lossy buffer which is drained to the policy in batches under the lock.
+ */
+public class TinyLfuObjectCache<K, V> extends ObjectCacheBase<K, V> {
+
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+    private static final int READ_BUFFER_SIZE = 128; // should be a power of 2
+    private static final int READ_BUFFER_DRAIN_THRESHOLD = 32;
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+    private static final byte REMOVED = 3;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data;
+    private final ReentrantLock lock;
+    private final FrequencySketch sketch;
+    private final int maxWindowSize;
+    private final int maxMainSize;
+    private final int maxProtectedSize;
+    // sentinels of cyclic queues, least recently used node is the next one of a sentinel
+    private final Node<K, V> window;
+    private final Node<K, V> probation;
+    private final Node<K, V> protectedQueue;
+    private int windowSize;
+    private int probationSize;
+    private int protectedSize;
+    private final AtomicReferenceArray<Node<K, V>> readBuffer;
+    private final AtomicLong readBufferWrites;
+    private volatile long readBufferReads;
+
+    public TinyLfuObjectCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    public TinyLfuObjectCache(final int size) {
+        super(size);
+        data = new ConcurrentHashMap<>(this.size);
+        lock = new ReentrantLock();
+        sketch = new FrequencySketch(this.size);
+        maxWindowSize = Math.max(1, this.size * WINDOW_PERCENT / 100);
+        maxMainSize = this.size - maxWindowSize;
+        maxProtectedSize = maxMainSize * PROTECTED_PERCENT / 100;
+        window = new Node<>(null, null);
+        probation = new Node<>(null, null);
+        protectedQueue = new Node<>(null, null);
+        readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        readBufferWrites = new AtomicLong();
+        readBufferReads = 0;
+    }
+
+    @Override
+    public V tryKeyLocked(@NotNull final K key) {
+        return tryKey(key);
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            for (final Node<K, V> node : data.values()) {
+                node.queue = REMOVED;
+            }
+            data.clear();
+            window.prev = window.next = window;
+            probation.prev = probation.next = probation;
+            protectedQueue.prev = protectedQueue.next = protectedQueue;
+            windowSize = probationSize = protectedSize = 0;
+            sketch.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void lock() {
+        lock.lock();
+    }
+
+    @Override
+    public void unlock() {
+        lock.unlock();
+    }
+
+    @Override
+    public V cacheObject(@NotNull final K key, @NotNull final V x) {
+        lock.lock();
+        try {
+            drainReadBuffer();
+            sketch.increment(key.hashCode());
+            final Node<K, V> existing = data.get(key);
+            if (existing != null) {
+                existing.value = x;
+                return null;
+            }
+            final Node<K, V> node = new Node<>(key, x);
+            data.put(key, node);
+            node.queue = WINDOW;
+            node.linkBefore(window);
+            ++windowSize;
+            return windowSize > maxWindowSize ? evict() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public V remove(@NotNull final K key) {
+        lock.lock();
+        try {
+            final Node<K, V> node = data.remove(key);
+            if (node == null) {
+                return null;
+            }
+            unlink(node);
+            return node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public V tryKey(@NotNull final K key) {
+        incAttempts();
+        final Node<K, V> node = data.get(key);
+        if (node == null) {
+            return null;
+        }
+        incHits();
+        afterRead(node);
+        return node.value;
+    }
+
+    @Override
+    public V getObject(@NotNull final K key) {
+        final Node<K, V> node = data.get(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public int count() {
+        return data.size();
+    }
+
+    /**
+     * Moves least recently used node of the window to the main queues if it is used more frequently than
+     * the main victim, evicts either the victim or the candidate.
+     *
+     * @return evicted value.
+     */
+    private V evict() {
+        final Node<K, V> candidate = window.next;
+        candidate.unlink();
+        --windowSize;
+        if (probationSize + protectedSize < maxMainSize) {
+            candidate.queue = PROBATION;
+            candidate.linkBefore(probation);
+            ++probationSize;
+            return null;
+        }
+        final Node<K, V> victim = probationSize > 0 ? probation.next : protectedQueue.next;
+        final Node<K, V> evicted;
+        if (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+            evicted = victim;
+            unlink(victim);
+            candidate.queue = PROBATION;
+            candidate.linkBefore(probation);
+            ++probationSize;
+        } else {
+            evicted = candidate;
+            candidate.queue = REMOVED;
+        }
+        data.remove(evicted.key);
+        return evicted.value;
+    }
+
+    private void unlink(@NotNull final Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                --windowSize;
+                break;
+            case PROBATION:
+                --probationSize;
+                break;
+            case PROTECTED:
+                --protectedSize;
+                break;
+            default:
+                return;
+        }
+        node.queue = REMOVED;
+        node.unlink();
+    }
+
+    private void afterRead(@NotNull final Node<K, V> node) {
+        final long writes = readBufferWrites.getAndIncrement();
+        final long pending = writes - readBufferReads;
+        if (pending < READ_BUFFER_SIZE) {
+            readBuffer.lazySet((int) writes & (READ_BUFFER_SIZE - 1), node);
+        }
+        if (pending >= READ_BUFFER_DRAIN_THRESHOLD && lock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        long reads = readBufferReads;
+        final long writes = Math.min(readBufferWrites.get(), reads + READ_BUFFER_SIZE);
+        while (reads < writes) {
+            final Node<K, V> node = readBuffer.getAndSet((int) reads & (READ_BUFFER_SIZE - 1), null);
+            if (node != null) {
+                onHit(node);
+            }
+            ++reads;
+        }
+        // hits which were not recorded because of full buffer are lost
+        readBufferReads = Math.max(reads, readBufferWrites.get() - READ_BUFFER_SIZE);
+    }
+
+    private void onHit(@NotNull final Node<K, V> node) {
+        sketch.increment(node.key.hashCode());
+        switch (node.queue) {
+            case WINDOW:
+                node.unlink();
+                node.linkBefore(window);
+                break;
+            case PROBATION:
+                node.unlink();
+                --probationSize;
+                node.queue = PROTECTED;
+                node.linkBefore(protectedQueue);
+                if (++protectedSize > maxProtectedSize) {
+                    final Node<K, V> demoted = protectedQueue.next;
+                    demoted.unlink();
+                    --protectedSize;
+                    demoted.queue = PROBATION;
+                    demoted.linkBefore(probation);
+                    ++probationSize;
+                }
+                break;
+            case PROTECTED:
+                node.unlink();
+                node.linkBefore(protectedQueue);
+                break;
+            default:
+                // the node is already removed
+        }
+    }
+
+    private static class Node<K, V> {
+
+        private final K key;
+        private volatile V value;
+        private byte queue;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        private Node(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+            queue = REMOVED;
+            prev = next = this;
+        }
+
+        private void linkBefore(@NotNull final Node<K, V> sentinel) {
+            final Node<K, V> last = sentinel.prev;
+            prev = last;
+            next = sentinel;
+            last.next = this;
+            sentinel.prev = this;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = next = this;
+        }
+    }
+}
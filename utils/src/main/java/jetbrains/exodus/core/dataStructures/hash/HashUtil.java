@@ -21,6 +21,7 @@ public class HashUtil {
 
     public static final int MIN_CAPACITY = 4;
     public static final float DEFAULT_LOAD_FACTOR = 1;
+    public static final float DEFAULT_OPEN_ADDRESSING_LOAD_FACTOR = 0.75f;
 
     private static final float CAPACITY_MULTIPLE = 1.618033989f;
 
@@ -43,6 +44,40 @@ public class HashUtil {
         return (int) hash;
     }
 
+    /**
+     * Spreads bits of hash code to get index in a table of power of two length of open addressing collection.
+     */
+    public static int mix(final int hash) {
+        final int h = hash * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    public static int mix(final long hash) {
+        return mix((int) (hash ^ (hash >>> 32)));
+    }
+
+    /**
+     * @return power of two length of table of open addressing collection which holds specified number of elements.
+     */
+    public static int openAddressingTableLength(final int capacity, final float loadFactor) {
+        if (loadFactor <= 0 || loadFactor >= 1) {
+            throw new IllegalArgumentException("Load factor of open addressing collection should be in (0, 1): " + loadFactor);
+        }
+        final long length = Math.max(2L, (long) Math.ceil(Math.max(capacity, MIN_CAPACITY) / (double) loadFactor));
+        if (length > (1 << 30)) {
+            throw new IllegalArgumentException("Too large capacity of open addressing collection: " + capacity);
+        }
+        return (int) Long.highestOneBit(length - 1) << 1;
+    }
+
+    /**
+     * @return number of elements which open addressing collection with the table of specified length can hold,
+     * at least one slot of the table is always free.
+     */
+    public static int openAddressingCapacity(final int length, final float loadFactor) {
+        return Math.min((int) Math.ceil(length * (double) loadFactor), length - 1);
+    }
+
     public static int nextCapacity(final int capacity) {
         return (int) ((capacity * CAPACITY_MULTIPLE)) + MIN_CAPACITY;
     }
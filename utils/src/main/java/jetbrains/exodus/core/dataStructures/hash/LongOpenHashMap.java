@@ -0,0 +1,316 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.core.dataStructures.hash;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Map from longs with open addressing and linear probing. Unlike {@link LongHashMap}, it doesn't allocate an object
+ * per mapping, keys and values are stored in two arrays.
+ */
+public class LongOpenHashMap<V> extends AbstractHashMap<Long, V> {
+
+    // zero marks a free slot, value of zero key is held in the slot following the table
+    private long[] keys;
+    private V[] values;
+    private boolean hasZeroKey;
+    private int capacity;
+    private final float loadFactor;
+    private int mask;
+
+    public LongOpenHashMap() {
+        this(0);
+    }
+
+    public LongOpenHashMap(int capacity) {
+        this(capacity, HashUtil.DEFAULT_OPEN_ADDRESSING_LOAD_FACTOR);
+    }
+
+    public LongOpenHashMap(int capacity, float loadFactor) {
+        this.loadFactor = loadFactor;
+        init(capacity);
+    }
+
+    public V get(final long key) {
+        if (key == 0) {
+            return hasZeroKey ? values[keys.length] : null;
+        }
+        final int index = indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public V get(final Object key) {
+        return get(((Long) key).longValue());
+    }
+
+    public V put(final long key, final V value) {
+        final V[] values = this.values;
+        if (key == 0) {
+            final int index = keys.length;
+            final V result = values[index];
+            values[index] = value;
+            if (hasZeroKey) {
+                return result;
+            }
+            hasZeroKey = true;
+            size += 1;
+            return null;
+        }
+        final long[] keys = this.keys;
+        final int mask = this.mask;
+        int index = HashUtil.mix(key) & mask;
+        for (long k; (k = keys[index]) != 0; index = (index + 1) & mask) {
+            if (k == key) {
+                final V result = values[index];
+                values[index] = value;
+                return result;
+            }
+        }
+        keys[index] = key;
+        values[index] = value;
+        size += 1;
+
+        if (size > capacity) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    @Override
+    public V put(final Long key, final V value) {
+        return put(key.longValue(), value);
+    }
+
+    public boolean containsKey(final long key) {
+        return key == 0 ? hasZeroKey : indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return containsKey(((Long) key).longValue());
+    }
+
+    public V remove(final long key) {
+        final V result;
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return null;
+            }
+            final int index = keys.length;
+            result = values[index];
+            values[index] = null;
+            hasZeroKey = false;
+        } else {
+            final int index = indexOf(key);
+            if (index < 0) {
+                return null;
+            }
+            result = values[index];
+            shiftKeys(index, null);
+        }
+        size -= 1;
+        return result;
+    }
+
+    @Override
+    public V remove(Object key) {
+        return remove(((Long) key).longValue());
+    }
+
+    @Override
+    protected Map.Entry<Long, V> getEntry(Object key) {
+        final long k = (Long) key;
+        return containsKey(k) ? new Entry(k, get(k)) : null;
+    }
+
+    @Override
+    protected void init(int capacity) {
+        allocateTable(HashUtil.openAddressingTableLength(capacity, loadFactor));
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    @Override
+    protected HashMapIterator hashIterator() {
+        return new HashIterator();
+    }
+
+    private int indexOf(final long key) {
+        final long[] keys = this.keys;
+        final int mask = this.mask;
+        for (int index = HashUtil.mix(key) & mask; ; index = (index + 1) & mask) {
+            final long k = keys[index];
+            if (k == key) {
+                return index;
+            }
+            if (k == 0) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Frees the slot and moves mappings of the following cluster so that none of them is separated from its home slot
+     * by a free slot. Keys which are moved over the end of the table to its start are added to the list of wrapped keys.
+     */
+    private void shiftKeys(int index, final List<Long> wrapped) {
+        final long[] keys = this.keys;
+        final V[] values = this.values;
+        final int mask = this.mask;
+        while (true) {
+            final int last = index;
+            index = (index + 1) & mask;
+            long key;
+            while (true) {
+                if ((key = keys[index]) == 0) {
+                    keys[last] = 0;
+                    values[last] = null;
+                    return;
+                }
+                final int home = HashUtil.mix(key) & mask;
+                // the mapping can be moved to the last slot if its home slot is not in (last, index]
+                if (last <= index ? last >= home || home > index : last >= home && home > index) {
+                    break;
+                }
+                index = (index + 1) & mask;
+            }
+            if (index < last && wrapped != null) {
+                wrapped.add(key);
+            }
+            keys[last] = key;
+            values[last] = values[index];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocateTable(int length) {
+        keys = new long[length];
+        values = (V[]) new Object[length + 1];
+        mask = length - 1;
+        capacity = HashUtil.openAddressingCapacity(length, loadFactor);
+    }
+
+    private void rehash(int length) {
+        final long[] oldKeys = keys;
+        final V[] oldValues = values;
+        allocateTable(length);
+        final long[] keys = this.keys;
+        final V[] values = this.values;
+        final int mask = this.mask;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            final long key = oldKeys[i];
+            if (key != 0) {
+                int index = HashUtil.mix(key) & mask;
+                while (keys[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+        values[length] = oldValues[oldKeys.length];
+    }
+
+    private final class Entry implements Map.Entry<Long, V> {
+
+        private final long key;
+        private V value;
+
+        private Entry(final long key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public Long getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(final V value) {
+            this.value = value;
+            return put(key, value);
+        }
+    }
+
+    /**
+     * Iterates the table backwards, so removal of a mapping by the iterator can move to the already iterated slots
+     * only the mappings wrapped over the end of the table. Such mappings are iterated after the table.
+     */
+    private final class HashIterator extends HashMapIterator {
+
+        private int index = keys.length;
+        private int count = size;
+        private boolean zeroKey = hasZeroKey;
+        private List<Long> wrapped = null;
+        private int last = -1;
+        private Entry lastEntry;
+
+        @Override
+        public boolean hasNext() {
+            return count > 0;
+        }
+
+        @Override
+        public void remove() {
+            if (lastEntry == null) {
+                throw new IllegalStateException();
+            }
+            if (last >= 0) {
+                if (wrapped == null) {
+                    wrapped = new ArrayList<>(2);
+                }
+                shiftKeys(last, wrapped);
+                size -= 1;
+            } else {
+                LongOpenHashMap.this.remove(lastEntry.key);
+            }
+            lastEntry = null;
+        }
+
+        @Override
+        protected Entry nextEntry() {
+            if (count <= 0) {
+                throw new NoSuchElementException();
+            }
+            --count;
+            last = -1;
+            if (zeroKey) {
+                zeroKey = false;
+                return lastEntry = new Entry(0, values[keys.length]);
+            }
+            final long[] keys = LongOpenHashMap.this.keys;
+            while (index > 0) {
+                final long key = keys[--index];
+                if (key != 0) {
+                    last = index;
+                    return lastEntry = new Entry(key, values[index]);
+                }
+            }
+            final long key = wrapped.remove(wrapped.size() - 1);
+            return lastEntry = new Entry(key, get(key));
+        }
+    }
+}
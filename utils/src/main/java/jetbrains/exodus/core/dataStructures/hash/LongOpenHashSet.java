@@ -0,0 +1,284 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.core.dataStructures.hash;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of longs with open addressing and linear probing. Unlike {@link LongHashSet}, it doesn't allocate an object
+ * per element, keys are stored in a single array.
+ */
+public class LongOpenHashSet extends AbstractSet<Long> implements LongSet {
+
+    // zero marks a free slot, zero key is held by the flag
+    private long[] keys;
+    private boolean hasZeroKey;
+    private int capacity;
+    private int size;
+    private final float loadFactor;
+    private int mask;
+
+    public LongOpenHashSet() {
+        this(0);
+    }
+
+    public LongOpenHashSet(int capacity) {
+        this(capacity, HashUtil.DEFAULT_OPEN_ADDRESSING_LOAD_FACTOR);
+    }
+
+    public LongOpenHashSet(int capacity, float loadFactor) {
+        this.loadFactor = loadFactor;
+        allocateTable(HashUtil.openAddressingTableLength(capacity, loadFactor));
+    }
+
+    @Override
+    public boolean contains(final long key) {
+        if (key == 0) {
+            return hasZeroKey;
+        }
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean contains(final Object key) {
+        return contains(((Long) key).longValue());
+    }
+
+    @Override
+    public boolean add(final long key) {
+        if (key == 0) {
+            if (hasZeroKey) {
+                return false;
+            }
+            hasZeroKey = true;
+            size += 1;
+            return true;
+        }
+        final long[] keys = this.keys;
+        final int mask = this.mask;
+        int index = HashUtil.mix(key) & mask;
+        for (long k; (k = keys[index]) != 0; index = (index + 1) & mask) {
+            if (k == key) {
+                return false;
+            }
+        }
+        keys[index] = key;
+        size += 1;
+
+        if (size > capacity) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean add(Long key) {
+        return add(key.longValue());
+    }
+
+    @Override
+    public boolean remove(final long key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return false;
+            }
+            hasZeroKey = false;
+        } else {
+            final int index = indexOf(key);
+            if (index < 0) {
+                return false;
+            }
+            shiftKeys(index, null);
+        }
+        size -= 1;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object key) {
+        return remove(((Long) key).longValue());
+    }
+
+    @Override
+    public void clear() {
+        allocateTable(HashUtil.openAddressingTableLength(0, loadFactor));
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    @Override
+    public LongIterator iterator() {
+        return new HashSetIterator();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long[] toLongArray() {
+        if (size == 0) return EMPTY_ARRAY;
+        final long[] result = new long[size];
+        int i = 0;
+        if (hasZeroKey) {
+            ++i;
+        }
+        for (final long key : keys) {
+            if (key != 0) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+
+    private int indexOf(final long key) {
+        final long[] keys = this.keys;
+        final int mask = this.mask;
+        for (int index = HashUtil.mix(key) & mask; ; index = (index + 1) & mask) {
+            final long k = keys[index];
+            if (k == key) {
+                return index;
+            }
+            if (k == 0) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Frees the slot and moves keys of the following cluster so that none of them is separated from its home slot by
+     * a free slot. Keys which are moved over the end of the table to its start are added to the list of wrapped keys.
+     */
+    private void shiftKeys(int index, final List<Long> wrapped) {
+        final long[] keys = this.keys;
+        final int mask = this.mask;
+        while (true) {
+            final int last = index;
+            index = (index + 1) & mask;
+            long key;
+            while (true) {
+                if ((key = keys[index]) == 0) {
+                    keys[last] = 0;
+                    return;
+                }
+                final int home = HashUtil.mix(key) & mask;
+                // the key can be moved to the last slot if its home slot is not in (last, index]
+                if (last <= index ? last >= home || home > index : last >= home && home > index) {
+                    break;
+                }
+                index = (index + 1) & mask;
+            }
+            if (index < last && wrapped != null) {
+                wrapped.add(key);
+            }
+            keys[last] = key;
+        }
+    }
+
+    private void allocateTable(int length) {
+        keys = new long[length];
+        mask = length - 1;
+        capacity = HashUtil.openAddressingCapacity(length, loadFactor);
+    }
+
+    private void rehash(int length) {
+        final long[] oldKeys = keys;
+        allocateTable(length);
+        final long[] keys = this.keys;
+        final int mask = this.mask;
+        for (final long key : oldKeys) {
+            if (key != 0) {
+                int index = HashUtil.mix(key) & mask;
+                while (keys[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+            }
+        }
+    }
+
+    /**
+     * Iterates the table backwards, so removal of a key by the iterator can move to the already iterated slots only
+     * the keys wrapped over the end of the table. Such keys are iterated after the table.
+     */
+    private class HashSetIterator implements LongIterator {
+
+        private static final int NO_LAST = -1;
+        private static final int LAST_ZERO_KEY = -2;
+        private static final int LAST_WRAPPED = -3;
+
+        private int index = keys.length;
+        private int count = size;
+        private boolean zeroKey = hasZeroKey;
+        private List<Long> wrapped = null;
+        private int last = NO_LAST;
+        private long lastKey;
+
+        @Override
+        public boolean hasNext() {
+            return count > 0;
+        }
+
+        @Override
+        public Long next() {
+            return nextLong();
+        }
+
+        @Override
+        public long nextLong() {
+            if (count <= 0) {
+                throw new NoSuchElementException();
+            }
+            --count;
+            if (zeroKey) {
+                zeroKey = false;
+                last = LAST_ZERO_KEY;
+                return lastKey = 0;
+            }
+            final long[] keys = LongOpenHashSet.this.keys;
+            while (index > 0) {
+                final long key = keys[--index];
+                if (key != 0) {
+                    last = index;
+                    return lastKey = key;
+                }
+            }
+            last = LAST_WRAPPED;
+            return lastKey = wrapped.remove(wrapped.size() - 1);
+        }
+
+        @Override
+        public void remove() {
+            if (last == NO_LAST) {
+                throw new IllegalStateException();
+            }
+            if (last >= 0) {
+                if (wrapped == null) {
+                    wrapped = new ArrayList<>(2);
+                }
+                shiftKeys(last, wrapped);
+                size -= 1;
+            } else {
+                LongOpenHashSet.this.remove(lastKey);
+            }
+            last = NO_LAST;
+        }
+    }
+}
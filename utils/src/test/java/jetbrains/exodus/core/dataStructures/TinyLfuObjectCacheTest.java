@@ -0,0 +1,131 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.core.dataStructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TinyLfuObjectCacheTest {
+
+    @Test
+    public void cacheFiniteness() {
+        final TinyLfuObjectCache<Integer, String> cache = new TinyLfuObjectCache<>(100);
+        for (int i = 0; i < 1000; ++i) {
+            cache.cacheObject(i, Integer.toString(i));
+            Assert.assertTrue(cache.count() <= 100);
+        }
+        Assert.assertEquals(100, cache.count());
+    }
+
+    @Test
+    public void putGetRemove() {
+        final TinyLfuObjectCache<String, String> cache = new TinyLfuObjectCache<>(4);
+        cache.put("Eclipse", "An IDE");
+        cache.put("IDEA", "good");
+        Assert.assertEquals("An IDE", cache.get("Eclipse"));
+        Assert.assertEquals("good", cache.put("IDEA", "better"));
+        Assert.assertEquals("better", cache.get("IDEA"));
+        Assert.assertEquals("better", cache.remove("IDEA"));
+        Assert.assertNull(cache.get("IDEA"));
+        Assert.assertNull(cache.remove("IDEA"));
+        Assert.assertEquals(1, cache.count());
+        cache.clear();
+        Assert.assertTrue(cache.isEmpty());
+        Assert.assertNull(cache.get("Eclipse"));
+    }
+
+    @Test
+    public void scanResistance() {
+        final int size = 1000;
+        final TinyLfuObjectCache<Integer, Integer> cache = new TinyLfuObjectCache<>(size);
+        final int hotCount = size / 2;
+        for (int i = 0; i < 10; ++i) {
+            for (int j = 0; j < hotCount; ++j) {
+                if (cache.tryKey(j) == null) {
+                    cache.cacheObject(j, j);
+                }
+            }
+        }
+        // scan of objects used once
+        for (int i = hotCount; i < hotCount + size * 10; ++i) {
+            if (cache.tryKey(i) == null) {
+                cache.cacheObject(i, i);
+            }
+        }
+        int hotCached = 0;
+        for (int j = 0; j < hotCount; ++j) {
+            if (cache.getObject(j) != null) {
+                ++hotCached;
+            }
+        }
+        Assert.assertTrue("Hot objects cached: " + hotCached, hotCached > hotCount * 9 / 10);
+    }
+
+    @Test
+    public void frequencySketch() {
+        final FrequencySketch sketch = new FrequencySketch(512);
+        for (int i = 0; i < 10; ++i) {
+            sketch.increment(42);
+        }
+        sketch.increment(43);
+        Assert.assertTrue(sketch.frequency(42) >= 10);
+        Assert.assertTrue(sketch.frequency(42) > sketch.frequency(43));
+        for (int i = 0; i < 100; ++i) {
+            sketch.increment(777);
+        }
+        // counters are 4-bit
+        Assert.assertEquals(15, sketch.frequency(777));
+    }
+
+    @Test
+    public void concurrentAccess() throws InterruptedException {
+        final TinyLfuObjectCache<Integer, Integer> cache = new TinyLfuObjectCache<>(256);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; ++t) {
+            final int seed = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 100000; ++i) {
+                            final int key = ((i * 31 + seed) % 1000) & ((i & 1) == 0 ? 127 : 1023);
+                            final Integer value = cache.tryKey(key);
+                            if (value == null) {
+                                cache.cacheObject(key, key);
+                            } else if (value != key) {
+                                throw new IllegalStateException("Unexpected value " + value + " by key " + key);
+                            }
+                            if (i % 1000 == 0) {
+                                cache.remove(key);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.set(e);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull(error.get());
+        Assert.assertTrue(cache.count() <= 256);
+    }
+}
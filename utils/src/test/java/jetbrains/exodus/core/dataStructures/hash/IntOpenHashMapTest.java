@@ -0,0 +1,109 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.core.dataStructures.hash;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class IntOpenHashMapTest {
+
+    @Test
+    public void testPutGet() {
+        final Map<Integer, String> tested = new IntOpenHashMap<>();
+        for (int i = 0; i < 1000; ++i) {
+            tested.put(i, Integer.toString(i));
+        }
+        Assert.assertEquals(1000, tested.size());
+        for (int i = 0; i < 1000; ++i) {
+            Assert.assertEquals(Integer.toString(i), tested.get(i));
+        }
+        for (int i = 0; i < 1000; ++i) {
+            Assert.assertEquals(Integer.toString(i), tested.put(i, Integer.toString(i + 1)));
+        }
+        Assert.assertEquals(1000, tested.size());
+        for (int i = 0; i < 1000; ++i) {
+            Assert.assertEquals(Integer.toString(i + 1), tested.get(i));
+        }
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        final Map<Integer, String> tested = new IntOpenHashMap<>();
+        for (int i = 0; i < 1000; ++i) {
+            tested.put(i - 500, Integer.toString(i));
+        }
+        Assert.assertEquals(1000, tested.size());
+        for (int i = 0; i < 1000; i += 2) {
+            Assert.assertEquals(Integer.toString(i), tested.remove(i - 500));
+        }
+        Assert.assertEquals(500, tested.size());
+        for (int i = 0; i < 1000; ++i) {
+            Assert.assertEquals((i % 2 == 0) ? null : Integer.toString(i), tested.get(i - 500));
+        }
+    }
+
+    @Test
+    public void testRandom() {
+        final IntOpenHashMap<Integer> tested = new IntOpenHashMap<>();
+        final Map<Integer, Integer> map = new java.util.HashMap<>();
+        final Random rnd = new Random(0);
+        for (int i = 0; i < 100000; ++i) {
+            // small range of keys makes long clusters in the table
+            final int key = rnd.nextInt(2000) * 1024;
+            if (rnd.nextBoolean()) {
+                Assert.assertEquals(map.put(key, i), tested.put(key, (Integer) i));
+            } else {
+                Assert.assertEquals(map.remove(key), tested.remove(key));
+            }
+            Assert.assertEquals(map.size(), tested.size());
+        }
+        Assert.assertEquals(map, tested);
+    }
+
+    @Test
+    public void keySet2() {
+        final Map<Integer, String> tested = new IntOpenHashMap<>();
+        final Set<Integer> set = new IntHashSet();
+
+        for (int i = 0; i < 10000; ++i) {
+            tested.put(i, Integer.toString(i));
+            set.add(i);
+        }
+        Iterator<Integer> it = tested.keySet().iterator();
+        while (it.hasNext()) {
+            final int i = it.next();
+            if (i % 2 == 0) {
+                it.remove();
+                Assert.assertTrue(set.remove(i));
+            }
+        }
+
+        Assert.assertEquals(5000, tested.size());
+
+        it = tested.keySet().iterator();
+        for (int i = 9999; i > 0; i -= 2) {
+            Assert.assertTrue(it.hasNext());
+            Assert.assertTrue(it.next() % 2 != 0);
+            Assert.assertTrue(set.remove(i));
+        }
+        Assert.assertEquals(0, set.size());
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.core.dataStructures.hash;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class LongOpenHashMapTest {
+
+    @Test
+    public void testPutGet() {
+        final Map<Long, String> tested = new LongOpenHashMap<>();
+        for (long i = 0; i < 1000; ++i) {
+            tested.put(i, Long.toString(i));
+        }
+        Assert.assertEquals(1000, tested.size());
+        for (long i = 0; i < 1000; ++i) {
+            Assert.assertEquals(Long.toString(i), tested.get(i));
+        }
+        for (long i = 0; i < 1000; ++i) {
+            Assert.assertEquals(Long.toString(i), tested.put(i, Long.toString(i + 1)));
+        }
+        Assert.assertEquals(1000, tested.size());
+        for (long i = 0; i < 1000; ++i) {
+            Assert.assertEquals(Long.toString(i + 1), tested.get(i));
+        }
+    }
+
+    @Test
+    public void testPutGet2() {
+        final Map<Long, String> tested = new LongOpenHashMap<>();
+        for (long i = 0; i < 1000; ++i) {
+            tested.put(i - 500, Long.toString(i));
+        }
+        Assert.assertEquals(1000, tested.size());
+        for (long i = 0; i < 1000; ++i) {
+            Assert.assertEquals(Long.toString(i), tested.get(i - 500));
+        }
+        for (long i = 0; i < 1000; ++i) {
+            Assert.assertEquals(Long.toString(i), tested.put(i - 500, Long.toString(i + 1)));
+        }
+        Assert.assertEquals(1000, tested.size());
+        for (long i = 0; i < 1000; ++i) {
+            Assert.assertEquals(Long.toString(i + 1), tested.get(i - 500));
+        }
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        final Map<Long, String> tested = new LongOpenHashMap<>();
+        for (long i = 0; i < 1000; ++i) {
+            tested.put(i, Long.toString(i));
+        }
+        Assert.assertEquals(1000, tested.size());
+        for (long i = 0; i < 1000; i += 2) {
+            Assert.assertEquals(Long.toString(i), tested.remove(i));
+        }
+        Assert.assertEquals(500, tested.size());
+        for (long i = 0; i < 1000; ++i) {
+            Assert.assertEquals((i % 2 == 0) ? null : Long.toString(i), tested.get(i));
+        }
+        tested.clear();
+        Assert.assertEquals(0, tested.size());
+        Assert.assertNull(tested.get(1L));
+    }
+
+    @Test
+    public void testRandom() {
+        final LongOpenHashMap<Long> tested = new LongOpenHashMap<>();
+        final Map<Long, Long> map = new java.util.HashMap<>();
+        final Random rnd = new Random(0);
+        for (int i = 0; i < 100000; ++i) {
+            // small range of keys makes long clusters in the table
+            final long key = rnd.nextInt(2000) * 1024L;
+            if (rnd.nextBoolean()) {
+                Assert.assertEquals(map.put(key, (long) i), tested.put(key, (Long) (long) i));
+            } else {
+                Assert.assertEquals(map.remove(key), tested.remove(key));
+            }
+            Assert.assertEquals(map.size(), tested.size());
+        }
+        for (final Map.Entry<Long, Long> entry : map.entrySet()) {
+            Assert.assertEquals(entry.getValue(), tested.get(entry.getKey()));
+        }
+        Assert.assertEquals(map, tested);
+    }
+
+    @Test
+    public void entrySetValue() {
+        final Map<Long, String> tested = new LongOpenHashMap<>();
+        for (long i = 0; i < 1000; ++i) {
+            tested.put(i, Long.toString(i));
+        }
+        for (final Map.Entry<Long, String> entry : tested.entrySet()) {
+            Assert.assertEquals(Long.toString(entry.getKey()), entry.setValue("v" + entry.getKey()));
+        }
+        for (long i = 0; i < 1000; ++i) {
+            Assert.assertEquals("v" + i, tested.get(i));
+        }
+    }
+
+    @Test
+    public void keySet() {
+        final Map<Long, String> tested = new LongOpenHashMap<>();
+        final Set<Long> set = new LongHashSet();
+
+        for (long i = 0; i < 10000; ++i) {
+            tested.put(i, Long.toString(i));
+            set.add(i);
+        }
+        for (Long key : tested.keySet()) {
+            Assert.assertTrue(set.remove(key));
+        }
+        Assert.assertEquals(0, set.size());
+    }
+
+    @Test
+    public void keySet2() {
+        final Map<Long, String> tested = new LongOpenHashMap<>();
+        final Set<Long> set = new LongHashSet();
+
+        for (long i = 0; i < 10000; ++i) {
+            tested.put(i, Long.toString(i));
+            set.add(i);
+        }
+        Iterator<Long> it = tested.keySet().iterator();
+        while (it.hasNext()) {
+            final long i = it.next();
+            if (i % 2 == 0) {
+                it.remove();
+                Assert.assertTrue(set.remove(i));
+            }
+        }
+
+        Assert.assertEquals(5000, tested.size());
+
+        it = tested.keySet().iterator();
+        for (long i = 9999; i > 0; i -= 2) {
+            Assert.assertTrue(it.hasNext());
+            Assert.assertTrue(it.next() % 2 != 0);
+            Assert.assertTrue(set.remove(i));
+        }
+        Assert.assertEquals(0, set.size());
+    }
+
+    @Test
+    public void iteratorRemoveAll() {
+        final Map<Long, String> tested = new LongOpenHashMap<>();
+        final Random rnd = new Random(1);
+        for (int i = 0; i < 10000; ++i) {
+            final long key = rnd.nextInt(20000) * 64L;
+            tested.put(key, Long.toString(key));
+        }
+        final int size = tested.size();
+        final Set<Long> iterated = new java.util.HashSet<>();
+        final Iterator<Map.Entry<Long, String>> it = tested.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<Long, String> entry = it.next();
+            Assert.assertEquals(Long.toString(entry.getKey()), entry.getValue());
+            Assert.assertTrue(iterated.add(entry.getKey()));
+            it.remove();
+        }
+        Assert.assertEquals(size, iterated.size());
+        Assert.assertEquals(0, tested.size());
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.core.dataStructures.hash;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+public class LongOpenHashSetTest {
+
+    @Test
+    public void testAddContains() {
+        final Set<Long> tested = new LongOpenHashSet();
+        for (int i = 0; i < 1000; ++i) {
+            tested.add(i + 100000000000L);
+        }
+        Assert.assertEquals(1000, tested.size());
+        for (int i = 0; i < 1000; ++i) {
+            Assert.assertTrue(tested.contains(i + 100000000000L));
+        }
+    }
+
+    @Test
+    public void testAddContainsRemove() {
+        final Set<Long> tested = new LongOpenHashSet();
+        for (int i = 0; i < 1000; ++i) {
+            tested.add(i + 100000000000L);
+        }
+        Assert.assertEquals(1000, tested.size());
+        for (int i = 0; i < 1000; i += 2) {
+            Assert.assertTrue(tested.remove(i + 100000000000L));
+        }
+        Assert.assertEquals(500, tested.size());
+        for (int i = 0; i < 1000; ++i) {
+            if (i % 2 == 0) {
+                Assert.assertFalse(tested.contains(i + 100000000000L));
+            } else {
+                Assert.assertTrue(tested.contains(i + 100000000000L));
+            }
+        }
+    }
+
+    @Test
+    public void testZeroKey() {
+        final LongSet tested = new LongOpenHashSet();
+        Assert.assertFalse(tested.contains(0L));
+        Assert.assertTrue(tested.add(0L));
+        Assert.assertFalse(tested.add(0L));
+        Assert.assertTrue(tested.add(-1L));
+        Assert.assertEquals(2, tested.size());
+        Assert.assertTrue(tested.contains(0L));
+        final long[] array = tested.toLongArray();
+        Arrays.sort(array);
+        Assert.assertArrayEquals(new long[]{-1L, 0L}, array);
+        Assert.assertTrue(tested.remove(0L));
+        Assert.assertFalse(tested.remove(0L));
+        Assert.assertFalse(tested.contains(0L));
+        Assert.assertEquals(1, tested.size());
+    }
+
+    @Test
+    public void testRandom() {
+        final LongSet tested = new LongOpenHashSet();
+        final Set<Long> set = new java.util.HashSet<>();
+        final Random rnd = new Random(0);
+        for (int i = 0; i < 100000; ++i) {
+            // small range of keys makes long clusters in the table
+            final long key = rnd.nextInt(2000) * 1024L;
+            if (rnd.nextBoolean()) {
+                Assert.assertEquals(set.add(key), tested.add(key));
+            } else {
+                Assert.assertEquals(set.remove(key), tested.remove(key));
+            }
+            Assert.assertEquals(set.size(), tested.size());
+        }
+        for (final Long key : set) {
+            Assert.assertTrue(tested.contains(key));
+        }
+        for (final Long key : tested) {
+            Assert.assertTrue(set.contains(key));
+        }
+    }
+
+    @Test
+    public void iterator() {
+        final Set<Long> tested = new LongOpenHashSet();
+        final Set<Long> set = new java.util.HashSet<>();
+
+        for (long i = 0; i < 10000; ++i) {
+            tested.add(i);
+            set.add(i);
+        }
+        for (Long key : tested) {
+            Assert.assertTrue(set.remove(key));
+        }
+        Assert.assertEquals(0, set.size());
+    }
+
+    @Test
+    public void iterator2() {
+        final Set<Long> tested = new LongOpenHashSet();
+        final Set<Long> set = new HashSet<>();
+
+        for (long i = 0; i < 10000; ++i) {
+            tested.add(i);
+            set.add(i);
+        }
+        Iterator<Long> it = tested.iterator();
+        while (it.hasNext()) {
+            final long i = it.next();
+            if (i % 2 == 0) {
+                it.remove();
+                Assert.assertTrue(set.remove(i));
+            }
+        }
+
+        Assert.assertEquals(5000, tested.size());
+
+        it = tested.iterator();
+        for (long i = 9999; i > 0; i -= 2) {
+            Assert.assertTrue(it.hasNext());
+            Assert.assertTrue(it.next() % 2 != 0);
+            Assert.assertTrue(set.remove(i));
+        }
+        Assert.assertFalse(it.hasNext());
+        Assert.assertEquals(0, set.size());
+    }
+
+    @Test
+    public void iteratorRemoveAll() {
+        final LongSet tested = new LongOpenHashSet();
+        final Random rnd = new Random(1);
+        for (int i = 0; i < 10000; ++i) {
+            tested.add(rnd.nextInt(20000) * 64L);
+        }
+        final int size = tested.size();
+        final Set<Long> iterated = new java.util.HashSet<>();
+        final LongIterator it = tested.iterator();
+        while (it.hasNext()) {
+            Assert.assertTrue(iterated.add(it.nextLong()));
+            it.remove();
+        }
+        Assert.assertEquals(size, iterated.size());
+        Assert.assertEquals(0, tested.size());
+    }
+}